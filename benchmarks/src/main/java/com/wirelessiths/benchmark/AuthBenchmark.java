@@ -0,0 +1,66 @@
+package com.wirelessiths.benchmark;
+
+import com.wirelessiths.service.AuthService;
+import com.wirelessiths.service.Principal;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading the caller and its groups from requestContext.authorizer.claims.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class AuthBenchmark {
+
+    /**
+     * Shape of the cognito:groups claim. The claim values are kept out of the params because JMH does not
+     * escape commas and quotes in its json output.
+     */
+    @Param({"single", "list", "array", "nonAdmin"})
+    private String groups;
+
+    private Map<String, Object> input;
+
+    @Setup
+    public void setUp() {
+        Map<String, String> claims = new HashMap<>();
+        claims.put("sub", "83396a64-4a39-4c5f-b7e4-8e18b435b41e");
+        claims.put("cognito:groups", claim(groups));
+        Map<String, Object> authorizer = new HashMap<>();
+        authorizer.put("claims", claims);
+        Map<String, Object> requestContext = new HashMap<>();
+        requestContext.put("authorizer", authorizer);
+        input = new HashMap<>();
+        input.put("requestContext", requestContext);
+    }
+
+    private static String claim(String shape) {
+        switch (shape) {
+            case "single":
+                return "admin";
+            case "list":
+                return "support,users,admin";
+            case "array":
+                return "[\"support\", \"users\", \"admin\"]";
+            default:
+                return "support,users";
+        }
+    }
+
+    @Benchmark
+    public boolean principalCanAccess() {
+        return Principal.from(input).canAccess("83396a64-4a39-4c5f-b7e4-8e18b435b41e");
+    }
+
+    @Benchmark
+    public boolean authServiceIsAdmin() {
+        return AuthService.isAdmin(input);
+    }
+}
@@ -0,0 +1,80 @@
+package com.wirelessiths.benchmark;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperTableModel;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.wirelessiths.dal.Booking;
+import com.wirelessiths.dal.BookingStatus;
+import com.wirelessiths.dal.trip.Location;
+import com.wirelessiths.dal.trip.Trip;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Builds realistic bookings, with an embedded trip, for the benchmarks.
+ */
+public final class BookingFixtures {
+
+    public static final String TABLE_NAME = "benchmark-table";
+
+    private BookingFixtures() {
+    }
+
+    public static DynamoDBMapperConfig mapperConfig() {
+        return DynamoDBMapperConfig.builder()
+                .withTableNameOverride(new DynamoDBMapperConfig.TableNameOverride(TABLE_NAME))
+                .build();
+    }
+
+    public static Booking booking(int i) {
+        Instant start = Instant.parse("2019-09-02T08:00:00.000Z").plusSeconds(i * 600L);
+        Booking booking = new Booking(new StubDynamoDB(new ArrayList<>()), mapperConfig());
+        booking.setScooterId("scooter-" + (i % 200));
+        booking.setBookingId(UUID.randomUUID().toString());
+        booking.setUserId("user-" + (i % 1000));
+        booking.setStartTime(start);
+        booking.setEndTime(start.plusSeconds(1800));
+        booking.setBookingStatus(BookingStatus.COMPLETED);
+        booking.getTrips().add(trip(start));
+        return booking;
+    }
+
+    public static Trip trip(Instant start) {
+        Trip trip = new Trip();
+        trip.setTripId(UUID.randomUUID().toString());
+        trip.setMarket("SE");
+        trip.setStartTime(start.plusSeconds(60));
+        trip.setEndTime(start.plusSeconds(1500));
+        trip.setTotalDistanceMeter(2345.5);
+        Location from = new Location();
+        from.setLatitude(57.70887);
+        from.setLongitude(11.97456);
+        Location to = new Location();
+        to.setLatitude(57.69744);
+        to.setLongitude(11.98877);
+        trip.setStartPosition(from);
+        trip.setEndPosition(to);
+        trip.getTags().add("commute");
+        trip.getIdentifiers().put("vin", "WIT0000000001");
+        trip.getCustomAttributes().put("battery_used", 12.5);
+        return trip;
+    }
+
+    /**
+     * Marshals n bookings into the attribute maps DynamoDB would return for them.
+     */
+    public static List<Map<String, AttributeValue>> items(int n) {
+        DynamoDBMapper mapper = new DynamoDBMapper(new StubDynamoDB(new ArrayList<>()), mapperConfig());
+        DynamoDBMapperTableModel<Booking> model = mapper.getTableModel(Booking.class);
+        List<Map<String, AttributeValue>> items = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            items.add(model.convert(booking(i)));
+        }
+        return items;
+    }
+}
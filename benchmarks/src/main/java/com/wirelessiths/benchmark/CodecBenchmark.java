@@ -0,0 +1,77 @@
+package com.wirelessiths.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.wirelessiths.ApiGatewayResponse;
+import com.wirelessiths.codec.Codecs;
+import com.wirelessiths.dal.Booking;
+import com.wirelessiths.dal.CreateBookingRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request parse and response write paths. The *Tree and *NewMapper variants reproduce how the handlers
+ * used to do it, a new ObjectMapper and a JsonNode tree per request, as a reference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class CodecBenchmark {
+
+    private static final String CREATE_BODY = "{\"scooterId\":\"scooter-17\",\"startTime\":\"2019-09-02T14:00:00.000Z\"," +
+            "\"endTime\":\"2019-09-02T15:00:00.000Z\"}";
+
+    @Param({"1", "100"})
+    private int bookings;
+
+    private List<Booking> bookingList;
+
+    @Setup
+    public void setUp() {
+        bookingList = new ArrayList<>(bookings);
+        for (int i = 0; i < bookings; i++) {
+            bookingList.add(BookingFixtures.booking(i));
+        }
+    }
+
+    @Benchmark
+    public Instant parseCreateRequestTree() throws IOException {
+        JsonNode body = new ObjectMapper().readTree(CREATE_BODY);
+        body.get("scooterId").asText();
+        Instant.parse(body.get("startTime").asText());
+        return Instant.parse(body.get("endTime").asText());
+    }
+
+    @Benchmark
+    public Instant parseCreateRequest() throws IOException {
+        CreateBookingRequest request = Codecs.CREATE_BOOKING_REQUEST.readValue(CREATE_BODY);
+        return request.getEndTime();
+    }
+
+    @Benchmark
+    public String writeBookingsNewMapper() throws IOException {
+        return new ObjectMapper()
+                .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false)
+                .registerModule(new JavaTimeModule())
+                .writeValueAsString(bookingList);
+    }
+
+    @Benchmark
+    public String writeBookingsResponse() {
+        return ApiGatewayResponse.builder()
+                .setStatusCode(200)
+                .setObjectBody(bookingList, Codecs.BOOKINGS)
+                .build()
+                .getBody();
+    }
+}
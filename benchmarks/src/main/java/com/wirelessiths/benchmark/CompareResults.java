@@ -0,0 +1,79 @@
+package com.wirelessiths.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares two JMH json result files and exits with status 1 if any benchmark got slower than the allowed
+ * threshold.
+ * <p>
+ * Usage: {@code java -cp target/benchmarks.jar com.wirelessiths.benchmark.CompareResults baseline.json
+ * target/jmh-result.json [threshold percent, default 10]}
+ */
+public class CompareResults {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: CompareResults <baseline.json> <current.json> [threshold percent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+
+        Map<String, JsonNode> baseline = read(new File(args[0]));
+        Map<String, JsonNode> current = read(new File(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("NEW        %s %.3f %s%n", entry.getKey(), score(entry.getValue()), unit(entry.getValue()));
+                continue;
+            }
+            double change = change(before, entry.getValue());
+            boolean regressed = change > threshold;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-10s %s %.3f -> %.3f %s (%+.1f%%)%n", regressed ? "REGRESSED" : "OK", entry.getKey(),
+                    score(before), score(entry.getValue()), unit(entry.getValue()), change);
+        }
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+
+    /**
+     * @return how many percent worse the current score is, negative if it improved
+     */
+    static double change(JsonNode before, JsonNode after) {
+        double percent = (score(after) - score(before)) / score(before) * 100;
+        // for throughput a higher score is better
+        return "thrpt".equals(after.path("mode").asText()) ? -percent : percent;
+    }
+
+    private static Map<String, JsonNode> read(File file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText());
+            Iterator<Map.Entry<String, JsonNode>> params = result.path("params").fields();
+            while (params.hasNext()) {
+                Map.Entry<String, JsonNode> param = params.next();
+                key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+
+    private static double score(JsonNode result) {
+        return result.path("primaryMetric").path("score").asDouble();
+    }
+
+    private static String unit(JsonNode result) {
+        return result.path("primaryMetric").path("scoreUnit").asText();
+    }
+}
@@ -0,0 +1,56 @@
+package com.wirelessiths.benchmark;
+
+import com.wirelessiths.codec.Codecs;
+import com.wirelessiths.codec.Gzip;
+import com.wirelessiths.dal.Booking;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzipping a page of bookings with their trips. gzipStream is a new GZIPOutputStream per body at the default
+ * level, as a reference for the pooled Deflater in {@link Gzip}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class CompressionBenchmark {
+
+    @Param({"100", "1000"})
+    private int bookings;
+
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<Booking> bookingList = new ArrayList<>(bookings);
+        for (int i = 0; i < bookings; i++) {
+            bookingList.add(BookingFixtures.booking(i));
+        }
+        json = Codecs.BOOKINGS.writeValueAsString(bookingList).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] gzipStream() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        }
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] gzipPooled() {
+        return Gzip.compress(json);
+    }
+
+}
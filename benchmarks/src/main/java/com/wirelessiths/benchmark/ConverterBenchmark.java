@@ -0,0 +1,77 @@
+package com.wirelessiths.benchmark;
+
+import com.wirelessiths.dal.Booking;
+import com.wirelessiths.dal.InstantConverter;
+import com.wirelessiths.dal.LocalDateConverter;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DynamoDB type converters and the GSI date keys derived in the Booking time setters.
+ * These run for every attribute of every row the mapper reads or writes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class ConverterBenchmark {
+
+    private final InstantConverter instantConverter = new InstantConverter();
+    private final LocalDateConverter localDateConverter = new LocalDateConverter();
+
+    private Instant instant;
+    private String instantString;
+    private LocalDate date;
+    private String dateString;
+    private Booking booking;
+
+    @Setup
+    public void setUp() {
+        instant = Instant.parse("2019-09-02T14:10:23.456Z");
+        instantString = instant.toString();
+        date = LocalDate.parse("2019-09-02");
+        dateString = date.toString();
+        booking = BookingFixtures.booking(0);
+    }
+
+    @Benchmark
+    public String instantConvert() {
+        return instantConverter.convert(instant);
+    }
+
+    @Benchmark
+    public Instant instantUnconvert() {
+        return instantConverter.unconvert(instantString);
+    }
+
+    @Benchmark
+    public Instant instantRoundTrip() {
+        return instantConverter.unconvert(instantConverter.convert(instant));
+    }
+
+    @Benchmark
+    public String localDateConvert() {
+        return localDateConverter.convert(date);
+    }
+
+    @Benchmark
+    public LocalDate localDateUnconvert() {
+        return localDateConverter.unconvert(dateString);
+    }
+
+    @Benchmark
+    public LocalDate localDateRoundTrip() {
+        return localDateConverter.unconvert(localDateConverter.convert(date));
+    }
+
+    @Benchmark
+    public LocalDate setStartTime() {
+        booking.setStartTime(instant);
+        return booking.getStartDate();
+    }
+}
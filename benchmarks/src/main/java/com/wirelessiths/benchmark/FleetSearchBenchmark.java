@@ -0,0 +1,56 @@
+package com.wirelessiths.benchmark;
+
+import com.wirelessiths.dal.timeline.DayOccupancy;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The in-memory part of GET /scooters/availability: which scooters of a fleet are booked in a window, answered
+ * from the minute bitmaps of a loaded day.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class FleetSearchBenchmark {
+
+    private static final LocalDate DAY = LocalDate.parse("2019-09-03");
+    private static final Instant DAY_START = Instant.parse("2019-09-03T00:00:00Z");
+
+    @Param({"1000", "10000"})
+    private int scooters;
+
+    private DayOccupancy day;
+    private Instant from;
+    private Instant to;
+
+    @Setup
+    public void setUp() {
+        day = new DayOccupancy(DAY);
+        Random random = new Random(42);
+        for (int s = 0; s < scooters; s++) {
+            // 8 bookings of 10 to 60 minutes a day
+            for (int b = 0; b < 8; b++) {
+                Instant start = DAY_START.plusSeconds(b * 3 * 3600L + random.nextInt(2 * 3600));
+                day.put(s + "-" + b, "scooter-" + s, start, start.plusSeconds(600 + random.nextInt(3000)));
+            }
+        }
+        from = Instant.parse("2019-09-03T13:55:00Z");
+        to = Instant.parse("2019-09-03T15:05:00Z");
+    }
+
+    @Benchmark
+    public Set<String> busyInOneHour() {
+        Set<String> busy = new HashSet<>();
+        day.collectBusy(from, to, busy);
+        return busy;
+    }
+}
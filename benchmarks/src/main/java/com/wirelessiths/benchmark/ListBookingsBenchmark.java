@@ -0,0 +1,44 @@
+package com.wirelessiths.benchmark;
+
+import com.wirelessiths.dal.Booking;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of listing 10k bookings through {@link Booking#list()}, including the unmarshalling and logging
+ * done for every row. Run with {@code -prof gc} to see the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class ListBookingsBenchmark {
+
+    @Param({"10000"})
+    private int rows;
+
+    @Param({"info", "debug"})
+    private String rootLevel;
+
+    private Booking booking;
+
+    @Setup
+    public void setUp() {
+        Configurator.setRootLevel(Level.toLevel(rootLevel));
+        booking = new Booking(new StubDynamoDB(BookingFixtures.items(rows)), BookingFixtures.mapperConfig());
+    }
+
+    @Benchmark
+    public void list(Blackhole bh) throws IOException {
+        for (Booking b : booking.list()) {
+            bh.consume(b);
+        }
+    }
+}
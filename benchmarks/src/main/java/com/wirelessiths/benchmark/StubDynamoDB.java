@@ -0,0 +1,30 @@
+package com.wirelessiths.benchmark;
+
+import com.amazonaws.services.dynamodbv2.AbstractAmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory stand-in for DynamoDB so that dal methods can be benchmarked without network I/O.
+ * Every scan returns the same pre-built page of items.
+ */
+public class StubDynamoDB extends AbstractAmazonDynamoDB {
+
+    private final List<Map<String, AttributeValue>> items;
+
+    public StubDynamoDB(List<Map<String, AttributeValue>> items) {
+        this.items = items;
+    }
+
+    @Override
+    public ScanResult scan(ScanRequest scanRequest) {
+        return new ScanResult()
+                .withItems(items)
+                .withCount(items.size())
+                .withScannedCount(items.size());
+    }
+}
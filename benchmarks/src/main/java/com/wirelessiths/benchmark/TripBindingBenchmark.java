@@ -0,0 +1,57 @@
+package com.wirelessiths.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.wirelessiths.codec.Codecs;
+import com.wirelessiths.dal.trip.Trip;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binding of the position and journey trip payload into Trip and Position, the way the monitors do it,
+ * and writing the bound trips back to json.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class TripBindingBenchmark {
+
+    private final ObjectMapper snakeCaseMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE);
+
+    private String payload;
+    private List<Trip> trips;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (InputStream in = TripBindingBenchmark.class.getResourceAsStream("/trips.json");
+             Scanner scanner = new Scanner(in, StandardCharsets.UTF_8.name())) {
+            payload = scanner.useDelimiter("\\A").next();
+        }
+        trips = bindTrips();
+    }
+
+    @Benchmark
+    public List<Trip> bindTrips() throws IOException {
+        JsonNode tripsNode = snakeCaseMapper.readTree(payload).path("trip_overview_list");
+        return snakeCaseMapper.convertValue(tripsNode, new TypeReference<List<Trip>>() {});
+    }
+
+    @Benchmark
+    public String writeTrips() throws IOException {
+        return Codecs.TRIPS_WRITER.writeValueAsString(trips);
+    }
+}
@@ -0,0 +1,151 @@
+package com.wirelessiths.benchmark.load;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.wirelessiths.dal.Async;
+import com.wirelessiths.dal.Booking;
+import com.wirelessiths.dal.BookingStatus;
+import com.wirelessiths.dal.DynamoDBAdapter;
+import com.wirelessiths.s3.Settings;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Compares the reads of the create path done one after the other with the same reads composed on the
+ * {@link Async} pool, the way CreateBookingHandler does them: the settings and the user's live booking counter
+ * together, then the conflict check while the counter may still be in flight.
+ * <p>
+ * DynamoDB Local answers in well under a millisecond, so every call to the client sleeps first to stand in for the
+ * network, and the settings read from S3 is a sleep of the same length. Nothing is written, both variants read the
+ * same seeded bookings. Runs against DynamoDB Local like {@link LoadTest}. Settings are read from system properties:
+ * <ul>
+ * <li>latency.delay - milliseconds added to every DynamoDB call and to the settings read, default 10</li>
+ * <li>latency.iterations - measured creates per variant, default 200</li>
+ * </ul>
+ */
+public class CreatePathLatency {
+
+    private static final int WARMUP = 20;
+    private static final int SCOOTERS = 20;
+    private static final int USERS = 50;
+    private static final Instant DAY = Instant.parse("2019-09-03T00:00:00Z");
+
+    public static void main(String[] args) throws Exception {
+        String tableName = System.getenv("BOOKINGS_TABLE_NAME");
+        if (!"test".equals(System.getenv("ENVIRONMENT")) || tableName == null) {
+            System.err.println("set ENVIRONMENT=test and BOOKINGS_TABLE_NAME, see benchmarks/README.md");
+            System.exit(1);
+        }
+        int delay = Integer.getInteger("latency.delay", 10);
+        int iterations = Integer.getInteger("latency.iterations", 200);
+
+        AmazonDynamoDB local = DynamoDBAdapter.getInstance().getDbClient();
+        LoadTest.prepareTable(local, tableName, true);
+        DynamoDBMapperConfig config = DynamoDBMapperConfig.builder()
+                .withTableNameOverride(new DynamoDBMapperConfig.TableNameOverride(tableName))
+                .build();
+        seed(new Booking(local, config));
+
+        Booking dal = new Booking(delayed(local, delay), config);
+        Callable<Settings> settingsRead = () -> {
+            Thread.sleep(delay);
+            return new Settings(300, 7200, 600, 3);
+        };
+
+        OperationStats sequential = new OperationStats();
+        OperationStats composed = new OperationStats();
+        Random random = new Random(42);
+        for (int i = 0; i < WARMUP + iterations; i++) {
+            Booking candidate = candidate(random);
+            // alternate which variant goes first, so neither always runs on the warmer cache
+            boolean sequentialFirst = i % 2 == 0;
+            long first = sequentialFirst ? sequential(dal, candidate, settingsRead) : composed(dal, candidate, settingsRead);
+            long second = sequentialFirst ? composed(dal, candidate, settingsRead) : sequential(dal, candidate, settingsRead);
+            if (i >= WARMUP) {
+                sequential.record(sequentialFirst ? first : second, 200);
+                composed.record(sequentialFirst ? second : first, 200);
+            }
+        }
+
+        System.out.printf("%d ms per call, %d creates per variant%n%n", delay, iterations);
+        System.out.printf("%-12s %9s %9s %9s %9s%n", "variant", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        report("sequential", sequential);
+        report("composed", composed);
+        System.exit(0);
+    }
+
+    private static long sequential(Booking dal, Booking candidate, Callable<Settings> settingsRead) throws Exception {
+        long start = System.nanoTime();
+        Settings settings = settingsRead.call();
+        dal.liveBookingCount(candidate.getUserId());
+        dal.validateBooking(candidate, settings.getMaxDuration(), settings.getBuffer()).size();
+        return System.nanoTime() - start;
+    }
+
+    private static long composed(Booking dal, Booking candidate, Callable<Settings> settingsRead) throws Exception {
+        long start = System.nanoTime();
+        CompletableFuture<Integer> liveBookings = dal.liveBookingCountAsync(candidate.getUserId());
+        Settings settings = Async.join(Async.supply(settingsRead));
+        CompletableFuture<List<Booking>> conflicts = dal.validateBookingAsync(candidate, settings.getMaxDuration(), settings.getBuffer());
+        Async.join(liveBookings);
+        Async.join(conflicts);
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * @return a client that sleeps before every call and then forwards it
+     */
+    private static AmazonDynamoDB delayed(AmazonDynamoDB client, int delay) {
+        return (AmazonDynamoDB) Proxy.newProxyInstance(AmazonDynamoDB.class.getClassLoader(),
+                new Class<?>[]{AmazonDynamoDB.class}, (proxy, method, methodArgs) -> {
+                    Thread.sleep(delay);
+                    try {
+                        return method.invoke(client, methodArgs);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    /**
+     * Saves a day of half hour bookings with gaps, so some candidates conflict and the scooter partitions have rows
+     * to read.
+     */
+    private static void seed(Booking dal) throws Exception {
+        for (int scooter = 0; scooter < SCOOTERS; scooter++) {
+            for (int hour = 0; hour < 24; hour += 2) {
+                Booking booking = new Booking();
+                booking.setScooterId("scooter-" + scooter);
+                booking.setUserId("user-" + (scooter * 24 + hour) % USERS);
+                booking.setStartTime(DAY.plus(hour, ChronoUnit.HOURS));
+                booking.setEndTime(DAY.plus(hour, ChronoUnit.HOURS).plus(30, ChronoUnit.MINUTES));
+                booking.setBookingStatus(BookingStatus.VALID);
+                dal.save(booking);
+            }
+        }
+    }
+
+    private static Booking candidate(Random random) {
+        Booking booking = new Booking();
+        booking.setScooterId("scooter-" + random.nextInt(SCOOTERS));
+        booking.setUserId("user-" + random.nextInt(USERS));
+        Instant start = DAY.plus(random.nextInt(23 * 60), ChronoUnit.MINUTES);
+        booking.setStartTime(start);
+        booking.setEndTime(start.plus(20, ChronoUnit.MINUTES));
+        booking.setBookingStatus(BookingStatus.VALID);
+        return booking;
+    }
+
+    private static void report(String name, OperationStats stats) {
+        stats.sort();
+        System.out.printf("%-12s %9.2f %9.2f %9.2f %9.2f%n", name, stats.percentileMillis(50),
+                stats.percentileMillis(90), stats.percentileMillis(99), stats.percentileMillis(100));
+    }
+}
@@ -0,0 +1,83 @@
+package com.wirelessiths.benchmark.load;
+
+import com.wirelessiths.ApiGatewayResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Sends the lambda inputs {@link LoadTest} builds as http requests to a running BookingServer, with the caller's
+ * sub in the claim header the server trusts when started with SERVER_CLAIM_HEADERS=true.
+ */
+class HttpTarget {
+
+    private static final String SUB_HEADER = "X-Claim-Sub";
+
+    private final String baseUrl;
+
+    HttpTarget(String baseUrl) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    /**
+     * @param path the request path, its parameters already filled in
+     * @param input the lambda input, its claims, queryStringParameters and body are sent
+     */
+    @SuppressWarnings("unchecked")
+    ApiGatewayResponse send(String method, String path, Map<String, Object> input) throws IOException {
+        StringBuilder url = new StringBuilder(baseUrl).append(path);
+        Map<String, String> query = (Map<String, String>) input.get("queryStringParameters");
+        if (query != null) {
+            char separator = '?';
+            for (Map.Entry<String, String> parameter : query.entrySet()) {
+                url.append(separator).append(encode(parameter.getKey())).append('=').append(encode(parameter.getValue()));
+                separator = '&';
+            }
+        }
+        HttpURLConnection connection = (HttpURLConnection) new URL(url.toString()).openConnection();
+        connection.setRequestMethod(method);
+        Map<String, Object> requestContext = (Map<String, Object>) input.get("requestContext");
+        Map<String, Object> authorizer = (Map<String, Object>) requestContext.get("authorizer");
+        Map<String, String> claims = (Map<String, String>) authorizer.get("claims");
+        connection.setRequestProperty(SUB_HEADER, claims.get("sub"));
+        String body = (String) input.get("body");
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int statusCode = connection.getResponseCode();
+        // reading the body to the end lets the connection be reused
+        InputStream in = statusCode >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        return ApiGatewayResponse.builder()
+                .setStatusCode(statusCode)
+                .setRawBody(in == null ? null : read(in))
+                .build();
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream input = in) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String encode(String value) throws UnsupportedEncodingException {
+        return URLEncoder.encode(value, "UTF-8");
+    }
+}
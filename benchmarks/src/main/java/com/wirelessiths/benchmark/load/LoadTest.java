@@ -0,0 +1,354 @@
+package com.wirelessiths.benchmark.load;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.DeleteTableRequest;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndex;
+import com.amazonaws.services.dynamodbv2.model.Projection;
+import com.amazonaws.services.dynamodbv2.model.ProjectionType;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import com.amazonaws.services.dynamodbv2.util.TableUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wirelessiths.ApiGatewayResponse;
+import com.wirelessiths.dal.Booking;
+import com.wirelessiths.dal.BookingKeys;
+import com.wirelessiths.dal.DynamoDBAdapter;
+import com.wirelessiths.handler.CreateBookingHandler;
+import com.wirelessiths.handler.DeleteBookingHandler;
+import com.wirelessiths.handler.GetBookingHandler;
+import com.wirelessiths.handler.ListBookingHandler;
+import com.wirelessiths.handler.ListBookingsByUserHandler;
+import com.wirelessiths.handler.SetBookingStateHandler;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives the lambda handlers in-process against DynamoDB Local with a mix of create, read, list, cancel and
+ * delete traffic, and reports throughput, latency percentiles and conflict and error rates per operation. With
+ * loadtest.url set the same requests are sent over http to a BookingServer instead.
+ * <p>
+ * The handlers read their table and endpoint from the environment, so the jvm has to be started with
+ * {@code ENVIRONMENT=test} and {@code BOOKINGS_TABLE_NAME} set, see benchmarks/README.md. Settings are read from
+ * system properties:
+ * <ul>
+ * <li>loadtest.threads - concurrent callers, default 8</li>
+ * <li>loadtest.warmup - seconds of traffic before measuring, default 10</li>
+ * <li>loadtest.duration - seconds of measured traffic, default 60</li>
+ * <li>loadtest.users - distinct users, default 200</li>
+ * <li>loadtest.scooters - distinct scooters, default 100</li>
+ * <li>loadtest.mix - operation weights, default {@value #DEFAULT_MIX}</li>
+ * <li>loadtest.recreateTable - drop the table before the run, default false</li>
+ * <li>loadtest.url - base url of a BookingServer using the same table, default none: call the handlers in-process</li>
+ * </ul>
+ */
+public class LoadTest {
+
+    static final String DEFAULT_MIX = "create=25,get=20,listUser=20,listScooter=15,cancel=10,delete=10";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int BOOKING_MINUTES = 30;
+    private static final int BOOKING_DAYS_AHEAD = 14;
+
+    private final int users;
+    private final int scooters;
+    private final Operation.Mix mix;
+    private final HttpTarget target;
+
+    private final CreateBookingHandler createHandler = new CreateBookingHandler();
+    private final GetBookingHandler getHandler = new GetBookingHandler();
+    private final ListBookingsByUserHandler listUserHandler = new ListBookingsByUserHandler();
+    private final ListBookingHandler listHandler = new ListBookingHandler();
+    private final SetBookingStateHandler stateHandler = new SetBookingStateHandler();
+    private final DeleteBookingHandler deleteHandler = new DeleteBookingHandler();
+
+    // bookings created during the run, a worker polls one to use it exclusively and offers it back when done
+    private final Queue<BookingRef> valid = new ConcurrentLinkedQueue<>();
+    private final Queue<BookingRef> cancelled = new ConcurrentLinkedQueue<>();
+
+    LoadTest(int users, int scooters, Operation.Mix mix, HttpTarget target) {
+        this.users = users;
+        this.scooters = scooters;
+        this.mix = mix;
+        this.target = target;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String tableName = System.getenv("BOOKINGS_TABLE_NAME");
+        if (!"test".equals(System.getenv("ENVIRONMENT")) || tableName == null) {
+            System.err.println("ENVIRONMENT=test and BOOKINGS_TABLE_NAME must be set, the handlers would otherwise use AWS");
+            System.exit(2);
+        }
+        int threads = Integer.getInteger("loadtest.threads", 8);
+        int warmup = Integer.getInteger("loadtest.warmup", 10);
+        int duration = Integer.getInteger("loadtest.duration", 60);
+        String url = System.getProperty("loadtest.url", "");
+        // keep a connection per worker open between requests
+        System.setProperty("http.maxConnections", String.valueOf(threads));
+        LoadTest loadTest = new LoadTest(Integer.getInteger("loadtest.users", 200),
+                Integer.getInteger("loadtest.scooters", 100),
+                new Operation.Mix(System.getProperty("loadtest.mix", DEFAULT_MIX)),
+                url.isEmpty() ? null : new HttpTarget(url));
+
+        prepareTable(DynamoDBAdapter.getInstance().getDbClient(), tableName, Boolean.getBoolean("loadtest.recreateTable"));
+
+        System.out.printf("table %s%s, %d threads, %ds warmup, %ds measured, %d users, %d scooters, mix %s%n",
+                tableName, url.isEmpty() ? "" : " via " + url, threads, warmup, duration, loadTest.users,
+                loadTest.scooters, loadTest.mix);
+        Map<Operation, OperationStats> stats = loadTest.run(threads, warmup, duration);
+        report(stats, duration);
+        System.exit(0);
+    }
+
+    /**
+     * Creates the bookings table with the keys and indexes declared on {@link Booking}, and its {@link BookingKeys}
+     * table.
+     */
+    static void prepareTable(AmazonDynamoDB client, String tableName, boolean recreate) throws InterruptedException {
+        String keysTableName = BookingKeys.tableName(tableName);
+        if (recreate && TableUtils.deleteTableIfExists(client, new DeleteTableRequest(tableName))) {
+            System.out.println("deleted table " + tableName);
+        }
+        if (recreate) {
+            TableUtils.deleteTableIfExists(client, new DeleteTableRequest(keysTableName));
+        }
+        DynamoDBMapperConfig config = DynamoDBMapperConfig.builder()
+                .withTableNameOverride(new DynamoDBMapperConfig.TableNameOverride(tableName))
+                .build();
+        CreateTableRequest request = new DynamoDBMapper(client, config).generateCreateTableRequest(Booking.class)
+                .withProvisionedThroughput(new ProvisionedThroughput(100L, 100L));
+        for (GlobalSecondaryIndex index : request.getGlobalSecondaryIndexes()) {
+            index.withProvisionedThroughput(new ProvisionedThroughput(100L, 100L))
+                    .withProjection(new Projection().withProjectionType(ProjectionType.ALL));
+        }
+        if (TableUtils.createTableIfNotExists(client, request)) {
+            System.out.println("created table " + tableName);
+        }
+        TableUtils.waitUntilActive(client, tableName);
+        TableUtils.createTableIfNotExists(client, BookingKeys.createTableRequest(tableName)
+                .withProvisionedThroughput(new ProvisionedThroughput(100L, 100L)));
+        TableUtils.waitUntilActive(client, keysTableName);
+    }
+
+    /**
+     * Runs the traffic on {@code threads} workers. Requests started during warmup are sent but not recorded.
+     * @return the stats of all workers merged per operation
+     */
+    Map<Operation, OperationStats> run(int threads, int warmupSeconds, int durationSeconds) throws Exception {
+        long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long stopAt = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Map<Operation, OperationStats>>> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            workers.add(executor.submit(() -> work(measureFrom, stopAt)));
+        }
+        Map<Operation, OperationStats> merged = new EnumMap<>(Operation.class);
+        for (Future<Map<Operation, OperationStats>> worker : workers) {
+            for (Map.Entry<Operation, OperationStats> entry : worker.get().entrySet()) {
+                merged.computeIfAbsent(entry.getKey(), k -> new OperationStats()).merge(entry.getValue());
+            }
+        }
+        executor.shutdown();
+        return merged;
+    }
+
+    private Map<Operation, OperationStats> work(long measureFrom, long stopAt) {
+        Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < stopAt) {
+            Operation operation = mix.next(random);
+            Queue<BookingRef> from = null;
+            BookingRef booking = null;
+            if (operation.needsBooking()) {
+                from = operation == Operation.DELETE && !cancelled.isEmpty() ? cancelled : valid;
+                booking = from.poll();
+                if (booking == null) {
+                    // nothing to work on until some bookings have been created
+                    operation = Operation.CREATE;
+                }
+            }
+            long start = System.nanoTime();
+            int statusCode;
+            try {
+                statusCode = execute(operation, booking, from, random);
+            } catch (Exception e) {
+                statusCode = -1;
+            }
+            if (start >= measureFrom) {
+                stats.computeIfAbsent(operation, k -> new OperationStats()).record(System.nanoTime() - start, statusCode);
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Sends one request and puts the booking it used back in the pool matching its new state.
+     * @return the http status code
+     */
+    private int execute(Operation operation, BookingRef booking, Queue<BookingRef> from, ThreadLocalRandom random) throws Exception {
+        int statusCode;
+        switch (operation) {
+            case CREATE:
+                return create(random);
+            case LIST_USER:
+                String userId = user(random);
+                return call(listUserHandler, "GET", "/users/" + userId + "/bookings",
+                        request(userId, null, pathId(userId), null)).getStatusCode();
+            case LIST_SCOOTER:
+                return call(listHandler, "GET", "/bookings", request(user(random), null, null,
+                        Collections.singletonMap("scooterId", scooter(random)))).getStatusCode();
+            case GET:
+                try {
+                    return call(getHandler, "GET", "/bookings/" + booking.bookingId,
+                            request(booking.userId, null, pathId(booking.bookingId), null)).getStatusCode();
+                } finally {
+                    from.offer(booking);
+                }
+            case CANCEL:
+                statusCode = 500;
+                try {
+                    String body = MAPPER.writeValueAsString(state("cancel", booking.scooterId));
+                    statusCode = call(stateHandler, "POST", "/bookings/" + booking.bookingId + "/state",
+                            request(booking.userId, body, pathId(booking.bookingId), null)).getStatusCode();
+                    return statusCode;
+                } finally {
+                    (statusCode == 200 ? cancelled : from).offer(booking);
+                }
+            case DELETE:
+                statusCode = 500;
+                try {
+                    statusCode = call(deleteHandler, "DELETE", "/bookings/" + booking.bookingId,
+                            request(booking.userId, null, pathId(booking.bookingId), null)).getStatusCode();
+                    return statusCode;
+                } finally {
+                    if (statusCode != 204) {
+                        from.offer(booking);
+                    }
+                }
+            default:
+                throw new IllegalStateException("unexpected operation " + operation);
+        }
+    }
+
+    /**
+     * Books a random scooter for a random user in a 15 minute slot within the next two weeks. Overlapping slots
+     * and users over their booking limit are rejected by the handler with 409, like they would be in production.
+     */
+    private int create(ThreadLocalRandom random) throws Exception {
+        String userId = user(random);
+        String scooterId = scooter(random);
+        Instant startTime = Instant.now().truncatedTo(ChronoUnit.HOURS)
+                .plus(15L * (4 + random.nextInt(BOOKING_DAYS_AHEAD * 24 * 4)), ChronoUnit.MINUTES);
+        Map<String, String> body = new HashMap<>();
+        body.put("scooterId", scooterId);
+        body.put("startTime", startTime.toString());
+        body.put("endTime", startTime.plus(BOOKING_MINUTES, ChronoUnit.MINUTES).toString());
+
+        ApiGatewayResponse response = call(createHandler, "POST", "/bookings",
+                request(userId, MAPPER.writeValueAsString(body), null, null));
+        if (response.getStatusCode() == 201) {
+            valid.offer(new BookingRef(MAPPER.readTree(response.getBody()).path("bookingId").asText(), scooterId, userId));
+        }
+        return response.getStatusCode();
+    }
+
+    /**
+     * Passes the input to the handler, or sends it to the server at loadtest.url.
+     * @param path the path of the request with its parameters filled in, used over http only
+     */
+    private ApiGatewayResponse call(RequestHandler<Map<String, Object>, ApiGatewayResponse> handler, String method,
+                                    String path, Map<String, Object> input) throws Exception {
+        return target == null ? handler.handleRequest(input, null) : target.send(method, path, input);
+    }
+
+    private String user(ThreadLocalRandom random) {
+        return "load-user-" + random.nextInt(users);
+    }
+
+    private String scooter(ThreadLocalRandom random) {
+        return "load-scooter-" + random.nextInt(scooters);
+    }
+
+    private static Map<String, String> pathId(String id) {
+        return Collections.singletonMap("id", id);
+    }
+
+    private static Map<String, String> state(String command, String scooterId) {
+        Map<String, String> body = new HashMap<>();
+        body.put("command", command);
+        body.put("scooterId", scooterId);
+        return body;
+    }
+
+    /**
+     * Builds the input API Gateway hands to a lambda, with the caller's claims in requestContext.authorizer.
+     */
+    private static Map<String, Object> request(String userId, String body, Map<String, String> pathParameters,
+                                               Map<String, String> queryStringParameters) {
+        Map<String, Object> input = new HashMap<>();
+        input.put("requestContext", Collections.singletonMap("authorizer",
+                Collections.singletonMap("claims", Collections.singletonMap("sub", userId))));
+        if (body != null) {
+            input.put("body", body);
+        }
+        if (pathParameters != null) {
+            input.put("pathParameters", pathParameters);
+        }
+        if (queryStringParameters != null) {
+            input.put("queryStringParameters", queryStringParameters);
+        }
+        return input;
+    }
+
+    static void report(Map<Operation, OperationStats> stats, int durationSeconds) {
+        System.out.printf("%n%-12s %8s %9s %9s %9s %9s %9s %9s %9s %9s%n", "operation", "count", "ops/s",
+                "p50 ms", "p90 ms", "p99 ms", "max ms", "conflict", "rejected", "error");
+        OperationStats total = new OperationStats();
+        for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+            total.merge(entry.getValue());
+            print(entry.getKey().key(), entry.getValue(), durationSeconds);
+        }
+        print("total", total, durationSeconds);
+    }
+
+    private static void print(String name, OperationStats stats, int durationSeconds) {
+        stats.sort();
+        System.out.printf("%-12s %8d %9.1f %9.2f %9.2f %9.2f %9.2f %8.1f%% %8.1f%% %8.1f%%%n", name, stats.count(),
+                stats.count() / (double) durationSeconds, stats.percentileMillis(50), stats.percentileMillis(90),
+                stats.percentileMillis(99), stats.percentileMillis(100), percent(stats.conflicts(), stats.count()),
+                percent(stats.rejected(), stats.count()), percent(stats.errors(), stats.count()));
+    }
+
+    private static double percent(int part, int count) {
+        return count == 0 ? 0 : part * 100d / count;
+    }
+
+    private static class BookingRef {
+        final String bookingId;
+        final String scooterId;
+        final String userId;
+
+        BookingRef(String bookingId, String scooterId, String userId) {
+            this.bookingId = bookingId;
+            this.scooterId = scooterId;
+            this.userId = userId;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.wirelessiths.benchmark.load;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The kinds of requests the load test sends, each backed by one of the lambda handlers.
+ */
+enum Operation {
+
+    CREATE("create", false),
+    GET("get", true),
+    LIST_USER("listUser", false),
+    LIST_SCOOTER("listScooter", false),
+    CANCEL("cancel", true),
+    DELETE("delete", true);
+
+    private final String key;
+    private final boolean needsBooking;
+
+    Operation(String key, boolean needsBooking) {
+        this.key = key;
+        this.needsBooking = needsBooking;
+    }
+
+    String key() {
+        return key;
+    }
+
+    /**
+     * @return true if the operation works on a booking created earlier in the run
+     */
+    boolean needsBooking() {
+        return needsBooking;
+    }
+
+    static Operation of(String key) {
+        for (Operation operation : values()) {
+            if (operation.key.equals(key)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("unknown operation: " + key);
+    }
+
+    /**
+     * Picks operations at random with the weights of a traffic mix.
+     */
+    static class Mix {
+
+        private final Operation[] operations;
+        private final int[] cumulativeWeights;
+
+        /**
+         * @param mix comma separated weights, e.g. "create=30,listUser=40,cancel=20,delete=10"
+         */
+        Mix(String mix) {
+            Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+            for (String entry : mix.split(",")) {
+                String[] keyValue = entry.trim().split("=");
+                if (keyValue.length != 2) {
+                    throw new IllegalArgumentException("expected <operation>=<weight> but got: " + entry);
+                }
+                int weight = Integer.parseInt(keyValue[1].trim());
+                if (weight > 0) {
+                    weights.put(of(keyValue[0].trim()), weight);
+                }
+            }
+            if (weights.isEmpty()) {
+                throw new IllegalArgumentException("mix has no operation with a positive weight: " + mix);
+            }
+            operations = weights.keySet().toArray(new Operation[0]);
+            cumulativeWeights = new int[operations.length];
+            int total = 0;
+            for (int i = 0; i < operations.length; i++) {
+                total += weights.get(operations[i]);
+                cumulativeWeights[i] = total;
+            }
+        }
+
+        Operation next(Random random) {
+            int r = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            for (int i = 0; i < cumulativeWeights.length; i++) {
+                if (r < cumulativeWeights[i]) {
+                    return operations[i];
+                }
+            }
+            return operations[operations.length - 1];
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            int previous = 0;
+            for (int i = 0; i < operations.length; i++) {
+                sb.append(i > 0 ? "," : "").append(operations[i].key).append('=').append(cumulativeWeights[i] - previous);
+                previous = cumulativeWeights[i];
+            }
+            return sb.toString();
+        }
+    }
+}
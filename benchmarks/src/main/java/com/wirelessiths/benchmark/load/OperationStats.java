@@ -0,0 +1,80 @@
+package com.wirelessiths.benchmark.load;
+
+import java.util.Arrays;
+
+/**
+ * Latencies and outcomes of one kind of operation. Every worker thread keeps its own instance, so recording
+ * needs no synchronization, and the instances are merged once the run is over.
+ */
+class OperationStats {
+
+    private long[] latencies = new long[1024];
+    private int count;
+    private int conflicts;
+    private int rejected;
+    private int errors;
+
+    /**
+     * @param nanos time the handler took
+     * @param statusCode http status returned by the handler, or -1 if it threw
+     */
+    void record(long nanos, int statusCode) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = nanos;
+        if (statusCode == 409) {
+            conflicts++;
+        } else if (statusCode >= 400 && statusCode < 500) {
+            rejected++;
+        } else if (statusCode < 200 || statusCode >= 500) {
+            errors++;
+        }
+    }
+
+    void merge(OperationStats other) {
+        if (count + other.count > latencies.length) {
+            latencies = Arrays.copyOf(latencies, count + other.count);
+        }
+        System.arraycopy(other.latencies, 0, latencies, count, other.count);
+        count += other.count;
+        conflicts += other.conflicts;
+        rejected += other.rejected;
+        errors += other.errors;
+    }
+
+    int count() {
+        return count;
+    }
+
+    int conflicts() {
+        return conflicts;
+    }
+
+    int rejected() {
+        return rejected;
+    }
+
+    int errors() {
+        return errors;
+    }
+
+    /**
+     * Sorts the recorded latencies, call once before reading percentiles.
+     */
+    void sort() {
+        Arrays.sort(latencies, 0, count);
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return latency in milliseconds, using the nearest rank
+     */
+    double percentileMillis(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * count);
+        return latencies[Math.max(0, Math.min(count, rank) - 1)] / 1_000_000d;
+    }
+}
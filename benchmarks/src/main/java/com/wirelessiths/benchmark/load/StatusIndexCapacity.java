@@ -0,0 +1,142 @@
+package com.wirelessiths.benchmark.load;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.wirelessiths.dal.Booking;
+import com.wirelessiths.dal.BookingStatus;
+import com.wirelessiths.dal.DynamoDBAdapter;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Measures what the monitor queries read with and without statusStartIndex: the started bookings query on
+ * startTimeIndex with a bookingStatus filter against the one keyed by status, and the ended bookings query, which
+ * keeps its filter on endTimeIndex. Prints rows read (ScannedCount), rows returned (Count) and the read capacity
+ * DynamoDB Local reports for each.
+ * <p>
+ * Runs against DynamoDB Local like {@link LoadTest}. Settings are read from system properties:
+ * <ul>
+ * <li>capacity.bookings - bookings seeded on one day, default 2000</li>
+ * <li>capacity.window - minutes of startTime and endTime each query covers, default 60</li>
+ * </ul>
+ */
+public class StatusIndexCapacity {
+
+    private static final LocalDate DAY = LocalDate.parse("2019-09-03");
+    private static final Instant WINDOW_START = Instant.parse("2019-09-03T12:00:00Z");
+
+    public static void main(String[] args) throws Exception {
+        String tableName = System.getenv("BOOKINGS_TABLE_NAME");
+        if (!"test".equals(System.getenv("ENVIRONMENT")) || tableName == null) {
+            System.err.println("set ENVIRONMENT=test and BOOKINGS_TABLE_NAME, see benchmarks/README.md");
+            System.exit(1);
+        }
+        int bookings = Integer.getInteger("capacity.bookings", 2000);
+        int windowMinutes = Integer.getInteger("capacity.window", 60);
+
+        AmazonDynamoDB client = DynamoDBAdapter.getInstance().getDbClient();
+        LoadTest.prepareTable(client, tableName, true);
+        seed(client, tableName, bookings);
+
+        String from = WINDOW_START.toString();
+        String to = WINDOW_START.plusSeconds(windowMinutes * 60L).toString();
+        System.out.printf("%d bookings on %s, %d minute window%n%n", bookings, DAY, windowMinutes);
+        System.out.printf("%-44s %8s %8s %8s%n", "query", "read", "returned", "RCU");
+
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":date", new AttributeValue(DAY.toString()));
+        values.put(":from", new AttributeValue(from));
+        values.put(":to", new AttributeValue(to));
+        values.put(":valid", new AttributeValue(BookingStatus.VALID.name()));
+        report("started, startTimeIndex + status filter", client, new QueryRequest(tableName)
+                .withIndexName("startTimeIndex")
+                .withKeyConditionExpression("startDate = :date and startTime between :from and :to")
+                .withFilterExpression("bookingStatus = :valid")
+                .withExpressionAttributeValues(values));
+        values = new HashMap<>();
+        values.put(":key", new AttributeValue(Booking.statusKey(BookingStatus.VALID, DAY)));
+        values.put(":from", new AttributeValue(from));
+        values.put(":to", new AttributeValue(to));
+        report("started, statusStartIndex", client, new QueryRequest(tableName)
+                .withIndexName(Booking.STATUS_START_INDEX)
+                .withKeyConditionExpression("statusStartDate = :key and startTime between :from and :to")
+                .withExpressionAttributeValues(values));
+
+        values = new HashMap<>();
+        values.put(":date", new AttributeValue(DAY.toString()));
+        values.put(":from", new AttributeValue(from));
+        values.put(":to", new AttributeValue(to));
+        values.put(":cancelled", new AttributeValue(BookingStatus.CANCELLED.name()));
+        report("ended, endTimeIndex + status filter", client, new QueryRequest(tableName)
+                .withIndexName("endTimeIndex")
+                .withKeyConditionExpression("endDate = :date and endTime between :from and :to")
+                .withFilterExpression("bookingStatus <> :cancelled")
+                .withExpressionAttributeValues(values));
+        System.exit(0);
+    }
+
+    /**
+     * Saves bookings spread over the day with the status mix of a day that is over: most completed, a fifth
+     * cancelled and a few still valid or active.
+     */
+    private static void seed(AmazonDynamoDB client, String tableName, int count) {
+        DynamoDBMapperConfig config = DynamoDBMapperConfig.builder()
+                .withTableNameOverride(new DynamoDBMapperConfig.TableNameOverride(tableName))
+                .build();
+        DynamoDBMapper mapper = new DynamoDBMapper(client, config);
+        Random random = new Random(42);
+        long dayStart = DAY.atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+        List<Booking> batch = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Booking booking = new Booking(client, config);
+            booking.setScooterId("scooter-" + (i % 100));
+            booking.setUserId("user-" + random.nextInt(500));
+            Instant start = Instant.ofEpochSecond(dayStart + random.nextInt(22 * 3600));
+            booking.setStartTime(start);
+            booking.setEndTime(start.plusSeconds(600 + random.nextInt(3000)));
+            int roll = random.nextInt(100);
+            booking.setBookingStatus(roll < 70 ? BookingStatus.COMPLETED
+                    : roll < 90 ? BookingStatus.CANCELLED
+                    : roll < 95 ? BookingStatus.VALID : BookingStatus.ACTIVE);
+            batch.add(booking);
+            if (batch.size() == 25) {
+                mapper.batchSave(batch);
+                batch.clear();
+            }
+        }
+        mapper.batchSave(batch);
+    }
+
+    private static void report(String name, AmazonDynamoDB client, QueryRequest... requests) {
+        int read = 0;
+        int returned = 0;
+        double capacity = 0;
+        for (QueryRequest request : requests) {
+            Map<String, AttributeValue> exclusiveStartKey = null;
+            do {
+                QueryResult result = client.query(request
+                        .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                        .withExclusiveStartKey(exclusiveStartKey));
+                read += result.getScannedCount();
+                returned += result.getCount();
+                if (result.getConsumedCapacity() != null) {
+                    capacity += result.getConsumedCapacity().getCapacityUnits();
+                }
+                exclusiveStartKey = result.getLastEvaluatedKey();
+            } while (exclusiveStartKey != null);
+        }
+        System.out.printf("%-44s %8d %8d %8.1f%n", name, read, returned, capacity);
+    }
+}
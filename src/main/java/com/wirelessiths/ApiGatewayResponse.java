@@ -1,10 +1,8 @@
 package com.wirelessiths;
 
-import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.wirelessiths.codec.Codecs;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -52,13 +50,11 @@ public class ApiGatewayResponse {
 
 		private static final Logger LOG = LogManager.getLogger(ApiGatewayResponse.Builder.class);
 
-		private static final ObjectMapper objectMapper = new ObjectMapper()
-				.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false)
-				.registerModule(new JavaTimeModule());
 		private int statusCode = 200;
 		private Map<String, String> headers = Collections.emptyMap();
 		private String rawBody;
 		private Object objectBody;
+		private ObjectWriter objectWriter = Codecs.RESPONSE;
 		private byte[] binaryBody;
 		private boolean base64Encoded;
 
@@ -92,6 +88,17 @@ public class ApiGatewayResponse {
 		 */
 		public Builder setObjectBody(Object objectBody) {
 			this.objectBody = objectBody;
+			this.objectWriter = Codecs.RESPONSE;
+			return this;
+		}
+
+		/**
+		 * Builds the {@link ApiGatewayResponse} using the passed object body
+		 * converted to JSON with a pre-built writer for its type, see {@link Codecs}.
+		 */
+		public Builder setObjectBody(Object objectBody, ObjectWriter objectWriter) {
+			this.objectBody = objectBody;
+			this.objectWriter = objectWriter;
 			return this;
 		}
 
@@ -125,7 +132,7 @@ public class ApiGatewayResponse {
 				body = rawBody;
 			} else if (objectBody != null) {
 				try {
-					body = objectMapper.writeValueAsString(objectBody);
+					body = objectWriter.writeValueAsString(objectBody);
 				} catch (JsonProcessingException e) {
 					LOG.error("failed to serialize object", e);
 					throw new RuntimeException(e);
@@ -0,0 +1,69 @@
+package com.wirelessiths.codec;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import com.wirelessiths.dal.BatchBookingRequest;
+import com.wirelessiths.dal.BatchBookingResult;
+import com.wirelessiths.dal.Booking;
+import com.wirelessiths.dal.CreateBookingRequest;
+import com.wirelessiths.dal.SetBookingStateRequest;
+import com.wirelessiths.dal.UpdateBookingRequest;
+import com.wirelessiths.dal.timeline.Availability;
+import com.wirelessiths.dal.timeline.FreeScooters;
+import com.wirelessiths.dal.trip.Trip;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shared json readers and writers. ObjectReader and ObjectWriter are immutable and thread safe, so they are
+ * built once per container and reused by every request instead of creating an ObjectMapper per call.
+ */
+public final class Codecs {
+
+    private static final ObjectMapper MAPPER = mapper();
+
+    public static final ObjectReader CREATE_BOOKING_REQUEST = MAPPER.readerFor(CreateBookingRequest.class);
+    public static final ObjectReader SET_BOOKING_STATE_REQUEST = MAPPER.readerFor(SetBookingStateRequest.class);
+    public static final ObjectReader UPDATE_BOOKING_REQUEST = MAPPER.readerFor(UpdateBookingRequest.class);
+    public static final ObjectReader BATCH_BOOKING_REQUEST = MAPPER.readerFor(BatchBookingRequest.class);
+    public static final ObjectReader TRIPS = MAPPER.readerFor(new TypeReference<List<Trip>>() {});
+    public static final ObjectReader PAGE_CURSOR = MAPPER.readerFor(new TypeReference<Map<String, String>>() {});
+    public static final ObjectReader API_GATEWAY_EVENT = MAPPER.readerFor(new TypeReference<Map<String, Object>>() {});
+
+    public static final ObjectWriter BOOKING = MAPPER.writerFor(Booking.class);
+    public static final ObjectWriter BOOKINGS = MAPPER.writerFor(new TypeReference<List<Booking>>() {});
+    public static final ObjectWriter TRIPS_WRITER = MAPPER.writerFor(new TypeReference<List<Trip>>() {});
+    public static final ObjectWriter AVAILABILITY = MAPPER.writerFor(Availability.class);
+    public static final ObjectWriter FREE_SCOOTERS = MAPPER.writerFor(FreeScooters.class);
+    public static final ObjectWriter BATCH_BOOKING_RESULT = MAPPER.writerFor(BatchBookingResult.class);
+    public static final ObjectWriter PAGE_CURSOR_WRITER = MAPPER.writerFor(new TypeReference<Map<String, String>>() {});
+    /**
+     * Writer for response bodies of any type, the serializer is resolved from the runtime class.
+     */
+    public static final ObjectWriter RESPONSE = MAPPER.writer();
+
+    private Codecs() {
+    }
+
+    /**
+     * Afterburner generates accessor classes at runtime, which a native image cannot load, so it is only
+     * registered on a jvm.
+     */
+    private static ObjectMapper mapper() {
+        ObjectMapper mapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        if (System.getProperty("org.graalvm.nativeimage.imagecode") == null) {
+            mapper.registerModule(new AfterburnerModule());
+        }
+        return mapper;
+    }
+}
@@ -0,0 +1,126 @@
+package com.wirelessiths.codec;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Strong entity tags, the quoted base64url of the first 16 bytes of a SHA-256 over the content. Two contents get
+ * the same tag only if they are equal.
+ */
+public final class ETags {
+
+    private static final int TAG_BYTES = 16;
+
+    private ETags() {
+    }
+
+    /**
+     * @return the tag of a response body
+     */
+    public static String of(String body) {
+        return tag(digest().digest(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Tags an item by its attributes, in name order, so it does not depend on the order the item was read in.
+     * @param skipped attributes left out, e.g. ones derived from other attributes
+     * @return the tag of the item
+     */
+    public static String of(Map<String, AttributeValue> item, Set<String> skipped) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for (Map.Entry<String, AttributeValue> attribute : new TreeMap<>(item).entrySet()) {
+                if (!skipped.contains(attribute.getKey())) {
+                    string(out, attribute.getKey());
+                    write(out, attribute.getValue());
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("writing to memory failed", e);
+        }
+        return tag(digest().digest(bytes.toByteArray()));
+    }
+
+    /**
+     * Writes a value with its type and the lengths of its parts, so different values never write the same bytes.
+     */
+    private static void write(DataOutputStream out, AttributeValue value) throws IOException {
+        if (value.getS() != null) {
+            out.writeByte('S');
+            string(out, value.getS());
+        } else if (value.getN() != null) {
+            out.writeByte('N');
+            string(out, value.getN());
+        } else if (value.getBOOL() != null) {
+            out.writeByte(value.getBOOL() ? 'T' : 'F');
+        } else if (value.getB() != null) {
+            out.writeByte('B');
+            ByteBuffer binary = value.getB().duplicate();
+            out.writeInt(binary.remaining());
+            while (binary.hasRemaining()) {
+                out.writeByte(binary.get());
+            }
+        } else if (value.getL() != null) {
+            out.writeByte('L');
+            out.writeInt(value.getL().size());
+            for (AttributeValue element : value.getL()) {
+                write(out, element);
+            }
+        } else if (value.getM() != null) {
+            out.writeByte('M');
+            out.writeInt(value.getM().size());
+            for (Map.Entry<String, AttributeValue> entry : new TreeMap<>(value.getM()).entrySet()) {
+                string(out, entry.getKey());
+                write(out, entry.getValue());
+            }
+        } else if (value.getSS() != null) {
+            out.writeByte('s');
+            strings(out, value.getSS());
+        } else if (value.getNS() != null) {
+            out.writeByte('n');
+            strings(out, value.getNS());
+        } else {
+            out.writeByte('0');
+        }
+    }
+
+    private static void strings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            string(out, value);
+        }
+    }
+
+    private static void string(DataOutputStream out, String value) throws IOException {
+        // writeUTF is limited to 64KB, a trips attribute can be longer
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String tag(byte[] hash) {
+        byte[] tag = new byte[TAG_BYTES];
+        System.arraycopy(hash, 0, tag, 0, TAG_BYTES);
+        return '"' + Base64.getUrlEncoder().withoutPadding().encodeToString(tag) + '"';
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("every jvm has SHA-256", e);
+        }
+    }
+}
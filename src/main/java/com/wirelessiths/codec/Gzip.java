@@ -0,0 +1,56 @@
+package com.wirelessiths.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Gzip for response bodies. Each thread keeps its Deflater and buffer and resets them per body, instead of
+ * allocating the native zlib state and a stream per response like GZIPOutputStream does. Compresses at
+ * {@link Deflater#BEST_SPEED}: json of bookings shrinks about as much as at the default level in a fraction of
+ * the time.
+ */
+public final class Gzip {
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final byte[] HEADER = {
+            0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff
+    };
+
+    private static final ThreadLocal<Deflater> DEFLATER =
+            ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED, true));
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[BUFFER_BYTES]);
+
+    private Gzip() {
+    }
+
+    /**
+     * @return the gzip member of the data, with the crc and length trailer
+     */
+    public static byte[] compress(byte[] data) {
+        Deflater deflater = DEFLATER.get();
+        byte[] buffer = BUFFER.get();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        out.write(HEADER, 0, HEADER.length);
+        deflater.reset();
+        deflater.setInput(data);
+        deflater.finish();
+        while (!deflater.finished()) {
+            int length = deflater.deflate(buffer);
+            out.write(buffer, 0, length);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        writeInt(out, (int) crc.getValue());
+        writeInt(out, data.length);
+        return out.toByteArray();
+    }
+
+    // little endian, like every number in a gzip member
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value & 0xff);
+        out.write((value >> 8) & 0xff);
+        out.write((value >> 16) & 0xff);
+        out.write((value >> 24) & 0xff);
+    }
+}
@@ -0,0 +1,78 @@
+package com.wirelessiths.dal;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs independent blocking calls, DynamoDB requests or the settings read, on a pool shared by the container, so a
+ * handler can start them together and wait for all of them once.
+ * <p>
+ * The pool is separate from the one of {@link com.wirelessiths.dal.query.FanOut}: a call may itself fan out and
+ * wait for its partitions, which must not queue behind the calls waiting for them.
+ */
+public final class Async {
+
+    private static final int THREADS = 16;
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "bookings-async-" + THREAD_NUMBER.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Async() {
+    }
+
+    /**
+     * @return a future completed with the result of the call, or exceptionally with what it threw
+     */
+    public static <T> CompletableFuture<T> supply(Callable<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, EXECUTOR);
+    }
+
+    /**
+     * Waits for a future and throws what the call threw, not wrapped.
+     * @throws IOException if the call threw one or the calling thread is interrupted
+     */
+    public static <T> T join(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for a call", e);
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        } catch (CancellationException e) {
+            throw new IOException("call was cancelled", e);
+        }
+    }
+
+    private static IOException rethrow(Throwable cause) {
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return cause instanceof IOException ? (IOException) cause : new IOException(cause);
+    }
+}
@@ -0,0 +1,40 @@
+package com.wirelessiths.dal;
+
+import java.util.List;
+
+/**
+ * Body of POST /bookings/batch/{operation}, either the bookings by id, e.g. {"bookingIds": ["a", "b"]}, or the
+ * live bookings of a scooter that have not ended yet, e.g. {"scooterId": "1234"}.
+ */
+public class BatchBookingRequest {
+
+    private List<String> bookingIds;
+    private String scooterId;
+
+    public BatchBookingRequest() {
+    }
+
+    public List<String> getBookingIds() {
+        return bookingIds;
+    }
+
+    public void setBookingIds(List<String> bookingIds) {
+        this.bookingIds = bookingIds;
+    }
+
+    public String getScooterId() {
+        return scooterId;
+    }
+
+    public void setScooterId(String scooterId) {
+        this.scooterId = scooterId;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchBookingRequest{" +
+                "bookingIds=" + bookingIds +
+                ", scooterId='" + scooterId + '\'' +
+                '}';
+    }
+}
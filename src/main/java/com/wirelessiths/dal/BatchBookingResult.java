@@ -0,0 +1,46 @@
+package com.wirelessiths.dal;
+
+import java.util.List;
+
+/**
+ * Response body of POST /bookings/batch/{operation}.
+ */
+public class BatchBookingResult {
+
+    private final String operation;
+    private final List<String> processed;
+    private final List<String> notFound;
+    private final List<String> changed;
+
+    public BatchBookingResult(String operation, List<String> processed, List<String> notFound, List<String> changed) {
+        this.operation = operation;
+        this.processed = processed;
+        this.notFound = notFound;
+        this.changed = changed;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return the ids of the cancelled or deleted bookings
+     */
+    public List<String> getProcessed() {
+        return processed;
+    }
+
+    /**
+     * @return the requested ids without a booking
+     */
+    public List<String> getNotFound() {
+        return notFound;
+    }
+
+    /**
+     * @return the ids of bookings that changed between the read and the write and were left alone
+     */
+    public List<String> getChanged() {
+        return changed;
+    }
+}
@@ -0,0 +1,83 @@
+package com.wirelessiths.dal;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.wirelessiths.dal.query.FanOut;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Reads items in the chunks BatchGetItem accepts, the chunks concurrently on the {@link FanOut} pool. Keys DynamoDB
+ * returns as unprocessed are sent again with exponential backoff and jitter.
+ * <p>
+ * Batch cancel and delete do not use BatchWriteItem, which takes no conditions, see {@link Booking#batchCancel}.
+ */
+final class BatchReader {
+
+    static final int MAX_READS = 100;
+    static final int MAX_ATTEMPTS = 8;
+    private static final long BASE_BACKOFF_MILLIS = 25;
+
+    private BatchReader() {
+    }
+
+    /**
+     * Reads items by key with consistent reads.
+     * @return the items found, in no particular order
+     * @throws IOException if keys are still unprocessed after {@value #MAX_ATTEMPTS} attempts
+     */
+    static List<Map<String, AttributeValue>> read(AmazonDynamoDB client, String tableName,
+                                                  List<Map<String, AttributeValue>> keys) throws IOException {
+        List<Callable<List<Map<String, AttributeValue>>>> chunks = new ArrayList<>();
+        for (int from = 0; from < keys.size(); from += MAX_READS) {
+            List<Map<String, AttributeValue>> chunk = keys.subList(from, Math.min(from + MAX_READS, keys.size()));
+            chunks.add(() -> readChunk(client, tableName, chunk));
+        }
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        for (List<Map<String, AttributeValue>> chunk : FanOut.all(chunks)) {
+            items.addAll(chunk);
+        }
+        return items;
+    }
+
+    private static List<Map<String, AttributeValue>> readChunk(AmazonDynamoDB client, String tableName,
+                                                               List<Map<String, AttributeValue>> keys) throws IOException {
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        Map<String, KeysAndAttributes> pending = new HashMap<>();
+        pending.put(tableName, new KeysAndAttributes().withKeys(keys).withConsistentRead(true));
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (attempt > 0) {
+                backOff(attempt);
+            }
+            BatchGetItemResult result = client.batchGetItem(new BatchGetItemRequest().withRequestItems(pending));
+            List<Map<String, AttributeValue>> read = result.getResponses().get(tableName);
+            if (read != null) {
+                items.addAll(read);
+            }
+            pending = result.getUnprocessedKeys();
+            if (pending == null || pending.isEmpty()) {
+                return items;
+            }
+        }
+        throw new IOException("keys still unprocessed after " + MAX_ATTEMPTS + " attempts in " + tableName);
+    }
+
+    private static void backOff(int attempt) throws IOException {
+        long ceiling = BASE_BACKOFF_MILLIS << Math.min(attempt, 10);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while backing off", e);
+        }
+    }
+}
@@ -4,14 +4,40 @@ import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.datamodeling.*;
 import com.amazonaws.services.dynamodbv2.document.DynamoDB;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
-
+import com.amazonaws.services.dynamodbv2.model.CancellationReason;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.Delete;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.Put;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItem;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsRequest;
+import com.amazonaws.services.dynamodbv2.model.TransactionCanceledException;
+import com.amazonaws.services.dynamodbv2.model.Update;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.wirelessiths.codec.ETags;
+
+import com.wirelessiths.dal.cache.BookingCache;
+import com.wirelessiths.dal.cache.ListCache;
+import com.wirelessiths.dal.query.BookingQuery;
+import com.wirelessiths.dal.query.FanOut;
+import com.wirelessiths.dal.query.Page;
+import com.wirelessiths.dal.query.PageCursor;
+import com.wirelessiths.dal.query.QueryPlan;
+import com.wirelessiths.dal.query.QueryPlanner;
+import com.wirelessiths.dal.timeline.FleetOccupancy;
+import com.wirelessiths.dal.timeline.TimelineCache;
 import com.wirelessiths.dal.trip.Trip;
+import com.wirelessiths.exception.PreconditionFailedException;
+import com.wirelessiths.exception.UnableToUpdateException;
 import org.apache.logging.log4j.LogManager;
 
 import java.io.IOException;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -42,7 +68,12 @@ public class Booking {
 
     private List<Trip> trips = new ArrayList<>();
 
+    // the ETag of the item the booking was read from by id, and that item
+    private String etag;
+    private Map<String, AttributeValue> readItem;
+
 
+    private final String tableName;
     private final AmazonDynamoDB client;
     private final DynamoDBMapper mapper;
     private final DynamoDB dynamoDB;
@@ -50,6 +81,27 @@ public class Booking {
     private final LoggerAdapter logger;
     private final StringBuilder sb = new StringBuilder();
 
+    // only every n:th row of a result list is written to the debug log
+    private static final int ROW_LOG_SAMPLE_RATE = 100;
+
+    /**
+     * Index keyed by bookingStatus and startDate, see {@link #getStatusStartDate()}. A query for one status reads only
+     * the bookings in that status instead of filtering the others out after reading them.
+     */
+    public static final String STATUS_START_INDEX = "statusStartIndex";
+
+    /**
+     * Index keyed by userId and bookingStatus plus startTime, see {@link #getStatusStartTime()}. The bookings of a user
+     * in one status are one range of the sort key, read in either order a page at a time.
+     */
+    public static final String USER_STATUS_INDEX = "userStatusIndex";
+
+    private static final QueryPlanner PLANNER = new QueryPlanner();
+    private static final Comparator<Booking> START_TIME_ORDER = Comparator.comparing(Booking::getStartTime);
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+    private static final Set<String> DERIVED_ATTRIBUTES = new HashSet<>(Arrays.asList(
+            "startDate", "endDate", "statusStartDate", "statusStartTime"));
+
    /**
      *This method connects to DynamoDB, creates a table with a mapperConfig.
      */
@@ -58,6 +110,7 @@ public class Booking {
         DynamoDBMapperConfig mapperConfig = DynamoDBMapperConfig.builder()
                 .withTableNameOverride(new DynamoDBMapperConfig.TableNameOverride(BOOKINGS_TABLE_NAME))
                 .build();
+        this.tableName = BOOKINGS_TABLE_NAME;
         // get the db adapter
         DynamoDBAdapter db_adapter = DynamoDBAdapter.getInstance();
         this.client = db_adapter.getDbClient();
@@ -69,11 +122,13 @@ public class Booking {
     }
 
     public Booking(AmazonDynamoDB client, DynamoDBMapperConfig config){
+        this.tableName = config.getTableNameOverride() == null
+                ? BOOKINGS_TABLE_NAME
+                : config.getTableNameOverride().getTableName();
         this.client = client;
         this.dynamoDB = new DynamoDB(client);
         this.mapper = new DynamoDBMapper(client, config);
-        this.logger = new LoggerAdapter();
-        //this.logger = LogManager.getLogger(this.getClass());
+        this.logger = new LoggerAdapter(LogManager.getLogger(this.getClass()));
     }
 
 
@@ -94,7 +149,7 @@ public class Booking {
         return endTime;
     }
     public void setEndTime(Instant endTime) {
-        this.endDate = LocalDate.parse(endTime.toString().split("T")[0]);
+        this.endDate = IsoTime.utcDate(endTime);
         this.endTime = endTime;
     }
 
@@ -109,13 +164,13 @@ public class Booking {
     }
 
 
-    @DynamoDBIndexRangeKey(attributeName = "startTime", globalSecondaryIndexNames = {"bookingIndex", "startTimeIndex"})
+    @DynamoDBIndexRangeKey(attributeName = "startTime", globalSecondaryIndexNames = {"bookingIndex", "startTimeIndex", STATUS_START_INDEX})
     @DynamoDBTypeConverted( converter = InstantConverter.class )
     public Instant getStartTime() {
         return startTime;
     }
     public void setStartTime(Instant startTime) {
-        this.startDate = LocalDate.parse(startTime.toString().split("T")[0]);
+        this.startDate = IsoTime.utcDate(startTime);
         this.startTime = startTime;
     }
 
@@ -137,7 +192,7 @@ public class Booking {
         this.bookingId = bookingId;
     }
 
-    @DynamoDBIndexHashKey(attributeName = "userId", globalSecondaryIndexName = "userIndex")
+    @DynamoDBIndexHashKey(attributeName = "userId", globalSecondaryIndexNames = {"userIndex", USER_STATUS_INDEX})
     public String getUserId() {
         return userId;
     }
@@ -155,6 +210,58 @@ public class Booking {
         this.bookingStatus = bookingStatus;
     }
 
+    /**
+     * Partition key of statusStartIndex, derived from bookingStatus and startDate.
+     */
+    @JsonIgnore
+    @DynamoDBIndexHashKey(attributeName = "statusStartDate", globalSecondaryIndexName = STATUS_START_INDEX)
+    public String getStatusStartDate() {
+        return statusKey(bookingStatus, startDate);
+    }
+
+    /**
+     * The value is derived from bookingStatus and startDate, the stored one is ignored.
+     */
+    public void setStatusStartDate(String statusStartDate) {
+    }
+
+    /**
+     * Sort key of userStatusIndex, derived from bookingStatus and startTime.
+     */
+    @JsonIgnore
+    @DynamoDBIndexRangeKey(attributeName = "statusStartTime", globalSecondaryIndexName = USER_STATUS_INDEX)
+    public String getStatusStartTime() {
+        return statusTimeKey(bookingStatus, startTime);
+    }
+
+    /**
+     * The value is derived from bookingStatus and startTime, the stored one is ignored.
+     */
+    public void setStatusStartTime(String statusStartTime) {
+    }
+
+    /**
+     * @return the sort key of userStatusIndex, e.g. "VALID#2019-09-03T10:00:00Z", or null if either part is
+     * missing, which leaves the booking out of the index
+     */
+    public static String statusTimeKey(BookingStatus status, Instant time) {
+        if (status == null || time == null) {
+            return null;
+        }
+        return status.name() + "#" + IsoTime.format(time);
+    }
+
+    /**
+     * @return the partition key of statusStartIndex, e.g. "VALID#2019-09-03", or null if either part is missing,
+     * which leaves the booking out of the index
+     */
+    public static String statusKey(BookingStatus status, LocalDate date) {
+        if (status == null || date == null) {
+            return null;
+        }
+        return status.name() + "#" + IsoTime.format(date);
+    }
+
     @DynamoDBAttribute(attributeName = "trips")
     public List<Trip> getTrips() {
         return trips;
@@ -182,9 +289,9 @@ public class Booking {
 
     public List<Booking> validateBooking(Booking booking, int maxDuration, int buffer) throws IOException{
 
-        String start = booking.getStartTime().minusSeconds(buffer).toString();
-        String end = booking.getEndTime().plusSeconds(buffer).toString();
-        String endPlusMaxDur = booking.getEndTime().plusSeconds(maxDuration).toString();
+        String start = IsoTime.format(booking.getStartTime().minusSeconds(buffer));
+        String end = IsoTime.format(booking.getEndTime().plusSeconds(buffer));
+        String endPlusMaxDur = IsoTime.format(booking.getEndTime().plusSeconds(maxDuration));
 
         Map<String, AttributeValue> values = new HashMap<>();
         values.put(":id", new AttributeValue().withS(booking.getScooterId()));
@@ -198,16 +305,76 @@ public class Booking {
 
         queryExp.withKeyConditionExpression("scooterId = :id and endTime between :start and :endPlusMaxDur")
                 .withExpressionAttributeValues(values)
+                // the conflict check has to see bookings saved a moment ago, so it stays on the table with a consistent
+                // read, a global secondary index keyed by status would only be eventually consistent
                 .withConsistentRead(true)
-                //.withFilterExpression("startTime < :end AND bookingStatus = :validState")//Todo: add bookingState to range key, for more effective querying?
                 .withFilterExpression("startTime < :end AND bookingStatus <> :invalidState AND bookingStatus <> :invalidState2");
 
         return mapper.query(Booking.class, queryExp);
     }
 
 
+    /**
+     * {@link #validateBooking(Booking, int, int)} on the {@link Async} pool, the result read completely before the
+     * future completes.
+     */
+    public CompletableFuture<List<Booking>> validateBookingAsync(Booking booking, int maxDuration, int buffer) {
+        return Async.supply(() -> new ArrayList<>(validateBooking(booking, maxDuration, buffer)));
+    }
+
+    /**
+     * Reads the bookings of a scooter that end at or after a point in time and are not cancelled or completed,
+     * the bookings {@link #validateBooking(Booking, int, int)} checks against.
+     */
+    public List<Booking> liveBookingsOfScooter(String scooterId, Instant endingAfter) throws IOException {
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":id", new AttributeValue().withS(scooterId));
+        values.put(":after", new AttributeValue().withS(IsoTime.format(endingAfter)));
+        values.put(":invalidState", new AttributeValue().withS(BookingStatus.CANCELLED.toString()));
+        values.put(":invalidState2", new AttributeValue().withS(BookingStatus.COMPLETED.toString()));
+
+        DynamoDBQueryExpression<Booking> queryExp = new DynamoDBQueryExpression<>();
+        queryExp.withKeyConditionExpression("scooterId = :id and endTime >= :after")
+                .withExpressionAttributeValues(values)
+                .withConsistentRead(true)
+                .withFilterExpression("bookingStatus <> :invalidState AND bookingStatus <> :invalidState2");
+
+        List<Booking> results = mapper.query(Booking.class, queryExp);
+        logResults("liveBookingsOfScooter()", results);
+        return results;
+    }
+
+    /**
+     * Reads the bookings that start or end on a day and are not cancelled or completed: the startTimeIndex
+     * partition of the date, and the bookings of the endTimeIndex partition that started the day before.
+     */
+    public List<Booking> liveBookingsOn(LocalDate date) throws IOException {
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":date", new AttributeValue().withS(IsoTime.format(date)));
+        values.put(":invalidState", new AttributeValue().withS(BookingStatus.CANCELLED.toString()));
+        values.put(":invalidState2", new AttributeValue().withS(BookingStatus.COMPLETED.toString()));
+
+        DynamoDBQueryExpression<Booking> starting = new DynamoDBQueryExpression<>();
+        starting.withKeyConditionExpression("startDate = :date")
+                .withIndexName("startTimeIndex")
+                .withExpressionAttributeValues(values)
+                .withConsistentRead(false)
+                .withFilterExpression("bookingStatus <> :invalidState AND bookingStatus <> :invalidState2");
+        DynamoDBQueryExpression<Booking> ending = new DynamoDBQueryExpression<>();
+        ending.withKeyConditionExpression("endDate = :date")
+                .withIndexName("endTimeIndex")
+                .withExpressionAttributeValues(values)
+                .withConsistentRead(false)
+                .withFilterExpression("startDate < :date AND bookingStatus <> :invalidState AND bookingStatus <> :invalidState2");
+
+        List<Booking> results = new ArrayList<>(mapper.query(Booking.class, starting));
+        results.addAll(mapper.query(Booking.class, ending));
+        logResults("liveBookingsOn()", results);
+        return results;
+    }
+
     public Boolean ifTableExists() {
-        System.out.println("i iftabelexists");
+        logger.debug("Booking - ifTableExists(): {}", BOOKINGS_TABLE_NAME);
 
         return this.client.describeTable(BOOKINGS_TABLE_NAME).getTable().getTableStatus().equals("ACTIVE");
     }
@@ -215,9 +382,7 @@ public class Booking {
     public List<Booking> list() throws IOException {
         DynamoDBScanExpression scanExp = new DynamoDBScanExpression();
         List<Booking> results = this.mapper.scan(Booking.class, scanExp);
-        for (Booking p : results) {
-            logger.info("Booking - list(): " + p.toString());
-        }
+        logResults("list()", results);
         return results;
     }
 
@@ -225,13 +390,69 @@ public class Booking {
         DynamoDBScanExpression scanExp = new DynamoDBScanExpression();
         scanExp.withProjectionExpression("scooterId, bookingId, startTime, endTime, startDate, endDate, bookingStatus");
         List<Booking> results = this.mapper.scan(Booking.class, scanExp);
+        logResults("listUserIdRedacted()", results);
+        return results;
+    }
+
+    /**
+     * Writes a sample of the rows in a result list to the debug log.
+     * Nothing is rendered, and a lazily loaded list is not iterated, unless debug is enabled.
+     * @param method name of the calling dal method
+     * @param results the result list to log
+     */
+    private void logResults(String method, List<Booking> results) {
+        if (!logger.isDebugEnabled()) {
+            return;
+        }
+        int row = 0;
         for (Booking p : results) {
-            logger.info("Booking - listIdNameReducted(): " + p.toString());
+            if (row % ROW_LOG_SAMPLE_RATE == 0) {
+                logger.debug("Booking - {}: row {} - {}", method, row, p);
+            }
+            row++;
         }
-        return results;
+        logger.debug("Booking - {}: {} rows", method, row);
     }
 
+    /**
+     * Reads a booking by id with consistent reads: its key from {@link BookingKeys}, then the booking by that key.
+     * A booking without a key item, saved before the keys table existed, is read from bookingIndex until
+     * {@link BookingKeysBackfill} has written it one. Reads never write, so a function that only reads needs no write
+     * access to the keys table.
+     * @return the booking, null if there is none
+     */
     public Booking get(String id) throws IOException {
+        Map<String, AttributeValue> keyItem = client.getItem(new GetItemRequest()
+                .withTableName(BookingKeys.tableName(tableName))
+                .withKey(BookingKeys.key(id))
+                .withConsistentRead(true)).getItem();
+        if (keyItem != null) {
+            Map<String, AttributeValue> item = client.getItem(new GetItemRequest()
+                    .withTableName(tableName)
+                    .withKey(BookingKeys.bookingKey(keyItem))
+                    .withConsistentRead(true)).getItem();
+            if (item != null && item.get("bookingId") != null && id.equals(item.get("bookingId").getS())) {
+                Booking booking = mapper.getTableModel(Booking.class).unconvert(item);
+                booking.tag(item);
+                logger.debug("Booking - get(): booking - {}", booking);
+                BookingCache.getInstance().put(id, item);
+                return booking;
+            }
+        }
+        return getFromIndex(id);
+    }
+
+    /**
+     * {@link #get(String)} on the {@link Async} pool.
+     */
+    public CompletableFuture<Booking> getAsync(String id) {
+        return Async.supply(() -> get(id));
+    }
+
+    /**
+     * Reads a booking from bookingIndex. bookingId is unique, so the query stops at the first item.
+     */
+    private Booking getFromIndex(String id) {
         Booking booking = null;
 
         HashMap<String, AttributeValue> av = new HashMap<String, AttributeValue>();
@@ -240,35 +461,75 @@ public class Booking {
         DynamoDBQueryExpression<Booking> queryExp = new DynamoDBQueryExpression<Booking>()
                 .withKeyConditionExpression("bookingId = :v1")
                 .withExpressionAttributeValues(av)
-                .withConsistentRead(false);
+                .withConsistentRead(false)
+                .withLimit(1);
         queryExp.setIndexName("bookingIndex");
 
-        PaginatedQueryList<Booking> result = this.mapper.query(Booking.class, queryExp);
+        List<Booking> result = this.mapper.queryPage(Booking.class, queryExp).getResults();
         if (!result.isEmpty()) {
             booking = result.get(0);
-            logger.info("Booking - get(): booking - " + booking.toString());
+            logger.debug("Booking - get(): booking from bookingIndex - {}", booking);
+            Map<String, AttributeValue> item = mapper.getTableModel(Booking.class).convert(booking);
+            booking.tag(item);
+            BookingCache.getInstance().put(id, item);
         } else {
-            logger.info("Booking - get(): booking - Not Found.");
+            logger.info("Booking - get(): booking {} - Not Found.", id);
         }
         return booking;
     }
 
+    /**
+     * Like {@link #get(String)}, but served from {@link BookingCache} when the booking was read recently. For
+     * reads only, a booking that is going to be changed should be read with {@link #get(String)}.
+     * @return a copy of the cached booking, null if there is none
+     */
+    public Booking getCached(String id) throws IOException {
+        Map<String, AttributeValue> item = BookingCache.getInstance().get(id);
+        if (item == null) {
+            return get(id);
+        }
+        logger.debug("Booking - getCached(): booking {} - cached", id);
+        Booking booking = mapper.getTableModel(Booking.class).unconvert(item);
+        booking.tag(item);
+        return booking;
+    }
+
+    /**
+     * @return the strong ETag of the booking as it was read by {@link #get(String)} or {@link #getCached(String)},
+     * null for a booking read otherwise. Changing the booking does not change it, it tags the stored version, and a
+     * {@link #copy()} keeps it. Writes with matchETag only apply while the stored booking is still that version.
+     */
+    public String etag() {
+        return etag;
+    }
+
+    private void tag(Map<String, AttributeValue> item) {
+        etag = etag(item);
+        readItem = item;
+    }
+
+    /**
+     * Tags the stored attributes, without the index keys derived from them, which bookings saved before an index
+     * existed may lack.
+     */
+    private static String etag(Map<String, AttributeValue> item) {
+        return ETags.of(item, DERIVED_ATTRIBUTES);
+    }
+
 
     //get bookings by startTime that has passed from now minus deadline
     public List<Booking> bookingsByStartTime(int deadlineSeconds){
         Instant startCheck = Instant.now().minusSeconds(deadlineSeconds);
-        LocalDate date = LocalDate.parse(startCheck.toString().split("T")[0]);
+        LocalDate date = IsoTime.utcDate(startCheck);
 
         Map<String, AttributeValue> values = new HashMap<>();
-        values.put(":today", new AttributeValue().withS(date.toString()));
-        values.put(":start1", new AttributeValue().withS(startCheck.minusSeconds(60).toString()));
-        values.put(":start2", new AttributeValue().withS(startCheck.toString()));
-        values.put(":validState", new AttributeValue().withS(BookingStatus.VALID.toString()));
+        values.put(":validToday", new AttributeValue().withS(statusKey(BookingStatus.VALID, date)));
+        values.put(":start1", new AttributeValue().withS(IsoTime.format(startCheck.minusSeconds(60))));
+        values.put(":start2", new AttributeValue().withS(IsoTime.format(startCheck)));
 
         DynamoDBQueryExpression<Booking> queryExp = new DynamoDBQueryExpression<>();
-        queryExp.withKeyConditionExpression("startDate = :today and startTime between :start1 and :start2")
-                .withFilterExpression("bookingStatus = :validState")
-                .withIndexName("startTimeIndex")
+        queryExp.withKeyConditionExpression("statusStartDate = :validToday and startTime between :start1 and :start2")
+                .withIndexName(STATUS_START_INDEX)
                 .withExpressionAttributeValues(values)
                 .withConsistentRead(false);
         return mapper.query(Booking.class, queryExp);
@@ -280,14 +541,16 @@ public class Booking {
         //start-value to check for bookings ending from 6 to 5 minutes back from now
         Instant startCheck = Instant.now().minusSeconds(60 * 5L);
         //we need a startcheck date to use with the gsi endTimeIndex hash key
-        LocalDate date = LocalDate.parse(startCheck.toString().split("T")[0]);
+        LocalDate date = IsoTime.utcDate(startCheck);
 
         Map<String, AttributeValue> values = new HashMap<>();
-        values.put(":today", new AttributeValue().withS(date.toString()));
-        values.put(":end1", new AttributeValue().withS(startCheck.minusSeconds(60).toString()));
-        values.put(":end2", new AttributeValue().withS(startCheck.toString()));
+        values.put(":today", new AttributeValue().withS(IsoTime.format(date)));
+        values.put(":end1", new AttributeValue().withS(IsoTime.format(startCheck.minusSeconds(60))));
+        values.put(":end2", new AttributeValue().withS(IsoTime.format(startCheck)));
         values.put(":invalidState", new AttributeValue().withS(BookingStatus.CANCELLED.toString()));
 
+        //the filter only drops cancelled bookings, too few to pay for an index keyed by status on every write,
+        //see the status index measurements in benchmarks/README.md
         DynamoDBQueryExpression<Booking> queryExp = new DynamoDBQueryExpression<>();
         queryExp.withKeyConditionExpression("endDate = :today and endTime between :end1 and :end2")
                 .withFilterExpression("bookingStatus <> :invalidState")
@@ -301,189 +564,758 @@ public class Booking {
        return bookingsByUserId(userId, null);
     }
 
+    /**
+     * @param filter further predicates, see {@link BookingQuery#fromParameters(Map)}
+     */
     public List<Booking> bookingsByUserId(String userId, Map<String, String> filter) throws IOException {
+        return query(BookingQuery.builder().setParameters(filter).setUserId(userId).build());
+    }
 
-        Booking booking = new Booking();
-        booking.setUserId(userId);
 
-        if(!Optional.ofNullable(filter).isPresent()){
-            DynamoDBQueryExpression<Booking> queryExpression =
-                    new DynamoDBQueryExpression<>();
-            queryExpression.setHashKeyValues(booking);
-            queryExpression.setIndexName("userIndex");
-            queryExpression.setConsistentRead(false);
+    public List<Booking> bookingsByScooterId(String scooterId) throws IOException {
+        return bookingsByScooterId(scooterId, null);
+    }
 
-            return mapper.query(Booking.class, queryExpression);
-        }
-        Map<String, AttributeValue> values = new HashMap<>();
-        filter.forEach((s1, s2) -> values.put(":"+s1, new AttributeValue().withS(s2)));
-        StringBuilder filterExpression = new StringBuilder();
+    /**
+     * @param filter further predicates, see {@link BookingQuery#fromParameters(Map)}. The query runs on the index
+     *               the planner picks, which is not necessarily the table keyed by scooterId.
+     */
+    public List<Booking> bookingsByScooterId(String scooterId, Map<String, String> filter) throws IOException {
+        return query(BookingQuery.builder().setParameters(filter).setScooterId(scooterId).build());
+    }
 
-        values.forEach((v1, v2) -> {
-            // Don't put an "and" the first time
-            if (!filterExpression.toString().isEmpty()) {
-                filterExpression.append(" and ");
-            }
-            filterExpression.append(v1.substring(1)).append(" = ").append(v1);
-        });
+    public List<Booking> bookingsByDate(LocalDate bookingDate) throws IOException {
+        return bookingsByDate(bookingDate, null);
+    }
 
-        DynamoDBQueryExpression<Booking> queryExpression =
-                new DynamoDBQueryExpression<>();
-        queryExpression
-        .withExpressionAttributeValues(values)
-        .withHashKeyValues(booking)
-        .withFilterExpression(filterExpression.toString())
-        .withIndexName("userIndex")
-        .withConsistentRead(false);
+    /**
+     *
+     * @param bookingDate startDate of the bookings
+     * @param filter further predicates, see {@link BookingQuery#fromParameters(Map)}. The query runs on the index
+     *               the planner picks, which is not necessarily startTimeIndex.
+     * @return results of matching bookings
+     * @throws IOException from dynamodb.
+     */
+    public List<Booking> bookingsByDate(LocalDate bookingDate, Map<String, String> filter) throws IOException {
+        return query(BookingQuery.builder().setParameters(filter).setStartDate(bookingDate).build());
+    }
 
-        return mapper.query(Booking.class, queryExpression);
+    /**
+     * @return how {@link #query(BookingQuery)} would read the bookings matching the query
+     */
+    public QueryPlan plan(BookingQuery query) {
+        return PLANNER.plan(query);
     }
 
+    /**
+     * Reads the bookings matching all predicates of the query, using the access path picked by {@link QueryPlanner}.
+     */
+    public List<Booking> query(BookingQuery query) throws IOException {
+        QueryPlan plan = PLANNER.plan(query);
+        logger.debug("Booking - query(): {} planned as {}", query, plan);
+        List<Booking> results;
+        switch (plan.getOperation()) {
+            case NONE:
+                return Collections.emptyList();
+            case SCAN:
+                results = mapper.scan(Booking.class, plan.toScanExpression());
+                break;
+            default:
+                if (plan.getPartitions().isEmpty()) {
+                    results = mapper.query(Booking.class, plan.toQueryExpression());
+                } else {
+                    results = new ArrayList<>();
+                    read(plan, null, 0).forEachRemaining(results::add);
+                }
+        }
+        logResults("query()", results);
+        return results;
+    }
 
-    public List<Booking> bookingsByScooterId(String scooterId) throws IOException {
-        return bookingsByScooterId(scooterId, null);
+    /**
+     * Reads one page of the bookings matching the query, see {@link #query(BookingQuery)}.
+     * @param limit the maximum number of bookings in the page
+     * @param cursor the next cursor of the previous page, or null for the first page
+     * @throws IllegalArgumentException if the cursor was not returned by the same query
+     */
+    public Page<Booking> query(BookingQuery query, int limit, String cursor) throws IOException {
+        QueryPlan plan = PLANNER.plan(query);
+        logger.debug("Booking - query(): {} limit {} planned as {}", query, limit, plan);
+        if (plan.getOperation() == QueryPlan.Operation.NONE) {
+            return Page.empty();
+        }
+        List<String> keyAttributes = plan.getKeyAttributes();
+        Map<String, AttributeValue> exclusiveStartKey = cursor == null ? null : PageCursor.decode(cursor, keyAttributes);
+        Iterator<Booking> rows = read(plan, exclusiveStartKey, limit);
+        List<Booking> items = new ArrayList<>();
+        while (items.size() < limit && rows.hasNext()) {
+            items.add(rows.next());
+        }
+        String nextCursor = null;
+        if (!items.isEmpty() && rows.hasNext()) {
+            Booking last = items.get(items.size() - 1);
+            Map<String, String> key = new HashMap<>();
+            for (String attribute : keyAttributes) {
+                key.put(attribute, last.keyValue(attribute));
+            }
+            nextCursor = PageCursor.encode(key);
+        }
+        logResults("query()", items);
+        return new Page<>(items, nextCursor);
     }
 
-    public List<Booking> bookingsByScooterId(String scooterId, Map<String, String> filter) throws IOException {
+    /**
+     * Reads the rows of a plan lazily, the partitions of a partitioned query concurrently and merged by startTime,
+     * newest first for a descending plan.
+     * @param pageSize rows read per request, 0 for the DynamoDB default of up to 1 MB
+     */
+    private Iterator<Booking> read(QueryPlan plan, Map<String, AttributeValue> exclusiveStartKey, int pageSize) throws IOException {
+        if (plan.getOperation() == QueryPlan.Operation.SCAN) {
+            DynamoDBScanExpression expression = plan.toScanExpression().withExclusiveStartKey(exclusiveStartKey);
+            if (pageSize > 0) {
+                expression.withLimit(pageSize);
+            }
+            return mapper.scan(Booking.class, expression).iterator();
+        }
+        List<Callable<? extends Iterable<Booking>>> partitions = new ArrayList<>();
+        for (DynamoDBQueryExpression<Booking> expression : plan.toQueryExpressions(exclusiveStartKey)) {
+            if (pageSize > 0) {
+                expression.withLimit(pageSize);
+            }
+            partitions.add(() -> mapper.query(Booking.class, expression));
+        }
+        if (partitions.isEmpty()) {
+            return Collections.emptyIterator();
+        }
+        return FanOut.merge(partitions, plan.isDescending() ? START_TIME_ORDER.reversed() : START_TIME_ORDER);
+    }
 
-        Map<String, AttributeValue> values = new HashMap<>();
+    /**
+     * @return the stored string value of a key attribute, see {@link QueryPlan#getKeyAttributes()}
+     */
+    private String keyValue(String attribute) {
+        switch (attribute) {
+            case "scooterId":
+                return scooterId;
+            case "endTime":
+                return IsoTime.format(endTime);
+            case "userId":
+                return userId;
+            case "bookingId":
+                return bookingId;
+            case "startTime":
+                return IsoTime.format(startTime);
+            case "startDate":
+                return IsoTime.format(startDate);
+            case "statusStartTime":
+                return getStatusStartTime();
+            default:
+                throw new IllegalArgumentException("not a key attribute: " + attribute);
+        }
+    }
+
+
+
+    /**
+     * Saves a booking. A new booking, without bookingId, gets one and is written together with its
+     * {@link BookingKeys} item in one transaction, which also increments the version of the scooter. A booking that
+     * already has an id is saved under the same key, see {@link #write(Booking, boolean, boolean)}. Both keep the live
+     * booking counter of the user up to date, see {@link #liveBookingCount(String)}.
+     */
+    public Booking save(Booking booking) throws IOException {
 
-        if(!Optional.ofNullable(filter).isPresent()){
-            values.put(":v1", new AttributeValue().withS(scooterId));
-            DynamoDBQueryExpression<Booking> queryExp =
-                    new DynamoDBQueryExpression<>();
-            queryExp.withKeyConditionExpression("scooterId = :v1")
-                    .withExpressionAttributeValues(values)
-                    .withConsistentRead(true);
-
-            return mapper.query(Booking.class, queryExp);
-        }
-        else {
-            filter.forEach((s1, s2) -> values.put(":" + s1, new AttributeValue().withS(s2)));
-            StringBuilder filterExpression = new StringBuilder();
-            Map<String, String> expression = new HashMap<>();
-            values.forEach((v1, v2) -> {
-                // Don't put an "and" the first time
-                if (!filterExpression.toString().isEmpty()) {
-                    filterExpression.append(" and ");
+            logger.debug("Booking - save(): {}", booking);
+            if (booking.getBookingId() == null) {
+                booking.setBookingId(UUID.randomUUID().toString());
+                DynamoDBMapperTableModel<Booking> model = mapper.getTableModel(Booking.class);
+                Map<String, AttributeValue> item = model.convert(booking);
+                List<TransactWriteItem> writes = new ArrayList<>();
+                writes.add(new TransactWriteItem().withPut(new Put()
+                        .withTableName(tableName)
+                        .withItem(item)));
+                writes.add(new TransactWriteItem().withPut(new Put()
+                        .withTableName(BookingKeys.tableName(tableName))
+                        .withItem(BookingKeys.item(booking.getBookingId(), model.convertKey(booking)))
+                        .withConditionExpression("attribute_not_exists(" + BookingKeys.PK + ")")));
+                writes.add(new TransactWriteItem().withUpdate(versionUpdate(booking.getScooterId(), null, false)));
+                for (Update counter : counterUpdates(null, item)) {
+                    writes.add(new TransactWriteItem().withUpdate(counter));
                 }
-                //date is a reserved expression by dynamodb uses #d as expressionattributename
-                if (v1.equals(":date")) {
-                    filterExpression.append("#d").append(" = ").append(v1);
-                    expression.put("#d", "date");
-                } else {
-                    filterExpression.append(v1.substring(1)).append(" = ").append(v1);
+                client.transactWriteItems(new TransactWriteItemsRequest().withTransactItems(writes));
+            } else {
+                write(booking, false, false);
+            }
+            BookingCache.getInstance().invalidate(booking.getBookingId());
+            ListCache.getInstance().clear();
+            TimelineCache.getInstance().saved(booking);
+            FleetOccupancy.getInstance().saved(booking);
+            return booking;
+    }
+
+    /**
+     * Writes a booking under its key with a conditional put, which only applies if bookingStatus and userId are still
+     * the ones read right before. A write that moves the booking in or out of the live states, or to another user,
+     * changes the live booking counters in the same transaction. Retried {@value #MAX_WRITE_ATTEMPTS} times if the
+     * booking changed in between.
+     * @param skipNulls if true, attributes that are null in booking keep their stored values
+     * @param matchETag if true, the booking is written once over the item it was read from, and only if the stored
+     * one is still that item, see {@link #sameAs(Put, Map)}
+     * @throws UnableToUpdateException if the booking kept changing
+     * @throws PreconditionFailedException with matchETag, if the booking changed since it was read
+     */
+    private void write(Booking booking, boolean skipNulls, boolean matchETag) throws IOException {
+        DynamoDBMapperTableModel<Booking> model = mapper.getTableModel(Booking.class);
+        if (matchETag) {
+            Map<String, AttributeValue> read = readItem(booking);
+            Map<String, AttributeValue> item = model.convert(booking);
+            if (skipNulls) {
+                Map<String, AttributeValue> merged = new HashMap<>(read);
+                merged.putAll(item);
+                item = merged;
+            }
+            if (!putIfUnchanged(item, read, true)) {
+                throw new PreconditionFailedException("booking " + booking.getBookingId() + " changed since it was read");
+            }
+            return;
+        }
+        Map<String, AttributeValue> key = model.convertKey(booking);
+        for (int attempt = 0; attempt < MAX_WRITE_ATTEMPTS; attempt++) {
+            Map<String, AttributeValue> stored = client.getItem(new GetItemRequest()
+                    .withTableName(tableName)
+                    .withKey(key)
+                    .withConsistentRead(true)).getItem();
+            Map<String, AttributeValue> item = model.convert(booking);
+            if (skipNulls && stored != null) {
+                Map<String, AttributeValue> merged = new HashMap<>(stored);
+                merged.putAll(item);
+                item = merged;
+            }
+            if (putIfUnchanged(item, stored, false)) {
+                return;
+            }
+            logger.debug("Booking - write(): booking {} changed since it was read, attempt {}", booking.getBookingId(), attempt + 1);
+        }
+        throw new UnableToUpdateException("booking " + booking.getBookingId() + " kept changing during the write");
+    }
+
+    /**
+     * Puts an item if the stored one still has the bookingStatus and userId it was read with, see
+     * {@link #unchangedSince(Put, Map)}, together with the live booking counter updates the write implies.
+     * @param stored the item as read, null if there was none
+     * @param matchETag if true, the stored item has to be the one read in all its attributes, see
+     * {@link #sameAs(Put, Map)}
+     * @return false if the stored item changed since it was read, nothing was written
+     */
+    private boolean putIfUnchanged(Map<String, AttributeValue> item, Map<String, AttributeValue> stored, boolean matchETag) {
+        Put put = new Put().withTableName(tableName).withItem(item);
+        put = matchETag ? sameAs(put, stored) : unchangedSince(put, stored);
+        List<Update> counters = counterUpdates(stored, item);
+        try {
+            if (counters.isEmpty()) {
+                client.putItem(new PutItemRequest()
+                        .withTableName(tableName)
+                        .withItem(item)
+                        .withConditionExpression(put.getConditionExpression())
+                        .withExpressionAttributeNames(put.getExpressionAttributeNames())
+                        .withExpressionAttributeValues(put.getExpressionAttributeValues()));
+            } else {
+                List<TransactWriteItem> writes = new ArrayList<>();
+                writes.add(new TransactWriteItem().withPut(put));
+                for (Update counter : counters) {
+                    writes.add(new TransactWriteItem().withUpdate(counter));
                 }
-            });
-
-            values.put(":v1", new AttributeValue().withS(scooterId));
-
-            DynamoDBQueryExpression<Booking> queryExp =
-                    new DynamoDBQueryExpression<>();
-            queryExp.withKeyConditionExpression("scooterId = :v1")
-                    .withExpressionAttributeValues(values)
-                    .withFilterExpression(filterExpression.toString())
-                    .withConsistentRead(true);
-            if (!expression.isEmpty()) {
-                queryExp.setExpressionAttributeNames(expression);
+                client.transactWriteItems(new TransactWriteItemsRequest().withTransactItems(writes));
             }
-            return mapper.query(Booking.class, queryExp);
+            return true;
+        } catch (ConditionalCheckFailedException | TransactionCanceledException e) {
+            return false;
         }
     }
 
-    public List<Booking> bookingsByDate(LocalDate bookingDate) throws IOException {
-        return bookingsByDate(bookingDate, null);
+    /**
+     * @param stored the item as read, null if there was none
+     * @return put, conditional on the stored bookingStatus and userId, or on there being no item
+     */
+    private static Put unchangedSince(Put put, Map<String, AttributeValue> stored) {
+        if (stored == null) {
+            return put.withConditionExpression("attribute_not_exists(scooterId)");
+        }
+        List<String> conditions = new ArrayList<>();
+        Map<String, AttributeValue> values = new HashMap<>();
+        for (String attribute : Arrays.asList("bookingStatus", "userId")) {
+            if (stored.get(attribute) == null) {
+                conditions.add("attribute_not_exists(" + attribute + ")");
+            } else {
+                conditions.add(attribute + " = :" + attribute);
+                values.put(":" + attribute, stored.get(attribute));
+            }
+        }
+        return put.withConditionExpression(String.join(" AND ", conditions))
+                .withExpressionAttributeValues(values.isEmpty() ? null : values);
     }
 
     /**
-     *
-     * @param bookingDate Used as hashkey for query
-     * @param filter used for filtering results. If the filter contains the scooterId field the method will query with the scooterId as range key instead of of filtering with it.
-     * @return results of matching bookings
-     * @throws IOException from dynamodb.
+     * Conditions a write on the stored item being the one read, every attribute the same and no attribute of the
+     * table model added, which is the content {@link #etag()} tags. Derived index keys are left out like in the tag.
+     * @param read the item the booking was read from
+     * @return put, conditional on the stored item being read
      */
-    @SuppressWarnings("DuplicatedCode")
-    public List<Booking> bookingsByDate(LocalDate bookingDate, Map<String, String> filter) throws IOException {
+    private Put sameAs(Put put, Map<String, AttributeValue> read) {
+        Set<String> attributes = new TreeSet<>(read.keySet());
+        for (DynamoDBMapperFieldModel<Booking, Object> field : mapper.getTableModel(Booking.class).fields()) {
+            attributes.add(field.name());
+        }
+        List<String> conditions = new ArrayList<>();
+        Map<String, String> names = new HashMap<>();
+        Map<String, AttributeValue> values = new HashMap<>();
+        int i = 0;
+        for (String attribute : attributes) {
+            if (DERIVED_ATTRIBUTES.contains(attribute)) {
+                continue;
+            }
+            String name = "#read" + i;
+            names.put(name, attribute);
+            if (read.get(attribute) == null) {
+                conditions.add("attribute_not_exists(" + name + ")");
+            } else {
+                conditions.add(name + " = :read" + i);
+                values.put(":read" + i, read.get(attribute));
+            }
+            i++;
+        }
+        return put.withConditionExpression(String.join(" AND ", conditions))
+                .withExpressionAttributeNames(names)
+                .withExpressionAttributeValues(values.isEmpty() ? null : values);
+    }
 
-        Booking booking = new Booking();
-        booking.setStartDate(bookingDate);
+    /**
+     * @return the item the booking was read from by id
+     * @throws IllegalStateException if it was not read by id, so there is no ETag to match
+     */
+    private static Map<String, AttributeValue> readItem(Booking booking) {
+        if (booking.readItem == null) {
+            throw new IllegalStateException("booking " + booking.getBookingId() + " was not read by id, it has no ETag to match");
+        }
+        return booking.readItem;
+    }
 
-        if(!Optional.ofNullable(filter).isPresent()) {
-            DynamoDBQueryExpression<Booking> queryExpression =
-                    new DynamoDBQueryExpression<>();
-            queryExpression.setHashKeyValues(booking);
-            queryExpression.setIndexName("startTimeIndex");
-            queryExpression.setConsistentRead(false);
+    /**
+     * @return true if the write at index was cancelled by its condition
+     */
+    private static boolean failedCondition(TransactionCanceledException e, int index) {
+        List<CancellationReason> reasons = e.getCancellationReasons();
+        return reasons != null && index < reasons.size() && "ConditionalCheckFailed".equals(reasons.get(index).getCode());
+    }
 
-            return mapper.query(Booking.class, queryExpression);
+    /**
+     * @return the number of live bookings of the user, the states {@link #validateBooking} checks against, read with
+     * one consistent GetItem of the user's counter in {@link BookingKeys}
+     */
+    public int liveBookingCount(String userId) throws IOException {
+        Map<String, AttributeValue> counter = client.getItem(new GetItemRequest()
+                .withTableName(BookingKeys.tableName(tableName))
+                .withKey(BookingKeys.userKey(userId))
+                .withConsistentRead(true)).getItem();
+        if (counter == null || counter.get(BookingKeys.LIVE_BOOKINGS) == null) {
+            return 0;
         }
-        else {
+        // a batch write that failed halfway can leave a counter off, never report less than none
+        return Math.max(0, Integer.parseInt(counter.get(BookingKeys.LIVE_BOOKINGS).getN()));
+    }
 
-            Map<String, AttributeValue> values = new HashMap<>();
-            filter.forEach((s1, s2) -> values.put(":" + s1, new AttributeValue().withS(s2)));
-            StringBuilder filterExpression = new StringBuilder();
+    /**
+     * {@link #liveBookingCount(String)} on the {@link Async} pool.
+     */
+    public CompletableFuture<Integer> liveBookingCountAsync(String userId) {
+        return Async.supply(() -> liveBookingCount(userId));
+    }
 
-            values.forEach((v1, v2) -> {
-                if (!filterExpression.toString().isEmpty()) {
-                    filterExpression.append(" and ");
-                }
-                filterExpression.append(v1.substring(1)).append(" = ").append(v1);
-            });
-
-            logger.info(filterExpression.toString());
-            DynamoDBQueryExpression<Booking> queryExpression =
-                    new DynamoDBQueryExpression<>();
-
-            queryExpression.withHashKeyValues(booking);
-            queryExpression
-                    .setExpressionAttributeValues(values);
-            if (!filterExpression.toString().isEmpty()) {
-                queryExpression.setFilterExpression(filterExpression.toString());
+    /**
+     * @param before the booking as stored, null if there was none
+     * @param after the booking as written, null if it is deleted
+     * @return the updates of the live booking counters the write changes, one per user
+     */
+    private List<Update> counterUpdates(Map<String, AttributeValue> before, Map<String, AttributeValue> after) {
+        Map<String, Integer> deltas = new HashMap<>();
+        if (isCounted(before)) {
+            deltas.merge(before.get("userId").getS(), -1, Integer::sum);
+        }
+        if (isCounted(after)) {
+            deltas.merge(after.get("userId").getS(), 1, Integer::sum);
+        }
+        List<Update> updates = new ArrayList<>();
+        for (Map.Entry<String, Integer> delta : deltas.entrySet()) {
+            if (delta.getValue() != 0) {
+                updates.add(counterUpdate(delta.getKey(), delta.getValue()));
             }
-            queryExpression.withIndexName("startTimeIndex")
-                    .withConsistentRead(false);
+        }
+        return updates;
+    }
 
+    private Update counterUpdate(String userId, int delta) {
+        return new Update()
+                .withTableName(BookingKeys.tableName(tableName))
+                .withKey(BookingKeys.userKey(userId))
+                .withUpdateExpression("ADD " + BookingKeys.LIVE_BOOKINGS + " :delta")
+                .withExpressionAttributeValues(Collections.singletonMap(":delta",
+                        new AttributeValue().withN(Integer.toString(delta))));
+    }
 
-            return mapper.query(Booking.class, queryExpression);
+    /**
+     * @return true if the item is a live booking of a user
+     */
+    static boolean isCounted(Map<String, AttributeValue> item) {
+        if (item == null || item.get("userId") == null) {
+            return false;
         }
+        AttributeValue status = item.get("bookingStatus");
+        return TimelineCache.isLive(status == null ? null : BookingStatus.valueOf(status.getS()));
     }
 
+    /**
+     * @return a booking with the same attributes, to be changed without changing this one
+     */
+    public Booking copy() {
+        DynamoDBMapperTableModel<Booking> model = mapper.getTableModel(Booking.class);
+        Booking copy = model.unconvert(model.convert(this));
+        copy.etag = etag;
+        copy.readItem = readItem;
+        return copy;
+    }
 
+    /**
+     * Moves a booking to another time or scooter in one transaction: the booking under its old key is replaced by
+     * the rescheduled one and its {@link BookingKeys} item follows. The rescheduled booking is checked for conflicts
+     * with {@link #validateBooking(Booking, int, int)} first, and the transaction only commits if no booking was
+     * created or rescheduled on the scooter since, see {@link BookingKeys}, and the booking still has the
+     * bookingStatus and userId it was read with.
+     * @param current the booking as read
+     * @param rescheduled the booking with its new scooterId, startTime or endTime, same bookingId
+     * @return the bookings the rescheduled one conflicts with, empty if it was saved
+     * @throws UnableToUpdateException if the booking or the scooter changed since they were read
+     */
+    public List<Booking> reschedule(Booking current, Booking rescheduled, int maxDuration, int buffer) throws IOException {
+        return reschedule(current, rescheduled, maxDuration, buffer, false);
+    }
 
-    public Booking save(Booking booking) throws IOException {
+    /**
+     * Like {@link #reschedule(Booking, Booking, int, int)}.
+     * @param matchETag if true, the booking under its old key has to be the item current was read from in all its
+     * attributes, see {@link #sameAs(Put, Map)}
+     * @throws PreconditionFailedException with matchETag, if the booking changed since it was read
+     */
+    public List<Booking> reschedule(Booking current, Booking rescheduled, int maxDuration, int buffer, boolean matchETag) throws IOException {
+
+        logger.debug("Booking - reschedule(): {} to {}", current, rescheduled);
+        String scooterId = rescheduled.getScooterId();
+        Map<String, AttributeValue> versionItem = client.getItem(new GetItemRequest()
+                .withTableName(BookingKeys.tableName(tableName))
+                .withKey(BookingKeys.scooterKey(scooterId))
+                .withConsistentRead(true)).getItem();
+        String version = versionItem == null ? null : versionItem.get(BookingKeys.VERSION).getN();
+
+        List<Booking> conflicts = new ArrayList<>();
+        for (Booking other : validateBooking(rescheduled, maxDuration, buffer)) {
+            if (!other.getBookingId().equals(rescheduled.getBookingId())) {
+                conflicts.add(other);
+            }
+        }
+        if (!conflicts.isEmpty()) {
+            return conflicts;
+        }
 
-            logger.info("Booking - save(): " + booking.toString());
-            this.mapper.save(booking);
-            return booking;
+        DynamoDBMapperTableModel<Booking> model = mapper.getTableModel(Booking.class);
+        Map<String, AttributeValue> oldKey = model.convertKey(current);
+        Map<String, AttributeValue> newKey = model.convertKey(rescheduled);
+        // the old item must still be the booking as read, not cancelled, completed or handed to another user since
+        Put unchanged = matchETag ? sameAs(new Put(), readItem(current)) : unchangedSince(new Put(), model.convert(current));
+        String sameBooking = "bookingId = :bookingId AND " + unchanged.getConditionExpression();
+        Map<String, AttributeValue> sameBookingValues = new HashMap<>(unchanged.getExpressionAttributeValues() == null
+                ? Collections.emptyMap() : unchanged.getExpressionAttributeValues());
+        sameBookingValues.put(":bookingId", new AttributeValue().withS(current.getBookingId()));
+        List<TransactWriteItem> writes = new ArrayList<>();
+        writes.add(new TransactWriteItem().withUpdate(versionUpdate(scooterId, version, true)));
+        // an update may hand the booking to another user along with the new time
+        for (Update counter : counterUpdates(model.convert(current), model.convert(rescheduled))) {
+            writes.add(new TransactWriteItem().withUpdate(counter));
+        }
+        int bookingWrite = writes.size();
+        if (oldKey.equals(newKey)) {
+            writes.add(new TransactWriteItem().withPut(new Put()
+                    .withTableName(tableName)
+                    .withItem(model.convert(rescheduled))
+                    .withConditionExpression(sameBooking)
+                    .withExpressionAttributeNames(unchanged.getExpressionAttributeNames())
+                    .withExpressionAttributeValues(sameBookingValues)));
+        } else {
+            writes.add(new TransactWriteItem().withDelete(new Delete()
+                    .withTableName(tableName)
+                    .withKey(oldKey)
+                    .withConditionExpression(sameBooking)
+                    .withExpressionAttributeNames(unchanged.getExpressionAttributeNames())
+                    .withExpressionAttributeValues(sameBookingValues)));
+            writes.add(new TransactWriteItem().withPut(new Put()
+                    .withTableName(tableName)
+                    .withItem(model.convert(rescheduled))
+                    .withConditionExpression("attribute_not_exists(scooterId)")));
+            writes.add(new TransactWriteItem().withPut(new Put()
+                    .withTableName(BookingKeys.tableName(tableName))
+                    .withItem(BookingKeys.item(rescheduled.getBookingId(), newKey))));
+        }
+        try {
+            client.transactWriteItems(new TransactWriteItemsRequest().withTransactItems(writes));
+        } catch (TransactionCanceledException e) {
+            if (matchETag && failedCondition(e, bookingWrite)) {
+                throw new PreconditionFailedException("booking " + current.getBookingId() + " changed since it was read");
+            }
+            throw new UnableToUpdateException("booking " + current.getBookingId() + " or scooter " + scooterId
+                    + " changed during the reschedule, " + e.getCancellationReasons());
+        }
+
+        BookingCache.getInstance().invalidate(current.getBookingId());
+        ListCache.getInstance().clear();
+        TimelineCache.getInstance().deleted(current);
+        TimelineCache.getInstance().saved(rescheduled);
+        FleetOccupancy.getInstance().deleted(current);
+        FleetOccupancy.getInstance().saved(rescheduled);
+        return conflicts;
+    }
+
+    /**
+     * Increments the version of a scooter.
+     * @param expected the version read before, null if there was none
+     * @param conditional if false the version is incremented whatever it is
+     */
+    private Update versionUpdate(String scooterId, String expected, boolean conditional) {
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":one", new AttributeValue().withN("1"));
+        Update update = new Update()
+                .withTableName(BookingKeys.tableName(tableName))
+                .withKey(BookingKeys.scooterKey(scooterId))
+                .withUpdateExpression("ADD " + BookingKeys.VERSION + " :one");
+        if (conditional) {
+            if (expected == null) {
+                update.withConditionExpression("attribute_not_exists(" + BookingKeys.VERSION + ")");
+            } else {
+                update.withConditionExpression(BookingKeys.VERSION + " = :expected");
+                values.put(":expected", new AttributeValue().withN(expected));
+            }
+        }
+        return update.withExpressionAttributeValues(values);
     }
 
+    /**
+     * Saves the attributes of a booking that are not null, like {@link #write(Booking, boolean, boolean)}.
+     */
     public void update(Booking booking) throws  IOException {
+        update(booking, false);
+    }
 
-        logger.info("User - update(): " + booking.toString());
-        //TODO: Optimistic Locking och Condition Expressions???
+    /**
+     * Like {@link #update(Booking)}.
+     * @param matchETag if true, the booking is only saved if it is still stored as it was read, see {@link #etag()}
+     * @throws PreconditionFailedException with matchETag, if the booking changed since it was read
+     */
+    public void update(Booking booking, boolean matchETag) throws  IOException {
 
-        DynamoDBMapperConfig dynamoDBMapperConfig = new DynamoDBMapperConfig.Builder()
-                .withConsistentReads(DynamoDBMapperConfig.ConsistentReads.CONSISTENT)
-                .withSaveBehavior(DynamoDBMapperConfig.SaveBehavior.UPDATE_SKIP_NULL_ATTRIBUTES)
-                .build();
-        this.mapper.save(booking, dynamoDBMapperConfig);
+        logger.debug("Booking - update(): {}", booking);
+        write(booking, true, matchETag);
+        BookingCache.getInstance().invalidate(booking.getBookingId());
+        ListCache.getInstance().clear();
+        TimelineCache.getInstance().saved(booking);
+        FleetOccupancy.getInstance().saved(booking);
 
     }
 
     public Boolean delete(String id) throws IOException {
-        Booking booking = null;
         // get product if exists
-        booking = get(id);
-        if (booking != null) {
-            logger.info("Booking - delete(): " + booking.toString());
-            this.mapper.delete(booking);
-        } else {
-            logger.info("Booking - delete(): booking - does not exist.");
+        Booking booking = get(id);
+        if (booking == null) {
+            logger.info("Booking - delete(): booking {} - does not exist.", id);
             return false;
         }
+        delete(booking);
         return true;
     }
 
+    /**
+     * Deletes a booking already read by the caller, by its table key, and its {@link BookingKeys} item in the same
+     * transaction. A live booking also decrements the counter of its user, and is only deleted if it is still in the
+     * state it was read in.
+     * @throws UnableToUpdateException if the booking changed since it was read
+     */
+    public void delete(Booking booking) throws IOException {
+        delete(booking, false);
+    }
+
+    /**
+     * Like {@link #delete(Booking)}.
+     * @param matchETag if true, the booking, live or not, is only deleted if it is still the item it was read from
+     * in all its attributes, see {@link #sameAs(Put, Map)}
+     * @throws PreconditionFailedException with matchETag, if the booking changed since it was read
+     */
+    public void delete(Booking booking, boolean matchETag) throws IOException {
+        logger.debug("Booking - delete(): {}", booking);
+        DynamoDBMapperTableModel<Booking> model = mapper.getTableModel(Booking.class);
+        Map<String, AttributeValue> item = model.convert(booking);
+        List<Update> counters = counterUpdates(item, null);
+        Delete delete = new Delete()
+                .withTableName(tableName)
+                .withKey(model.convertKey(booking));
+        if (matchETag || !counters.isEmpty()) {
+            Put unchanged = matchETag ? sameAs(new Put(), readItem(booking)) : unchangedSince(new Put(), item);
+            delete.withConditionExpression(unchanged.getConditionExpression())
+                    .withExpressionAttributeNames(unchanged.getExpressionAttributeNames())
+                    .withExpressionAttributeValues(unchanged.getExpressionAttributeValues());
+        }
+        List<TransactWriteItem> writes = new ArrayList<>();
+        writes.add(new TransactWriteItem().withDelete(delete));
+        writes.add(new TransactWriteItem().withDelete(new Delete()
+                .withTableName(BookingKeys.tableName(tableName))
+                .withKey(BookingKeys.key(booking.getBookingId()))));
+        for (Update counter : counters) {
+            writes.add(new TransactWriteItem().withUpdate(counter));
+        }
+        try {
+            client.transactWriteItems(new TransactWriteItemsRequest().withTransactItems(writes));
+        } catch (TransactionCanceledException e) {
+            if (matchETag && failedCondition(e, 0)) {
+                throw new PreconditionFailedException("booking " + booking.getBookingId() + " changed since it was read");
+            }
+            throw new UnableToUpdateException("booking " + booking.getBookingId() + " changed since it was read, "
+                    + e.getCancellationReasons());
+        }
+        BookingCache.getInstance().invalidate(booking.getBookingId());
+        ListCache.getInstance().clear();
+        TimelineCache.getInstance().deleted(booking);
+        FleetOccupancy.getInstance().deleted(booking);
+    }
+
+    /**
+     * Reads bookings by id with consistent BatchGetItems, their keys from {@link BookingKeys} and then the bookings,
+     * {@value BatchReader#MAX_READS} keys per request. Bookings without a key item are read with {@link #get(String)}.
+     * @return the bookings found, in no particular order, ids without a booking are left out
+     */
+    public List<Booking> getAll(Collection<String> ids) throws IOException {
+        Set<String> missing = new LinkedHashSet<>(ids);
+        List<Map<String, AttributeValue>> keys = new ArrayList<>();
+        for (String id : missing) {
+            keys.add(BookingKeys.key(id));
+        }
+        List<Map<String, AttributeValue>> bookingKeys = new ArrayList<>();
+        for (Map<String, AttributeValue> keyItem : BatchReader.read(client, BookingKeys.tableName(tableName), keys)) {
+            bookingKeys.add(BookingKeys.bookingKey(keyItem));
+        }
+        DynamoDBMapperTableModel<Booking> model = mapper.getTableModel(Booking.class);
+        List<Booking> bookings = new ArrayList<>();
+        for (Map<String, AttributeValue> item : BatchReader.read(client, tableName, bookingKeys)) {
+            AttributeValue bookingId = item.get("bookingId");
+            if (bookingId != null && missing.remove(bookingId.getS())) {
+                bookings.add(model.unconvert(item));
+            }
+        }
+        for (String id : missing) {
+            Booking booking = get(id);
+            if (booking != null) {
+                bookings.add(booking);
+            }
+        }
+        logger.debug("Booking - getAll(): {} of {} bookings found", bookings.size(), ids.size());
+        return bookings;
+    }
+
+    /**
+     * Sets bookings already read by the caller to CANCELLED, each with its own conditional write like
+     * {@link #write(Booking, boolean)}, several at a time on the {@link FanOut} pool. A booking is only cancelled if
+     * it still has the bookingStatus and userId it was read with, and its live booking counter changes in the same
+     * transaction, so a booking cancelled, completed or deleted by someone else in the meantime is neither written
+     * again nor counted twice.
+     * @return the bookings that changed since they were read and were left alone
+     */
+    public List<Booking> batchCancel(List<Booking> bookings) throws IOException {
+        DynamoDBMapperTableModel<Booking> model = mapper.getTableModel(Booking.class);
+        List<Booking> changed = batch(bookings, booking -> {
+            Map<String, AttributeValue> read = model.convert(booking);
+            Booking cancelled = model.unconvert(read);
+            cancelled.setBookingStatus(BookingStatus.CANCELLED);
+            if (!putIfUnchanged(model.convert(cancelled), read, false)) {
+                return false;
+            }
+            booking.setBookingStatus(BookingStatus.CANCELLED);
+            return true;
+        });
+        logger.debug("Booking - batchCancel(): {} bookings, {} changed meanwhile", bookings.size(), changed.size());
+        Set<String> changedIds = new HashSet<>();
+        changed.forEach(booking -> changedIds.add(booking.getBookingId()));
+        for (Booking booking : bookings) {
+            BookingCache.getInstance().invalidate(booking.getBookingId());
+            if (!changedIds.contains(booking.getBookingId())) {
+                TimelineCache.getInstance().saved(booking);
+                FleetOccupancy.getInstance().saved(booking);
+            }
+        }
+        ListCache.getInstance().clear();
+        return changed;
+    }
+
+    /**
+     * Deletes bookings already read by the caller and their {@link BookingKeys} items, each with
+     * {@link #delete(Booking)}, several at a time like {@link #batchCancel(List)}. A live booking is only deleted,
+     * and its user's counter decremented, if it is still in the state it was read in.
+     * @return the bookings that changed since they were read and were left alone
+     */
+    public List<Booking> batchDelete(List<Booking> bookings) throws IOException {
+        List<Booking> changed = batch(bookings, booking -> {
+            try {
+                delete(booking);
+                return true;
+            } catch (UnableToUpdateException e) {
+                return false;
+            }
+        });
+        logger.debug("Booking - batchDelete(): {} bookings, {} changed meanwhile", bookings.size(), changed.size());
+        return changed;
+    }
+
+    private interface BookingWrite {
+
+        /**
+         * @return false if the booking changed since it was read and was not written
+         */
+        boolean apply(Booking booking) throws IOException;
+    }
+
+    /**
+     * Runs a write per distinct booking on the {@link FanOut} pool, as many at a time as it has threads.
+     * @return the bookings the write left alone
+     */
+    private List<Booking> batch(List<Booking> bookings, BookingWrite write) throws IOException {
+        List<Booking> distinct = new ArrayList<>(distinct(bookings));
+        List<Callable<Boolean>> writes = new ArrayList<>();
+        for (Booking booking : distinct) {
+            writes.add(() -> write.apply(booking));
+        }
+        List<Boolean> written = FanOut.all(writes);
+        List<Booking> changed = new ArrayList<>();
+        for (int i = 0; i < distinct.size(); i++) {
+            if (!written.get(i)) {
+                changed.add(distinct.get(i));
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * A booking listed twice is written once.
+     */
+    private static Collection<Booking> distinct(List<Booking> bookings) {
+        Map<String, Booking> byId = new LinkedHashMap<>();
+        for (Booking booking : bookings) {
+            byId.put(booking.getBookingId(), booking);
+        }
+        return byId.values();
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
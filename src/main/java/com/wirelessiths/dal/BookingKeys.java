@@ -0,0 +1,94 @@
+package com.wirelessiths.dal;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The keys table next to the bookings table. Its hash key {@value #PK} starts with the type of the item, so ids of
+ * different types never collide and a scan can tell the items apart:
+ * <ul>
+ * <li>{@code booking#<bookingId>}, one per booking, holding the scooterId and endTime the booking is stored under.
+ * A booking is read by id with two consistent GetItems instead of a query on the eventually consistent
+ * bookingIndex. {@link Booking#save(Booking)} writes the key item in the same transaction as a new booking, and
+ * {@link Booking#delete(Booking)} deletes both, {@link Booking#reschedule} moves the key item with the booking.
+ * Bookings without a key item, saved before the table existed, are read from bookingIndex.</li>
+ * <li>{@code scooter#<scooterId>}, the version of a scooter. Creating a booking increments it, and a reschedule
+ * only commits if it is still the version read before the conflict check.</li>
+ * <li>{@code user#<userId>}, the counter of the user's live bookings: every write that creates, deletes, cancels
+ * or completes a booking, or hands it to another user, changes it in the same transaction.</li>
+ * </ul>
+ */
+public final class BookingKeys {
+
+    private BookingKeys() {
+    }
+
+    /**
+     * @return the name of the keys table of a bookings table
+     */
+    public static String tableName(String bookingsTableName) {
+        return bookingsTableName + "-keys";
+    }
+
+    public static CreateTableRequest createTableRequest(String bookingsTableName) {
+        return new CreateTableRequest()
+                .withTableName(tableName(bookingsTableName))
+                .withKeySchema(new KeySchemaElement(PK, KeyType.HASH))
+                .withAttributeDefinitions(new AttributeDefinition(PK, ScalarAttributeType.S))
+                .withProvisionedThroughput(new ProvisionedThroughput(1L, 1L));
+    }
+
+    static final String PK = "pk";
+    static final String VERSION = "version";
+    static final String LIVE_BOOKINGS = "liveBookings";
+    static final String BOOKING_PREFIX = "booking#";
+    static final String SCOOTER_PREFIX = "scooter#";
+    static final String USER_PREFIX = "user#";
+
+    /**
+     * @return the key of a booking's key item
+     */
+    static Map<String, AttributeValue> key(String bookingId) {
+        return pk(BOOKING_PREFIX + bookingId);
+    }
+
+    static Map<String, AttributeValue> scooterKey(String scooterId) {
+        return pk(SCOOTER_PREFIX + scooterId);
+    }
+
+    static Map<String, AttributeValue> userKey(String userId) {
+        return pk(USER_PREFIX + userId);
+    }
+
+    private static Map<String, AttributeValue> pk(String pk) {
+        return Collections.singletonMap(PK, new AttributeValue().withS(pk));
+    }
+
+    /**
+     * @param bookingKey scooterId and endTime of the booking as stored in the bookings table
+     */
+    static Map<String, AttributeValue> item(String bookingId, Map<String, AttributeValue> bookingKey) {
+        Map<String, AttributeValue> item = new HashMap<>(bookingKey);
+        item.putAll(key(bookingId));
+        return item;
+    }
+
+    /**
+     * @return scooterId and endTime of a key item, the key of the booking in the bookings table
+     */
+    static Map<String, AttributeValue> bookingKey(Map<String, AttributeValue> item) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("scooterId", item.get("scooterId"));
+        key.put("endTime", item.get("endTime"));
+        return key;
+    }
+}
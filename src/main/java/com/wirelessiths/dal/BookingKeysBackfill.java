@@ -0,0 +1,98 @@
+package com.wirelessiths.dal;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionCheck;
+import com.amazonaws.services.dynamodbv2.model.Put;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItem;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsRequest;
+import com.amazonaws.services.dynamodbv2.model.TransactionCanceledException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes the {@link BookingKeys} item of every booking saved before the keys table existed. Until then
+ * {@link Booking#get(String)} reads such a booking from bookingIndex, so the job has to run once after the keys
+ * table is created, and can be rerun safely.
+ * <p>
+ * A key item is only written if there is none, a booking saved or rescheduled in the meantime already has one, and
+ * only while the booking is still stored under the scanned key, a booking deleted or moved since is skipped.
+ */
+public class BookingKeysBackfill {
+
+    private final Logger logger = LogManager.getLogger(this.getClass());
+
+    private final AmazonDynamoDB client;
+    private final String tableName;
+
+    private int scanned;
+    private int written;
+    private int skipped;
+
+    public BookingKeysBackfill() {
+        this(DynamoDBAdapter.getInstance().getDbClient(), System.getenv("BOOKINGS_TABLE_NAME"));
+    }
+
+    public BookingKeysBackfill(AmazonDynamoDB client, String tableName) {
+        this.client = client;
+        this.tableName = tableName;
+    }
+
+    public void lambdaHandler() {
+        run();
+    }
+
+    /**
+     * Scans the whole bookings table and writes the missing key items.
+     * @return the number of key items written
+     */
+    public int run() {
+        scanned = 0;
+        written = 0;
+        skipped = 0;
+        Map<String, AttributeValue> exclusiveStartKey = null;
+        do {
+            ScanResult page = client.scan(new ScanRequest(tableName)
+                    .withProjectionExpression("scooterId, endTime, bookingId")
+                    .withExclusiveStartKey(exclusiveStartKey));
+            for (Map<String, AttributeValue> item : page.getItems()) {
+                scanned++;
+                if (item.get("bookingId") != null) {
+                    backfill(item);
+                }
+            }
+            exclusiveStartKey = page.getLastEvaluatedKey();
+            logger.info("backfilled booking keys: scanned {}, written {}, skipped {}", scanned, written, skipped);
+        } while (exclusiveStartKey != null && !exclusiveStartKey.isEmpty());
+        return written;
+    }
+
+    private void backfill(Map<String, AttributeValue> item) {
+        String bookingId = item.get("bookingId").getS();
+        Map<String, AttributeValue> bookingKey = new HashMap<>();
+        bookingKey.put("scooterId", item.get("scooterId"));
+        bookingKey.put("endTime", item.get("endTime"));
+        try {
+            client.transactWriteItems(new TransactWriteItemsRequest().withTransactItems(
+                    new TransactWriteItem().withPut(new Put()
+                            .withTableName(BookingKeys.tableName(tableName))
+                            .withItem(BookingKeys.item(bookingId, bookingKey))
+                            .withConditionExpression("attribute_not_exists(" + BookingKeys.PK + ")")),
+                    new TransactWriteItem().withConditionCheck(new ConditionCheck()
+                            .withTableName(tableName)
+                            .withKey(bookingKey)
+                            .withConditionExpression("bookingId = :bookingId")
+                            .withExpressionAttributeValues(Collections.singletonMap(":bookingId",
+                                    new AttributeValue().withS(bookingId))))));
+            written++;
+        } catch (TransactionCanceledException e) {
+            skipped++;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.wirelessiths.dal;
+
+import java.time.Instant;
+
+/**
+ * Body of POST /bookings.
+ */
+public class CreateBookingRequest {
+
+    private String scooterId;
+    private Instant startTime;
+    private Instant endTime;
+
+    public CreateBookingRequest() {
+    }
+
+    public String getScooterId() {
+        return scooterId;
+    }
+
+    public void setScooterId(String scooterId) {
+        this.scooterId = scooterId;
+    }
+
+    public Instant getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(Instant startTime) {
+        this.startTime = startTime;
+    }
+
+    public Instant getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(Instant endTime) {
+        this.endTime = endTime;
+    }
+
+    /**
+     * @return true if all fields required to create a booking are set
+     */
+    public boolean isComplete() {
+        return scooterId != null && startTime != null && endTime != null;
+    }
+
+    @Override
+    public String toString() {
+        return "CreateBookingRequest{" +
+                "scooterId='" + scooterId + '\'' +
+                ", startTime=" + startTime +
+                ", endTime=" + endTime +
+                '}';
+    }
+}
@@ -1,5 +1,6 @@
 package com.wirelessiths.dal;
 
+import com.amazonaws.ClientConfiguration;
 import com.amazonaws.client.builder.AwsClientBuilder;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
@@ -14,32 +15,45 @@ import java.util.Optional;
 
 public class DynamoDBAdapter {
 
+    /**
+     * System property with the size of the client's connection pool. A lambda serves one request at a time and
+     * keeps the default, {@link com.wirelessiths.server.BookingServer} raises it to its thread count.
+     */
+    public static final String MAX_CONNECTIONS = "dynamodb.maxConnections";
+
     private final Logger logger = LogManager.getLogger(this.getClass());
 
     private static DynamoDBAdapter db_adapter = null;
-    private final AmazonDynamoDB client;
+    private volatile AmazonDynamoDB client;
     private DynamoDBMapper mapper;
-    private DynamoDB dynamoDB;
+    private volatile DynamoDB dynamoDB;
 
     private DynamoDBAdapter() {
+        this.client = build();
+        this.dynamoDB = new DynamoDB(this.client);
+    }
+
+    private static AmazonDynamoDB build() {
         String environment = System.getenv("ENVIRONMENT");
+        ClientConfiguration clientConfiguration = new ClientConfiguration()
+                .withMaxConnections(Integer.getInteger(MAX_CONNECTIONS, ClientConfiguration.DEFAULT_MAX_CONNECTIONS));
         if(Optional.ofNullable(environment).isPresent() && environment.equals("test")){
             //local
-              this.client =  AmazonDynamoDBClientBuilder.standard()
+              return AmazonDynamoDBClientBuilder.standard()
                       .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration("http://localhost:8000", Regions.EU_WEST_1.getName()))
+                      .withClientConfiguration(clientConfiguration)
                        .build();
         } else {
             //cloud
-            this.client = AmazonDynamoDBClientBuilder.standard()
+            return AmazonDynamoDBClientBuilder.standard()
                     .withRegion(Regions.EU_WEST_1)
+                    .withClientConfiguration(clientConfiguration)
                     .build();
 
         }
-
-        this.dynamoDB = new DynamoDB(this.client);
     }
 
-    public static DynamoDBAdapter getInstance() {
+    public static synchronized DynamoDBAdapter getInstance() {
         if (db_adapter == null)
             db_adapter = new DynamoDBAdapter();
 
@@ -47,6 +61,18 @@ public class DynamoDBAdapter {
     }
     public DynamoDB getDynamoDB() { return this.dynamoDB; }
 
+    /**
+     * Closes the pooled connections of the client and replaces it with a new one, which opens its connections when
+     * it is first used. Daos created before keep the old client and fail, only call this while no requests run.
+     */
+    public synchronized void reconnect() {
+        AmazonDynamoDB previous = this.client;
+        this.client = build();
+        this.dynamoDB = new DynamoDB(this.client);
+        previous.shutdown();
+        logger.debug("DynamoDBAdapter - reconnect(): replaced the client");
+    }
+
     public AmazonDynamoDB getDbClient() {
         return this.client;
     }
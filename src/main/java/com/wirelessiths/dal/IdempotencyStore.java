@@ -0,0 +1,203 @@
+package com.wirelessiths.dal;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
+import com.wirelessiths.ApiGatewayResponse;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The idempotency table next to the bookings table: one item per Idempotency-Key a caller sent, keyed by the
+ * scope of the key, holding a fingerprint of the request and, once it is done, the response.
+ * <p>
+ * A request claims its key with a conditional put before it runs, so of two requests with one key only one runs.
+ * A retry with the key reads the item and gets the stored response back without running the request again. Items
+ * expire, the table's time to live deletes them after {@code expires}, and an expired item counts as missing
+ * before it is deleted. An item still in progress expires after {@value #IN_PROGRESS_SECONDS} seconds, longer than
+ * a function runs, so a request that died with its container does not lock the key for the whole day.
+ */
+public class IdempotencyStore {
+
+    static final int IN_PROGRESS_SECONDS = 180;
+    static final int COMPLETED_SECONDS = 24 * 60 * 60;
+
+    private static final String KEY = "idempotencyKey";
+    private static final String STATUS = "status";
+    private static final String FINGERPRINT = "fingerprint";
+    private static final String EXPIRES = "expires";
+    private static final String STATUS_CODE = "statusCode";
+    private static final String BODY = "body";
+    private static final String HEADERS = "headers";
+    private static final String BASE64_ENCODED = "isBase64Encoded";
+
+    private static final String IN_PROGRESS = "IN_PROGRESS";
+    private static final String COMPLETED = "COMPLETED";
+
+    private final AmazonDynamoDB client;
+    private final String tableName;
+
+    public IdempotencyStore(AmazonDynamoDB client, String tableName) {
+        this.client = client;
+        this.tableName = tableName;
+    }
+
+    /**
+     * @return the name of the idempotency table of a bookings table
+     */
+    public static String tableName(String bookingsTableName) {
+        return bookingsTableName + "-idempotency";
+    }
+
+    public static CreateTableRequest createTableRequest(String bookingsTableName) {
+        return new CreateTableRequest()
+                .withTableName(tableName(bookingsTableName))
+                .withKeySchema(new KeySchemaElement(KEY, KeyType.HASH))
+                .withAttributeDefinitions(new AttributeDefinition(KEY, ScalarAttributeType.S))
+                .withProvisionedThroughput(new ProvisionedThroughput(1L, 1L));
+    }
+
+    /**
+     * Claims a key for a request, unless a request with the key ran or runs already.
+     * @param scope the key, prefixed with the caller and the operation it was sent for
+     * @param fingerprint identifies the request, a retry has the same one
+     * @return null if the key is claimed and the request is to run, else the earlier request's record
+     */
+    public Record begin(String scope, String fingerprint, Instant now) {
+        Record existing = read(scope, now);
+        if (existing != null) {
+            return existing;
+        }
+        Map<String, AttributeValue> item = new HashMap<>(key(scope));
+        item.put(STATUS, new AttributeValue(IN_PROGRESS));
+        item.put(FINGERPRINT, new AttributeValue(fingerprint));
+        item.put(EXPIRES, epochSeconds(now.plusSeconds(IN_PROGRESS_SECONDS)));
+        try {
+            client.putItem(new PutItemRequest()
+                    .withTableName(tableName)
+                    .withItem(item)
+                    .withConditionExpression("attribute_not_exists(#key) OR #expires <= :now")
+                    .withExpressionAttributeNames(names())
+                    .withExpressionAttributeValues(Collections.singletonMap(":now", epochSeconds(now))));
+            return null;
+        } catch (ConditionalCheckFailedException e) {
+            // claimed by a concurrent request since the read
+            Record claimed = read(scope, now);
+            return claimed != null ? claimed : new Record(IN_PROGRESS, fingerprint, null);
+        }
+    }
+
+    /**
+     * Stores the response of a request that claimed its key, retries get it for {@value #COMPLETED_SECONDS} seconds.
+     */
+    public void complete(String scope, String fingerprint, ApiGatewayResponse response, Instant now) {
+        Map<String, AttributeValue> item = new HashMap<>(key(scope));
+        item.put(STATUS, new AttributeValue(COMPLETED));
+        item.put(FINGERPRINT, new AttributeValue(fingerprint));
+        item.put(EXPIRES, epochSeconds(now.plusSeconds(COMPLETED_SECONDS)));
+        item.put(STATUS_CODE, new AttributeValue().withN(String.valueOf(response.getStatusCode())));
+        if (response.getBody() != null) {
+            item.put(BODY, new AttributeValue(response.getBody()));
+        }
+        Map<String, AttributeValue> headers = new HashMap<>();
+        if (response.getHeaders() != null) {
+            response.getHeaders().forEach((name, value) -> headers.put(name, new AttributeValue(value)));
+        }
+        item.put(HEADERS, new AttributeValue().withM(headers));
+        item.put(BASE64_ENCODED, new AttributeValue().withBOOL(response.isIsBase64Encoded()));
+        client.putItem(new PutItemRequest().withTableName(tableName).withItem(item));
+    }
+
+    /**
+     * Gives up the key of a request that failed, a retry runs it again.
+     */
+    public void release(String scope) {
+        try {
+            client.deleteItem(new DeleteItemRequest()
+                    .withTableName(tableName)
+                    .withKey(key(scope))
+                    .withConditionExpression("#status = :inProgress")
+                    .withExpressionAttributeNames(Collections.singletonMap("#status", STATUS))
+                    .withExpressionAttributeValues(Collections.singletonMap(":inProgress", new AttributeValue(IN_PROGRESS))));
+        } catch (ConditionalCheckFailedException e) {
+            // completed by a request that claimed the key after this one expired, keep its response
+        }
+    }
+
+    private Record read(String scope, Instant now) {
+        Map<String, AttributeValue> item = client.getItem(new GetItemRequest()
+                .withTableName(tableName)
+                .withKey(key(scope))
+                .withConsistentRead(true)).getItem();
+        if (item == null || Long.parseLong(item.get(EXPIRES).getN()) <= now.getEpochSecond()) {
+            return null;
+        }
+        ApiGatewayResponse response = null;
+        if (COMPLETED.equals(item.get(STATUS).getS())) {
+            Map<String, String> headers = new HashMap<>();
+            item.get(HEADERS).getM().forEach((name, value) -> headers.put(name, value.getS()));
+            AttributeValue body = item.get(BODY);
+            response = new ApiGatewayResponse(Integer.parseInt(item.get(STATUS_CODE).getN()),
+                    body == null ? null : body.getS(), headers, item.get(BASE64_ENCODED).getBOOL());
+        }
+        return new Record(item.get(STATUS).getS(), item.get(FINGERPRINT).getS(), response);
+    }
+
+    private static Map<String, AttributeValue> key(String scope) {
+        return Collections.singletonMap(KEY, new AttributeValue(scope));
+    }
+
+    private static Map<String, String> names() {
+        Map<String, String> names = new HashMap<>();
+        names.put("#key", KEY);
+        names.put("#expires", EXPIRES);
+        return names;
+    }
+
+    private static AttributeValue epochSeconds(Instant instant) {
+        return new AttributeValue().withN(String.valueOf(instant.getEpochSecond()));
+    }
+
+    /**
+     * What the table holds for a key: a request in progress, or a completed one and its response.
+     */
+    public static class Record {
+
+        private final String status;
+        private final String fingerprint;
+        private final ApiGatewayResponse response;
+
+        Record(String status, String fingerprint, ApiGatewayResponse response) {
+            this.status = status;
+            this.fingerprint = fingerprint;
+            this.response = response;
+        }
+
+        public boolean isCompleted() {
+            return COMPLETED.equals(status);
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        /**
+         * @return the stored response of a completed request, null while in progress
+         */
+        public ApiGatewayResponse getResponse() {
+            return response;
+        }
+    }
+}
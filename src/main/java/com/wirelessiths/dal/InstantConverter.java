@@ -9,12 +9,12 @@ public class InstantConverter implements DynamoDBTypeConverter<String, Instant>
     @Override
     public String convert( final Instant time ) {
 
-        return time.toString();
+        return IsoTime.format(time);
     }
 
     @Override
     public Instant unconvert(final String stringValue ) {
 
-        return Instant.parse(stringValue);//InstantConverter.parse(stringValue);
+        return IsoTime.parseInstant(stringValue);
     }
 }
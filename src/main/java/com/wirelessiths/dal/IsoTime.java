@@ -0,0 +1,191 @@
+package com.wirelessiths.dal;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Formats and parses the ISO-8601 strings bookings are stored with, without going through DateTimeFormatter.
+ * Output is identical to {@link Instant#toString()} and {@link LocalDate#toString()}, so stored keys keep
+ * their format and sort order. Values outside year 0000-9999 and input in any other ISO shape (offsets,
+ * lower case, leap seconds) fall back to the java.time implementations.
+ */
+public final class IsoTime {
+
+    private static final long SECONDS_PER_DAY = 86400;
+    // days from 0000-03-01 to 1970-01-01, see days_from_civil in http://howardhinnant.github.io/date_algorithms.html
+    private static final long DAYS_0000_TO_1970 = 719468;
+    private static final long DAYS_PER_CYCLE = 146097;
+    private static final long MIN_EPOCH_DAY = LocalDate.of(0, 1, 1).toEpochDay();
+    private static final long MAX_EPOCH_DAY = LocalDate.of(9999, 12, 31).toEpochDay();
+    private static final int[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000, 100_000_000, 1_000_000_000};
+
+    private IsoTime() {
+    }
+
+    /**
+     * @return the UTC date of the instant, i.e. the date part of {@code instant.toString()}
+     */
+    public static LocalDate utcDate(Instant instant) {
+        return LocalDate.ofEpochDay(Math.floorDiv(instant.getEpochSecond(), SECONDS_PER_DAY));
+    }
+
+    /**
+     * @return the same string as {@code instant.toString()}, e.g. 2019-09-02T14:10:23.456Z
+     */
+    public static String format(Instant instant) {
+        long epochSecond = instant.getEpochSecond();
+        long epochDay = Math.floorDiv(epochSecond, SECONDS_PER_DAY);
+        if (epochDay < MIN_EPOCH_DAY || epochDay > MAX_EPOCH_DAY) {
+            return instant.toString();
+        }
+        int secondOfDay = (int) Math.floorMod(epochSecond, SECONDS_PER_DAY);
+        int nano = instant.getNano();
+        // like DateTimeFormatter.ISO_INSTANT, print the fraction in groups of three digits
+        int fractionDigits = nano == 0 ? 0 : nano % 1_000_000 == 0 ? 3 : nano % 1_000 == 0 ? 6 : 9;
+
+        char[] chars = new char[fractionDigits == 0 ? 20 : 21 + fractionDigits];
+        writeDate(chars, epochDay);
+        chars[10] = 'T';
+        writeDigits(chars, 11, 2, secondOfDay / 3600);
+        chars[13] = ':';
+        writeDigits(chars, 14, 2, secondOfDay / 60 % 60);
+        chars[16] = ':';
+        writeDigits(chars, 17, 2, secondOfDay % 60);
+        if (fractionDigits > 0) {
+            chars[19] = '.';
+            writeDigits(chars, 20, fractionDigits, nano / POWERS_OF_TEN[9 - fractionDigits]);
+        }
+        chars[chars.length - 1] = 'Z';
+        return new String(chars);
+    }
+
+    /**
+     * @return the same string as {@code date.toString()}, e.g. 2019-09-02
+     */
+    public static String format(LocalDate date) {
+        int year = date.getYear();
+        if (year < 0 || year > 9999) {
+            return date.toString();
+        }
+        char[] chars = new char[10];
+        writeDate(chars, year, date.getMonthValue(), date.getDayOfMonth());
+        return new String(chars);
+    }
+
+    /**
+     * Parses the format written by {@link #format(Instant)}, anything else is handed to {@link Instant#parse}.
+     * @throws java.time.format.DateTimeParseException if the text is not an ISO instant
+     */
+    public static Instant parseInstant(String text) {
+        int length = text.length();
+        if (length < 20 || length > 30 || length == 21 || text.charAt(length - 1) != 'Z'
+                || text.charAt(10) != 'T' || text.charAt(13) != ':' || text.charAt(16) != ':'
+                || (length > 20 && text.charAt(19) != '.')) {
+            return Instant.parse(text);
+        }
+        long epochDay = epochDay(text);
+        int hour = parseDigits(text, 11, 2);
+        int minute = parseDigits(text, 14, 2);
+        int second = parseDigits(text, 17, 2);
+        int fractionDigits = length > 20 ? length - 21 : 0;
+        int fraction = fractionDigits > 0 ? parseDigits(text, 20, fractionDigits) : 0;
+        if (epochDay == Long.MIN_VALUE || hour < 0 || hour > 23 || minute < 0 || minute > 59
+                || second < 0 || second > 59 || fraction < 0) {
+            return Instant.parse(text);
+        }
+        return Instant.ofEpochSecond(epochDay * SECONDS_PER_DAY + hour * 3600 + minute * 60 + second,
+                (long) fraction * POWERS_OF_TEN[9 - fractionDigits]);
+    }
+
+    /**
+     * Parses the format written by {@link #format(LocalDate)}, anything else is handed to {@link LocalDate#parse}.
+     * @throws java.time.format.DateTimeParseException if the text is not an ISO date
+     */
+    public static LocalDate parseDate(String text) {
+        long epochDay = text.length() == 10 ? epochDay(text) : Long.MIN_VALUE;
+        return epochDay == Long.MIN_VALUE ? LocalDate.parse(text) : LocalDate.ofEpochDay(epochDay);
+    }
+
+    /**
+     * Reads yyyy-MM-dd from the start of the text.
+     * @return the epoch day, or Long.MIN_VALUE if the text does not start with a valid date
+     */
+    private static long epochDay(String text) {
+        if (text.charAt(4) != '-' || text.charAt(7) != '-') {
+            return Long.MIN_VALUE;
+        }
+        int year = parseDigits(text, 0, 4);
+        int month = parseDigits(text, 5, 2);
+        int day = parseDigits(text, 8, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            return Long.MIN_VALUE;
+        }
+        // days_from_civil, the year is counted from March so the leap day is the last day of the year
+        int y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * DAYS_PER_CYCLE + dayOfEra - DAYS_0000_TO_1970;
+    }
+
+    /**
+     * Writes the epoch day as yyyy-MM-dd to the start of chars, using civil_from_days.
+     */
+    private static void writeDate(char[] chars, long epochDay) {
+        long z = epochDay + DAYS_0000_TO_1970;
+        long era = Math.floorDiv(z, DAYS_PER_CYCLE);
+        long dayOfEra = z - era * DAYS_PER_CYCLE;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthFromMarch = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * monthFromMarch + 2) / 5 + 1);
+        int month = (int) (monthFromMarch < 10 ? monthFromMarch + 3 : monthFromMarch - 9);
+        int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+        writeDate(chars, year, month, day);
+    }
+
+    private static void writeDate(char[] chars, int year, int month, int day) {
+        writeDigits(chars, 0, 4, year);
+        chars[4] = '-';
+        writeDigits(chars, 5, 2, month);
+        chars[7] = '-';
+        writeDigits(chars, 8, 2, day);
+    }
+
+    private static void writeDigits(char[] chars, int offset, int digits, int value) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /**
+     * @return the number, or -1 if any of the characters is not an ascii digit
+     */
+    private static int parseDigits(String text, int offset, int digits) {
+        int value = 0;
+        for (int i = offset; i < offset + digits; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+}
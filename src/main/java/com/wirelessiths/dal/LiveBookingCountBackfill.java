@@ -0,0 +1,91 @@
+package com.wirelessiths.dal;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sets the live booking counters in {@link BookingKeys} to the number of live bookings each user has in the
+ * bookings table. Every write, batch cancels and deletes included, changes the counters in the same transaction as
+ * the booking, so the job only has to run once after they are introduced.
+ * <p>
+ * The counters are set from one scan, a booking created or cancelled while it runs may be counted wrong, so run it
+ * when few bookings are made. It can be rerun safely.
+ */
+public class LiveBookingCountBackfill {
+
+    private final Logger logger = LogManager.getLogger(this.getClass());
+
+    private final AmazonDynamoDB client;
+    private final String tableName;
+
+    public LiveBookingCountBackfill() {
+        this(DynamoDBAdapter.getInstance().getDbClient(), System.getenv("BOOKINGS_TABLE_NAME"));
+    }
+
+    public LiveBookingCountBackfill(AmazonDynamoDB client, String tableName) {
+        this.client = client;
+        this.tableName = tableName;
+    }
+
+    public void lambdaHandler() {
+        run();
+    }
+
+    /**
+     * Counts the live bookings per user in the bookings table and writes the counters, counters of users without
+     * live bookings are set to 0.
+     * @return the number of counters written
+     */
+    public int run() {
+        Map<String, Integer> counts = new HashMap<>();
+        int scanned = 0;
+        Map<String, AttributeValue> exclusiveStartKey = null;
+        do {
+            ScanResult page = client.scan(new ScanRequest(tableName)
+                    .withProjectionExpression("userId, bookingStatus")
+                    .withExclusiveStartKey(exclusiveStartKey));
+            for (Map<String, AttributeValue> item : page.getItems()) {
+                scanned++;
+                if (Booking.isCounted(item)) {
+                    counts.merge(item.get("userId").getS(), 1, Integer::sum);
+                }
+            }
+            exclusiveStartKey = page.getLastEvaluatedKey();
+        } while (exclusiveStartKey != null && !exclusiveStartKey.isEmpty());
+
+        // counters of users whose bookings all ended since
+        Map<String, AttributeValue> values = Collections.singletonMap(":prefix",
+                new AttributeValue().withS(BookingKeys.USER_PREFIX));
+        exclusiveStartKey = null;
+        do {
+            ScanResult page = client.scan(new ScanRequest(BookingKeys.tableName(tableName))
+                    .withFilterExpression("begins_with(" + BookingKeys.PK + ", :prefix)")
+                    .withExpressionAttributeValues(values)
+                    .withExclusiveStartKey(exclusiveStartKey));
+            for (Map<String, AttributeValue> item : page.getItems()) {
+                counts.putIfAbsent(item.get(BookingKeys.PK).getS().substring(BookingKeys.USER_PREFIX.length()), 0);
+            }
+            exclusiveStartKey = page.getLastEvaluatedKey();
+        } while (exclusiveStartKey != null && !exclusiveStartKey.isEmpty());
+
+        for (Map.Entry<String, Integer> count : counts.entrySet()) {
+            client.updateItem(new UpdateItemRequest()
+                    .withTableName(BookingKeys.tableName(tableName))
+                    .withKey(BookingKeys.userKey(count.getKey()))
+                    .withUpdateExpression("SET " + BookingKeys.LIVE_BOOKINGS + " = :count")
+                    .withExpressionAttributeValues(Collections.singletonMap(":count",
+                            new AttributeValue().withN(Integer.toString(count.getValue())))));
+        }
+        logger.info("backfilled live booking counters: scanned {}, counters {}", scanned, counts.size());
+        return counts.size();
+    }
+}
@@ -9,13 +9,12 @@ public class LocalDateConverter implements DynamoDBTypeConverter<String, LocalDa
     @Override
     public String convert( final LocalDate time ) {
 
-        return time.toString();
-        //return time.
+        return IsoTime.format(time);
     }
 
     @Override
     public LocalDate unconvert( final String stringValue ) {
 
-        return LocalDate.parse(stringValue);
+        return IsoTime.parseDate(stringValue);
     }
 }
@@ -2,6 +2,8 @@ package com.wirelessiths.dal;
 
 
 import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+
 //temp solution for testing locally
 public class LoggerAdapter {
 
@@ -15,6 +17,34 @@ public class LoggerAdapter {
         }
     }
 
+    /**
+     * Parameterized info logging, the message is only formatted if info is enabled.
+     * @param message message pattern with {} placeholders
+     * @param params values for the placeholders
+     */
+    public void info(String message, Object... params){
+        if(logger != null){
+            logger.info(message, params);
+        }else{
+            System.out.println("fake logger: " + ParameterizedMessage.format(message, params));
+        }
+    }
+
+    /**
+     * Parameterized debug logging. The fake logger never prints debug messages.
+     * @param message message pattern with {} placeholders
+     * @param params values for the placeholders, toString() is not called unless debug is enabled
+     */
+    public void debug(String message, Object... params){
+        if(logger != null){
+            logger.debug(message, params);
+        }
+    }
+
+    public boolean isDebugEnabled(){
+        return logger != null && logger.isDebugEnabled();
+    }
+
     public void error(String message){
         if(logger != null){
             logger.error(message);
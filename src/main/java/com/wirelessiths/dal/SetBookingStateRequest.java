@@ -0,0 +1,37 @@
+package com.wirelessiths.dal;
+
+/**
+ * Body of POST /bookings/{id}/state, e.g. {"command": "activate", "scooterId": "1234"}.
+ */
+public class SetBookingStateRequest {
+
+    private String command;
+    private String scooterId;
+
+    public SetBookingStateRequest() {
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public void setCommand(String command) {
+        this.command = command;
+    }
+
+    public String getScooterId() {
+        return scooterId;
+    }
+
+    public void setScooterId(String scooterId) {
+        this.scooterId = scooterId;
+    }
+
+    @Override
+    public String toString() {
+        return "SetBookingStateRequest{" +
+                "command='" + command + '\'' +
+                ", scooterId='" + scooterId + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,140 @@
+package com.wirelessiths.dal;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Writes the statusStartDate key of {@link Booking#STATUS_START_INDEX} and the statusStartTime key of
+ * {@link Booking#USER_STATUS_INDEX} to bookings saved before the keys existed. Every save writes them, so the job has
+ * to run once after an index is created, and can be rerun safely: bookings whose keys are up to date are left alone.
+ * <p>
+ * An update only applies if bookingStatus, startDate and startTime are still the values the keys were derived from.
+ * A booking saved in the meantime already has its keys and is skipped.
+ */
+public class StatusKeyBackfill {
+
+    private static final String PROJECTION = "scooterId, endTime, bookingStatus, startDate, startTime, statusStartDate, statusStartTime";
+
+    private final Logger logger = LogManager.getLogger(this.getClass());
+
+    private final AmazonDynamoDB client;
+    private final String tableName;
+
+    private int scanned;
+    private int updated;
+    private int changedMeanwhile;
+
+    public StatusKeyBackfill() {
+        this(DynamoDBAdapter.getInstance().getDbClient(), System.getenv("BOOKINGS_TABLE_NAME"));
+    }
+
+    public StatusKeyBackfill(AmazonDynamoDB client, String tableName) {
+        this.client = client;
+        this.tableName = tableName;
+    }
+
+    public void lambdaHandler() {
+        run();
+    }
+
+    /**
+     * Scans the whole table and updates the bookings with missing or stale keys.
+     * @return the number of updated bookings
+     */
+    public int run() {
+        scanned = 0;
+        updated = 0;
+        changedMeanwhile = 0;
+        Map<String, AttributeValue> exclusiveStartKey = null;
+        do {
+            ScanResult page = client.scan(new ScanRequest(tableName)
+                    .withProjectionExpression(PROJECTION)
+                    .withExclusiveStartKey(exclusiveStartKey));
+            for (Map<String, AttributeValue> item : page.getItems()) {
+                scanned++;
+                backfill(item);
+            }
+            exclusiveStartKey = page.getLastEvaluatedKey();
+            logger.info("backfilled status keys: scanned {}, updated {}, changed meanwhile {}", scanned, updated, changedMeanwhile);
+        } while (exclusiveStartKey != null && !exclusiveStartKey.isEmpty());
+        return updated;
+    }
+
+    private void backfill(Map<String, AttributeValue> item) {
+        String status = stringValue(item, "bookingStatus");
+        String startDate = stringValue(item, "startDate");
+        String startTime = stringValue(item, "startTime");
+        BookingStatus bookingStatus = status == null ? null : BookingStatus.valueOf(status);
+        Map<String, String> keys = new HashMap<>();
+        keys.put("statusStartDate", startDate == null ? null : Booking.statusKey(bookingStatus, IsoTime.parseDate(startDate)));
+        keys.put("statusStartTime", startTime == null ? null : Booking.statusTimeKey(bookingStatus, IsoTime.parseInstant(startTime)));
+
+        List<String> sets = new ArrayList<>();
+        List<String> removes = new ArrayList<>();
+        Map<String, AttributeValue> values = new HashMap<>();
+        keys.forEach((attribute, key) -> {
+            if (Objects.equals(key, stringValue(item, attribute))) {
+                return;
+            }
+            if (key == null) {
+                removes.add(attribute);
+            } else {
+                sets.add(attribute + " = :" + attribute);
+                values.put(":" + attribute, new AttributeValue().withS(key));
+            }
+        });
+        if (sets.isEmpty() && removes.isEmpty()) {
+            return;
+        }
+        String update = (sets.isEmpty() ? "" : "SET " + String.join(", ", sets) + " ")
+                + (removes.isEmpty() ? "" : "REMOVE " + String.join(", ", removes));
+
+        List<String> conditions = new ArrayList<>();
+        // the booking may have been deleted since it was scanned
+        conditions.add("attribute_exists(scooterId)");
+        condition("bookingStatus", status, conditions, values);
+        condition("startDate", startDate, conditions, values);
+        condition("startTime", startTime, conditions, values);
+
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("scooterId", item.get("scooterId"));
+        key.put("endTime", item.get("endTime"));
+        try {
+            client.updateItem(new UpdateItemRequest()
+                    .withTableName(tableName)
+                    .withKey(key)
+                    .withUpdateExpression(update.trim())
+                    .withConditionExpression(String.join(" AND ", conditions))
+                    .withExpressionAttributeValues(values.isEmpty() ? null : values));
+            updated++;
+        } catch (ConditionalCheckFailedException e) {
+            changedMeanwhile++;
+        }
+    }
+
+    private static void condition(String attribute, String value, List<String> conditions, Map<String, AttributeValue> values) {
+        if (value == null) {
+            conditions.add("attribute_not_exists(" + attribute + ")");
+        } else {
+            conditions.add(attribute + " = :" + attribute + "Read");
+            values.put(":" + attribute + "Read", new AttributeValue().withS(value));
+        }
+    }
+
+    private static String stringValue(Map<String, AttributeValue> item, String attribute) {
+        AttributeValue value = item.get(attribute);
+        return value == null ? null : value.getS();
+    }
+}
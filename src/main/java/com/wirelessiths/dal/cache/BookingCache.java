@@ -0,0 +1,116 @@
+package com.wirelessiths.dal.cache;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per container cache of bookings by bookingId, least recently read bookings are evicted, with an optional
+ * {@link CacheTier} shared by containers behind it.
+ * <p>
+ * Entries expire after {@value #TTL_SECONDS} seconds, {@value #SHARED_TTL_SECONDS} in the shared tier. Writes
+ * through {@link com.wirelessiths.dal.Booking} invalidate both, writes by other containers show up when the local
+ * entry expires, or right away when they share the tier. A read racing a write in the same container may cache
+ * the older item until it expires. Only reads are served from the cache, a booking that is going to be changed is
+ * read from the table.
+ */
+public class BookingCache {
+
+    static final int MAX_BOOKINGS = 4096;
+    static final int TTL_SECONDS = 10;
+    static final int SHARED_TTL_SECONDS = 60;
+
+    private static BookingCache instance = null;
+
+    private final Clock clock;
+    private final CacheTier shared;
+    private final Map<String, Entry> items = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_BOOKINGS;
+        }
+    };
+
+    /**
+     * @param shared the tier behind the local cache, may be null
+     */
+    BookingCache(CacheTier shared, Clock clock) {
+        this.shared = shared;
+        this.clock = clock;
+    }
+
+    public static synchronized BookingCache getInstance() {
+        if (instance == null) {
+            CacheTier shared = "local".equals(System.getenv("BOOKING_CACHE_TIER"))
+                    ? new LocalCacheTier(Clock.systemUTC())
+                    : null;
+            instance = new BookingCache(shared, Clock.systemUTC());
+        }
+        return instance;
+    }
+
+    /**
+     * @return the cached item, null on a miss in both tiers
+     */
+    public Map<String, AttributeValue> get(String bookingId) {
+        Instant now = clock.instant();
+        synchronized (this) {
+            Entry entry = items.get(bookingId);
+            if (entry != null && entry.expires.isAfter(now)) {
+                return entry.item;
+            }
+        }
+        if (shared == null) {
+            return null;
+        }
+        Map<String, AttributeValue> item = shared.get(bookingId);
+        if (item != null) {
+            synchronized (this) {
+                items.put(bookingId, new Entry(item, now.plusSeconds(TTL_SECONDS)));
+            }
+        }
+        return item;
+    }
+
+    /**
+     * @param item the booking as read from the table, not changed afterwards
+     */
+    public void put(String bookingId, Map<String, AttributeValue> item) {
+        synchronized (this) {
+            items.put(bookingId, new Entry(item, clock.instant().plusSeconds(TTL_SECONDS)));
+        }
+        if (shared != null) {
+            shared.put(bookingId, item, SHARED_TTL_SECONDS);
+        }
+    }
+
+    public void invalidate(String bookingId) {
+        synchronized (this) {
+            items.remove(bookingId);
+        }
+        if (shared != null) {
+            shared.invalidate(bookingId);
+        }
+    }
+
+    /**
+     * Drops the bookings of this container, the shared tier keeps its entries.
+     */
+    public synchronized void clear() {
+        items.clear();
+    }
+
+    private static class Entry {
+
+        private final Map<String, AttributeValue> item;
+        private final Instant expires;
+
+        Entry(Map<String, AttributeValue> item, Instant expires) {
+            this.item = item;
+            this.expires = expires;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.wirelessiths.dal.cache;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+import java.util.Map;
+
+/**
+ * A cache of booking items shared by containers, behind the per container cache of {@link BookingCache}.
+ * Items are stored as the attribute maps the mapper writes, so a tier never holds a live {@code Booking}.
+ */
+public interface CacheTier {
+
+    /**
+     * @return the item, null if it is missing or expired
+     */
+    Map<String, AttributeValue> get(String bookingId);
+
+    void put(String bookingId, Map<String, AttributeValue> item, int ttlSeconds);
+
+    void invalidate(String bookingId);
+}
@@ -0,0 +1,172 @@
+package com.wirelessiths.dal.cache;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Per container cache of booking lists as they are sent, keyed by the normalized query and what the caller may
+ * see. Concurrent misses for one key share a single read: the first one loads the list, the others wait for it.
+ * <p>
+ * Entries expire after {@value #TTL_MILLIS} ms, so a burst of identical list requests costs one query while a
+ * list is never older than that. Writes through {@link com.wirelessiths.dal.Booking} clear the cache, and a read
+ * that started before the write is handed to its waiters but not stored.
+ */
+public class ListCache {
+
+    static final int MAX_LISTS = 256;
+    static final long TTL_MILLIS = 500;
+
+    private static ListCache instance = null;
+
+    private final Clock clock;
+    private final Map<String, Entry> lists = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_LISTS;
+        }
+    };
+    private final Map<String, CompletableFuture<Listing>> loading = new HashMap<>();
+    private long generation;
+
+    ListCache(Clock clock) {
+        this.clock = clock;
+    }
+
+    public static synchronized ListCache getInstance() {
+        if (instance == null) {
+            instance = new ListCache(Clock.systemUTC());
+        }
+        return instance;
+    }
+
+    /**
+     * @param key the normalized query and the caller's visibility
+     * @param loader reads and renders the list, called at most once at a time per key
+     * @return the cached list, or the one read by the loader of this or a concurrent call
+     * @throws IOException or the RuntimeException the loader threw, to every call that waited for it
+     */
+    public Listing get(String key, Loader loader) throws IOException {
+        CompletableFuture<Listing> load;
+        long started;
+        synchronized (this) {
+            Entry entry = lists.get(key);
+            if (entry != null && entry.expires.isAfter(clock.instant())) {
+                return entry.listing;
+            }
+            load = loading.get(key);
+            if (load != null) {
+                started = -1;
+            } else {
+                load = new CompletableFuture<>();
+                loading.put(key, load);
+                started = generation;
+            }
+        }
+        if (started < 0) {
+            return await(load);
+        }
+
+        Listing listing;
+        try {
+            listing = loader.load();
+        } catch (Throwable e) {
+            synchronized (this) {
+                loading.remove(key, load);
+            }
+            load.completeExceptionally(e);
+            throw e;
+        }
+        synchronized (this) {
+            loading.remove(key, load);
+            if (generation == started) {
+                lists.put(key, new Entry(listing, clock.instant().plusMillis(TTL_MILLIS)));
+            }
+        }
+        load.complete(listing);
+        return listing;
+    }
+
+    /**
+     * Drops every list. Reads in flight still answer the calls waiting for them, later calls read again.
+     */
+    public synchronized void clear() {
+        lists.clear();
+        loading.clear();
+        generation++;
+    }
+
+    private static Listing await(CompletableFuture<Listing> load) throws IOException {
+        try {
+            return load.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for a list read by another request");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    public interface Loader {
+
+        Listing load() throws IOException;
+    }
+
+    /**
+     * A rendered list: the json body, the cursor of the next page and the ETag.
+     */
+    public static class Listing {
+
+        private final String body;
+        private final String nextCursor;
+        private final String etag;
+
+        /**
+         * @param nextCursor null on the last page or for an unpaged list
+         */
+        public Listing(String body, String nextCursor, String etag) {
+            this.body = body;
+            this.nextCursor = nextCursor;
+            this.etag = etag;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        public String getNextCursor() {
+            return nextCursor;
+        }
+
+        public String getETag() {
+            return etag;
+        }
+    }
+
+    private static class Entry {
+
+        private final Listing listing;
+        private final Instant expires;
+
+        Entry(Listing listing, Instant expires) {
+            this.listing = listing;
+            this.expires = expires;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.wirelessiths.dal.cache;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stand-in for a shared {@link CacheTier} in local runs and tests, one map per jvm. Selected with
+ * BOOKING_CACHE_TIER=local.
+ */
+public class LocalCacheTier implements CacheTier {
+
+    private final Clock clock;
+    private final Map<String, Entry> items = new ConcurrentHashMap<>();
+
+    public LocalCacheTier(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public Map<String, AttributeValue> get(String bookingId) {
+        Entry entry = items.get(bookingId);
+        if (entry == null || !entry.expires.isAfter(clock.instant())) {
+            return null;
+        }
+        return entry.item;
+    }
+
+    @Override
+    public void put(String bookingId, Map<String, AttributeValue> item, int ttlSeconds) {
+        items.put(bookingId, new Entry(item, clock.instant().plusSeconds(ttlSeconds)));
+    }
+
+    @Override
+    public void invalidate(String bookingId) {
+        items.remove(bookingId);
+    }
+
+    private static class Entry {
+
+        private final Map<String, AttributeValue> item;
+        private final Instant expires;
+
+        Entry(Map<String, AttributeValue> item, Instant expires) {
+            this.item = item;
+            this.expires = expires;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.wirelessiths.dal.query;
+
+import com.wirelessiths.dal.BookingStatus;
+import com.wirelessiths.dal.IsoTime;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * The predicates of a booking search, all optional and combined with AND.
+ * {@link QueryPlanner} decides which of them become key conditions and which are left to a filter.
+ */
+public class BookingQuery {
+
+    private final String bookingId;
+    private final String userId;
+    private final String scooterId;
+    private final LocalDate startDate;
+    private final Instant startTimeFrom;
+    private final Instant startTimeTo;
+    private final BookingStatus bookingStatus;
+    private final boolean descending;
+
+    private BookingQuery(Builder builder) {
+        this.bookingId = builder.bookingId;
+        this.userId = builder.userId;
+        this.scooterId = builder.scooterId;
+        this.startDate = builder.startDate;
+        this.startTimeFrom = builder.startTimeFrom;
+        this.startTimeTo = builder.startTimeTo;
+        this.bookingStatus = builder.bookingStatus;
+        this.descending = builder.descending;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Reads the supported query string parameters: bookingId, userId, scooterId, startDate (or date), from, to,
+     * bookingStatus and order. from and to are inclusive bounds of startTime, order=desc lists the latest startTime
+     * first. Other parameters are ignored.
+     * @throws java.time.format.DateTimeParseException if startDate is not an ISO date or from or to is not an ISO instant
+     * @throws IllegalArgumentException if bookingStatus is not a known status, from is after to or order is neither
+     * asc nor desc
+     */
+    public static BookingQuery fromParameters(Map<String, String> parameters) {
+        return builder().setParameters(parameters).build();
+    }
+
+    public String getBookingId() {
+        return bookingId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getScooterId() {
+        return scooterId;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    /**
+     * @return inclusive lower bound of startTime, or null
+     */
+    public Instant getStartTimeFrom() {
+        return startTimeFrom;
+    }
+
+    /**
+     * @return inclusive upper bound of startTime, or null
+     */
+    public Instant getStartTimeTo() {
+        return startTimeTo;
+    }
+
+    public BookingStatus getBookingStatus() {
+        return bookingStatus;
+    }
+
+    /**
+     * @return true if the bookings are read latest startTime first, not a predicate, a scan ignores it
+     */
+    public boolean isDescending() {
+        return descending;
+    }
+
+    /**
+     * @return a builder with every predicate of this query set
+     */
+    public Builder toBuilder() {
+        return builder()
+                .setBookingId(bookingId)
+                .setUserId(userId)
+                .setScooterId(scooterId)
+                .setStartDate(startDate)
+                .setStartTimeRange(startTimeFrom, startTimeTo)
+                .setBookingStatus(bookingStatus)
+                .setDescending(descending);
+    }
+
+    public boolean hasStartTimeRange() {
+        return startTimeFrom != null || startTimeTo != null;
+    }
+
+    /**
+     * @return true if there are no predicates, i.e. the query matches every booking
+     */
+    public boolean isEmpty() {
+        return bookingId == null && userId == null && scooterId == null && startDate == null
+                && !hasStartTimeRange() && bookingStatus == null;
+    }
+
+    @Override
+    public String toString() {
+        return "BookingQuery{" +
+                "bookingId='" + bookingId + '\'' +
+                ", userId='" + userId + '\'' +
+                ", scooterId='" + scooterId + '\'' +
+                ", startDate=" + startDate +
+                ", startTimeFrom=" + startTimeFrom +
+                ", startTimeTo=" + startTimeTo +
+                ", bookingStatus=" + bookingStatus +
+                ", descending=" + descending +
+                '}';
+    }
+
+    public static class Builder {
+
+        private String bookingId;
+        private String userId;
+        private String scooterId;
+        private LocalDate startDate;
+        private Instant startTimeFrom;
+        private Instant startTimeTo;
+        private BookingStatus bookingStatus;
+        private boolean descending;
+
+        /**
+         * Sets the predicates present in a query string parameter map, see {@link #fromParameters(Map)}.
+         */
+        public Builder setParameters(Map<String, String> parameters) {
+            if (parameters == null) {
+                return this;
+            }
+            if (parameters.containsKey("bookingId")) {
+                setBookingId(parameters.get("bookingId"));
+            }
+            if (parameters.containsKey("userId")) {
+                setUserId(parameters.get("userId"));
+            }
+            if (parameters.containsKey("scooterId")) {
+                setScooterId(parameters.get("scooterId"));
+            }
+            String startDate = parameters.containsKey("startDate") ? parameters.get("startDate") : parameters.get("date");
+            if (startDate != null) {
+                setStartDate(IsoTime.parseDate(startDate));
+            }
+            String from = parameters.get("from");
+            String to = parameters.get("to");
+            if (from != null || to != null) {
+                Instant fromInstant = from != null ? IsoTime.parseInstant(from) : null;
+                Instant toInstant = to != null ? IsoTime.parseInstant(to) : null;
+                if (fromInstant != null && toInstant != null && fromInstant.isAfter(toInstant)) {
+                    throw new IllegalArgumentException("from " + from + " is after to " + to);
+                }
+                setStartTimeRange(fromInstant, toInstant);
+            }
+            String status = parameters.get("bookingStatus");
+            if (status != null) {
+                setBookingStatus(BookingStatus.valueOf(status.toUpperCase()));
+            }
+            String order = parameters.get("order");
+            if (order != null) {
+                if (!order.equals("asc") && !order.equals("desc")) {
+                    throw new IllegalArgumentException("order must be asc or desc");
+                }
+                setDescending(order.equals("desc"));
+            }
+            return this;
+        }
+
+        public Builder setBookingId(String bookingId) {
+            this.bookingId = bookingId;
+            return this;
+        }
+
+        public Builder setUserId(String userId) {
+            this.userId = userId;
+            return this;
+        }
+
+        public Builder setScooterId(String scooterId) {
+            this.scooterId = scooterId;
+            return this;
+        }
+
+        public Builder setStartDate(LocalDate startDate) {
+            this.startDate = startDate;
+            return this;
+        }
+
+        /**
+         * Restricts startTime to [from, to], either bound may be null.
+         */
+        public Builder setStartTimeRange(Instant from, Instant to) {
+            this.startTimeFrom = from;
+            this.startTimeTo = to;
+            return this;
+        }
+
+        public Builder setBookingStatus(BookingStatus bookingStatus) {
+            this.bookingStatus = bookingStatus;
+            return this;
+        }
+
+        public Builder setDescending(boolean descending) {
+            this.descending = descending;
+            return this;
+        }
+
+        public BookingQuery build() {
+            return new BookingQuery(this);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.wirelessiths.dal.query;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads the partitions of a query concurrently and merges them into one sorted iterator, and runs the chunks of
+ * batch operations concurrently.
+ * <p>
+ * Only the first read of each partition runs on the pool, for a DynamoDBMapper query that is its first page. Further
+ * pages of a lazily loaded result are read by the merge, on the calling thread, when it gets to them.
+ */
+public final class FanOut {
+
+    private static final int THREADS = 8;
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "bookings-fan-out-" + THREAD_NUMBER.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private FanOut() {
+    }
+
+    /**
+     * @param partitions reads of the partitions, each returning its rows sorted by order
+     * @param order the order of the merged rows
+     * @return the rows of every partition, merged by order
+     * @throws IOException if a read fails with a checked exception or the calling thread is interrupted
+     */
+    public static <T> Iterator<T> merge(List<Callable<? extends Iterable<T>>> partitions, Comparator<? super T> order)
+            throws IOException {
+        if (partitions.size() == 1) {
+            return read(partitions.get(0)).iterator();
+        }
+        List<Future<? extends Iterable<T>>> futures = new ArrayList<>(partitions.size());
+        for (Callable<? extends Iterable<T>> partition : partitions) {
+            futures.add(EXECUTOR.submit(partition));
+        }
+        List<Iterator<T>> sources = new ArrayList<>(futures.size());
+        try {
+            for (Future<? extends Iterable<T>> future : futures) {
+                sources.add(future.get().iterator());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while reading partitions", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw rethrow(e.getCause());
+        }
+        return new MergingIterator<>(sources, order);
+    }
+
+    /**
+     * Runs tasks concurrently on the same pool, e.g. the chunks of a batch write.
+     * @return the results in the order of the tasks
+     * @throws IOException if a task fails with a checked exception or the calling thread is interrupted
+     */
+    public static <T> List<T> all(List<Callable<T>> tasks) throws IOException {
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            futures.add(EXECUTOR.submit(task));
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while running tasks", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw rethrow(e.getCause());
+        }
+        return results;
+    }
+
+    private static <T> Iterable<T> read(Callable<? extends Iterable<T>> partition) throws IOException {
+        try {
+            return partition.call();
+        } catch (Exception e) {
+            throw rethrow(e);
+        }
+    }
+
+    private static IOException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return cause instanceof IOException ? (IOException) cause : new IOException(cause);
+    }
+}
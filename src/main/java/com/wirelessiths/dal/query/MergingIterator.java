@@ -0,0 +1,62 @@
+package com.wirelessiths.dal.query;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Merges iterators that are each sorted into one sorted iterator, taking the smallest head of k sources from a heap.
+ * Sources are only advanced when their head is taken, so a lazily loaded source reads its next page only when the
+ * merge gets there. Equal elements are returned in the order of their sources.
+ */
+public class MergingIterator<T> implements Iterator<T> {
+
+    private final PriorityQueue<Head<T>> heads;
+
+    public MergingIterator(List<? extends Iterator<? extends T>> sources, Comparator<? super T> order) {
+        this.heads = new PriorityQueue<>(Math.max(1, sources.size()), (a, b) -> {
+            int compared = order.compare(a.value, b.value);
+            return compared != 0 ? compared : Integer.compare(a.source, b.source);
+        });
+        for (int i = 0; i < sources.size(); i++) {
+            Iterator<? extends T> source = sources.get(i);
+            if (source.hasNext()) {
+                heads.add(new Head<>(source.next(), i, source));
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !heads.isEmpty();
+    }
+
+    @Override
+    public T next() {
+        Head<T> head = heads.poll();
+        if (head == null) {
+            throw new NoSuchElementException();
+        }
+        T value = head.value;
+        if (head.iterator.hasNext()) {
+            head.value = head.iterator.next();
+            heads.add(head);
+        }
+        return value;
+    }
+
+    private static class Head<T> {
+
+        private T value;
+        private final int source;
+        private final Iterator<? extends T> iterator;
+
+        Head(T value, int source, Iterator<? extends T> iterator) {
+            this.value = value;
+            this.source = source;
+            this.iterator = iterator;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.wirelessiths.dal.query;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a paginated read.
+ */
+public class Page<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    public Page(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public static <T> Page<T> empty() {
+        return new Page<>(Collections.emptyList(), null);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return the cursor to pass to read the next page, null on the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
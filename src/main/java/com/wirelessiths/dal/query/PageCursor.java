@@ -0,0 +1,49 @@
+package com.wirelessiths.dal.query;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.wirelessiths.codec.Codecs;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Opaque pagination cursor: the key of the last row of a page, as url safe base64 of a json object.
+ * Reading the next page starts after that row, see {@link QueryPlan#getKeyAttributes()}.
+ */
+public final class PageCursor {
+
+    private PageCursor() {
+    }
+
+    public static String encode(Map<String, String> key) {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Codecs.PAGE_CURSOR_WRITER.writeValueAsBytes(key));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("failed to write cursor", e);
+        }
+    }
+
+    /**
+     * @param attributes the key attributes of the index the cursor is used on
+     * @return the exclusive start key of the next page
+     * @throws IllegalArgumentException if the cursor is malformed or was returned by a query on another index
+     */
+    public static Map<String, AttributeValue> decode(String cursor, List<String> attributes) {
+        Map<String, String> key;
+        try {
+            key = Codecs.PAGE_CURSOR.readValue(Base64.getUrlDecoder().decode(cursor));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("malformed cursor " + cursor);
+        }
+        if (key == null || key.size() != attributes.size() || !key.keySet().containsAll(attributes) || key.containsValue(null)) {
+            throw new IllegalArgumentException("cursor " + cursor + " does not belong to this query");
+        }
+        Map<String, AttributeValue> exclusiveStartKey = new HashMap<>();
+        key.forEach((attribute, value) -> exclusiveStartKey.put(attribute, new AttributeValue().withS(value)));
+        return exclusiveStartKey;
+    }
+}
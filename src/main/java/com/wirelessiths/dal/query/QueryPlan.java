@@ -0,0 +1,256 @@
+package com.wirelessiths.dal.query;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBScanExpression;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.wirelessiths.dal.Booking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * How a {@link BookingQuery} is read from DynamoDB: a query on the table or one of its indexes, or a scan.
+ * A query may be split into partitions, one query per startDate, which are read concurrently and merged by startTime.
+ * Serialized as json it is the explain output of GET /bookings?explain=true.
+ */
+@JsonPropertyOrder({"operation", "index", "keyCondition", "partitions", "filter", "consistentRead", "descending", "reads"})
+public class QueryPlan {
+
+    /**
+     * Attribute whose value differs between the partitions of a query, see {@link #getPartitions()}.
+     */
+    static final String PARTITION_ATTRIBUTE = "startDate";
+
+    public enum Operation {
+        QUERY,
+        SCAN,
+        /**
+         * The predicates contradict each other, nothing has to be read.
+         */
+        NONE
+    }
+
+    private final Operation operation;
+    private final String index;
+    private final String keyCondition;
+    private final String filter;
+    private final Map<String, String> names;
+    private final Map<String, AttributeValue> values;
+    private final List<String> partitions;
+    private final boolean consistentRead;
+    private final boolean descending;
+    private final String reads;
+
+    QueryPlan(Operation operation, String index, String keyCondition, String filter, Map<String, String> names,
+              Map<String, AttributeValue> values, boolean consistentRead, boolean descending, String reads) {
+        this(operation, index, keyCondition, filter, names, values, Collections.emptyList(), consistentRead, descending, reads);
+    }
+
+    QueryPlan(Operation operation, String index, String keyCondition, String filter, Map<String, String> names,
+              Map<String, AttributeValue> values, List<String> partitions, boolean consistentRead, boolean descending,
+              String reads) {
+        this.operation = operation;
+        this.index = index;
+        this.keyCondition = keyCondition;
+        this.filter = filter;
+        this.names = Collections.unmodifiableMap(names);
+        this.values = Collections.unmodifiableMap(values);
+        this.partitions = Collections.unmodifiableList(partitions);
+        this.consistentRead = consistentRead;
+        this.descending = descending;
+        this.reads = reads;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return the global secondary index the query runs on, or "table" for the base table
+     */
+    public String getIndex() {
+        if (operation == Operation.NONE) {
+            return null;
+        }
+        return index == null ? "table" : index;
+    }
+
+    /**
+     * @return the key condition with the values filled in, null for a scan. The partition value of a partitioned
+     * query is left as placeholder, see {@link #getPartitions()}
+     */
+    public String getKeyCondition() {
+        return render(keyCondition);
+    }
+
+    /**
+     * @return the filter with the values filled in, or null if every predicate is part of the key condition
+     */
+    public String getFilter() {
+        return render(filter);
+    }
+
+    /**
+     * @return the startDate of each partition in ascending order, empty unless the query is split into partitions
+     */
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public List<String> getPartitions() {
+        return partitions;
+    }
+
+    /**
+     * @return the attributes that identify a row of the index, i.e. what an exclusive start key has to contain
+     */
+    @JsonIgnore
+    public List<String> getKeyAttributes() {
+        if (index == null) {
+            return Arrays.asList("scooterId", "endTime");
+        }
+        switch (index) {
+            case QueryPlanner.USER_INDEX:
+                return Arrays.asList("scooterId", "endTime", "userId", "startTime");
+            case Booking.USER_STATUS_INDEX:
+                return Arrays.asList("scooterId", "endTime", "userId", "statusStartTime");
+            case QueryPlanner.BOOKING_INDEX:
+                return Arrays.asList("scooterId", "endTime", "bookingId", "startTime");
+            case QueryPlanner.START_TIME_INDEX:
+                return Arrays.asList("scooterId", "endTime", "startDate", "startTime");
+            default:
+                throw new IllegalStateException("unknown index " + index);
+        }
+    }
+
+    public boolean isConsistentRead() {
+        return consistentRead;
+    }
+
+    /**
+     * @return true if the rows are read latest startTime first
+     */
+    public boolean isDescending() {
+        return descending;
+    }
+
+    /**
+     * @return what DynamoDB has to read, and pay read capacity for, to answer the query
+     */
+    public String getReads() {
+        return reads;
+    }
+
+    public DynamoDBQueryExpression<Booking> toQueryExpression() {
+        if (operation != Operation.QUERY || !partitions.isEmpty()) {
+            throw new IllegalStateException("plan is a " + operation + " of " + partitions.size() + " partitions");
+        }
+        return toQueryExpression(values);
+    }
+
+    /**
+     * @param exclusiveStartKey key of the last row already read, see {@link #getKeyAttributes()}, or null to read
+     *                          from the start. Partitions read before the one of the key are skipped.
+     * @return one query per partition, or a single query if the plan is not partitioned
+     */
+    public List<DynamoDBQueryExpression<Booking>> toQueryExpressions(Map<String, AttributeValue> exclusiveStartKey) {
+        if (operation != Operation.QUERY) {
+            throw new IllegalStateException("plan is a " + operation);
+        }
+        if (partitions.isEmpty()) {
+            return Collections.singletonList(toQueryExpression(values).withExclusiveStartKey(exclusiveStartKey));
+        }
+        String startPartition = exclusiveStartKey == null ? null : exclusiveStartKey.get(PARTITION_ATTRIBUTE).getS();
+        List<DynamoDBQueryExpression<Booking>> expressions = new ArrayList<>(partitions.size());
+        for (String partition : partitions) {
+            int order = startPartition == null ? 1 : partition.compareTo(startPartition) * (descending ? -1 : 1);
+            if (order < 0) {
+                continue;
+            }
+            Map<String, AttributeValue> partitionValues = new HashMap<>(values);
+            partitionValues.put(":" + PARTITION_ATTRIBUTE, new AttributeValue().withS(partition));
+            expressions.add(toQueryExpression(partitionValues).withExclusiveStartKey(order == 0 ? exclusiveStartKey : null));
+        }
+        return expressions;
+    }
+
+    private DynamoDBQueryExpression<Booking> toQueryExpression(Map<String, AttributeValue> values) {
+        DynamoDBQueryExpression<Booking> expression = new DynamoDBQueryExpression<Booking>()
+                .withKeyConditionExpression(keyCondition)
+                .withExpressionAttributeNames(names)
+                .withExpressionAttributeValues(values)
+                .withConsistentRead(consistentRead)
+                .withScanIndexForward(!descending);
+        if (index != null) {
+            expression.withIndexName(index);
+        }
+        if (filter != null) {
+            expression.withFilterExpression(filter);
+        }
+        return expression;
+    }
+
+    public DynamoDBScanExpression toScanExpression() {
+        if (operation != Operation.SCAN) {
+            throw new IllegalStateException("plan is a " + operation);
+        }
+        DynamoDBScanExpression expression = new DynamoDBScanExpression();
+        if (filter != null) {
+            expression.withFilterExpression(filter)
+                    .withExpressionAttributeNames(names)
+                    .withExpressionAttributeValues(values);
+        }
+        return expression;
+    }
+
+    /**
+     * @return the plan on one line, e.g. for the debug log
+     */
+    public String explain() {
+        if (operation == Operation.NONE) {
+            return "NONE - reads " + reads;
+        }
+        StringBuilder sb = new StringBuilder().append(operation).append(' ').append(getIndex());
+        if (keyCondition != null) {
+            sb.append(" key: ").append(getKeyCondition());
+        }
+        if (!partitions.isEmpty()) {
+            sb.append(" for ").append(partitions.size()).append(" partitions ")
+                    .append(partitions.get(0)).append(" .. ").append(partitions.get(partitions.size() - 1));
+        }
+        if (filter != null) {
+            sb.append(" filter: ").append(getFilter());
+        }
+        return sb.append(consistentRead ? " (consistent read)" : "")
+                .append(descending && operation == Operation.QUERY ? " descending" : "")
+                .append(" - reads ").append(reads).toString();
+    }
+
+    /**
+     * Replaces the #name and :value placeholders of an expression, longest first so that :to is not
+     * replaced inside :topic.
+     */
+    private String render(String expression) {
+        if (expression == null) {
+            return null;
+        }
+        List<String> placeholders = new ArrayList<>(names.keySet());
+        placeholders.addAll(values.keySet());
+        placeholders.sort((a, b) -> b.length() - a.length());
+        String rendered = expression;
+        for (String placeholder : placeholders) {
+            String replacement = placeholder.startsWith("#") ? names.get(placeholder) : "'" + values.get(placeholder).getS() + "'";
+            rendered = rendered.replace(placeholder, replacement);
+        }
+        return rendered;
+    }
+
+    @Override
+    public String toString() {
+        return explain();
+    }
+}
@@ -0,0 +1,347 @@
+package com.wirelessiths.dal.query;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.wirelessiths.dal.Booking;
+import com.wirelessiths.dal.IsoTime;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Picks the access path for a {@link BookingQuery}.
+ * <p>
+ * The partition key is chosen by how many bookings share a value: a bookingId matches one booking, a user has a
+ * handful, and the ones in one status are a range of userStatusIndex, a scooter collects bookings for as long as it is in the fleet and a startDate covers the whole fleet
+ * for a day. Predicates on the chosen index's sort key become part of the key condition, only the rest is left
+ * to a filter, which DynamoDB applies after the rows are read and paid for. A stack whose table does not have
+ * userStatusIndex yet reads the bookings of a user in one status from userIndex with a bookingStatus filter. A
+ * startTime range of up to {@value #MAX_PARTITIONS} days is split into one startTimeIndex query per day. Without
+ * any key predicate the table is scanned.
+ * <p>
+ * Times are stored as ISO strings, and within one second "...:00Z" sorts after "...:00.5Z". startTime ranges
+ * are therefore compared at whole seconds: from is rounded down and to is rounded up to the second.
+ */
+public class QueryPlanner {
+
+    static final String USER_INDEX = "userIndex";
+    static final String BOOKING_INDEX = "bookingIndex";
+    static final String START_TIME_INDEX = "startTimeIndex";
+
+    /**
+     * Longest startTime range, in days, that is read as one query per day. A longer range is scanned.
+     */
+    static final int MAX_PARTITIONS = 92;
+
+    private final boolean userStatusIndex;
+
+    /**
+     * Plans with userStatusIndex unless the USER_STATUS_INDEX environment variable is "false", which the template
+     * sets while the table of the stack does not have the index yet.
+     */
+    public QueryPlanner() {
+        this(!"false".equals(System.getenv("USER_STATUS_INDEX")));
+    }
+
+    /**
+     * @param userStatusIndex false to plan without userStatusIndex
+     */
+    public QueryPlanner(boolean userStatusIndex) {
+        this.userStatusIndex = userStatusIndex;
+    }
+
+    public QueryPlan plan(BookingQuery query) {
+        Expressions expressions = new Expressions(query.isDescending());
+        String lower = lowerBound(query, true);
+        String upper = upperBound(query, true);
+        if (lower != null && upper != null && lower.compareTo(upper) > 0) {
+            return expressions.none();
+        }
+
+        if (query.getBookingId() != null) {
+            expressions.key("bookingId", "=", query.getBookingId());
+            startTimeKeyCondition(query, expressions, true);
+            addFilters(query, expressions, "bookingId", true);
+            return expressions.query(BOOKING_INDEX, false, "one booking");
+        }
+        if (userStatusIndex && query.getUserId() != null && query.getBookingStatus() != null) {
+            expressions.key("userId", "=", query.getUserId());
+            String range = statusStartTimeKeyCondition(query, expressions);
+            addFilters(query.toBuilder().setBookingStatus(null).build(), expressions, "userId", true);
+            return expressions.query(Booking.USER_STATUS_INDEX, false, "the " + query.getBookingStatus()
+                    + " bookings of one user" + (range != null ? " " + range : ""));
+        }
+        if (query.getUserId() != null) {
+            expressions.key("userId", "=", query.getUserId());
+            String range = startTimeKeyCondition(query, expressions, true);
+            addFilters(query, expressions, "userId", true);
+            return expressions.query(USER_INDEX, false, "the bookings of one user" + (range != null ? " " + range : ""));
+        }
+        if (query.getScooterId() != null) {
+            expressions.key("scooterId", "=", query.getScooterId());
+            // a booking ends after it starts, so a lower bound on startTime is also one on the endTime sort key
+            String lowerBound = lowerBound(query, true);
+            if (lowerBound != null) {
+                expressions.key("endTime", ">=", lowerBound);
+            }
+            addFilters(query, expressions, "scooterId", false);
+            return expressions.query(null, true, "the bookings of one scooter"
+                    + (lowerBound != null ? " ending at or after " + lowerBound : "") + ", strongly consistent");
+        }
+        if (query.getStartDate() != null) {
+            expressions.key("startDate", "=", IsoTime.format(query.getStartDate()));
+            String range = startTimeKeyCondition(query, expressions, false);
+            addFilters(query, expressions, "startDate", true);
+            return expressions.query(START_TIME_INDEX, false, "the bookings of the whole fleet starting on one day"
+                    + (range != null ? " " + range : ""));
+        }
+        if (query.getStartTimeFrom() != null && query.getStartTimeTo() != null) {
+            LocalDate first = IsoTime.utcDate(query.getStartTimeFrom());
+            LocalDate last = IsoTime.utcDate(query.getStartTimeTo());
+            long days = last.toEpochDay() - first.toEpochDay() + 1;
+            if (days == 1) {
+                return plan(query.toBuilder().setStartDate(first).build());
+            }
+            if (days <= MAX_PARTITIONS) {
+                return partitioned(query, expressions, first, last);
+            }
+        }
+        addFilters(query, expressions, null, false);
+        return expressions.scan();
+    }
+
+    /**
+     * Plans one startTimeIndex query per day between first and last. Every partition uses the same key condition,
+     * only the startDate value differs, and the startTime range of the days in between covers the whole day.
+     */
+    private QueryPlan partitioned(BookingQuery query, Expressions expressions, LocalDate first, LocalDate last) {
+        expressions.partitionKey(QueryPlan.PARTITION_ATTRIBUTE);
+        String range = startTimeKeyCondition(query, expressions, false);
+        addFilters(query, expressions, "startDate", true);
+        List<String> partitions = new ArrayList<>();
+        for (LocalDate date = first; !date.isAfter(last); date = date.plusDays(1)) {
+            partitions.add(IsoTime.format(date));
+        }
+        return expressions.partitionedQuery(START_TIME_INDEX, partitions, "the bookings of the whole fleet starting on "
+                + partitions.size() + " days " + range + ", one query per day read concurrently and merged by startTime");
+    }
+
+    /**
+     * Adds the startDate and startTime predicates as a condition on the startTime sort key.
+     * @param includeDate true if startDate is not already the partition key
+     * @return a description of the range for the explain output, or null if there is no such predicate
+     */
+    private String startTimeKeyCondition(BookingQuery query, Expressions expressions, boolean includeDate) {
+        String lower = lowerBound(query, includeDate);
+        String upper = upperBound(query, includeDate);
+        if (includeDate && query.getStartDate() != null && !query.hasStartTimeRange()) {
+            expressions.key("startTime", "begins_with", IsoTime.format(query.getStartDate()));
+            return "starting on " + query.getStartDate();
+        }
+        if (lower != null && upper != null) {
+            expressions.keyBetween("startTime", lower, upper);
+            return "starting between " + lower + " and " + upper;
+        }
+        if (lower != null) {
+            expressions.key("startTime", ">=", lower);
+            return "starting at or after " + lower;
+        }
+        if (upper != null) {
+            expressions.key("startTime", "<=", upper);
+            return "starting at or before " + upper;
+        }
+        return null;
+    }
+
+    /**
+     * Adds the startDate and startTime predicates as a condition on the statusStartTime sort key of userStatusIndex,
+     * always at least the prefix of the status.
+     * @return a description of the range for the explain output, or null if there is no such predicate
+     */
+    private String statusStartTimeKeyCondition(BookingQuery query, Expressions expressions) {
+        String prefix = query.getBookingStatus().name() + "#";
+        String lower = lowerBound(query, true);
+        String upper = upperBound(query, true);
+        if (query.getStartDate() != null && !query.hasStartTimeRange()) {
+            expressions.key("statusStartTime", "begins_with", prefix + IsoTime.format(query.getStartDate()));
+            return "starting on " + query.getStartDate();
+        }
+        if (lower == null && upper == null) {
+            expressions.key("statusStartTime", "begins_with", prefix);
+            return null;
+        }
+        // "~" sorts after every time
+        expressions.keyBetween("statusStartTime", prefix + (lower == null ? "" : lower), prefix + (upper == null ? "~" : upper));
+        return "starting between " + (lower == null ? "the first" : lower) + " and " + (upper == null ? "the last" : upper);
+    }
+
+    /**
+     * @param useDate include the start of startDate in the bound
+     * @return the smallest stored startTime string the query can match, or null if unbounded
+     */
+    private static String lowerBound(BookingQuery query, boolean useDate) {
+        String bound = null;
+        if (useDate && query.getStartDate() != null) {
+            // the date alone sorts before every time of that day
+            bound = IsoTime.format(query.getStartDate());
+        }
+        if (query.getStartTimeFrom() != null) {
+            String from = IsoTime.format(query.getStartTimeFrom().truncatedTo(ChronoUnit.SECONDS));
+            // without the Z it sorts before the fractions of that second too
+            from = from.substring(0, from.length() - 1);
+            bound = bound == null || from.compareTo(bound) > 0 ? from : bound;
+        }
+        return bound;
+    }
+
+    /**
+     * @return the largest stored startTime string the query can match, or null if unbounded
+     */
+    private static String upperBound(BookingQuery query, boolean useDate) {
+        String bound = null;
+        if (useDate && query.getStartDate() != null) {
+            bound = IsoTime.format(query.getStartDate().atTime(23, 59, 59).toInstant(ZoneOffset.UTC));
+        }
+        if (query.getStartTimeTo() != null) {
+            // "...:59Z" sorts after "...:59.999Z"
+            String to = IsoTime.format(query.getStartTimeTo().truncatedTo(ChronoUnit.SECONDS));
+            bound = bound == null || to.compareTo(bound) < 0 ? to : bound;
+        }
+        return bound;
+    }
+
+    /**
+     * Adds every predicate that is not part of the key condition to the filter.
+     * @param partitionKey attribute used as partition key, null for a scan
+     * @param startTimeInKey true if the startDate and startTime predicates are covered by the key condition
+     */
+    private static void addFilters(BookingQuery query, Expressions expressions, String partitionKey, boolean startTimeInKey) {
+        if (query.getBookingId() != null && !"bookingId".equals(partitionKey)) {
+            expressions.filter("bookingId", "=", query.getBookingId());
+        }
+        if (query.getUserId() != null && !"userId".equals(partitionKey)) {
+            expressions.filter("userId", "=", query.getUserId());
+        }
+        if (query.getScooterId() != null && !"scooterId".equals(partitionKey)) {
+            expressions.filter("scooterId", "=", query.getScooterId());
+        }
+        if (!startTimeInKey) {
+            if (query.getStartDate() != null) {
+                expressions.filter("startDate", "=", IsoTime.format(query.getStartDate()));
+            }
+            String lower = lowerBound(query, false);
+            String upper = upperBound(query, false);
+            if (lower != null && upper != null) {
+                expressions.filterBetween("startTime", lower, upper);
+            } else if (lower != null) {
+                expressions.filter("startTime", ">=", lower);
+            } else if (upper != null) {
+                expressions.filter("startTime", "<=", upper);
+            }
+        }
+        if (query.getBookingStatus() != null) {
+            expressions.filter("bookingStatus", "=", query.getBookingStatus().toString());
+        }
+    }
+
+    /**
+     * Collects key conditions and filters with their attribute name and value placeholders.
+     */
+    private static class Expressions {
+
+        private static final Map<String, String> SUFFIXES = new HashMap<>();
+
+        static {
+            SUFFIXES.put("=", "");
+            SUFFIXES.put(">=", "From");
+            SUFFIXES.put("<=", "To");
+            SUFFIXES.put("begins_with", "Prefix");
+        }
+
+        private final List<String> keyConditions = new ArrayList<>();
+        private final List<String> filters = new ArrayList<>();
+        private final Map<String, String> names = new HashMap<>();
+        private final Map<String, AttributeValue> values = new HashMap<>();
+        private final boolean descending;
+
+        Expressions(boolean descending) {
+            this.descending = descending;
+        }
+
+        void key(String attribute, String operator, String value) {
+            keyConditions.add(condition(attribute, operator, value));
+        }
+
+        /**
+         * Adds an equality condition whose value is set per partition, see {@link QueryPlan#getPartitions()}.
+         */
+        void partitionKey(String attribute) {
+            keyConditions.add(name(attribute) + " = :" + attribute);
+        }
+
+        void keyBetween(String attribute, String lower, String upper) {
+            keyConditions.add(between(attribute, lower, upper));
+        }
+
+        void filter(String attribute, String operator, String value) {
+            filters.add(condition(attribute, operator, value));
+        }
+
+        void filterBetween(String attribute, String lower, String upper) {
+            filters.add(between(attribute, lower, upper));
+        }
+
+        private String condition(String attribute, String operator, String value) {
+            String name = name(attribute);
+            String placeholder = value(attribute + SUFFIXES.get(operator), value);
+            return operator.equals("begins_with")
+                    ? "begins_with(" + name + ", " + placeholder + ")"
+                    : name + " " + operator + " " + placeholder;
+        }
+
+        private String between(String attribute, String lower, String upper) {
+            return name(attribute) + " BETWEEN " + value(attribute + "From", lower) + " AND " + value(attribute + "To", upper);
+        }
+
+        private String name(String attribute) {
+            names.put("#" + attribute, attribute);
+            return "#" + attribute;
+        }
+
+        private String value(String key, String value) {
+            values.put(":" + key, new AttributeValue().withS(value));
+            return ":" + key;
+        }
+
+        QueryPlan query(String index, boolean consistentRead, String reads) {
+            String filter = filters.isEmpty() ? null : String.join(" AND ", filters);
+            return new QueryPlan(QueryPlan.Operation.QUERY, index, String.join(" AND ", keyConditions), filter,
+                    names, values, consistentRead, descending, reads + filterCost(filter));
+        }
+
+        QueryPlan partitionedQuery(String index, List<String> partitions, String reads) {
+            String filter = filters.isEmpty() ? null : String.join(" AND ", filters);
+            return new QueryPlan(QueryPlan.Operation.QUERY, index, String.join(" AND ", keyConditions), filter,
+                    names, values, partitions, false, descending, reads + filterCost(filter));
+        }
+
+        QueryPlan none() {
+            return new QueryPlan(QueryPlan.Operation.NONE, null, null, null, names, values, false, false,
+                    "nothing, the startDate and startTime predicates do not overlap");
+        }
+
+        QueryPlan scan() {
+            String filter = filters.isEmpty() ? null : String.join(" AND ", filters);
+            return new QueryPlan(QueryPlan.Operation.SCAN, null, null, filter, names, values, false, false,
+                    "every booking in the table" + filterCost(filter));
+        }
+
+        private static String filterCost(String filter) {
+            return filter == null ? "" : ", rows removed by the filter are read and paid for too";
+        }
+    }
+}
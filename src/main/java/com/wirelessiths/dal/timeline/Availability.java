@@ -0,0 +1,60 @@
+package com.wirelessiths.dal.timeline;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Response body of GET /scooters/{id}/availability.
+ */
+public class Availability {
+
+    private final String scooterId;
+    private final Instant from;
+    private final Instant to;
+    private final int bufferSeconds;
+    private final int maxDurationSeconds;
+    private final List<ScooterTimeline.Interval> free;
+
+    public Availability(String scooterId, Instant from, Instant to, int bufferSeconds, int maxDurationSeconds,
+                        List<ScooterTimeline.Interval> free) {
+        this.scooterId = scooterId;
+        this.from = from;
+        this.to = to;
+        this.bufferSeconds = bufferSeconds;
+        this.maxDurationSeconds = maxDurationSeconds;
+        this.free = free;
+    }
+
+    public String getScooterId() {
+        return scooterId;
+    }
+
+    public Instant getFrom() {
+        return from;
+    }
+
+    public Instant getTo() {
+        return to;
+    }
+
+    /**
+     * @return the minimum time between two bookings, already left out of the free slots
+     */
+    public int getBufferSeconds() {
+        return bufferSeconds;
+    }
+
+    /**
+     * @return the longest booking that can be created, a free slot may be longer
+     */
+    public int getMaxDurationSeconds() {
+        return maxDurationSeconds;
+    }
+
+    /**
+     * @return the slots a booking can be created in, sorted by start
+     */
+    public List<ScooterTimeline.Interval> getFree() {
+        return free;
+    }
+}
@@ -0,0 +1,109 @@
+package com.wirelessiths.dal.timeline;
+
+import com.wirelessiths.dal.Booking;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The {@link OccupancyBitmap}s of every scooter booked on one UTC day.
+ * <p>
+ * A booking [start, end] occupies every minute it touches, its end included as the conflict check of
+ * {@link Booking#validateBooking} treats it. A window [from, to) asks for every minute it touches, so a scooter
+ * whose minutes are all free has no booking the conflict check would report. Near the ends of a booking the
+ * answer is conservative by up to a minute.
+ * <p>
+ * Not thread safe, {@link FleetOccupancy} guards its days.
+ */
+public class DayOccupancy {
+
+    private final LocalDate date;
+    private final long dayStart;
+    private final Map<String, OccupancyBitmap> byScooterId = new HashMap<>();
+    private final Map<String, String> scooterIdByBookingId = new HashMap<>();
+
+    public DayOccupancy(LocalDate date) {
+        this.date = date;
+        this.dayStart = date.atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+    }
+
+    public static DayOccupancy of(LocalDate date, Collection<Booking> bookings) {
+        DayOccupancy day = new DayOccupancy(date);
+        for (Booking booking : bookings) {
+            day.put(booking.getBookingId(), booking.getScooterId(), booking.getStartTime(), booking.getEndTime());
+        }
+        return day;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    /**
+     * Adds a booking, or moves it if it is already on this day. The part of the booking outside the day is
+     * ignored, a booking not touching the day is removed.
+     */
+    public void put(String bookingId, String scooterId, Instant start, Instant end) {
+        remove(bookingId);
+        long first = Math.max(minute(start), 0);
+        long last = Math.min(minute(end), OccupancyBitmap.MINUTES_PER_DAY - 1);
+        if (first > last) {
+            return;
+        }
+        byScooterId.computeIfAbsent(scooterId, id -> new OccupancyBitmap()).put(bookingId, (int) first, (int) last);
+        scooterIdByBookingId.put(bookingId, scooterId);
+    }
+
+    public void remove(String bookingId) {
+        String scooterId = scooterIdByBookingId.remove(bookingId);
+        if (scooterId == null) {
+            return;
+        }
+        OccupancyBitmap bitmap = byScooterId.get(scooterId);
+        bitmap.remove(bookingId);
+        if (bitmap.isEmpty()) {
+            byScooterId.remove(scooterId);
+        }
+    }
+
+    public boolean contains(String bookingId) {
+        return scooterIdByBookingId.containsKey(bookingId);
+    }
+
+    /**
+     * @return the scooters with at least one booking on this day
+     */
+    public Set<String> scooterIds() {
+        return byScooterId.keySet();
+    }
+
+    /**
+     * Adds the scooters booked in any minute of [from, to) on this day to busy.
+     */
+    public void collectBusy(Instant from, Instant to, Set<String> busy) {
+        long first = Math.max(minute(from), 0);
+        // the minute to falls in is only asked for if to is past its start
+        long last = Math.min(minute(to.minusNanos(1)), OccupancyBitmap.MINUTES_PER_DAY - 1);
+        if (first > last) {
+            return;
+        }
+        long[] mask = new long[OccupancyBitmap.WORDS];
+        OccupancyBitmap.setRange(mask, (int) first, (int) last);
+        int firstWord = (int) first >>> 6;
+        int lastWord = (int) last >>> 6;
+        for (Map.Entry<String, OccupancyBitmap> entry : byScooterId.entrySet()) {
+            if (entry.getValue().intersects(mask, firstWord, lastWord)) {
+                busy.add(entry.getKey());
+            }
+        }
+    }
+
+    private long minute(Instant instant) {
+        return Math.floorDiv(instant.getEpochSecond() - dayStart, 60L);
+    }
+}
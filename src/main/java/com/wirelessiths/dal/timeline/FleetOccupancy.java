@@ -0,0 +1,159 @@
+package com.wirelessiths.dal.timeline;
+
+import com.wirelessiths.dal.Booking;
+import com.wirelessiths.dal.IsoTime;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Per container cache of {@link DayOccupancy}s answering which scooters are free in a time window.
+ * <p>
+ * A day is loaded from the startTimeIndex and endTimeIndex partitions of its date and reloaded when it is older
+ * than {@value #TTL_SECONDS} seconds. In between, bookings saved or deleted through {@link Booking} in the same
+ * container are applied to it. Like {@link TimelineCache} the answer is a hint, creating a booking still runs the
+ * consistent conflict check.
+ * <p>
+ * There is no table of scooters. Without candidates, the fleet is every scooter booked on the searched days or the
+ * {@value #FLEET_DAYS} days before them.
+ */
+public class FleetOccupancy {
+
+    static final int MAX_DAYS = 16;
+    static final int TTL_SECONDS = 60;
+    static final int FLEET_DAYS = 7;
+
+    private static FleetOccupancy instance = null;
+
+    private final Clock clock;
+    private final Map<LocalDate, Entry> days = new LinkedHashMap<LocalDate, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<LocalDate, Entry> eldest) {
+            return size() > MAX_DAYS;
+        }
+    };
+
+    FleetOccupancy(Clock clock) {
+        this.clock = clock;
+    }
+
+    public static synchronized FleetOccupancy getInstance() {
+        if (instance == null) {
+            instance = new FleetOccupancy(Clock.systemUTC());
+        }
+        return instance;
+    }
+
+    public synchronized void clear() {
+        days.clear();
+    }
+
+    /**
+     * @param candidates the scooters to look at, null for the fleet seen in the recent days
+     * @return the ids of the scooters in which a booking from from to to passes the conflict check, sorted
+     */
+    public List<String> freeScooters(Instant from, Instant to, Duration buffer, Collection<String> candidates,
+                                     Booking dal) throws IOException {
+        Instant windowStart = from.minus(buffer);
+        Instant windowEnd = to.plus(buffer);
+        LocalDate first = IsoTime.utcDate(windowStart);
+        LocalDate last = IsoTime.utcDate(windowEnd.minusNanos(1));
+
+        List<DayOccupancy> searched = new ArrayList<>();
+        for (LocalDate date = first; !date.isAfter(last); date = date.plusDays(1)) {
+            searched.add(day(date, dal));
+        }
+        Set<String> fleet = new TreeSet<>();
+        if (candidates != null) {
+            fleet.addAll(candidates);
+        } else {
+            for (LocalDate date = first.minusDays(FLEET_DAYS); date.isBefore(first); date = date.plusDays(1)) {
+                DayOccupancy day = day(date, dal);
+                synchronized (this) {
+                    fleet.addAll(day.scooterIds());
+                }
+            }
+        }
+
+        Set<String> busy = new HashSet<>();
+        synchronized (this) {
+            for (DayOccupancy day : searched) {
+                if (candidates == null) {
+                    fleet.addAll(day.scooterIds());
+                }
+                day.collectBusy(windowStart, windowEnd, busy);
+            }
+        }
+        fleet.removeAll(busy);
+        return new ArrayList<>(fleet);
+    }
+
+    /**
+     * Applies a saved booking to the loaded days. A partial update without times drops the days it is on, they
+     * are reloaded on the next search.
+     */
+    public synchronized void saved(Booking booking) {
+        if (booking.getBookingId() == null) {
+            return;
+        }
+        boolean placeable = booking.getScooterId() != null && booking.getStartTime() != null && booking.getEndTime() != null;
+        days.values().removeIf(entry -> !placeable && entry.day.contains(booking.getBookingId()));
+        for (Entry entry : days.values()) {
+            if (placeable && TimelineCache.isLive(booking.getBookingStatus())) {
+                entry.day.put(booking.getBookingId(), booking.getScooterId(), booking.getStartTime(), booking.getEndTime());
+            } else {
+                entry.day.remove(booking.getBookingId());
+            }
+        }
+    }
+
+    /**
+     * Removes a deleted booking from the loaded days.
+     */
+    public synchronized void deleted(Booking booking) {
+        if (booking.getBookingId() == null) {
+            return;
+        }
+        for (Entry entry : days.values()) {
+            entry.day.remove(booking.getBookingId());
+        }
+    }
+
+    private DayOccupancy day(LocalDate date, Booking dal) throws IOException {
+        Instant now = clock.instant();
+        synchronized (this) {
+            Entry entry = days.get(date);
+            if (entry != null && entry.expires.isAfter(now)) {
+                return entry.day;
+            }
+        }
+        // read outside the lock, concurrent misses for one day both read and the last one is kept
+        DayOccupancy day = DayOccupancy.of(date, dal.liveBookingsOn(date));
+        synchronized (this) {
+            days.put(date, new Entry(day, now.plusSeconds(TTL_SECONDS)));
+        }
+        return day;
+    }
+
+    private static class Entry {
+
+        private final DayOccupancy day;
+        private final Instant expires;
+
+        Entry(DayOccupancy day, Instant expires) {
+            this.day = day;
+            this.expires = expires;
+        }
+    }
+}
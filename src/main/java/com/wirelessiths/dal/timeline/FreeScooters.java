@@ -0,0 +1,41 @@
+package com.wirelessiths.dal.timeline;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Response body of GET /scooters/availability.
+ */
+public class FreeScooters {
+
+    private final Instant from;
+    private final Instant to;
+    private final int bufferSeconds;
+    private final List<String> scooterIds;
+
+    public FreeScooters(Instant from, Instant to, int bufferSeconds, List<String> scooterIds) {
+        this.from = from;
+        this.to = to;
+        this.bufferSeconds = bufferSeconds;
+        this.scooterIds = scooterIds;
+    }
+
+    public Instant getFrom() {
+        return from;
+    }
+
+    public Instant getTo() {
+        return to;
+    }
+
+    public int getBufferSeconds() {
+        return bufferSeconds;
+    }
+
+    /**
+     * @return the scooters a booking from from to to can be created for, sorted
+     */
+    public List<String> getScooterIds() {
+        return scooterIds;
+    }
+}
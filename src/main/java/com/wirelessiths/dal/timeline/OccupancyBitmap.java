@@ -0,0 +1,86 @@
+package com.wirelessiths.dal.timeline;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The minutes of one UTC day a scooter is booked, one bit per minute in {@value #WORDS} longs.
+ * <p>
+ * Bookings may share a minute, so a removed booking is not cleared bit by bit: the words are rebuilt from the
+ * minute ranges of the remaining bookings, of which a scooter has a handful per day.
+ */
+public class OccupancyBitmap {
+
+    public static final int MINUTES_PER_DAY = 1440;
+    public static final int WORDS = (MINUTES_PER_DAY + 63) / 64;
+
+    private final long[] words = new long[WORDS];
+    private final Map<String, int[]> minutesByBookingId = new HashMap<>();
+
+    /**
+     * Marks the minutes first to last, both inclusive, as booked. Replaces the minutes of a booking with the
+     * same id.
+     */
+    public void put(String bookingId, int first, int last) {
+        int[] previous = minutesByBookingId.put(bookingId, new int[]{first, last});
+        if (previous != null) {
+            rebuild();
+        } else {
+            setRange(words, first, last);
+        }
+    }
+
+    public void remove(String bookingId) {
+        if (minutesByBookingId.remove(bookingId) != null) {
+            rebuild();
+        }
+    }
+
+    public boolean isEmpty() {
+        return minutesByBookingId.isEmpty();
+    }
+
+    /**
+     * @param mask minutes asked for, built with {@link #setRange(long[], int, int)}
+     * @param firstWord index of the first word of mask with a bit set
+     * @param lastWord index of the last word of mask with a bit set
+     * @return true if any minute of mask is booked
+     */
+    public boolean intersects(long[] mask, int firstWord, int lastWord) {
+        for (int i = firstWord; i <= lastWord; i++) {
+            if ((words[i] & mask[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sets the bits first to last, both inclusive.
+     */
+    public static void setRange(long[] words, int first, int last) {
+        int firstWord = first >>> 6;
+        int lastWord = last >>> 6;
+        // shifts only use the low 6 bits of the distance
+        long firstMask = -1L << first;
+        long lastMask = -1L >>> (63 - (last & 63));
+        if (firstWord == lastWord) {
+            words[firstWord] |= firstMask & lastMask;
+            return;
+        }
+        words[firstWord] |= firstMask;
+        for (int i = firstWord + 1; i < lastWord; i++) {
+            words[i] = -1L;
+        }
+        words[lastWord] |= lastMask;
+    }
+
+    private void rebuild() {
+        for (int i = 0; i < WORDS; i++) {
+            words[i] = 0;
+        }
+        for (int[] minutes : minutesByBookingId.values()) {
+            setRange(words, minutes[0], minutes[1]);
+        }
+    }
+}
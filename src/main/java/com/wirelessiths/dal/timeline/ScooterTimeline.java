@@ -0,0 +1,154 @@
+package com.wirelessiths.dal.timeline;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * The live bookings of one scooter as intervals sorted by start.
+ * <p>
+ * Intervals may overlap, e.g. after two creates raced, so a lookup by start alone is not enough. The timeline
+ * keeps the length of its longest interval: every interval that overlaps [from, to] starts between
+ * from - longest and to, which is one range of the sorted set.
+ * <p>
+ * Methods are synchronized, a timeline is shared by the requests of a container through {@link TimelineCache}.
+ */
+public class ScooterTimeline {
+
+    private static final Comparator<Interval> ORDER = Comparator.comparing(Interval::getStart)
+            .thenComparing(Interval::getBookingId);
+
+    private final String scooterId;
+    private final Instant horizon;
+    private final TreeSet<Interval> intervals = new TreeSet<>(ORDER);
+    private final Map<String, Interval> byBookingId = new HashMap<>();
+    private Duration longest = Duration.ZERO;
+
+    /**
+     * @param horizon bookings ending before it are not in the timeline, availability before it is unknown
+     */
+    public ScooterTimeline(String scooterId, Instant horizon) {
+        this.scooterId = scooterId;
+        this.horizon = horizon;
+    }
+
+    public String getScooterId() {
+        return scooterId;
+    }
+
+    public Instant getHorizon() {
+        return horizon;
+    }
+
+    /**
+     * Adds a booking, or moves it if a booking with the same id is already in the timeline.
+     */
+    public synchronized void put(String bookingId, Instant start, Instant end) {
+        remove(bookingId);
+        Interval interval = new Interval(bookingId, start, end);
+        intervals.add(interval);
+        byBookingId.put(bookingId, interval);
+        Duration length = Duration.between(start, end);
+        if (length.compareTo(longest) > 0) {
+            longest = length;
+        }
+    }
+
+    public synchronized void remove(String bookingId) {
+        Interval interval = byBookingId.remove(bookingId);
+        if (interval != null) {
+            intervals.remove(interval);
+        }
+    }
+
+    public synchronized int size() {
+        return intervals.size();
+    }
+
+    /**
+     * @return the bookings with start <= to and end >= from, sorted by start
+     */
+    public synchronized List<Interval> overlapping(Instant from, Instant to) {
+        List<Interval> result = new ArrayList<>();
+        Interval lowest = new Interval("", from.minus(longest), from.minus(longest));
+        for (Interval interval : intervals.tailSet(lowest, true)) {
+            if (interval.getStart().isAfter(to)) {
+                break;
+            }
+            if (!interval.getEnd().isBefore(from)) {
+                result.add(interval);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the gaps between the bookings in which a new booking passes the conflict check of
+     * {@link com.wirelessiths.dal.Booking#validateBooking}: it may end at the latest buffer before the start of the
+     * next booking, and start at the earliest on the whole second after the previous booking's end plus buffer.
+     * @return the free slots within [from, to], sorted by start
+     */
+    public synchronized List<Interval> freeSlots(Instant from, Instant to, Duration buffer) {
+        List<Interval> free = new ArrayList<>();
+        Instant cursor = from;
+        for (Interval booking : overlapping(from.minus(buffer), to.plus(buffer))) {
+            Instant blockedFrom = booking.getStart().minus(buffer);
+            if (blockedFrom.isAfter(cursor)) {
+                addSlot(free, cursor, blockedFrom.isBefore(to) ? blockedFrom : to);
+            }
+            Instant freeAfter = booking.getEnd().plus(buffer).truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+            if (freeAfter.isAfter(cursor)) {
+                cursor = freeAfter;
+            }
+        }
+        if (cursor.isBefore(to)) {
+            addSlot(free, cursor, to);
+        }
+        return free;
+    }
+
+    private static void addSlot(List<Interval> free, Instant start, Instant end) {
+        if (start.isBefore(end)) {
+            free.add(new Interval(null, start, end));
+        }
+    }
+
+    /**
+     * A booking, or a free slot without bookingId.
+     */
+    public static class Interval {
+
+        private final String bookingId;
+        private final Instant start;
+        private final Instant end;
+
+        Interval(String bookingId, Instant start, Instant end) {
+            this.bookingId = bookingId;
+            this.start = start;
+            this.end = end;
+        }
+
+        String getBookingId() {
+            return bookingId;
+        }
+
+        public Instant getStart() {
+            return start;
+        }
+
+        public Instant getEnd() {
+            return end;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + start + ", " + end + "]";
+        }
+    }
+}
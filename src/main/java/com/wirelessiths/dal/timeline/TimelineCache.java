@@ -0,0 +1,126 @@
+package com.wirelessiths.dal.timeline;
+
+import com.wirelessiths.dal.Booking;
+import com.wirelessiths.dal.BookingStatus;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per container cache of {@link ScooterTimeline}s, least recently used scooters are evicted.
+ * <p>
+ * A timeline is rebuilt from the scooter's partition of the table when it is older than {@value #TTL_SECONDS}
+ * seconds. In between, bookings saved or deleted through {@link Booking} in the same container are applied to it,
+ * bookings written by other containers show up on the next rebuild. Availability is a hint for clients, creating
+ * a booking still runs the consistent conflict check.
+ */
+public class TimelineCache {
+
+    static final int MAX_SCOOTERS = 1024;
+    static final int TTL_SECONDS = 30;
+
+    private static TimelineCache instance = null;
+
+    private final Clock clock;
+    private final Map<String, Entry> timelines = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_SCOOTERS;
+        }
+    };
+
+    TimelineCache(Clock clock) {
+        this.clock = clock;
+    }
+
+    public static synchronized TimelineCache getInstance() {
+        if (instance == null) {
+            instance = new TimelineCache(Clock.systemUTC());
+        }
+        return instance;
+    }
+
+    public synchronized void clear() {
+        timelines.clear();
+    }
+
+    /**
+     * @param earliest the earliest instant the caller needs availability for
+     * @return the cached timeline of the scooter, rebuilt with the live bookings ending at or after earliest if it
+     * is missing, expired or starts later
+     */
+    public ScooterTimeline get(String scooterId, Instant earliest, Booking dal) throws IOException {
+        Instant now = clock.instant();
+        synchronized (this) {
+            Entry entry = timelines.get(scooterId);
+            if (entry != null && entry.expires.isAfter(now) && !entry.timeline.getHorizon().isAfter(earliest)) {
+                return entry.timeline;
+            }
+        }
+        // read outside the lock, concurrent misses for one scooter both read and the last one is kept
+        ScooterTimeline timeline = new ScooterTimeline(scooterId, earliest);
+        for (Booking booking : dal.liveBookingsOfScooter(scooterId, earliest)) {
+            timeline.put(booking.getBookingId(), booking.getStartTime(), booking.getEndTime());
+        }
+        synchronized (this) {
+            timelines.put(scooterId, new Entry(timeline, now.plusSeconds(TTL_SECONDS)));
+        }
+        return timeline;
+    }
+
+    /**
+     * Applies a saved booking to the cached timeline of its scooter, if there is one. A partial update without
+     * times drops the timeline, it is rebuilt on the next read.
+     */
+    public void saved(Booking booking) {
+        ScooterTimeline timeline = cached(booking.getScooterId());
+        if (timeline == null) {
+            return;
+        }
+        if (booking.getBookingId() == null || booking.getStartTime() == null || booking.getEndTime() == null) {
+            synchronized (this) {
+                timelines.remove(booking.getScooterId());
+            }
+        } else if (isLive(booking.getBookingStatus())) {
+            timeline.put(booking.getBookingId(), booking.getStartTime(), booking.getEndTime());
+        } else {
+            timeline.remove(booking.getBookingId());
+        }
+    }
+
+    /**
+     * Removes a deleted booking from the cached timeline of its scooter, if there is one.
+     */
+    public void deleted(Booking booking) {
+        ScooterTimeline timeline = cached(booking.getScooterId());
+        if (timeline != null && booking.getBookingId() != null) {
+            timeline.remove(booking.getBookingId());
+        }
+    }
+
+    /**
+     * @return false for the states that validateBooking ignores
+     */
+    public static boolean isLive(BookingStatus status) {
+        return status != BookingStatus.CANCELLED && status != BookingStatus.COMPLETED;
+    }
+
+    private synchronized ScooterTimeline cached(String scooterId) {
+        Entry entry = timelines.get(scooterId);
+        return entry == null ? null : entry.timeline;
+    }
+
+    private static class Entry {
+
+        private final ScooterTimeline timeline;
+        private final Instant expires;
+
+        Entry(ScooterTimeline timeline, Instant expires) {
+            this.timeline = timeline;
+            this.expires = expires;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.wirelessiths.dal.trip;
 
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBDocument;
 import com.fasterxml.jackson.annotation.JsonSetter;
+import com.wirelessiths.dal.IsoTime;
 
 import java.time.Instant;
 import java.util.Arrays;
@@ -50,7 +51,7 @@ public class Position {
     //---------------------------------------
     @JsonSetter("position_created")
     public void setPositionCreatedString(String time){
-        setPositionCreated(Instant.parse(time));
+        setPositionCreated(IsoTime.parseInstant(time));
     }
 
     @Override
@@ -4,6 +4,7 @@ import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBDocument;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTypeConverted;
 import com.fasterxml.jackson.annotation.JsonSetter;
 import com.wirelessiths.dal.InstantConverter;
+import com.wirelessiths.dal.IsoTime;
 
 import java.time.Instant;
 import java.util.ArrayList;
@@ -143,12 +144,12 @@ public class Trip {
     //-----------------------------------
     @JsonSetter("start_time")
     public void setStartTimeString(String time){
-        setStartTime(Instant.parse(time));
+        setStartTime(IsoTime.parseInstant(time));
     }
 
     @JsonSetter("end_time")
     public void setEndTimeString(String time){
-        setEndTime(Instant.parse(time));
+        setEndTime(IsoTime.parseInstant(time));
     }
 
     @Override
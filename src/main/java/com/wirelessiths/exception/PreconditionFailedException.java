@@ -0,0 +1,8 @@
+package com.wirelessiths.exception;
+
+public class PreconditionFailedException extends IllegalStateException {
+
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,148 @@
+package com.wirelessiths.handler;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.wirelessiths.ApiGatewayResponse;
+import com.wirelessiths.Response;
+import com.wirelessiths.codec.Codecs;
+import com.wirelessiths.dal.BatchBookingRequest;
+import com.wirelessiths.dal.BatchBookingResult;
+import com.wirelessiths.dal.Booking;
+import com.wirelessiths.service.Principal;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class cancels or deletes many bookings in one request, for admins.
+ */
+public class BatchBookingsHandler implements RequestHandler<Map<String, Object>, ApiGatewayResponse> {
+
+	static final int MAX_BOOKINGS = 1000;
+
+	private final Logger logger = LogManager.getLogger(this.getClass());
+
+	/**
+	 * @param input contains the operation, cancel or delete, as path param and a {@link BatchBookingRequest} as body
+	 * @param context
+	 * @return the processed and not found ids, 400 if the body or operation is invalid, 403 if the caller is not admin
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public ApiGatewayResponse handleRequest(Map<String, Object> input, Context context) {
+
+		try {
+			if(input.get("warm-up") != null){
+				logger.info("warming up lambda..");
+				return null;
+			}
+			if (!Principal.from(input).isAdmin()) {
+				Response responseBody = new Response("Unauthorized. You need to have admin privilege to cancel or delete bookings in batch", input);
+				return ApiGatewayResponse.builder()
+						.setStatusCode(403)
+						.setObjectBody(responseBody)
+						.setHeaders(Collections.singletonMap("X-Powered-By", "AWS Lambda & Serverless"))
+						.build();
+			}
+			Map<String,String> pathParameters = (Map<String,String>)input.get("pathParameters");
+			BatchBookingRequest request = Codecs.BATCH_BOOKING_REQUEST.readValue(Requests.body(input));
+
+			BatchBookingResult result = process(pathParameters.get("operation"), request, new Booking(), Instant.now());
+			return ApiGatewayResponse.builder()
+					.setStatusCode(200)
+					.setObjectBody(result, Codecs.BATCH_BOOKING_RESULT)
+					.setHeaders(Collections.singletonMap("X-Powered-By", "AWS Lambda & Serverless"))
+					.build();
+
+		} catch(JsonProcessingException | IllegalArgumentException ex){
+			logger.info("Invalid batch request: " + ex.getMessage());
+
+			Response responseBody = new Response("Invalid batch request: " + ex.getMessage(), input);
+			return ApiGatewayResponse.builder()
+					.setStatusCode(400)
+					.setObjectBody(responseBody)
+					.setHeaders(Collections.singletonMap("X-Powered-By", "AWS Lambda & Serverless"))
+					.build();
+
+		} catch(IOException ex) {
+			logger.error("Error in batch request due to I/O: " + ex);
+			logger.error(ex.getMessage());
+			ex.printStackTrace();
+
+			Response responseBody = new Response("Error in I/O when processing batch: " + ex.getMessage(), input);
+			return ApiGatewayResponse.builder()
+					.setStatusCode(500)
+					.setObjectBody(responseBody)
+					.setHeaders(Collections.singletonMap("X-Powered-By", "AWS Lambda & Serverless"))
+					.build();
+
+		} catch(Exception ex) {
+			logger.error("Error in batch request: " + ex);
+			logger.error(ex.getMessage());
+			ex.printStackTrace();
+
+			Response responseBody = new Response("Error in processing batch: " + ex.getMessage(), input);
+			return ApiGatewayResponse.builder()
+					.setStatusCode(500)
+					.setObjectBody(responseBody)
+					.setHeaders(Collections.singletonMap("X-Powered-By", "AWS Lambda & Serverless"))
+					.build();
+		}
+	}
+
+	/**
+	 * @param operation cancel or delete
+	 * @param booking booking object that is sent in to gain access to db methods, also enables local db mock in tests
+	 * @param now bookings of a scooter that ended before it are left alone
+	 * @throws IllegalArgumentException if the operation is unknown, the request has neither or both of bookingIds and
+	 * scooterId, or more than {@value #MAX_BOOKINGS} ids
+	 */
+	public BatchBookingResult process(String operation, BatchBookingRequest request, Booking booking, Instant now) throws IOException {
+
+		if (!"cancel".equals(operation) && !"delete".equals(operation)) {
+			throw new IllegalArgumentException("operation must be cancel or delete");
+		}
+		if (request == null || (request.getBookingIds() == null) == (request.getScooterId() == null)) {
+			throw new IllegalArgumentException("either bookingIds or scooterId is required");
+		}
+
+		List<Booking> bookings;
+		List<String> notFound = new ArrayList<>();
+		if (request.getBookingIds() != null) {
+			Set<String> ids = new LinkedHashSet<>(request.getBookingIds());
+			if (ids.size() > MAX_BOOKINGS) {
+				throw new IllegalArgumentException("at most " + MAX_BOOKINGS + " bookingIds per request");
+			}
+			bookings = booking.getAll(ids);
+			for (Booking found : bookings) {
+				ids.remove(found.getBookingId());
+			}
+			notFound.addAll(ids);
+		} else {
+			bookings = booking.liveBookingsOfScooter(request.getScooterId(), now);
+		}
+
+		List<Booking> left = "cancel".equals(operation) ? booking.batchCancel(bookings) : booking.batchDelete(bookings);
+		Set<String> changed = new LinkedHashSet<>();
+		for (Booking leftAlone : left) {
+			changed.add(leftAlone.getBookingId());
+		}
+		Set<String> processed = new LinkedHashSet<>();
+		for (Booking done : bookings) {
+			if (!changed.contains(done.getBookingId())) {
+				processed.add(done.getBookingId());
+			}
+		}
+		logger.info("batch {}: {} bookings, {} not found, {} changed meanwhile", operation, processed.size(), notFound.size(), changed.size());
+		return new BatchBookingResult(operation, new ArrayList<>(processed), notFound, new ArrayList<>(changed));
+	}
+}
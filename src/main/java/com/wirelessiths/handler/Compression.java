@@ -0,0 +1,110 @@
+package com.wirelessiths.handler;
+
+import com.wirelessiths.ApiGatewayResponse;
+import com.wirelessiths.codec.Gzip;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Gzips large response bodies for clients that accept it. The compressed body goes through API Gateway base64
+ * encoded, the api lists every media type as binary so it is decoded again on the way out.
+ * <p>
+ * A lambda response is at most {@value #MAX_PAYLOAD_BYTES} bytes. A list of bookings with their trips gzips to
+ * about an eighth, a sixth once base64 encoded, so a compressed page fits where the json would not.
+ * <p>
+ * The gzipped body is another representation with other bytes, so it gets its own strong tag, see
+ * {@link #gzipETag(String)}.
+ */
+final class Compression {
+
+    static final int MIN_BYTES = 1024;
+    static final int MAX_PAYLOAD_BYTES = 6 * 1024 * 1024;
+    static final String ACCEPT_ENCODING = "Accept-Encoding";
+    static final String CONTENT_ENCODING = "Content-Encoding";
+
+    private static final Logger logger = LogManager.getLogger(Compression.class);
+
+    private Compression() {
+    }
+
+    /**
+     * @return the response with its body gzipped if the client accepts gzip and the body is at least
+     * {@value #MIN_BYTES} bytes, else the response as it is
+     */
+    static ApiGatewayResponse negotiate(Map<String, Object> input, ApiGatewayResponse response) {
+        String body = response.getBody();
+        if (body == null || response.isIsBase64Encoded()) {
+            return response;
+        }
+        byte[] json = body.getBytes(StandardCharsets.UTF_8);
+        if (json.length < MIN_BYTES || !acceptsGzip(Requests.header(input, ACCEPT_ENCODING))) {
+            warnIfTooLarge(json.length, input);
+            return response;
+        }
+        byte[] gzipped = Gzip.compress(json);
+        String encoded = Base64.getEncoder().encodeToString(gzipped);
+        warnIfTooLarge(encoded.length(), input);
+        logger.debug("Compression - negotiate(): {} bytes gzipped to {}", json.length, gzipped.length);
+
+        Map<String, String> headers = response.getHeaders() == null ? new HashMap<>() : new HashMap<>(response.getHeaders());
+        headers.put(CONTENT_ENCODING, "gzip");
+        if (headers.containsKey(ConditionalRequests.ETAG)) {
+            headers.put(ConditionalRequests.ETAG, gzipETag(headers.get(ConditionalRequests.ETAG)));
+        }
+        headers.put("Vary", ACCEPT_ENCODING);
+        headers.putIfAbsent("Content-Type", "application/json");
+        return new ApiGatewayResponse(response.getStatusCode(), encoded, headers, true);
+    }
+
+    /**
+     * @param etag the strong tag of the identity body, quoted
+     * @return the tag of its gzipped body, "-gzip" appended inside the quotes
+     */
+    static String gzipETag(String etag) {
+        return etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+
+    /**
+     * @param acceptEncoding the Accept-Encoding header, may be null
+     * @return true if it lists gzip or *, without q=0
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim();
+            if (name.equalsIgnoreCase("gzip") || name.equals("*")) {
+                return !rejected(parameters);
+            }
+        }
+        return false;
+    }
+
+    private static boolean rejected(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2)) <= 0;
+                } catch (NumberFormatException e) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void warnIfTooLarge(int bytes, Map<String, Object> input) {
+        if (bytes > MAX_PAYLOAD_BYTES) {
+            logger.warn("Compression - negotiate(): {} byte body of {} {} is over the {} byte lambda response limit",
+                    bytes, input.get("httpMethod"), input.get("path"), MAX_PAYLOAD_BYTES);
+        }
+    }
+}
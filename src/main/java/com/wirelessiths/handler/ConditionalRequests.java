@@ -0,0 +1,127 @@
+package com.wirelessiths.handler;
+
+import com.wirelessiths.ApiGatewayResponse;
+import com.wirelessiths.Response;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ETag preconditions of booking reads and writes. A client that polls sends the ETag it holds in If-None-Match and
+ * gets 304 without a body while the booking or list is unchanged. A client that changes a booking sends the ETag
+ * it read in If-Match and gets 412 instead of overwriting a booking that changed since.
+ * <p>
+ * If-Match is checked against the booking as read, and the write is then conditioned on the stored booking still
+ * being that version, so a change by another request in between fails the write with 412 as well.
+ * <p>
+ * Handlers pass the tag of the identity body, and a gzipped body is sent with the tag of {@link Compression}. Both
+ * tag the same version, so either one is accepted in If-None-Match and If-Match.
+ */
+final class ConditionalRequests {
+
+    static final String ETAG = "ETag";
+    static final String IF_NONE_MATCH = "If-None-Match";
+    static final String IF_MATCH = "If-Match";
+
+    private static final Map<String, String> HEADERS = Collections.singletonMap("X-Powered-By", "AWS Lambda & Serverless");
+
+    private ConditionalRequests() {
+    }
+
+    /**
+     * @param etag the tag of the current identity body
+     * @return true if If-None-Match lists the tag, or its gzip form, or is *, compared weakly
+     */
+    static boolean isNotModified(Map<String, Object> input, String etag) {
+        String ifNoneMatch = Requests.header(input, IF_NONE_MATCH);
+        return ifNoneMatch != null && etag != null
+                && (lists(ifNoneMatch, etag, true) || lists(ifNoneMatch, Compression.gzipETag(etag), true));
+    }
+
+    /**
+     * @param etag the tag of the booking as read, null if there is none
+     * @return true if there is an If-Match that lists neither the tag nor its gzip form, compared strongly
+     */
+    static boolean failsIfMatch(Map<String, Object> input, String etag) {
+        String ifMatch = Requests.header(input, IF_MATCH);
+        return ifMatch != null && (etag == null
+                || !(lists(ifMatch, etag, false) || lists(ifMatch, Compression.gzipETag(etag), false)));
+    }
+
+    /**
+     * @return true if If-Match names tags, then the write has to find the booking still stored as it was read. A *
+     * matches any stored booking, which the read already found.
+     */
+    static boolean matchesETag(Map<String, Object> input) {
+        String ifMatch = Requests.header(input, IF_MATCH);
+        if (ifMatch == null) {
+            return false;
+        }
+        for (String candidate : ifMatch.split(",")) {
+            if (candidate.trim().equals("*")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return 304 if the client holds the tagged body already, else 200 with it, both with the tag
+     */
+    static ApiGatewayResponse ok(Map<String, Object> input, String body, String etag, Map<String, String> headers) {
+        if (isNotModified(input, etag)) {
+            return notModified(input, etag, headers);
+        }
+        return ApiGatewayResponse.builder()
+                .setStatusCode(200)
+                .setRawBody(body)
+                .setHeaders(withETag(headers, etag))
+                .build();
+    }
+
+    /**
+     * @return 304 with the tag the client holds, the gzip form if If-None-Match lists it
+     */
+    static ApiGatewayResponse notModified(Map<String, Object> input, String etag, Map<String, String> headers) {
+        String gzipETag = Compression.gzipETag(etag);
+        String ifNoneMatch = Requests.header(input, IF_NONE_MATCH);
+        return ApiGatewayResponse.builder()
+                .setStatusCode(304)
+                .setHeaders(withETag(headers, ifNoneMatch != null && lists(ifNoneMatch, gzipETag, true) ? gzipETag : etag))
+                .build();
+    }
+
+    static ApiGatewayResponse preconditionFailed() {
+        return ApiGatewayResponse.builder()
+                .setStatusCode(412)
+                .setObjectBody(new Response("The booking changed since it was read, " + IF_MATCH + " does not match its " + ETAG))
+                .setHeaders(HEADERS)
+                .build();
+    }
+
+    static Map<String, String> withETag(Map<String, String> headers, String etag) {
+        if (etag == null) {
+            return headers;
+        }
+        Map<String, String> tagged = new HashMap<>(headers);
+        tagged.put(ETAG, etag);
+        return tagged;
+    }
+
+    private static boolean lists(String header, String etag, boolean weak) {
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (weak && tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -5,14 +5,15 @@ import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.sns.AmazonSNS;
 import com.amazonaws.services.sns.model.MessageAttributeValue;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wirelessiths.ApiGatewayResponse;
 import com.wirelessiths.Response;
+import com.wirelessiths.codec.Codecs;
+import com.wirelessiths.dal.Async;
 import com.wirelessiths.dal.BookingStatus;
 import com.wirelessiths.dal.Booking;
+import com.wirelessiths.dal.CreateBookingRequest;
 import com.wirelessiths.s3.Settings;
-import com.wirelessiths.service.AuthService;
+import com.wirelessiths.service.Principal;
 import com.wirelessiths.service.UserService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -20,10 +21,11 @@ import org.apache.logging.log4j.Logger;
 import java.io.IOException;
 
 import java.time.Duration;
-import java.time.Instant;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static com.wirelessiths.service.SNSService.getAmazonSNSClient;
 import static com.wirelessiths.service.SNSService.sendSMSMessage;
@@ -38,27 +40,40 @@ public class CreateBookingHandler implements RequestHandler<Map<String, Object>,
 
     @Override
     public ApiGatewayResponse handleRequest(Map<String, Object> input, Context context) {
+        return Idempotency.handle(input, this::create);
+    }
+
+    private ApiGatewayResponse create(Map<String, Object> input) {
 
         try {
             // get the 'body' from input
-            JsonNode body = new ObjectMapper().readTree((String) input.get("body"));
+            CreateBookingRequest request = Codecs.CREATE_BOOKING_REQUEST.readValue(Requests.body(input));
+            if (!request.isComplete()) {
+                Response responseBody = new Response("Error in creating booking: scooterId, startTime and endTime are required");
+                return ApiGatewayResponse.builder()
+                        .setStatusCode(400)
+                        .setObjectBody(responseBody)
+                        .setHeaders(Collections.singletonMap("Booking System", "Wireless Scooter"))
+                        .build();
+            }
             Booking booking = new Booking();
-            booking.setScooterId(body.get("scooterId").asText());
-            booking.setUserId(AuthService.getUserId(input));
-            booking.setStartTime(Instant.parse(body.get("startTime").asText()));
-            booking.setEndTime(Instant.parse(body.get("endTime").asText()));
+            booking.setScooterId(request.getScooterId());
+            booking.setUserId(Principal.from(input).getUserId());
+            booking.setStartTime(request.getStartTime());
+            booking.setEndTime(request.getEndTime());
             booking.setBookingStatus(BookingStatus.VALID);
 
-            int maxDuration = 7200;
-            int buffer = 300;
-            int maxAllowedBookings = 3;
+            // the counter and the settings are independent, read them at the same time
+            CompletableFuture<Integer> liveBookings = booking.liveBookingCountAsync(booking.getUserId());
+            CompletableFuture<Settings> settingsRead = System.getenv("ENVIRONMENT").equals("test")
+                    ? CompletableFuture.completedFuture(new Settings(300, 7200, 600, 3))
+                    : Settings.getSettingsAsync();
+
+            Settings settings = Async.join(settingsRead);
+            int maxDuration = settings.getMaxDuration();
+            int buffer = settings.getBuffer();
+            int maxAllowedBookings = settings.getMaxBookings();
 
-            if(!System.getenv("ENVIRONMENT").equals("test")){
-                Settings settings = Settings.getSettings();
-                 maxDuration = settings.getMaxDuration();
-                 buffer = settings.getBuffer();
-                 maxAllowedBookings = settings.getMaxBookings();
-            }
             String message;
             double duration = Duration.between(booking.getStartTime(), booking.getEndTime()).getSeconds();
 
@@ -73,7 +88,10 @@ public class CreateBookingHandler implements RequestHandler<Map<String, Object>,
                         .build();
             }
 
-            if(booking.bookingsByUserId(booking.getUserId()).size() >= maxAllowedBookings) {
+            // the conflict check needs the buffer from the settings, it runs while the counter may still be read
+            CompletableFuture<List<Booking>> conflicts = booking.validateBookingAsync(booking, maxDuration, buffer);
+
+            if(Async.join(liveBookings) >= maxAllowedBookings) {
 
                 message = "User has reached max number of allowed concurrent bookings";
                 return ApiGatewayResponse.builder()
@@ -83,7 +101,7 @@ public class CreateBookingHandler implements RequestHandler<Map<String, Object>,
                         .build();
             }
 
-            if(!booking.validateBooking(booking, maxDuration, buffer).isEmpty()){//returns list of infringing bookings
+            if(!Async.join(conflicts).isEmpty()){//returns list of infringing bookings
 
                 message =  "Scooter with id: " + booking.getScooterId() + " is not available for the selected timespan";
                 return ApiGatewayResponse.builder()
@@ -102,7 +120,7 @@ public class CreateBookingHandler implements RequestHandler<Map<String, Object>,
             }
             return ApiGatewayResponse.builder()
                     .setStatusCode(201)
-                    .setObjectBody(booking)
+                    .setObjectBody(booking, Codecs.BOOKING)
                     .setHeaders(Collections.singletonMap("Booking System", "Wireless Scooter"))
                     .build();
 
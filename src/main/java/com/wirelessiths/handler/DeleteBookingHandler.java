@@ -5,8 +5,10 @@ import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.wirelessiths.ApiGatewayResponse;
 import com.wirelessiths.Response;
 import com.wirelessiths.exception.CouldNotDeleteBookingException;
+import com.wirelessiths.exception.PreconditionFailedException;
+import com.wirelessiths.exception.UnableToUpdateException;
 import com.wirelessiths.dal.Booking;
-import com.wirelessiths.service.AuthService;
+import com.wirelessiths.service.Principal;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -36,14 +38,20 @@ public class DeleteBookingHandler implements RequestHandler<Map<String, Object>,
 			Map<String,String> pathParameters =  (Map<String,String>)input.get("pathParameters");
 			String bookingId = pathParameters.get("id");
 
-			boolean isAdmin = AuthService.isAdmin(input);
-			String tokenUserId = AuthService.getUserId(input);
+			Principal principal = Principal.from(input);
 
 
-			Booking booking = new Booking().get(bookingId);
 			// get the Booking by id
+			Booking booking = new Booking().get(bookingId);
 
-			if (!AuthService.isAuthorized(isAdmin, booking.getUserId(), tokenUserId)) {
+			if (booking == null) {
+				return ApiGatewayResponse.builder()
+						.setStatusCode(404)
+						.setObjectBody("Booking with id: '" + bookingId + "' not found.")
+						.build();
+			}
+
+			if (!principal.canAccess(booking.getUserId())) {
 				Response responseBody = new Response("Unauthorized. You can only delete your own bookings or you need to have admin privilege", input);
 				return ApiGatewayResponse.builder()
 						.setStatusCode(403)
@@ -51,20 +59,29 @@ public class DeleteBookingHandler implements RequestHandler<Map<String, Object>,
 						.build();
 			}
 
-			// get the Booking by id
-			Boolean success = new Booking().delete(bookingId);
+			if (ConditionalRequests.failsIfMatch(input, booking.etag())) {
+				return ConditionalRequests.preconditionFailed();
+			}
+
+			// delete by the key of the booking already read, with If-Match only while it is stored as read
+			booking.delete(booking, ConditionalRequests.matchesETag(input));
 
 			// send the response back
-			if (success) {
-				return ApiGatewayResponse.builder()
-						.setStatusCode(204)
-						.build();
-			} else {
-				return ApiGatewayResponse.builder()
-						.setStatusCode(404)
-						.setObjectBody("Booking with id: '" + bookingId + "' not found.")
-						.build();
-			}
+			return ApiGatewayResponse.builder()
+					.setStatusCode(204)
+					.build();
+		} catch (PreconditionFailedException ex) {
+			logger.info("Booking changed since it was read: " + ex.getMessage());
+			return ConditionalRequests.preconditionFailed();
+		} catch (UnableToUpdateException ex) {
+			logger.info("Booking changed during delete: " + ex.getMessage());
+
+			Response responseBody = new Response("Booking changed during the delete, try again", input);
+			return ApiGatewayResponse.builder()
+					.setStatusCode(409)
+					.setObjectBody(responseBody)
+					.setHeaders(Collections.singletonMap("X-Powered-By", "AWS Lambda & Serverless"))
+					.build();
 		} catch (CouldNotDeleteBookingException ex) {
 			logger.error("Error in deleting booking: " + ex);
 			logger.error(ex.getMessage());
@@ -0,0 +1,126 @@
+package com.wirelessiths.handler;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.wirelessiths.ApiGatewayResponse;
+import com.wirelessiths.Response;
+import com.wirelessiths.codec.Codecs;
+import com.wirelessiths.dal.Booking;
+import com.wirelessiths.dal.IsoTime;
+import com.wirelessiths.dal.timeline.FleetOccupancy;
+import com.wirelessiths.dal.timeline.FreeScooters;
+import com.wirelessiths.s3.Settings;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class finds the scooters that are free for a whole time window.
+ */
+public class FindFreeScootersHandler implements RequestHandler<Map<String, Object>, ApiGatewayResponse> {
+
+	private final Logger logger = LogManager.getLogger(this.getClass());
+
+	/**
+	 * @param input contains from and to as query params, and optionally scooterIds, a comma separated list of the
+	 *              scooters to look at. Without it the scooters booked in the last week are looked at.
+	 * @param context
+	 * @return the free scooters, 400 if from and to are missing or invalid
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public ApiGatewayResponse handleRequest(Map<String, Object> input, Context context) {
+
+		try {
+			if(input.get("warm-up") != null){
+				logger.info("warming up lambda..");
+				return null;
+			}
+			Map<String,String> queryStringParameters = (Map<String,String>)input.get("queryStringParameters");
+
+			int maxDuration = 7200;
+			int buffer = 300;
+			if(!"test".equals(System.getenv("ENVIRONMENT"))){
+				Settings settings = Settings.getSettings();
+				maxDuration = settings.getMaxDuration();
+				buffer = settings.getBuffer();
+			}
+
+			FreeScooters freeScooters = freeScooters(queryStringParameters, new Booking(), maxDuration, buffer);
+			return ApiGatewayResponse.builder()
+					.setStatusCode(200)
+					.setObjectBody(freeScooters, Codecs.FREE_SCOOTERS)
+					.setHeaders(Collections.singletonMap("X-Powered-By", "AWS Lambda & Serverless"))
+					.build();
+
+		} catch(DateTimeParseException | IllegalArgumentException ex){
+			logger.info("Invalid query parameter: " + ex.getMessage());
+
+			Response responseBody = new Response("Invalid query parameter: " + ex.getMessage(), input);
+			return ApiGatewayResponse.builder()
+					.setStatusCode(400)
+					.setObjectBody(responseBody)
+					.setHeaders(Collections.singletonMap("X-Powered-By", "AWS Lambda & Serverless"))
+					.build();
+
+		} catch(IOException ex) {
+			logger.error("Error in finding free scooters due to I/O: " + ex);
+			logger.error(ex.getMessage());
+			ex.printStackTrace();
+
+			Response responseBody = new Response("Error in I/O when finding free scooters: " + ex.getMessage(), input);
+			return ApiGatewayResponse.builder()
+					.setStatusCode(500)
+					.setObjectBody(responseBody)
+					.setHeaders(Collections.singletonMap("X-Powered-By", "AWS Lambda & Serverless"))
+					.build();
+
+		} catch(Exception ex) {
+			logger.error("Error in finding free scooters: " + ex);
+			logger.error(ex.getMessage());
+			ex.printStackTrace();
+
+			Response responseBody = new Response("Error in finding free scooters: " + ex.getMessage(), input);
+			return ApiGatewayResponse.builder()
+					.setStatusCode(500)
+					.setObjectBody(responseBody)
+					.setHeaders(Collections.singletonMap("X-Powered-By", "AWS Lambda & Serverless"))
+					.build();
+		}
+	}
+
+	/**
+	 * @param queryStringParameters from and to, and optionally scooterIds
+	 * @param booking booking object that is sent in to gain access to db methods, also enables local db mock in tests
+	 * @throws IllegalArgumentException if from or to is missing, to is not after from or the window is longer than
+	 * maxDuration, no booking could be created for it
+	 */
+	public FreeScooters freeScooters(Map<String, String> queryStringParameters, Booking booking, int maxDuration, int buffer) throws IOException {
+
+		if (queryStringParameters == null || !queryStringParameters.containsKey("from") || !queryStringParameters.containsKey("to")) {
+			throw new IllegalArgumentException("from and to are required");
+		}
+		Instant from = IsoTime.parseInstant(queryStringParameters.get("from"));
+		Instant to = IsoTime.parseInstant(queryStringParameters.get("to"));
+		if (!to.isAfter(from)) {
+			throw new IllegalArgumentException("to must be after from");
+		}
+		if (Duration.between(from, to).getSeconds() > maxDuration) {
+			throw new IllegalArgumentException("from and to can be at most " + maxDuration / 60 + " min apart");
+		}
+		List<String> candidates = queryStringParameters.containsKey("scooterIds")
+				? Arrays.asList(queryStringParameters.get("scooterIds").split(","))
+				: null;
+
+		List<String> free = FleetOccupancy.getInstance().freeScooters(from, to, Duration.ofSeconds(buffer), candidates, booking);
+		return new FreeScooters(from, to, buffer, free);
+	}
+}
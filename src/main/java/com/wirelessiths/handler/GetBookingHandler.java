@@ -4,9 +4,10 @@ import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.wirelessiths.ApiGatewayResponse;
 import com.wirelessiths.Response;
+import com.wirelessiths.codec.Codecs;
 import com.wirelessiths.exception.BookingDoesNotExistException;
 import com.wirelessiths.dal.Booking;
-import com.wirelessiths.service.AuthService;
+import com.wirelessiths.service.Principal;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -37,13 +38,12 @@ public class GetBookingHandler implements RequestHandler<Map<String, Object>, Ap
 			Map<String,String> pathParameters =  (Map<String,String>)input.get("pathParameters");
 			String bookingId = pathParameters.get("id");
 
-			boolean isAdmin = AuthService.isAdmin(input);
-			String tokenUserId = AuthService.getUserId(input);
+			Principal principal = Principal.from(input);
 
-			// get the Booking by id
-			Booking booking = new Booking().get(bookingId);
+			// get the Booking by id, recently read bookings are served from BookingCache
+			Booking booking = new Booking().getCached(bookingId);
 
-			if (!AuthService.isAuthorized(isAdmin, booking.getUserId(), tokenUserId)) {
+			if (!principal.canAccess(booking.getUserId())) {
 				Response responseBody = new Response("Unauthorized. You can only view your own bookings or you need to have admin privilege", input);
 				return ApiGatewayResponse.builder()
 						.setStatusCode(403)
@@ -51,11 +51,18 @@ public class GetBookingHandler implements RequestHandler<Map<String, Object>, Ap
 						.build();
 			}
 
-			// send the response back
-			return ApiGatewayResponse.builder()
+			// a client polling with the current ETag gets 304, the booking is not serialized
+			String etag = booking.etag();
+			if (ConditionalRequests.isNotModified(input, etag)) {
+				return ConditionalRequests.notModified(input, etag, Collections.emptyMap());
+			}
+
+			// send the response back, gzipped if it is large, with many trips, and the client accepts it
+			return Compression.negotiate(input, ApiGatewayResponse.builder()
 					.setStatusCode(200)
-					.setObjectBody(booking)
-					.build();
+					.setObjectBody(booking, Codecs.BOOKING)
+					.setHeaders(ConditionalRequests.withETag(Collections.emptyMap(), etag))
+					.build());
 
 		} catch (BookingDoesNotExistException ex) {
 			logger.error("Error in retrieving Booking as booking  is null: " + ex);
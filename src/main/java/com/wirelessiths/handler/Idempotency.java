@@ -0,0 +1,140 @@
+package com.wirelessiths.handler;
+
+import com.amazonaws.AmazonClientException;
+import com.wirelessiths.ApiGatewayResponse;
+import com.wirelessiths.Response;
+import com.wirelessiths.dal.DynamoDBAdapter;
+import com.wirelessiths.dal.IdempotencyStore;
+import com.wirelessiths.service.Principal;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Runs a command once per Idempotency-Key header. Clients retry a command that timed out with the key of the first
+ * attempt and get its response back, instead of a second booking or state change. Without the header the command
+ * just runs.
+ * <p>
+ * A key belongs to the caller and the method and path it was sent with. Sending it again with another body is
+ * answered with 422, while the first request still runs with 409. Responses of 500 and above are not stored, the
+ * key is given up and a retry runs the command again.
+ */
+final class Idempotency {
+
+    static final String HEADER = "Idempotency-Key";
+    static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    static final int MAX_KEY_LENGTH = 255;
+
+    private static final Logger logger = LogManager.getLogger(Idempotency.class);
+    private static final Map<String, String> HEADERS = Collections.singletonMap("X-Powered-By", "AWS Lambda & Serverless");
+
+    private Idempotency() {
+    }
+
+    static ApiGatewayResponse handle(Map<String, Object> input, Function<Map<String, Object>, ApiGatewayResponse> command) {
+        if (key(input) == null) {
+            return command.apply(input);
+        }
+        IdempotencyStore store = new IdempotencyStore(DynamoDBAdapter.getInstance().getDbClient(),
+                IdempotencyStore.tableName(System.getenv("BOOKINGS_TABLE_NAME")));
+        return handle(store, input, command, Instant.now());
+    }
+
+    static ApiGatewayResponse handle(IdempotencyStore store, Map<String, Object> input,
+                                     Function<Map<String, Object>, ApiGatewayResponse> command, Instant now) {
+        String key = key(input);
+        if (key == null) {
+            return command.apply(input);
+        }
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            return error(400, HEADER + " must have 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        String scope = Principal.from(input).getUserId() + "#" + input.get("httpMethod") + " " + input.get("path") + "#" + key;
+        String fingerprint = fingerprint(Requests.body(input));
+
+        IdempotencyStore.Record record;
+        try {
+            record = store.begin(scope, fingerprint, now);
+        } catch (AmazonClientException e) {
+            logger.error("Idempotency - handle(): could not claim {}: {}", scope, e.getMessage());
+            return error(500, "Error in reading the " + HEADER + ": " + e.getMessage());
+        }
+        if (record != null) {
+            if (!record.getFingerprint().equals(fingerprint)) {
+                return error(422, HEADER + " was already used for a different request");
+            }
+            if (!record.isCompleted()) {
+                return error(409, "a request with this " + HEADER + " is in progress");
+            }
+            return replayed(record.getResponse());
+        }
+
+        ApiGatewayResponse response;
+        try {
+            response = command.apply(input);
+        } catch (RuntimeException e) {
+            release(store, scope);
+            throw e;
+        }
+        try {
+            if (response.getStatusCode() >= 500) {
+                store.release(scope);
+            } else {
+                store.complete(scope, fingerprint, response, now);
+            }
+        } catch (AmazonClientException e) {
+            // the claim expires, until then retries are answered with 409
+            logger.error("Idempotency - handle(): could not store the response for {}: {}", scope, e.getMessage());
+        }
+        return response;
+    }
+
+    /**
+     * @return the Idempotency-Key header, trimmed, or null
+     */
+    static String key(Map<String, Object> input) {
+        String key = Requests.header(input, HEADER);
+        return key == null ? null : key.trim();
+    }
+
+    static String fingerprint(String body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((body == null ? "" : body).getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("every jvm has SHA-256", e);
+        }
+    }
+
+    private static void release(IdempotencyStore store, String scope) {
+        try {
+            store.release(scope);
+        } catch (AmazonClientException e) {
+            logger.error("Idempotency - release(): could not release {}: {}", scope, e.getMessage());
+        }
+    }
+
+    private static ApiGatewayResponse replayed(ApiGatewayResponse response) {
+        Map<String, String> headers = new HashMap<>(response.getHeaders());
+        headers.put(REPLAYED_HEADER, "true");
+        return new ApiGatewayResponse(response.getStatusCode(), response.getBody(), headers, response.isIsBase64Encoded());
+    }
+
+    private static ApiGatewayResponse error(int statusCode, String message) {
+        return ApiGatewayResponse.builder()
+                .setStatusCode(statusCode)
+                .setObjectBody(new Response(message))
+                .setHeaders(HEADERS)
+                .build();
+    }
+}
@@ -4,15 +4,20 @@ import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.wirelessiths.ApiGatewayResponse;
 import com.wirelessiths.Response;
+import com.wirelessiths.codec.Codecs;
+import com.wirelessiths.codec.ETags;
 import com.wirelessiths.exception.UnableToListBookingsException;
 import com.wirelessiths.dal.Booking;
-import com.wirelessiths.service.AuthService;
+import com.wirelessiths.dal.cache.ListCache;
+import com.wirelessiths.dal.query.BookingQuery;
+import com.wirelessiths.dal.query.Page;
+import com.wirelessiths.service.Principal;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
-import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 
 
@@ -25,11 +30,7 @@ public class ListBookingHandler implements RequestHandler<Map<String, Object>, A
 
 	private final Logger logger = LogManager.getLogger(this.getClass());
 
-    enum queryEnum {
-     scooterId,
-        userId,
-        startDate
-    }
+	static final int MAX_LIMIT = 1000;
 
 	/**
 	 * This method connects to the ApiGatewayResponse and request handler to allow the retrieval of all bookings.
@@ -48,27 +49,13 @@ public class ListBookingHandler implements RequestHandler<Map<String, Object>, A
 
 
 
-            //Query key prioritization at the moment (higher prio means that that key is queried and the others are filtered):
-            //1. startDate
-            //2. UserId (all queries with userId require admin or that your token uuid matches the one in the query
-            //3. ScooterId
-
-            /*
-             * Handles the following cases:
-             * -userId & scooterId & startDate
-             * -userId & scooterId
-             * -userId & startDate
-             * -startDate & scooterId
-             * -startDate or userId or scooterId by themselves
-             * -queryParams is empty
-             * -queryParams contains other items than scooterId, userId and date. It then filters out unsearchable parameters and tries the query again.
-             * -If no params are eligible for query, return all bookings.
-             */
+            //Supported query params are bookingId, userId, scooterId, startDate (or date), from, to and bookingStatus, see BookingQuery.
+            //QueryPlanner picks the index, explain=true returns the plan instead of the bookings.
+            //With limit the bookings are paginated, the X-Next-Cursor header is passed as cursor to get the next page.
 
             Map<String,String> queryStringParameters = null;
 
-            boolean isAdmin = AuthService.isAdmin(input);
-            String tokenUserId = AuthService.getUserId(input);
+            Principal principal = Principal.from(input);
 
 			if(input.containsKey("queryStringParameters")) {
                 //noinspection unchecked
@@ -78,7 +65,7 @@ public class ListBookingHandler implements RequestHandler<Map<String, Object>, A
 
             //Check that the user is authorized, can only view their own bookings or need to be admin. If not authorized send back 403.
             if(Optional.ofNullable(queryStringParameters).isPresent()) {
-                if (queryStringParameters.containsKey(queryEnum.userId.toString()) && !AuthService.isAuthorized(isAdmin, queryStringParameters.get(queryEnum.userId.toString()), tokenUserId)) {
+                if (queryStringParameters.containsKey("userId") && !principal.canAccess(queryStringParameters.get("userId"))) {
                     Response responseBody = new Response("Unauthorized. You can only view your own bookings or you need to have admin privilege", input);
                     return ApiGatewayResponse.builder()
                             .setStatusCode(403)
@@ -89,13 +76,46 @@ public class ListBookingHandler implements RequestHandler<Map<String, Object>, A
 
 
             Booking booking = new Booking();
-            List<Booking> bookings = retrieveBookings(queryStringParameters, booking, isAdmin);
+            if (queryStringParameters != null && "true".equals(queryStringParameters.get("explain"))) {
+                return ApiGatewayResponse.builder()
+                        .setStatusCode(200)
+                        .setObjectBody(booking.plan(BookingQuery.fromParameters(queryStringParameters)))
+                        .setHeaders(Collections.singletonMap("X-Powered-By", "AWS Lambda & Serverless"))
+                        .build();
+            }
+            //Identical queries within half a second share one read and its rendered body, see ListCache.
+            boolean isAdmin = principal.isAdmin();
+            final Map<String, String> parameters = queryStringParameters;
+            if (parameters != null && parameters.containsKey("limit")) {
+                ListCache.Listing listing = ListCache.getInstance().get(listKey(parameters, isAdmin), () -> {
+                    Page<Booking> page = retrievePage(parameters, booking, isAdmin);
+                    String body = Codecs.BOOKINGS.writeValueAsString(page.getItems());
+                    return new ListCache.Listing(body, page.getNextCursor(), ETags.of(body + "\n" + page.getNextCursor()));
+                });
+                Map<String, String> headers = new HashMap<>();
+                headers.put("X-Powered-By", "AWS Lambda & Serverless");
+                if (listing.getNextCursor() != null) {
+                    headers.put("X-Next-Cursor", listing.getNextCursor());
+                }
+                return Compression.negotiate(input, ConditionalRequests.ok(input, listing.getBody(), listing.getETag(), headers));
+            }
+            ListCache.Listing listing = ListCache.getInstance().get(listKey(parameters, isAdmin), () -> {
+                String body = Codecs.BOOKINGS.writeValueAsString(retrieveBookings(parameters, booking, isAdmin));
+                return new ListCache.Listing(body, null, ETags.of(body));
+            });
+
 
+			// send the response back, 304 if the client holds this list already
+			return Compression.negotiate(input, ConditionalRequests.ok(input, listing.getBody(), listing.getETag(),
+					Collections.singletonMap("X-Powered-By", "AWS Lambda & Serverless")));
 
-			// send the response back
+		} catch(DateTimeParseException | IllegalArgumentException ex){
+			logger.info("Invalid query parameter: " + ex.getMessage());
+
+			Response responseBody = new Response("Invalid query parameter: " + ex.getMessage(), input);
 			return ApiGatewayResponse.builder()
-					.setStatusCode(200)
-					.setObjectBody(bookings)
+					.setStatusCode(400)
+					.setObjectBody(responseBody)
 					.setHeaders(Collections.singletonMap("X-Powered-By", "AWS Lambda & Serverless"))
 					.build();
 
@@ -140,29 +160,21 @@ public class ListBookingHandler implements RequestHandler<Map<String, Object>, A
 		}
 	}
 
-    private Map<String, String> changeKeyName(Map<String, String> queryStringParameters, String oldValue, String newValue) {
-        String date = queryStringParameters.remove(oldValue);
-        queryStringParameters.put(newValue, date);
-        return queryStringParameters;
-    }
-
     /**
      *
      * @param queryStringParameters that is sent in from the request.
      * @param booking booking object that is sent in to gain access to db methods. also sends this in to enable local db mock in tests
+     * @param isAdmin if false, a request without supported query params lists all bookings with userId redacted
      * @return the list of matching bookings
      * @throws IOException from dynamo db.
-     * Only passes through supported query params that are set in the queryEnum enum.
-     * If no supported query keys exists it returns all bookings, otherwise query in the following order:
-     * 1: startDate
-     * 2: userID
-     * 3: scooterId
-     * if only one supported parameter keys queries dynamo db without filter otherwise queries with filter.
+     * Only supported query params are used, see BookingQuery.fromParameters. Without any of them all bookings are listed,
+     * otherwise the query runs on the index picked by QueryPlanner.
      */
     @Nullable
     public List<Booking> retrieveBookings(Map<String, String> queryStringParameters, Booking booking, boolean isAdmin) throws IOException {
 
-        if (!Optional.ofNullable(queryStringParameters).isPresent()) {
+        BookingQuery query = BookingQuery.fromParameters(queryStringParameters);
+        if (query.isEmpty()) {
             if(isAdmin) {
                 return booking.list();
             }
@@ -170,64 +182,39 @@ public class ListBookingHandler implements RequestHandler<Map<String, Object>, A
                 return booking.listUserIdRedacted();
             }
         }
+        return booking.query(query);
+    }
 
-        if(queryStringParameters.containsKey("date")){
-            changeKeyName(queryStringParameters, "date", queryEnum.startDate.toString());
-        }
+    /**
+     * Like {@link #retrieveBookings(Map, Booking, boolean)} but reads one page of at most limit bookings.
+     * @param queryStringParameters must contain limit, and cursor for every page but the first
+     * @return the page, its next cursor is null on the last page
+     * @throws IllegalArgumentException if limit is not a number between 1 and {@value #MAX_LIMIT} or the cursor is invalid
+     */
+    public Page<Booking> retrievePage(Map<String, String> queryStringParameters, Booking booking, boolean isAdmin) throws IOException {
 
-            Map<String, String> validKeyParams = new HashMap<>();
-            Map<String, String> filter = new HashMap<>();
-            //Only pass through supported query params
-            queryStringParameters.forEach((k, v) -> {
-                for (queryEnum e : queryEnum.values()) {
-                    if (k.equals(e.toString())) {
-                        validKeyParams.put(k, v);
-                    }
-                }
-            });
-            //if no valid keys are found return all
-            if (validKeyParams.isEmpty()){
-                return booking.list();
-            }
-            if (validKeyParams.containsKey(queryEnum.startDate.toString())) {
-                if (validKeyParams.size() == 1) {
-                  return booking.bookingsByDate(LocalDate.parse(validKeyParams.get(queryEnum.startDate.toString())));
-                } else {
-                    validKeyParams.forEach((k, v) -> {
-                        if (!k.equals(queryEnum.startDate.toString())) {
-                            filter.put(k, v);
-                        }
-                    });
-                    return booking.bookingsByDate(LocalDate.parse(validKeyParams.get(queryEnum.startDate.toString())), filter);
-                }
-            } else if (validKeyParams.containsKey(queryEnum.userId.toString())) {
-                if (validKeyParams.size() == 1) {
-                    return booking.bookingsByUserId(validKeyParams.get(queryEnum.userId.toString()));
-                } else {
-                    validKeyParams.forEach((k, v) -> {
-                        if (!k.equals(queryEnum.userId.toString())) {
-                            filter.put(k, v);
-                        }
-                    });
-                    return booking.bookingsByUserId(validKeyParams.get(queryEnum.userId.toString()), filter);
-                }
-            } else if (validKeyParams.containsKey(queryEnum.scooterId.toString())) {
-                if (validKeyParams.size() == 1) {
-                    return booking.bookingsByScooterId(validKeyParams.get(queryEnum.scooterId.toString()));
-                } else {
-                    validKeyParams.forEach((k, v) -> {
-                        if (!k.equals(queryEnum.scooterId.toString())) {
-                            filter.put(k, v);
-                        }
-                    });
-                    return booking.bookingsByScooterId(validKeyParams.get(queryEnum.scooterId.toString()), filter);
-                }
-            }
-        if(isAdmin) {
-            return booking.list();
+        int limit = Integer.parseInt(queryStringParameters.get("limit"));
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
         }
-        else {
-            return booking.listUserIdRedacted();
+        BookingQuery query = BookingQuery.fromParameters(queryStringParameters);
+        Page<Booking> page = booking.query(query, limit, queryStringParameters.get("cursor"));
+        if (query.isEmpty() && !isAdmin) {
+            page.getItems().forEach(item -> item.setUserId(null));
+        }
+        return page;
+    }
+
+    /**
+     * @return the key of the request in {@link ListCache}: who may see what, the query with its parameters in a
+     * fixed order, and limit and cursor of a paged request
+     * @throws IllegalArgumentException like {@link BookingQuery#fromParameters(Map)}
+     */
+    static String listKey(Map<String, String> queryStringParameters, boolean isAdmin) {
+        String key = (isAdmin ? "admin " : "redacted ") + BookingQuery.fromParameters(queryStringParameters);
+        if (queryStringParameters != null && queryStringParameters.containsKey("limit")) {
+            key += " limit=" + queryStringParameters.get("limit") + " cursor=" + queryStringParameters.get("cursor");
         }
+        return key;
     }
 }
@@ -4,19 +4,32 @@ import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.wirelessiths.ApiGatewayResponse;
 import com.wirelessiths.Response;
+import com.wirelessiths.codec.Codecs;
+import com.wirelessiths.codec.ETags;
 import com.wirelessiths.exception.UnableToListBookingsException;
-import com.wirelessiths.service.AuthService;
+import com.wirelessiths.service.Principal;
 import com.wirelessiths.dal.Booking;
+import com.wirelessiths.dal.query.BookingQuery;
+import com.wirelessiths.dal.query.Page;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * This class lists the bookings of one user a page at a time, latest first unless order=asc.
+ */
 public class ListBookingsByUserHandler implements RequestHandler<Map<String, Object>, ApiGatewayResponse> {
 
+    static final int DEFAULT_LIMIT = 50;
+    private static final List<String> PARAMETERS = Arrays.asList("bookingStatus", "startDate", "date", "from", "to", "order");
+
     private final Logger logger = LogManager.getLogger(this.getClass());
 
     @SuppressWarnings("unchecked")
@@ -26,9 +39,8 @@ public class ListBookingsByUserHandler implements RequestHandler<Map<String, Obj
 
             Map<String,String> pathParameters =  (Map<String,String>)input.get("pathParameters");
             String userId = pathParameters.get("id");
-            boolean isAdmin = AuthService.isAdmin(input);
-            String tokenUserId = AuthService.getUserId(input);
-            if(!userId.equals(tokenUserId) && !AuthService.isAdmin(input)) {
+            Principal principal = Principal.from(input);
+            if(!principal.canAccess(userId)) {
                 Response responseBody = new Response("Not authorized to view this page. Provided user id does not match the your user or you are not an Admin", input);
                 return ApiGatewayResponse.builder()
                         .setStatusCode(403)
@@ -36,14 +48,27 @@ public class ListBookingsByUserHandler implements RequestHandler<Map<String, Obj
                         .build();
             }
 
-            Booking booking = new Booking();
-            List<Booking> results = booking.bookingsByUserId(userId);
-
+            Map<String,String> queryStringParameters = (Map<String,String>)input.get("queryStringParameters");
+            Page<Booking> page = retrievePage(userId, queryStringParameters, new Booking());
 
             // send the response back
+            Map<String, String> headers = new HashMap<>();
+            headers.put("X-Powered-By", "AWS Lambda & Serverless");
+            if (page.getNextCursor() != null) {
+                headers.put("X-Next-Cursor", page.getNextCursor());
+            }
+            // 304 if the client holds this page already, the next cursor is part of it
+            String body = Codecs.BOOKINGS.writeValueAsString(page.getItems());
+            return Compression.negotiate(input,
+                    ConditionalRequests.ok(input, body, ETags.of(body + "\n" + page.getNextCursor()), headers));
+
+        } catch(DateTimeParseException | IllegalArgumentException ex){
+            logger.info("Invalid query parameter: " + ex.getMessage());
+
+            Response responseBody = new Response("Invalid query parameter: " + ex.getMessage(), input);
             return ApiGatewayResponse.builder()
-                    .setStatusCode(200)
-                    .setObjectBody(results)
+                    .setStatusCode(400)
+                    .setObjectBody(responseBody)
                     .setHeaders(Collections.singletonMap("X-Powered-By", "AWS Lambda & Serverless"))
                     .build();
 
@@ -87,4 +112,38 @@ public class ListBookingsByUserHandler implements RequestHandler<Map<String, Obj
                     .build();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Reads one page of the bookings of a user. With bookingStatus the page is one range of userStatusIndex,
+     * otherwise of userIndex, so a page costs the same however many bookings the user has. A stack without
+     * userStatusIndex yet filters the status from userIndex, see {@link com.wirelessiths.dal.query.QueryPlanner}.
+     * @param queryStringParameters optionally limit, default {@value #DEFAULT_LIMIT}, cursor, bookingStatus,
+     *                              startDate, from, to and order, asc or desc. Other parameters are ignored
+     * @param booking booking object that is sent in to gain access to db methods, also enables local db mock in tests
+     * @return the page, its next cursor is null on the last page
+     * @throws IllegalArgumentException if limit is not a number between 1 and {@value ListBookingHandler#MAX_LIMIT},
+     * a parameter is invalid or the cursor was returned for another query
+     */
+    public Page<Booking> retrievePage(String userId, Map<String, String> queryStringParameters, Booking booking) throws IOException {
+
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("order", "desc");
+        String limitParameter = null;
+        String cursor = null;
+        if (queryStringParameters != null) {
+            for (String parameter : PARAMETERS) {
+                if (queryStringParameters.containsKey(parameter)) {
+                    parameters.put(parameter, queryStringParameters.get(parameter));
+                }
+            }
+            limitParameter = queryStringParameters.get("limit");
+            cursor = queryStringParameters.get("cursor");
+        }
+        int limit = limitParameter == null ? DEFAULT_LIMIT : Integer.parseInt(limitParameter);
+        if (limit < 1 || limit > ListBookingHandler.MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + ListBookingHandler.MAX_LIMIT);
+        }
+        BookingQuery query = BookingQuery.builder().setParameters(parameters).setUserId(userId).build();
+        return booking.query(query, limit, cursor);
+    }
+}
@@ -0,0 +1,44 @@
+package com.wirelessiths.handler;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Reads the parts of the API Gateway input the handlers share.
+ */
+final class Requests {
+
+    private Requests() {
+    }
+
+    /**
+     * @return the value of a request header, its name in any case, null if it was not sent
+     */
+    @SuppressWarnings("unchecked")
+    static String header(Map<String, Object> input, String name) {
+        Map<String, String> headers = (Map<String, String>) input.get("headers");
+        if (headers == null) {
+            return null;
+        }
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey())) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * API Gateway passes bodies base64 encoded when their Content-Type is a binary media type of the api, which
+     * are all of them so compressed responses can be sent.
+     * @return the request body as text, null if there is none
+     */
+    static String body(Map<String, Object> input) {
+        String body = (String) input.get("body");
+        if (body != null && Boolean.TRUE.equals(input.get("isBase64Encoded"))) {
+            return new String(Base64.getDecoder().decode(body), StandardCharsets.UTF_8);
+        }
+        return body;
+    }
+}
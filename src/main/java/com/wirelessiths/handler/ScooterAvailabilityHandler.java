@@ -0,0 +1,133 @@
+package com.wirelessiths.handler;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.wirelessiths.ApiGatewayResponse;
+import com.wirelessiths.Response;
+import com.wirelessiths.codec.Codecs;
+import com.wirelessiths.dal.Booking;
+import com.wirelessiths.dal.IsoTime;
+import com.wirelessiths.dal.timeline.Availability;
+import com.wirelessiths.dal.timeline.ScooterTimeline;
+import com.wirelessiths.dal.timeline.TimelineCache;
+import com.wirelessiths.s3.Settings;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class returns the free slots of a scooter, the timespans a booking can be created in.
+ */
+public class ScooterAvailabilityHandler implements RequestHandler<Map<String, Object>, ApiGatewayResponse> {
+
+	private final Logger logger = LogManager.getLogger(this.getClass());
+
+	static final Duration DEFAULT_RANGE = Duration.ofDays(1);
+	static final Duration MAX_RANGE = Duration.ofDays(31);
+
+	/**
+	 * @param input contains the scooter id as path parameter, from and to as optional query params.
+	 *              from defaults to now and to to one day after from.
+	 * @param context
+	 * @return the availability of the scooter, 400 if from and to are invalid
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public ApiGatewayResponse handleRequest(Map<String, Object> input, Context context) {
+
+		try {
+			if(input.get("warm-up") != null){
+				logger.info("warming up lambda..");
+				return null;
+			}
+			Map<String,String> pathParameters = (Map<String,String>)input.get("pathParameters");
+			String scooterId = pathParameters.get("id");
+			Map<String,String> queryStringParameters = (Map<String,String>)input.get("queryStringParameters");
+
+			int maxDuration = 7200;
+			int buffer = 300;
+			if(!"test".equals(System.getenv("ENVIRONMENT"))){
+				Settings settings = Settings.getSettings();
+				maxDuration = settings.getMaxDuration();
+				buffer = settings.getBuffer();
+			}
+
+			Availability availability = availability(scooterId, queryStringParameters, new Booking(), maxDuration, buffer, Instant.now());
+			return ApiGatewayResponse.builder()
+					.setStatusCode(200)
+					.setObjectBody(availability, Codecs.AVAILABILITY)
+					.setHeaders(Collections.singletonMap("X-Powered-By", "AWS Lambda & Serverless"))
+					.build();
+
+		} catch(DateTimeParseException | IllegalArgumentException ex){
+			logger.info("Invalid query parameter: " + ex.getMessage());
+
+			Response responseBody = new Response("Invalid query parameter: " + ex.getMessage(), input);
+			return ApiGatewayResponse.builder()
+					.setStatusCode(400)
+					.setObjectBody(responseBody)
+					.setHeaders(Collections.singletonMap("X-Powered-By", "AWS Lambda & Serverless"))
+					.build();
+
+		} catch(IOException ex) {
+			logger.error("Error in retrieving availability due to I/O: " + ex);
+			logger.error(ex.getMessage());
+			ex.printStackTrace();
+
+			Response responseBody = new Response("Error in I/O when retrieving availability: " + ex.getMessage(), input);
+			return ApiGatewayResponse.builder()
+					.setStatusCode(500)
+					.setObjectBody(responseBody)
+					.setHeaders(Collections.singletonMap("X-Powered-By", "AWS Lambda & Serverless"))
+					.build();
+
+		} catch(Exception ex) {
+			logger.error("Error in retrieving availability: " + ex);
+			logger.error(ex.getMessage());
+			ex.printStackTrace();
+
+			Response responseBody = new Response("Error in retrieving availability: " + ex.getMessage(), input);
+			return ApiGatewayResponse.builder()
+					.setStatusCode(500)
+					.setObjectBody(responseBody)
+					.setHeaders(Collections.singletonMap("X-Powered-By", "AWS Lambda & Serverless"))
+					.build();
+		}
+	}
+
+	/**
+	 * Reads the free slots of the scooter from its cached timeline. Slots in the past are left out, a free slot
+	 * can be longer than maxDuration, a booking in it can not.
+	 * @param queryStringParameters from and to, both optional, may be null
+	 * @param booking booking object that is sent in to gain access to db methods, also enables local db mock in tests
+	 * @throws IllegalArgumentException if to is not after from or the range is longer than {@link #MAX_RANGE}
+	 */
+	public Availability availability(String scooterId, Map<String, String> queryStringParameters, Booking booking,
+									 int maxDuration, int buffer, Instant now) throws IOException {
+
+		Map<String, String> params = queryStringParameters == null ? Collections.emptyMap() : queryStringParameters;
+		Instant from = params.containsKey("from") ? IsoTime.parseInstant(params.get("from")) : now;
+		if (from.isBefore(now)) {
+			from = now;
+		}
+		Instant to = params.containsKey("to") ? IsoTime.parseInstant(params.get("to")) : from.plus(DEFAULT_RANGE);
+		if (!to.isAfter(from)) {
+			throw new IllegalArgumentException("to must be after from and now");
+		}
+		if (Duration.between(from, to).compareTo(MAX_RANGE) > 0) {
+			throw new IllegalArgumentException("from and to can be at most " + MAX_RANGE.toDays() + " days apart");
+		}
+
+		Duration bufferDuration = Duration.ofSeconds(buffer);
+		ScooterTimeline timeline = TimelineCache.getInstance().get(scooterId, from.minus(bufferDuration), booking);
+		List<ScooterTimeline.Interval> free = timeline.freeSlots(from, to, bufferDuration);
+		return new Availability(scooterId, from, to, buffer, maxDuration, free);
+	}
+}
@@ -3,13 +3,13 @@ package com.wirelessiths.handler;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wirelessiths.ApiGatewayResponse;
 import com.wirelessiths.Response;
+import com.wirelessiths.codec.Codecs;
 import com.wirelessiths.dal.Booking;
 import com.wirelessiths.dal.BookingStatus;
-import com.wirelessiths.service.AuthService;
+import com.wirelessiths.dal.SetBookingStateRequest;
+import com.wirelessiths.service.Principal;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -32,8 +32,11 @@ private final Logger logger = LogManager.getLogger(this.getClass());
 
     @Override
     public ApiGatewayResponse handleRequest(Map<String, Object> input, Context context) {
+        return Idempotency.handle(input, this::setState);
+    }
+
+    private ApiGatewayResponse setState(Map<String, Object> input) {
 
-        String incomingUserId;
         String incomingBookingId;
         String incomingScooterId = null;
         String command;
@@ -42,19 +45,23 @@ private final Logger logger = LogManager.getLogger(this.getClass());
         Booking booking = new Booking();
 
         try{
-           JsonNode body  = new ObjectMapper().readTree((String) input.get("body"));
+           SetBookingStateRequest body = Codecs.SET_BOOKING_STATE_REQUEST.readValue(Requests.body(input));
            @SuppressWarnings("unchecked") Map<String, String> pathParameters = (Map)input.get("pathParameters");
 
-           incomingUserId = AuthService.getUserId(input);
+           Principal principal = Principal.from(input);
            incomingBookingId = pathParameters.get("id");
-           if(body.hasNonNull("scooterId")) {
-               incomingScooterId = body.get("scooterId").asText();
+           incomingScooterId = body.getScooterId();
+           command = body.getCommand();
+           if(command == null) {
+               responseBody = new Response("command is required");
+               return ApiGatewayResponse.builder()
+                       .setStatusCode(400)
+                       .setObjectBody(responseBody)
+                       .build();
            }
-           command = body.get("command").asText();
-           boolean isAdmin = AuthService.isAdmin(input);
            booking = booking.get(incomingBookingId);
 
-            if (!AuthService.isAuthorized(isAdmin, booking.getUserId(), incomingUserId)) {
+            if (!principal.canAccess(booking.getUserId())) {
                 Response responseBodyunAuth = new Response("Unauthorized. You can only view your own bookings or you need to have admin privilege", input);
                 return ApiGatewayResponse.builder()
                         .setStatusCode(403)
@@ -2,18 +2,21 @@ package com.wirelessiths.handler;
 
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wirelessiths.ApiGatewayResponse;
 import com.wirelessiths.Response;
+import com.wirelessiths.codec.Codecs;
 import com.wirelessiths.dal.*;
-import com.wirelessiths.service.AuthService;
+import com.wirelessiths.exception.PreconditionFailedException;
+import com.wirelessiths.exception.UnableToUpdateException;
+import com.wirelessiths.s3.Settings;
+import com.wirelessiths.service.Principal;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.regex.Pattern;
 
@@ -28,18 +31,24 @@ public class UpdateBookingHandler implements RequestHandler<Map<String, Object>,
 
         try {
 
-            ObjectMapper mapper = new ObjectMapper();
             // get the 'pathParameters' from input
             Map<String,String> pathParameters =  (Map<String,String>)input.get("pathParameters");
             String bookingId = pathParameters.get("id");
 
-            boolean isAdmin = AuthService.isAdmin(input);
-            String tokenUserId = AuthService.getUserId(input);
+            Principal principal = Principal.from(input);
 
             // get the Booking by id
             Booking booking = new Booking().get(bookingId);
 
-            if (!AuthService.isAuthorized(isAdmin, booking.getUserId(), tokenUserId)) {
+            if (booking == null) {
+                return ApiGatewayResponse.builder()
+                        .setStatusCode(404)
+                        .setObjectBody("Product with id: '" + bookingId + "' not found.")
+                        .setHeaders(Collections.singletonMap("X-Powered-By", "AWS Lambda & Serverless"))
+                        .build();
+            }
+
+            if (!principal.canAccess(booking.getUserId())) {
                 Response responseBody = new Response("Unauthorized. You can only update your own bookings or you need to have admin privilege", input);
                 return ApiGatewayResponse.builder()
                         .setStatusCode(403)
@@ -47,81 +56,90 @@ public class UpdateBookingHandler implements RequestHandler<Map<String, Object>,
                         .build();
             }
 
-            JsonNode body = new ObjectMapper().readTree((String) input.get("body"));
-
-            UpdateBookingRequest updateBookingRequest = new UpdateBookingRequest();
-
-            //booking = UpdateBookingHandler.setBookingProperties(updateBookingRequest, booking);
-
-
-            boolean isNew = false;
-            Booking updatedBooking = null;
-
-
-            // send the response back
-            if (booking != null) {
-
-                try {
+            if (ConditionalRequests.failsIfMatch(input, booking.etag())) {
+                return ConditionalRequests.preconditionFailed();
+            }
+            // the write fails too if the booking changes after this check
+            boolean matchETag = ConditionalRequests.matchesETag(input);
 
-                    try {
-                        updateBookingRequest =  mapper.treeToValue(body, UpdateBookingRequest.class);
-                    } catch (JsonProcessingException e) {
-                        e.printStackTrace();
-                    }
+            UpdateBookingRequest updateBookingRequest = Codecs.UPDATE_BOOKING_REQUEST.readValue(Requests.body(input));
 
+            Booking updatedBooking = setBookingProperties(updateBookingRequest, booking.copy());
+            // the id stays, a changed scooterId or endTime moves the booking to another key
+            updatedBooking.setBookingId(bookingId);
 
-                    if ( body.has("endTime") || body.has("scooterId")) {
+            try {
 
-                        isNew = true;
+                if (isReschedule(booking, updatedBooking)) {
 
-                        updatedBooking = rewriteBooking(booking);
+                    int maxDuration = 7200;
+                    int buffer = 300;
+                    if(!"test".equals(System.getenv("ENVIRONMENT"))){
+                        Settings settings = Settings.getSettings();
+                        maxDuration = settings.getMaxDuration();
+                        buffer = settings.getBuffer();
                     }
 
-                    if(isNew)  {
-
-                        if(updatedBooking != null) {
-
-                            updatedBooking = setBookingProperties(updateBookingRequest, updatedBooking);
-                            updatedBooking.save(updatedBooking);
-                        }
+                    double duration = Duration.between(updatedBooking.getStartTime(), updatedBooking.getEndTime()).getSeconds();
+                    if (duration > maxDuration) {
+                        String message = "Requested timespan is more than max allowed length,  allowed length: " + maxDuration/60f +
+                                " min, requested length: " +  duration/60f + " min";
+                        return ApiGatewayResponse.builder()
+                                .setStatusCode(409)
+                                .setObjectBody(message)
+                                .setHeaders(Collections.singletonMap("X-Powered-By", "AWS Lambda & Serverless"))
+                                .build();
                     }
-                    else {
 
-                        updatedBooking = booking;
-                        updatedBooking = setBookingProperties(updateBookingRequest, updatedBooking);
-                        updatedBooking.update(updatedBooking);
+                    if (!booking.reschedule(booking, updatedBooking, maxDuration, buffer, matchETag).isEmpty()) {//returns list of infringing bookings
+                        String message = "Scooter with id: " + updatedBooking.getScooterId() + " is not available for the selected timespan";
+                        return ApiGatewayResponse.builder()
+                                .setStatusCode(409)
+                                .setObjectBody(message)
+                                .setHeaders(Collections.singletonMap("X-Powered-By", "AWS Lambda & Serverless"))
+                                .build();
                     }
+                }
+                else {
 
+                    updatedBooking.update(updatedBooking, matchETag);
+                }
 
+            } catch (PreconditionFailedException e) {
 
-                } catch (Exception e) {
+                logger.info("Booking changed since it was read: " + e.getMessage());
+                return ConditionalRequests.preconditionFailed();
 
-                    logger.error("Error in retrieving booking: " + e);
+            } catch (UnableToUpdateException e) {
 
-                    // send the error response back
-                    Response responseBody = new Response("Error in updating booking: ", input);
-                    return ApiGatewayResponse.builder()
-                            .setStatusCode(500)
-                            .setObjectBody(responseBody)
-                            .setHeaders(Collections.singletonMap("X-Powered-By", "AWS Lambda & Serverless"))
-                            .build();
-                }
+                logger.info("Booking changed during update: " + e.getMessage());
 
+                Response responseBody = new Response("Booking or scooter changed during the update, try again", input);
                 return ApiGatewayResponse.builder()
-                        .setStatusCode(200)
-                        .setObjectBody(updatedBooking)
+                        .setStatusCode(409)
+                        .setObjectBody(responseBody)
                         .setHeaders(Collections.singletonMap("X-Powered-By", "AWS Lambda & Serverless"))
                         .build();
-            }
-            else {
 
+            } catch (Exception e) {
+
+                logger.error("Error in retrieving booking: " + e);
+
+                // send the error response back
+                Response responseBody = new Response("Error in updating booking: ", input);
                 return ApiGatewayResponse.builder()
-                        .setStatusCode(404)
-                        .setObjectBody("Product with id: '" + bookingId + "' not found.")
+                        .setStatusCode(500)
+                        .setObjectBody(responseBody)
                         .setHeaders(Collections.singletonMap("X-Powered-By", "AWS Lambda & Serverless"))
                         .build();
             }
 
+            return ApiGatewayResponse.builder()
+                    .setStatusCode(200)
+                    .setObjectBody(updatedBooking, Codecs.BOOKING)
+                    .setHeaders(Collections.singletonMap("X-Powered-By", "AWS Lambda & Serverless"))
+                    .build();
+
         }catch (Exception ex) {
 
             logger.error("Error in retrieving product: " + ex);
@@ -204,23 +222,13 @@ public class UpdateBookingHandler implements RequestHandler<Map<String, Object>,
     }
 
 
-    public static Booking rewriteBooking(Booking booking) {
-
-        boolean isDeleted = false;
-
-        try {
-            Booking newBooking = new Booking().get(booking.getBookingId());
-            isDeleted = booking.delete(booking.getBookingId());
-
-            if(isDeleted) {
-                return newBooking;
-            }
-
-        }catch (Exception e) {
-            e.printStackTrace();
-        }
-
-        return null;
+    /**
+     * @return true if the update moves the booking in time or to another scooter, and has to be checked for conflicts
+     */
+    public static boolean isReschedule(Booking booking, Booking updatedBooking) {
+        return !Objects.equals(booking.getScooterId(), updatedBooking.getScooterId())
+                || !Objects.equals(booking.getStartTime(), updatedBooking.getStartTime())
+                || !Objects.equals(booking.getEndTime(), updatedBooking.getEndTime());
     }
 
 }
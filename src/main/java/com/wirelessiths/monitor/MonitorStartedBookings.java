@@ -4,17 +4,18 @@ import com.amazonaws.services.sns.AmazonSNS;
 
 import com.amazonaws.services.sns.model.MessageAttributeValue;
 import com.wirelessiths.dal.Booking;
-import com.wirelessiths.dal.BookingStatus;
 import com.wirelessiths.s3.Settings;
 import com.wirelessiths.service.UserService;
-import io.github.cdimascio.dotenv.Dotenv;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static com.wirelessiths.service.SNSService.getAmazonSNSClient;
 import static com.wirelessiths.service.SNSService.sendSMSMessage;
@@ -22,7 +23,15 @@ import static com.wirelessiths.service.SNSService.sendSMSMessage;
 public class MonitorStartedBookings {
 
     private final Logger logger = LogManager.getLogger(this.getClass());
-    private Dotenv dotenv = Dotenv.load();
+    private final Notifier notifier;
+
+    public MonitorStartedBookings() {
+        this((message, booking) -> sendMessage(message, booking, System.getenv("USER_POOL_ID")));
+    }
+
+    public MonitorStartedBookings(Notifier notifier) {
+        this.notifier = notifier;
+    }
 
     public void lambdaHandler(){
 
@@ -30,23 +39,7 @@ public class MonitorStartedBookings {
             Settings settings = Settings.getSettings();
             int deadlineSeconds = settings.getNotCheckedOut();
 
-            Booking booking = new Booking();
-            List<Booking> startedBookings = booking.bookingsByStartTime(deadlineSeconds);
-
-            if(startedBookings.isEmpty()){
-                return;
-            }
-
-            logger.info("number of bookings not checked out within time-limit: {} ", startedBookings.size());
-            for(Booking startedBooking: startedBookings){
-                startedBooking.setBookingStatus(BookingStatus.CANCELLED);
-                logger.info("canceling booking: {}", startedBooking);
-                startedBooking.save(startedBooking);
-                logger.info("saving booking");
-                String message = String.format("Your booking was cancelled due to not being activated within the given timespan. ScooterId: %s, StartTime: %s, EndTime: %s",
-                startedBooking.getScooterId(), startedBooking.getStartTime(), startedBooking.getEndTime());
-                sendMessage(message, booking, System.getenv("USER_POOL_ID"));
-            }
+            cancelNotCheckedOut(new Booking(), deadlineSeconds);
 
         }catch(IOException e) {
             logger.info("error when saving booking: {}", e.getMessage());
@@ -56,7 +49,42 @@ public class MonitorStartedBookings {
         }
     }
 
-    private void sendMessage(String message, Booking booking, String userPoolId){
+    /**
+     * Cancels the bookings not activated within deadlineSeconds of their start and tells their users. A booking
+     * activated or otherwise changed since it was read is left alone by {@link Booking#batchCancel(List)}, and its
+     * user is not told anything.
+     * @return the bookings cancelled
+     */
+    public List<Booking> cancelNotCheckedOut(Booking booking, int deadlineSeconds) throws IOException {
+
+        List<Booking> startedBookings = booking.bookingsByStartTime(deadlineSeconds);
+
+        if(startedBookings.isEmpty()){
+            return startedBookings;
+        }
+
+        logger.info("number of bookings not checked out within time-limit: {} ", startedBookings.size());
+        Set<String> changed = new HashSet<>();
+        for (Booking leftAlone : booking.batchCancel(startedBookings)) {
+            changed.add(leftAlone.getBookingId());
+        }
+        List<Booking> cancelled = new ArrayList<>();
+        for (Booking startedBooking : startedBookings) {
+            if (!changed.contains(startedBooking.getBookingId())) {
+                cancelled.add(startedBooking);
+            }
+        }
+        logger.info("cancelled bookings: {} cancelled, {} changed meanwhile", cancelled.size(), changed.size());
+
+        for(Booking cancelledBooking: cancelled){
+            String message = String.format("Your booking was cancelled due to not being activated within the given timespan. ScooterId: %s, StartTime: %s, EndTime: %s",
+            cancelledBooking.getScooterId(), cancelledBooking.getStartTime(), cancelledBooking.getEndTime());
+            notifier.send(message, cancelledBooking);
+        }
+        return cancelled;
+    }
+
+    private static void sendMessage(String message, Booking booking, String userPoolId){
         String phoneNumber = UserService.getUserPhoneNumber(booking.getUserId(), userPoolId);
         AmazonSNS snsClient = getAmazonSNSClient();
         Map<String, MessageAttributeValue> smsAttributes =
@@ -64,4 +92,12 @@ public class MonitorStartedBookings {
         //<set SMS attributes>
         sendSMSMessage(snsClient, message, phoneNumber, smsAttributes);
     }
+
+    /**
+     * Tells the user of a booking a message, by SMS outside of tests.
+     */
+    public interface Notifier {
+
+        void send(String message, Booking booking);
+    }
 }
@@ -0,0 +1,111 @@
+package com.wirelessiths.runtime;
+
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.wirelessiths.ApiGatewayResponse;
+import com.wirelessiths.codec.Codecs;
+import com.wirelessiths.dal.BookingKeysBackfill;
+import com.wirelessiths.dal.LiveBookingCountBackfill;
+import com.wirelessiths.dal.StatusKeyBackfill;
+import com.wirelessiths.handler.BatchBookingsHandler;
+import com.wirelessiths.handler.CreateBookingHandler;
+import com.wirelessiths.handler.DeleteBookingHandler;
+import com.wirelessiths.handler.FindFreeScootersHandler;
+import com.wirelessiths.handler.GetBookingHandler;
+import com.wirelessiths.handler.ListBookingHandler;
+import com.wirelessiths.handler.ListBookingsByUserHandler;
+import com.wirelessiths.handler.ScooterAvailabilityHandler;
+import com.wirelessiths.handler.SetBookingStateHandler;
+import com.wirelessiths.handler.UpdateBookingHandler;
+import com.wirelessiths.monitor.MonitorEndedBookings;
+import com.wirelessiths.monitor.MonitorEndedBookingsTemp;
+import com.wirelessiths.monitor.MonitorStartedBookings;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * The functions of template.yml by their Handler setting. The custom runtime looks a function up here instead of
+ * loading its class by name, which a native image can only do for classes registered for reflection.
+ */
+final class Functions {
+
+    /**
+     * One function of the stack, created once per container.
+     */
+    interface Function {
+
+        /**
+         * @param event the event json lambda passes to the function
+         * @return the response json
+         */
+        String invoke(String event) throws Exception;
+    }
+
+    private static final Map<String, Supplier<Function>> FUNCTIONS = new LinkedHashMap<>();
+
+    static {
+        api(GetBookingHandler.class, GetBookingHandler::new);
+        api(ScooterAvailabilityHandler.class, ScooterAvailabilityHandler::new);
+        api(FindFreeScootersHandler.class, FindFreeScootersHandler::new);
+        api(BatchBookingsHandler.class, BatchBookingsHandler::new);
+        api(ListBookingHandler.class, ListBookingHandler::new);
+        api(ListBookingsByUserHandler.class, ListBookingsByUserHandler::new);
+        api(SetBookingStateHandler.class, SetBookingStateHandler::new);
+        api(DeleteBookingHandler.class, DeleteBookingHandler::new);
+        api(CreateBookingHandler.class, CreateBookingHandler::new);
+        api(UpdateBookingHandler.class, UpdateBookingHandler::new);
+        scheduled(MonitorEndedBookings.class, () -> new MonitorEndedBookings()::lambdaHandler);
+        scheduled(MonitorEndedBookingsTemp.class, () -> new MonitorEndedBookingsTemp()::lambdaHandler);
+        scheduled(MonitorStartedBookings.class, () -> new MonitorStartedBookings()::lambdaHandler);
+        scheduled(StatusKeyBackfill.class, () -> new StatusKeyBackfill()::lambdaHandler);
+        scheduled(BookingKeysBackfill.class, () -> new BookingKeysBackfill()::lambdaHandler);
+        scheduled(LiveBookingCountBackfill.class, () -> new LiveBookingCountBackfill()::lambdaHandler);
+    }
+
+    private Functions() {
+    }
+
+    /**
+     * @param handler the Handler setting of the function, e.g. com.wirelessiths.handler.GetBookingHandler::handleRequest
+     * @throws IllegalArgumentException if there is no such function
+     */
+    static Function create(String handler) {
+        Supplier<Function> function = FUNCTIONS.get(handler);
+        if (function == null) {
+            throw new IllegalArgumentException("unknown handler " + handler);
+        }
+        return function.get();
+    }
+
+    static Set<String> handlers() {
+        return Collections.unmodifiableSet(FUNCTIONS.keySet());
+    }
+
+    /**
+     * Registers an API Gateway function: the event is the proxy request, the response is written like the java
+     * runtime writes an {@link ApiGatewayResponse}.
+     */
+    private static <T extends RequestHandler<Map<String, Object>, ApiGatewayResponse>> void api(Class<T> type, Supplier<T> handler) {
+        FUNCTIONS.put(type.getName() + "::handleRequest", () -> {
+            T instance = handler.get();
+            return event -> Codecs.RESPONSE.writeValueAsString(
+                    instance.handleRequest(Codecs.API_GATEWAY_EVENT.readValue(event), null));
+        });
+    }
+
+    /**
+     * Registers a function run on a schedule or by hand, it ignores the event and returns nothing.
+     */
+    private static void scheduled(Class<?> type, Supplier<Runnable> handler) {
+        FUNCTIONS.put(type.getName() + "::lambdaHandler", () -> {
+            Runnable instance = handler.get();
+            return event -> {
+                instance.run();
+                return "null";
+            };
+        });
+    }
+}
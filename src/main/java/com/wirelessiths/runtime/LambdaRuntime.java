@@ -0,0 +1,178 @@
+package com.wirelessiths.runtime;
+
+import com.wirelessiths.codec.Codecs;
+import org.apache.logging.log4j.ThreadContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bootstrap of the custom lambda runtime, the entry point of the native image. It creates the function named by
+ * _HANDLER and passes it the events of the runtime api at AWS_LAMBDA_RUNTIME_API until the container is stopped.
+ * <p>
+ * With {@code --event <file>} it instead invokes the function named by {@code --handler} with the event in the file,
+ * {@code --repeat} times, prints the last response and reports init time, invocation times and peak memory on
+ * stderr. The same command runs on the jvm build and the native executable, to compare them.
+ */
+public final class LambdaRuntime {
+
+    private static final String RUNTIME_API_VERSION = "2018-06-01";
+
+    private LambdaRuntime() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        long started = System.nanoTime();
+        configureLogging();
+        String handler = option(args, "--handler", System.getenv("_HANDLER"));
+        String event = option(args, "--event", null);
+        if (handler == null) {
+            System.err.println("set _HANDLER or pass --handler, e.g. com.wirelessiths.handler.GetBookingHandler::handleRequest");
+            System.exit(2);
+        }
+        if (event != null) {
+            invokeLocally(handler, event, Integer.parseInt(option(args, "--repeat", "1")), started);
+        } else {
+            serve(System.getenv("AWS_LAMBDA_RUNTIME_API"), handler);
+        }
+    }
+
+    /**
+     * Logs to stdout, which lambda sends to CloudWatch, without the lambda appender of the java runtime, and keeps
+     * log4j from registering JMX beans and walking the stack to find a context, neither of which a native image
+     * supports. Runs before the first logger is created.
+     */
+    private static void configureLogging() {
+        setIfAbsent("log4j.configurationFile", "log4j2-runtime.xml");
+        setIfAbsent("log4j2.disable.jmx", "true");
+        setIfAbsent("Log4jContextSelector", "org.apache.logging.log4j.core.selector.BasicContextSelector");
+    }
+
+    private static void serve(String runtimeApi, String handler) throws IOException {
+        String runtime = "http://" + runtimeApi + "/" + RUNTIME_API_VERSION + "/runtime/";
+        Functions.Function function;
+        try {
+            function = Functions.create(handler);
+        } catch (RuntimeException | Error e) {
+            post(runtime + "init/error", error(e));
+            throw e;
+        }
+        while (true) {
+            HttpURLConnection next = (HttpURLConnection) new URL(runtime + "invocation/next").openConnection();
+            // blocks until there is an event, for as long as the container is frozen
+            next.setReadTimeout(0);
+            String requestId = next.getHeaderField("Lambda-Runtime-Aws-Request-Id");
+            String traceId = next.getHeaderField("Lambda-Runtime-Trace-Id");
+            String event = read(next.getInputStream());
+            if (traceId != null) {
+                System.setProperty("com.amazonaws.xray.traceHeader", traceId);
+            }
+            ThreadContext.put("AWSRequestId", requestId);
+            try {
+                post(runtime + "invocation/" + requestId + "/response", function.invoke(event));
+            } catch (Exception e) {
+                post(runtime + "invocation/" + requestId + "/error", error(e));
+            } finally {
+                ThreadContext.remove("AWSRequestId");
+            }
+        }
+    }
+
+    private static void invokeLocally(String handler, String eventFile, int repeat, long started) throws Exception {
+        String event = new String(Files.readAllBytes(Paths.get(eventFile)), StandardCharsets.UTF_8);
+        Functions.Function function = Functions.create(handler);
+        long initialized = System.nanoTime();
+        String response = null;
+        long first = 0;
+        long total = 0;
+        for (int i = 0; i < repeat; i++) {
+            long start = System.nanoTime();
+            response = function.invoke(event);
+            long took = System.nanoTime() - start;
+            first = i == 0 ? took : first;
+            total += took;
+        }
+        System.out.println(response);
+        System.err.printf("init %.1f ms, first invocation %.1f ms, mean of %d %.1f ms, peak rss %s%n",
+                millis(initialized - started), millis(first), repeat, millis(total / repeat), peakRss());
+    }
+
+    /**
+     * @return VmHWM of /proc/self/status, the most resident memory the process had, or "unknown" off linux
+     */
+    private static String peakRss() {
+        try {
+            List<String> status = Files.readAllLines(Paths.get("/proc/self/status"));
+            for (String line : status) {
+                if (line.startsWith("VmHWM:")) {
+                    return line.substring("VmHWM:".length()).trim();
+                }
+            }
+        } catch (IOException e) {
+            // not on linux
+        }
+        return "unknown";
+    }
+
+    private static String error(Throwable e) throws IOException {
+        Map<String, String> error = new LinkedHashMap<>();
+        error.put("errorMessage", String.valueOf(e.getMessage()));
+        error.put("errorType", e.getClass().getName());
+        return Codecs.RESPONSE.writeValueAsString(error);
+    }
+
+    private static void post(String url, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        // read the answer so the connection is reused for the next event
+        read(connection.getResponseCode() >= 400 ? connection.getErrorStream() : connection.getInputStream());
+    }
+
+    private static String read(InputStream in) throws IOException {
+        if (in == null) {
+            return "";
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream input = in) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String option(String[] args, String name, String defaultValue) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (name.equals(args[i])) {
+                return args[i + 1];
+            }
+        }
+        return defaultValue;
+    }
+
+    private static void setIfAbsent(String property, String value) {
+        if (System.getProperty(property) == null) {
+            System.setProperty(property, value);
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000d;
+    }
+}
@@ -0,0 +1,106 @@
+package com.wirelessiths.runtime;
+
+import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.wirelessiths.ApiGatewayResponse;
+import com.wirelessiths.Response;
+import com.wirelessiths.codec.Codecs;
+import com.wirelessiths.dal.Booking;
+import com.wirelessiths.dal.BookingStatus;
+import com.wirelessiths.dal.DynamoDBAdapter;
+import com.wirelessiths.dal.cache.BookingCache;
+import com.wirelessiths.dal.cache.ListCache;
+import com.wirelessiths.dal.timeline.FleetOccupancy;
+import com.wirelessiths.dal.timeline.TimelineCache;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.crac.Context;
+import org.crac.Core;
+import org.crac.Resource;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+
+/**
+ * Checkpoint and restore hooks of a jvm that is snapshotted once warm and started from the snapshot, like a jdk
+ * with CRaC does. Without such a jdk the hooks are never called.
+ * <p>
+ * Before the checkpoint the work every cold start repeats is done once: the DynamoDB client is created, the mapper
+ * metadata of {@link Booking} is built and the {@link Codecs} serialize and parse once. The pooled connections of
+ * the client are closed, a checkpoint fails with open sockets, and the per container caches are emptied so no
+ * bookings are kept in the snapshot.
+ * <p>
+ * After the restore the credentials are refreshed, every restored copy must resolve its own. Booking ids come from
+ * {@link java.util.UUID#randomUUID()}, a SecureRandom reading the entropy of the os, so the copies do not repeat
+ * each other's ids. Settings and the OAuth tokens of the monitors are not cached, they are read on every call.
+ */
+public final class Priming implements Resource {
+
+    private static final Logger logger = LogManager.getLogger(Priming.class);
+
+    // the global context only keeps weak references to its resources
+    private static final Priming INSTANCE = new Priming();
+    private static boolean registered = false;
+
+    private Priming() {
+    }
+
+    /**
+     * Registers the hooks with the global context, once per jvm.
+     */
+    public static synchronized void register() {
+        if (!registered) {
+            Core.getGlobalContext().register(INSTANCE);
+            registered = true;
+        }
+    }
+
+    @Override
+    public void beforeCheckpoint(Context<? extends Resource> context) throws Exception {
+        prime();
+    }
+
+    @Override
+    public void afterRestore(Context<? extends Resource> context) {
+        refresh();
+    }
+
+    static void prime() throws IOException {
+        long started = System.nanoTime();
+        DynamoDBAdapter adapter = DynamoDBAdapter.getInstance();
+        adapter.reconnect();
+
+        Booking sample = new Booking();
+        Instant start = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        sample.setBookingId("priming");
+        sample.setScooterId("priming");
+        sample.setUserId("priming");
+        sample.setStartTime(start);
+        sample.setEndTime(start.plus(1, ChronoUnit.HOURS));
+        sample.setBookingStatus(BookingStatus.VALID);
+        adapter.createDbMapper(DynamoDBMapperConfig.DEFAULT).getTableModel(Booking.class).convert(sample);
+
+        String json = Codecs.BOOKING.writeValueAsString(sample);
+        Codecs.CREATE_BOOKING_REQUEST.readValue(json);
+        Codecs.BOOKINGS.writeValueAsString(Collections.singletonList(sample));
+        Codecs.API_GATEWAY_EVENT.readValue("{\"pathParameters\":{\"id\":\"priming\"}}");
+        Codecs.RESPONSE.writeValueAsString(ApiGatewayResponse.builder()
+                .setStatusCode(200)
+                .setObjectBody(new Response("priming"))
+                .build());
+
+        BookingCache.getInstance().clear();
+        ListCache.getInstance().clear();
+        TimelineCache.getInstance().clear();
+        FleetOccupancy.getInstance().clear();
+        logger.info("primed for the checkpoint in {} ms", (System.nanoTime() - started) / 1_000_000);
+    }
+
+    static void refresh() {
+        // the instance the client builders fall back to without a provider of their own
+        DefaultAWSCredentialsProviderChain.getInstance().refresh();
+        logger.info("refreshed the credentials after the restore");
+    }
+}
@@ -1,7 +1,10 @@
 package com.wirelessiths.s3;
 
+import com.wirelessiths.dal.Async;
+
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static com.wirelessiths.s3.ReadFile.readFileInBucket;
 
@@ -76,4 +79,11 @@ public class Settings {
 
         return settings;
     }
+
+    /**
+     * {@link #getSettings()} on the {@link Async} pool, to read the settings while the database is queried.
+     */
+    public static CompletableFuture<Settings> getSettingsAsync() {
+        return Async.supply(Settings::getSettings);
+    }
 }
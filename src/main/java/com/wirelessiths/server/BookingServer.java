@@ -0,0 +1,336 @@
+package com.wirelessiths.server;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.wirelessiths.ApiGatewayResponse;
+import com.wirelessiths.Response;
+import com.wirelessiths.dal.DynamoDBAdapter;
+import com.wirelessiths.handler.BatchBookingsHandler;
+import com.wirelessiths.handler.CreateBookingHandler;
+import com.wirelessiths.handler.DeleteBookingHandler;
+import com.wirelessiths.handler.FindFreeScootersHandler;
+import com.wirelessiths.handler.GetBookingHandler;
+import com.wirelessiths.handler.ListBookingHandler;
+import com.wirelessiths.handler.ListBookingsByUserHandler;
+import com.wirelessiths.handler.ScooterAvailabilityHandler;
+import com.wirelessiths.handler.SetBookingStateHandler;
+import com.wirelessiths.handler.UpdateBookingHandler;
+import com.wirelessiths.runtime.Priming;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.crac.Context;
+import org.crac.Core;
+import org.crac.Resource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves the booking api from one long lived jvm instead of a lambda per endpoint. Every request is turned into
+ * the input map API Gateway hands to a lambda and passed to the same handler template.yml deploys, so the
+ * containers' caches and the DynamoDB connection pool are shared by all endpoints.
+ * <p>
+ * Handlers block on DynamoDB, so requests run on a large pool of threads, {@value #DEFAULT_THREADS} by default, and
+ * the DynamoDB client gets as many connections. Settings are read from the environment, next to the ones the
+ * handlers read:
+ * <ul>
+ * <li>SERVER_PORT - default {@value #DEFAULT_PORT}</li>
+ * <li>SERVER_THREADS - requests handled at the same time, default {@value #DEFAULT_THREADS}</li>
+ * <li>SERVER_CLAIM_HEADERS - true to take the caller's claims from the {@value #SUB_HEADER} and
+ * {@value #GROUPS_HEADER} headers, default false</li>
+ * </ul>
+ * There is no Cognito authorizer in front of the server. Only trust the claim headers behind a proxy that
+ * authenticates the caller and sets them, or locally. Without them every request is made as the default user of
+ * {@link com.wirelessiths.service.Principal}, like with sam local.
+ * <p>
+ * On a jdk with CRaC the server can be checkpointed once warm, see {@link Priming}. It closes its socket before the
+ * checkpoint and listens on the same address again after the restore.
+ */
+public class BookingServer implements Resource {
+
+    static final int DEFAULT_PORT = 8080;
+    static final int DEFAULT_THREADS = 256;
+    static final String SUB_HEADER = "X-Claim-Sub";
+    static final String GROUPS_HEADER = "X-Claim-Groups";
+    // the largest payload a lambda accepts
+    static final int MAX_BODY_BYTES = 6 * 1024 * 1024;
+
+    private static final Map<String, String> HEADERS = Collections.singletonMap("X-Powered-By", "AWS Lambda & Serverless");
+
+    private final Logger logger = LogManager.getLogger(this.getClass());
+
+    private final List<Route> routes;
+    private final boolean trustClaimHeaders;
+    private HttpServer server;
+    private ExecutorService executor;
+    private InetSocketAddress address;
+    private int threads;
+
+    BookingServer(List<Route> routes, boolean trustClaimHeaders) {
+        this.routes = routes;
+        this.trustClaimHeaders = trustClaimHeaders;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = intEnv("SERVER_PORT", DEFAULT_PORT);
+        int threads = intEnv("SERVER_THREADS", DEFAULT_THREADS);
+        if (System.getProperty(DynamoDBAdapter.MAX_CONNECTIONS) == null) {
+            System.setProperty(DynamoDBAdapter.MAX_CONNECTIONS, String.valueOf(threads));
+        }
+        // create the client before the first requests race for it
+        DynamoDBAdapter.getInstance();
+
+        BookingServer bookingServer = new BookingServer(routes(), "true".equals(System.getenv("SERVER_CLAIM_HEADERS")));
+        bookingServer.start(new InetSocketAddress(port), threads);
+        Runtime.getRuntime().addShutdownHook(new Thread(bookingServer::stop));
+        // resources are called in the reverse order before a checkpoint, the server stops before priming
+        Priming.register();
+        Core.getGlobalContext().register(bookingServer);
+    }
+
+    @Override
+    public void beforeCheckpoint(Context<? extends Resource> context) {
+        stop();
+    }
+
+    @Override
+    public void afterRestore(Context<? extends Resource> context) throws IOException {
+        start(address, threads);
+    }
+
+    /**
+     * The API events of template.yml. Routes are matched in order, a resource with a literal segment comes before
+     * one with a parameter in its place, like API Gateway prefers it.
+     */
+    static List<Route> routes() {
+        GetBookingHandler getBooking = new GetBookingHandler();
+        ListBookingHandler listBookings = new ListBookingHandler();
+        CreateBookingHandler createBooking = new CreateBookingHandler();
+        UpdateBookingHandler updateBooking = new UpdateBookingHandler();
+        DeleteBookingHandler deleteBooking = new DeleteBookingHandler();
+        return Arrays.asList(
+                new Route("POST", "/bookings/batch/{operation}", new BatchBookingsHandler()),
+                new Route("POST", "/bookings/{id}/state", new SetBookingStateHandler()),
+                new Route("GET", "/bookings/{id}", getBooking),
+                new Route("PUT", "/bookings/{id}", updateBooking),
+                new Route("DELETE", "/bookings/{id}", deleteBooking),
+                new Route("GET", "/bookings", listBookings),
+                new Route("POST", "/bookings", createBooking),
+                new Route("GET", "/scooters/availability", new FindFreeScootersHandler()),
+                new Route("GET", "/scooters/{id}/availability", new ScooterAvailabilityHandler()),
+                new Route("GET", "/users/{id}/bookings", new ListBookingsByUserHandler()));
+    }
+
+    void start(InetSocketAddress address, int threads) throws IOException {
+        // headers and body are written separately, with Nagle's algorithm the body waits for the client's delayed ack
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads,
+                runnable -> new Thread(runnable, "bookings-server-" + threadNumber.incrementAndGet()));
+        server = HttpServer.create(address, threads);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+        // the bound address, with the port chosen for port 0
+        this.address = server.getAddress();
+        this.threads = threads;
+        logger.info("serving {} routes on {} with {} threads", routes.size(), server.getAddress(), threads);
+    }
+
+    /**
+     * Stops accepting requests and waits up to 10 seconds for the ones in progress.
+     */
+    void stop() {
+        if (server == null) {
+            return;
+        }
+        server.stop(0);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            write(exchange, dispatch(exchange));
+        } catch (Exception e) {
+            logger.error("failed to serve {} {}", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+            write(exchange, error(502, "Internal server error"));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private ApiGatewayResponse dispatch(HttpExchange exchange) throws IOException {
+        String[] rawPath = Route.split(exchange.getRequestURI().getRawPath());
+        String[] path = new String[rawPath.length];
+        for (int i = 0; i < rawPath.length; i++) {
+            path[i] = decode(rawPath[i]);
+        }
+        List<String> allowed = new ArrayList<>();
+        for (Route route : routes) {
+            Map<String, String> pathParameters = route.match(path);
+            if (pathParameters == null) {
+                continue;
+            }
+            if (!route.getMethod().equalsIgnoreCase(exchange.getRequestMethod())) {
+                allowed.add(route.getMethod());
+                continue;
+            }
+            byte[] body = readBody(exchange.getRequestBody());
+            if (body.length > MAX_BODY_BYTES) {
+                return error(413, "Request body is too large");
+            }
+            String text = body.length == 0 ? null : new String(body, StandardCharsets.UTF_8);
+            return route.getHandler().handleRequest(input(route, pathParameters, exchange, text), null);
+        }
+        if (!allowed.isEmpty()) {
+            exchange.getResponseHeaders().set("Allow", String.join(", ", allowed));
+            return error(405, "Method not allowed");
+        }
+        return error(404, "Not found");
+    }
+
+    /**
+     * Builds the input API Gateway hands to a lambda for the request. Headers are looked up ignoring case, the
+     * claim headers are moved to requestContext.authorizer.claims if they are trusted and dropped otherwise.
+     */
+    Map<String, Object> input(Route route, Map<String, String> pathParameters, HttpExchange exchange, String body) {
+        Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (Map.Entry<String, List<String>> header : exchange.getRequestHeaders().entrySet()) {
+            if (!header.getValue().isEmpty()) {
+                headers.put(header.getKey(), header.getValue().get(0));
+            }
+        }
+        Map<String, String> claims = new HashMap<>();
+        String sub = headers.remove(SUB_HEADER);
+        String groups = headers.remove(GROUPS_HEADER);
+        if (trustClaimHeaders && sub != null) {
+            claims.put("sub", sub);
+            if (groups != null) {
+                claims.put("cognito:groups", groups);
+            }
+        }
+
+        Map<String, Object> input = new HashMap<>();
+        input.put("resource", route.getResource());
+        input.put("path", exchange.getRequestURI().getPath());
+        input.put("httpMethod", route.getMethod());
+        input.put("headers", headers);
+        input.put("queryStringParameters", queryStringParameters(exchange.getRequestURI().getRawQuery()));
+        input.put("pathParameters", pathParameters.isEmpty() ? null : pathParameters);
+        input.put("body", body);
+        Map<String, Object> requestContext = new HashMap<>();
+        if (!claims.isEmpty()) {
+            requestContext.put("authorizer", Collections.singletonMap("claims", claims));
+        }
+        input.put("requestContext", requestContext);
+        return input;
+    }
+
+    /**
+     * @return the parameters of the query, the last value of a repeated one, or null if there are none like API
+     * Gateway passes them
+     */
+    static Map<String, String> queryStringParameters(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return null;
+        }
+        Map<String, String> parameters = new HashMap<>();
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int separator = pair.indexOf('=');
+            String name = decode(separator < 0 ? pair : pair.substring(0, separator));
+            parameters.put(name, separator < 0 ? "" : decode(pair.substring(separator + 1)));
+        }
+        return parameters.isEmpty() ? null : parameters;
+    }
+
+    /**
+     * Decodes %XX escapes. A + stays a +, like API Gateway decodes paths and queries, so offsets such as
+     * 10:00+02:00 arrive intact.
+     */
+    static String decode(String value) {
+        try {
+            return URLDecoder.decode(value.replace("+", "%2B"), "UTF-8");
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return value;
+        }
+    }
+
+    /**
+     * @return the body, read up to one byte past the limit
+     */
+    private static byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while (out.size() <= MAX_BODY_BYTES && (read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static void write(HttpExchange exchange, ApiGatewayResponse response) throws IOException {
+        String body = response.getBody();
+        byte[] bytes = body == null ? new byte[0]
+                : response.isIsBase64Encoded() ? Base64.getDecoder().decode(body)
+                : body.getBytes(StandardCharsets.UTF_8);
+        Headers headers = exchange.getResponseHeaders();
+        if (response.getHeaders() != null) {
+            response.getHeaders().forEach(headers::set);
+        }
+        if (bytes.length > 0 && !headers.containsKey("Content-Type")) {
+            headers.set("Content-Type", "application/json");
+        }
+        exchange.sendResponseHeaders(response.getStatusCode(), bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static ApiGatewayResponse error(int statusCode, String message) {
+        return ApiGatewayResponse.builder()
+                .setStatusCode(statusCode)
+                .setObjectBody(new Response(message))
+                .setHeaders(HEADERS)
+                .build();
+    }
+
+    private static int intEnv(String name, int defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isEmpty() ? defaultValue : Integer.parseInt(value);
+    }
+}
@@ -0,0 +1,75 @@
+package com.wirelessiths.server;
+
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.wirelessiths.ApiGatewayResponse;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One API event of template.yml: a method, a resource path with {name} parameters, and the handler of the function
+ * it invokes.
+ */
+class Route {
+
+    private final String method;
+    private final String resource;
+    private final String[] segments;
+    private final RequestHandler<Map<String, Object>, ApiGatewayResponse> handler;
+
+    Route(String method, String resource, RequestHandler<Map<String, Object>, ApiGatewayResponse> handler) {
+        this.method = method;
+        this.resource = resource;
+        this.segments = split(resource);
+        this.handler = handler;
+    }
+
+    String getMethod() {
+        return method;
+    }
+
+    String getResource() {
+        return resource;
+    }
+
+    RequestHandler<Map<String, Object>, ApiGatewayResponse> getHandler() {
+        return handler;
+    }
+
+    /**
+     * @param path decoded segments of the request path, see {@link #split(String)}
+     * @return the path parameters if the path matches the resource, null if it does not
+     */
+    Map<String, String> match(String[] path) {
+        if (path.length != segments.length) {
+            return null;
+        }
+        Map<String, String> pathParameters = new HashMap<>();
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if (segment.startsWith("{") && segment.endsWith("}")) {
+                if (path[i].isEmpty()) {
+                    return null;
+                }
+                pathParameters.put(segment.substring(1, segment.length() - 1), path[i]);
+            } else if (!segment.equals(path[i])) {
+                return null;
+            }
+        }
+        return pathParameters;
+    }
+
+    /**
+     * @return the segments between the slashes, without the leading and trailing slash
+     */
+    static String[] split(String path) {
+        int start = path.startsWith("/") ? 1 : 0;
+        int end = path.endsWith("/") && path.length() > start ? path.length() - 1 : path.length();
+        return start >= end ? new String[0] : path.substring(start, end).split("/", -1);
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + resource;
+    }
+}
@@ -0,0 +1,141 @@
+package com.wirelessiths.service;
+
+import java.util.*;
+
+/**
+ * The caller of a request, read once from the cognito claims in requestContext.authorizer.claims.
+ * Handlers should create one Principal per invocation and ask it for authorization decisions,
+ * instead of walking the input map on every check.
+ */
+public class Principal {
+
+    public static final String ADMIN = "admin";
+    static final String DEFAULT_USER_ID = "sam-bot";
+
+    private final String userId;
+    private final String groups;
+    private final boolean admin;
+
+    Principal(String userId, String groups) {
+        this.userId = userId;
+        this.groups = groups;
+        this.admin = hasGroup(groups, ADMIN);
+    }
+
+    /**
+     * Reads the claims from a lambda request.
+     * @param input The request from lambda
+     * @return the principal, with userId "sam-bot" and no groups if the request has no claims
+     * The input Map is always constructed in this way, therefore unchecked class cast is suppressed.
+     */
+    @SuppressWarnings("unchecked")
+    public static Principal from(Map<String, Object> input) {
+        Map<String, String> claims = Optional.ofNullable(input)
+                .map(m -> (Map<String, Map>) m.get("requestContext"))
+                .map(m -> (Map<String, Map>) m.get("authorizer"))
+                .map(m -> (Map<String, String>) m.get("claims"))
+                .orElse(Collections.emptyMap());
+
+        String sub = claims.get("sub");
+        String cognitoGroups = claims.get("cognito:groups");
+        return new Principal(sub != null ? sub : DEFAULT_USER_ID, cognitoGroups != null ? cognitoGroups : "");
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public boolean isAdmin() {
+        return admin;
+    }
+
+    /**
+     * @param group name of a cognito group
+     * @return true if the caller is a member of the group
+     */
+    public boolean hasRole(String group) {
+        return ADMIN.equals(group) ? admin : hasGroup(groups, group);
+    }
+
+    /**
+     * @param roles names of cognito groups
+     * @return true if the caller is a member of at least one of the groups
+     */
+    public boolean hasAnyRole(String... roles) {
+        for (String role : roles) {
+            if (hasRole(role)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param ownerUserId userId of the owner of a resource
+     * @return true if the caller is admin or owns the resource
+     */
+    public boolean canAccess(String ownerUserId) {
+        return admin || userId.equals(ownerUserId);
+    }
+
+    /**
+     * @return all groups the caller is a member of
+     */
+    public Set<String> getRoles() {
+        Set<String> roles = new LinkedHashSet<>();
+        int i = 0;
+        int length = groups.length();
+        while (i < length) {
+            while (i < length && isSeparator(groups.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && !isSeparator(groups.charAt(i))) {
+                i++;
+            }
+            if (i > start) {
+                roles.add(groups.substring(start, i));
+            }
+        }
+        return Collections.unmodifiableSet(roles);
+    }
+
+    /**
+     * Scans a cognito:groups claim for a group without copying or parsing it.
+     * The claim comes either as a single group, a comma separated list or a json array, e.g. "admin",
+     * "admin,users" or "[\"admin\", \"users\"]". Brackets, quotes, commas and whitespace separate groups.
+     * @param groups the raw claim value
+     * @param group the group to look for
+     * @return true if the group is in the claim
+     */
+    static boolean hasGroup(String groups, String group) {
+        int length = groups.length();
+        int groupLength = group.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && isSeparator(groups.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && !isSeparator(groups.charAt(i))) {
+                i++;
+            }
+            if (i - start == groupLength && groups.regionMatches(start, group, 0, groupLength)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ',' || c == '"' || c == '[' || c == ']' || Character.isWhitespace(c);
+    }
+
+    @Override
+    public String toString() {
+        return "Principal{" +
+                "userId='" + userId + '\'' +
+                ", groups='" + groups + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,102 @@
+package com.wirelessiths;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.wirelessiths.codec.Codecs;
+import com.wirelessiths.codec.ETags;
+import com.wirelessiths.dal.Booking;
+import com.wirelessiths.dal.BookingStatus;
+import com.wirelessiths.dal.CreateBookingRequest;
+import com.wirelessiths.dal.ListConverter;
+import com.wirelessiths.dal.SetBookingStateRequest;
+import com.wirelessiths.dal.UpdateBookingRequest;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class CodecsTest {
+
+    @Test
+    public void readsCreateBookingRequestAndIgnoresUnknownFields() throws IOException {
+
+        String body = "{\"scooterId\":\"876rty\",\"startTime\":\"2019-08-30T15:00:36.739Z\"," +
+                "\"endTime\":\"2019-08-30T16:00:36.739Z\",\"userId\":\"ignored\"}";
+
+        CreateBookingRequest request = Codecs.CREATE_BOOKING_REQUEST.readValue(body);
+
+        assertEquals("876rty", request.getScooterId());
+        assertEquals(Instant.parse("2019-08-30T15:00:36.739Z"), request.getStartTime());
+        assertEquals(Instant.parse("2019-08-30T16:00:36.739Z"), request.getEndTime());
+        assertTrue(request.isComplete());
+    }
+
+    @Test
+    public void createBookingRequestIsIncompleteWithoutScooterId() throws IOException {
+
+        String body = "{\"startTime\":\"2019-08-30T15:00:36.739Z\",\"endTime\":\"2019-08-30T16:00:36.739Z\"}";
+
+        assertFalse(Codecs.CREATE_BOOKING_REQUEST.<CreateBookingRequest>readValue(body).isComplete());
+    }
+
+    @Test
+    public void readsSetBookingStateAndUpdateRequests() throws IOException {
+
+        SetBookingStateRequest state = Codecs.SET_BOOKING_STATE_REQUEST.readValue("{\"command\":\"activate\",\"scooterId\":\"1234\"}");
+        assertEquals("activate", state.getCommand());
+        assertEquals("1234", state.getScooterId());
+
+        UpdateBookingRequest update = Codecs.UPDATE_BOOKING_REQUEST.readValue("{\"startTime\":\"2019-08-30T15:00:36.739Z\"}");
+        assertEquals("2019-08-30T15:00:36.739Z", update.getStartTime().orElse(""));
+        assertFalse(update.getEndTime().isPresent());
+    }
+
+    @Test
+    public void writesBookingTimesAsIsoStrings() throws IOException {
+
+        Booking booking = new Booking();
+        booking.setScooterId("1");
+        booking.setStartTime(Instant.parse("2019-09-02T14:00:00Z"));
+        booking.setEndTime(Instant.parse("2019-09-02T15:00:00Z"));
+        booking.setBookingStatus(BookingStatus.VALID);
+
+        String json = Codecs.BOOKING.writeValueAsString(booking);
+
+        assertTrue(json.contains("\"startTime\":\"2019-09-02T14:00:00Z\""));
+        assertTrue(json.contains("\"startDate\":\"2019-09-02\""));
+        assertTrue(json.contains("\"bookingStatus\":\"VALID\""));
+    }
+
+    @Test
+    public void tagsItemsByTheirAttributesInAnyOrder() {
+        Map<String, AttributeValue> item = new LinkedHashMap<>();
+        item.put("scooterId", new AttributeValue("1"));
+        item.put("bookingStatus", new AttributeValue("VALID"));
+        Map<String, AttributeValue> reversed = new LinkedHashMap<>();
+        reversed.put("bookingStatus", new AttributeValue("VALID"));
+        reversed.put("scooterId", new AttributeValue("1"));
+        reversed.put("startDate", new AttributeValue("2019-09-02"));
+
+        Set<String> derived = Collections.singleton("startDate");
+        assertEquals(ETags.of(item, derived), ETags.of(reversed, derived));
+        assertNotEquals(ETags.of(item, derived), ETags.of(reversed, Collections.emptySet()));
+
+        item.put("bookingStatus", new AttributeValue("ACTIVE"));
+        assertNotEquals(ETags.of(item, derived), ETags.of(reversed, derived));
+        // a string and a number with the same digits are different values
+        assertNotEquals(ETags.of(Collections.singletonMap("v", new AttributeValue("1")), derived),
+                ETags.of(Collections.singletonMap("v", new AttributeValue().withN("1")), derived));
+    }
+
+    @Test
+    public void convertsABookingWithoutTrips() {
+        ListConverter converter = new ListConverter();
+        assertEquals("null", converter.convert(null));
+        assertNull(converter.unconvert("null"));
+    }
+}
@@ -8,6 +8,7 @@ import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
 import com.amazonaws.services.dynamodbv2.document.DynamoDB;
 import com.amazonaws.services.dynamodbv2.document.Table;
 import com.amazonaws.services.dynamodbv2.model.*;
+import com.wirelessiths.dal.BookingKeys;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -32,10 +33,13 @@ public class BookingTestBase {
     protected static void deleteTable(String tableName, AmazonDynamoDB client){
 
         Table table = new DynamoDB(client).getTable(tableName);
+        Table keysTable = new DynamoDB(client).getTable(BookingKeys.tableName(tableName));
         try {
             System.out.println("deleting table..");
             table.delete();
             table.waitForDelete();
+            keysTable.delete();
+            keysTable.waitForDelete();
             System.out.print("table deleted.");
 
         }
@@ -175,6 +179,7 @@ public class BookingTestBase {
                     //.withLocalSecondaryIndexes(localSecondaryIndexes)
                     .withAttributeDefinitions(attributeDefinitions);
             client.createTable(createTableRequest);
+            client.createTable(BookingKeys.createTableRequest(tableName));
         }catch(Exception e){
             System.out.println("error creating table: " + e.getMessage());
 
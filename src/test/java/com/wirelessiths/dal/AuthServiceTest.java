@@ -2,6 +2,7 @@ package com.wirelessiths.dal;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wirelessiths.service.AuthService;
+import com.wirelessiths.service.Principal;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.junit.Ignore;
@@ -169,6 +170,63 @@ public class AuthServiceTest {
 
     }
 
+    @Test
+    public void principalHasRolesFromJsonArray() {
+
+        innerMost.put("sub", "1234");
+        innerMost.put("cognito:groups", "[\"support\", \"users\"]");
+        middle.put("claims", innerMost);
+        middleOut.put("authorizer", middle);
+        mostOut.put("requestContext", middleOut);
+
+        Principal principal = Principal.from(mostOut);
+        assertEquals("1234", principal.getUserId());
+        assertFalse(principal.isAdmin());
+        assertTrue(principal.hasRole("support"));
+        assertTrue(principal.hasAnyRole("admin", "users"));
+        assertFalse(principal.hasRole("use"));
+        assertEquals(new LinkedHashSet<>(Arrays.asList("support", "users")), principal.getRoles());
+    }
+
+    @Test
+    public void principalIsAdminWhenGroupsHaveSpacesAfterCommas() {
+
+        innerMost.put("cognito:groups", "users, admin");
+        middle.put("claims", innerMost);
+        middleOut.put("authorizer", middle);
+        mostOut.put("requestContext", middleOut);
+
+        assertTrue(Principal.from(mostOut).isAdmin());
+    }
+
+    @Test
+    public void principalIsNotAdminWhenGroupOnlyStartsWithAdmin() {
+
+        innerMost.put("cognito:groups", "administrators");
+        middle.put("claims", innerMost);
+        middleOut.put("authorizer", middle);
+        mostOut.put("requestContext", middleOut);
+
+        assertFalse(Principal.from(mostOut).isAdmin());
+    }
+
+    @Test
+    public void principalCanOnlyAccessOwnResourcesUnlessAdmin() {
+
+        innerMost.put("sub", "1234");
+        middle.put("claims", innerMost);
+        middleOut.put("authorizer", middle);
+        mostOut.put("requestContext", middleOut);
+
+        Principal principal = Principal.from(mostOut);
+        assertTrue(principal.canAccess("1234"));
+        assertFalse(principal.canAccess("5678"));
+        assertFalse(principal.canAccess(null));
+
+        innerMost.put("cognito:groups", "admin");
+        assertTrue(Principal.from(mostOut).canAccess("5678"));
+    }
+
     @Test
     public void getPhoneNumberFromCognito() {
         User user = new User();
@@ -0,0 +1,134 @@
+package com.wirelessiths.dal;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.wirelessiths.handler.BatchBookingsHandler;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BatchWriteTest {
+
+    private static AmazonDynamoDB client;
+    private static DynamoDBMapperConfig mapperConfig;
+    private static String tableName = "batch-write-test-table";
+
+    @BeforeClass
+    public static void setUpClientAndTable() {
+        client = LocalDbHandler.createClient();
+        mapperConfig = LocalDbHandler.createMapperConfig(tableName);
+        LocalDbHandler.deleteTable(tableName, client);
+        LocalDbHandler.createTable(tableName, client);
+    }
+
+    @AfterClass
+    public static void deleteTable() {
+        LocalDbHandler.deleteTable(tableName, client);
+    }
+
+    @Test
+    public void cancelsBookingsByIdInChunks() throws Exception {
+
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            ids.add(save("cancel-" + i, Instant.parse("2019-09-03T10:00:00Z").plusSeconds(i * 60L)).getBookingId());
+        }
+        List<String> requested = new ArrayList<>(ids);
+        requested.add("no-such-booking");
+        BatchBookingRequest request = new BatchBookingRequest();
+        request.setBookingIds(requested);
+
+        BatchBookingResult result = new BatchBookingsHandler()
+                .process("cancel", request, new Booking(client, mapperConfig), Instant.now());
+
+        assertEquals(60, result.getProcessed().size());
+        assertEquals(Collections.singletonList("no-such-booking"), result.getNotFound());
+        for (Booking booking : new Booking(client, mapperConfig).getAll(ids)) {
+            assertEquals(BookingStatus.CANCELLED, booking.getBookingStatus());
+        }
+    }
+
+    @Test
+    public void deletesBookingsOfScooterThatHaveNotEnded() throws Exception {
+
+        Instant now = Instant.parse("2019-09-04T12:00:00Z");
+        Booking ended = save("delete", now.minusSeconds(7200));
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            ids.add(save("delete", now.plusSeconds(i * 3600L)).getBookingId());
+        }
+        BatchBookingRequest request = new BatchBookingRequest();
+        request.setScooterId("delete");
+
+        BatchBookingResult result = new BatchBookingsHandler()
+                .process("delete", request, new Booking(client, mapperConfig), now);
+
+        assertEquals(30, result.getProcessed().size());
+        Booking dal = new Booking(client, mapperConfig);
+        assertTrue(dal.getAll(ids).isEmpty());
+        assertNull(client.getItem(new GetItemRequest()
+                .withTableName(BookingKeys.tableName(tableName))
+                .withKey(BookingKeys.key(ids.get(0)))).getItem());
+        assertEquals(Collections.singletonList(ended), dal.getAll(Arrays.asList(ended.getBookingId())));
+    }
+
+    @Test
+    public void leavesBookingsChangedSinceTheReadAlone() throws Exception {
+
+        Booking dal = new Booking(client, mapperConfig);
+        Instant start = Instant.parse("2019-09-05T10:00:00Z");
+        Booking kept = save("race", start);
+        Booking cancelledMeanwhile = save("race", start.plusSeconds(3600));
+        Booking deletedMeanwhile = save("race", start.plusSeconds(7200));
+        List<Booking> read = dal.getAll(Arrays.asList(kept.getBookingId(), cancelledMeanwhile.getBookingId(),
+                deletedMeanwhile.getBookingId()));
+        int liveBookings = dal.liveBookingCount("user");
+
+        Booking cancelled = cancelledMeanwhile.copy();
+        cancelled.setBookingStatus(BookingStatus.CANCELLED);
+        dal.update(cancelled);
+        dal.delete(deletedMeanwhile);
+        List<Booking> changed = dal.batchCancel(read);
+
+        assertEquals(2, changed.size());
+        assertEquals(BookingStatus.CANCELLED, dal.get(kept.getBookingId()).getBookingStatus());
+        // not recreated by the cancel, and each booking counted once
+        assertNull(dal.get(deletedMeanwhile.getBookingId()));
+        assertEquals(liveBookings - 3, dal.liveBookingCount("user"));
+
+        // kept was read as VALID, it is CANCELLED now
+        assertEquals(Collections.singletonList(kept), dal.batchDelete(Collections.singletonList(kept)));
+        assertTrue(dal.batchDelete(Collections.singletonList(dal.get(kept.getBookingId()))).isEmpty());
+        assertNull(dal.get(kept.getBookingId()));
+        assertEquals(liveBookings - 3, dal.liveBookingCount("user"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsRequestWithIdsAndScooter() throws Exception {
+
+        BatchBookingRequest request = new BatchBookingRequest();
+        request.setBookingIds(Collections.singletonList("1"));
+        request.setScooterId("1");
+        new BatchBookingsHandler().process("cancel", request, new Booking(client, mapperConfig), Instant.now());
+    }
+
+    private static Booking save(String scooterId, Instant start) throws IOException {
+        Booking booking = new Booking(client, mapperConfig);
+        booking.setScooterId(scooterId);
+        booking.setUserId("user");
+        booking.setStartTime(start);
+        booking.setEndTime(start.plusSeconds(1800));
+        booking.setBookingStatus(BookingStatus.VALID);
+        return booking.save(booking);
+    }
+}
@@ -0,0 +1,148 @@
+package com.wirelessiths.dal;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.wirelessiths.exception.PreconditionFailedException;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.time.Instant;
+
+import static org.junit.Assert.*;
+
+public class BookingCacheTest {
+
+    private static AmazonDynamoDB client;
+    private static DynamoDBMapperConfig mapperConfig;
+    private static String tableName = "cache-test-table";
+
+    @BeforeClass
+    public static void setUpClientAndTable() {
+        client = LocalDbHandler.createClient();
+        mapperConfig = LocalDbHandler.createMapperConfig(tableName);
+        LocalDbHandler.deleteTable(tableName, client);
+        LocalDbHandler.createTable(tableName, client);
+    }
+
+    @AfterClass
+    public static void deleteTable() {
+        LocalDbHandler.deleteTable(tableName, client);
+    }
+
+    @Test
+    public void cachedBookingIsACopyAndWritesInvalidateIt() throws Exception {
+
+        Booking dal = new Booking(client, mapperConfig);
+        Booking booking = new Booking(client, mapperConfig);
+        booking.setScooterId("1");
+        booking.setUserId("u");
+        booking.setStartTime(Instant.parse("2019-09-03T10:00:00Z"));
+        booking.setEndTime(Instant.parse("2019-09-03T10:30:00Z"));
+        booking.setBookingStatus(BookingStatus.VALID);
+        dal.save(booking);
+        String bookingId = booking.getBookingId();
+
+        Booking read = dal.getCached(bookingId);
+        assertEquals(booking, read);
+        read.setBookingStatus(BookingStatus.CANCELLED);
+        assertEquals(BookingStatus.VALID, dal.getCached(bookingId).getBookingStatus());
+
+        // changed behind the cache, still served from it
+        Booking sameKey = new Booking(client, mapperConfig);
+        sameKey.setScooterId("1");
+        sameKey.setEndTime(booking.getEndTime());
+        sameKey.setBookingId(bookingId);
+        sameKey.setBookingStatus(BookingStatus.ACTIVE);
+        new DynamoDBMapper(client, DynamoDBMapperConfig.builder()
+                .withTableNameOverride(mapperConfig.getTableNameOverride())
+                .withSaveBehavior(DynamoDBMapperConfig.SaveBehavior.UPDATE_SKIP_NULL_ATTRIBUTES)
+                .build()).save(sameKey);
+        assertEquals(BookingStatus.VALID, dal.getCached(bookingId).getBookingStatus());
+
+        // an update through Booking invalidates it
+        dal.update(sameKey);
+        assertEquals(BookingStatus.ACTIVE, dal.getCached(bookingId).getBookingStatus());
+
+        assertTrue(dal.delete(bookingId));
+        assertNull(dal.getCached(bookingId));
+        assertFalse(dal.delete(bookingId));
+    }
+
+    @Test
+    public void bookingsReadByIdCarryTheETagOfTheStoredVersion() throws Exception {
+
+        Booking dal = new Booking(client, mapperConfig);
+        Booking booking = new Booking(client, mapperConfig);
+        booking.setScooterId("2");
+        booking.setUserId("u");
+        booking.setStartTime(Instant.parse("2019-09-03T10:00:00Z"));
+        booking.setEndTime(Instant.parse("2019-09-03T10:30:00Z"));
+        booking.setBookingStatus(BookingStatus.VALID);
+        dal.save(booking);
+        String bookingId = booking.getBookingId();
+
+        String etag = dal.get(bookingId).etag();
+        assertNotNull(etag);
+        assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+        assertEquals(etag, dal.getCached(bookingId).etag());
+
+        Booking changed = dal.get(bookingId);
+        changed.setBookingStatus(BookingStatus.CANCELLED);
+        assertEquals(etag, changed.etag());
+        dal.save(changed);
+        assertNotEquals(etag, dal.getCached(bookingId).etag());
+    }
+
+    @Test
+    public void writesMatchingTheETagFailIfTheBookingChangedSinceItWasRead() throws Exception {
+
+        Booking dal = new Booking(client, mapperConfig);
+        Booking booking = new Booking(client, mapperConfig);
+        booking.setScooterId("3");
+        booking.setUserId("u");
+        booking.setStartTime(Instant.parse("2019-09-03T10:00:00Z"));
+        booking.setEndTime(Instant.parse("2019-09-03T10:30:00Z"));
+        booking.setBookingStatus(BookingStatus.VALID);
+        dal.save(booking);
+        String bookingId = booking.getBookingId();
+
+        Booking stale = dal.get(bookingId);
+        // a change the status and user conditions alone do not see
+        Booking moved = dal.get(bookingId).copy();
+        moved.setStartTime(Instant.parse("2019-09-03T10:10:00Z"));
+        dal.update(moved, true);
+
+        Booking cancelled = stale.copy();
+        cancelled.setBookingStatus(BookingStatus.CANCELLED);
+        try {
+            dal.update(cancelled, true);
+            fail("expected the update to fail its precondition");
+        } catch (PreconditionFailedException e) {
+            assertEquals(BookingStatus.VALID, dal.get(bookingId).getBookingStatus());
+        }
+        Booking rescheduled = stale.copy();
+        rescheduled.setEndTime(Instant.parse("2019-09-03T10:40:00Z"));
+        try {
+            dal.reschedule(stale, rescheduled, 7200, 300, true);
+            fail("expected the reschedule to fail its precondition");
+        } catch (PreconditionFailedException e) {
+            assertEquals(booking.getEndTime(), dal.get(bookingId).getEndTime());
+        }
+        try {
+            dal.delete(stale, true);
+            fail("expected the delete to fail its precondition");
+        } catch (PreconditionFailedException e) {
+            assertNotNull(dal.get(bookingId));
+        }
+
+        // read again, the writes apply
+        Booking fresh = dal.getCached(bookingId).copy();
+        fresh.setBookingStatus(BookingStatus.CANCELLED);
+        dal.update(fresh, true);
+        assertEquals(Instant.parse("2019-09-03T10:10:00Z"), dal.get(bookingId).getStartTime());
+        dal.delete(dal.get(bookingId), true);
+        assertNull(dal.get(bookingId));
+    }
+}
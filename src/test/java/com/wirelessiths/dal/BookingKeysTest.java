@@ -0,0 +1,108 @@
+package com.wirelessiths.dal;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class BookingKeysTest {
+
+    private static AmazonDynamoDB client;
+    private static DynamoDBMapperConfig mapperConfig;
+    private static String tableName = "keys-test-table";
+
+    @BeforeClass
+    public static void setUpClientAndTable() {
+        client = LocalDbHandler.createClient();
+        mapperConfig = LocalDbHandler.createMapperConfig(tableName);
+        LocalDbHandler.deleteTable(tableName, client);
+        LocalDbHandler.createTable(tableName, client);
+    }
+
+    @AfterClass
+    public static void deleteTable() {
+        LocalDbHandler.deleteTable(tableName, client);
+    }
+
+    @Test
+    public void newBookingIsReadByIdRightAfterSaveAndGoneRightAfterDelete() throws Exception {
+
+        Booking dal = new Booking(client, mapperConfig);
+        Booking booking = booking("1");
+        dal.save(booking);
+
+        assertEquals("booking#" + booking.getBookingId(), keyItem(booking.getBookingId()).get(BookingKeys.PK).getS());
+        assertEquals(booking, dal.get(booking.getBookingId()));
+
+        dal.delete(booking);
+        assertNull(keyItem(booking.getBookingId()));
+        assertNull(dal.get(booking.getBookingId()));
+    }
+
+    @Test
+    public void bookingWithoutKeyItemIsReadFromIndexUntilBackfilled() throws Exception {
+
+        // saved before the keys table existed
+        Booking booking = booking("2");
+        booking.setBookingId(UUID.randomUUID().toString());
+        new DynamoDBMapper(client, mapperConfig).save(booking);
+        assertNull(keyItem(booking.getBookingId()));
+
+        Booking dal = new Booking(client, mapperConfig);
+        assertEquals(booking, dal.get(booking.getBookingId()));
+        assertNull(keyItem(booking.getBookingId()));
+
+        BookingKeysBackfill backfill = new BookingKeysBackfill(client, tableName);
+        assertTrue(backfill.run() >= 1);
+        Map<String, AttributeValue> keyItem = keyItem(booking.getBookingId());
+        assertEquals("2", keyItem.get("scooterId").getS());
+        assertEquals("2019-09-03T10:30:00Z", keyItem.get("endTime").getS());
+        assertEquals(booking, dal.get(booking.getBookingId()));
+
+        // the key items written by save and by the first run are left alone, a rerun writes none
+        assertEquals(0, backfill.run());
+    }
+
+    @Test
+    public void keyItemsOfDifferentTypesDoNotCollide() throws Exception {
+
+        Booking dal = new Booking(client, mapperConfig);
+        Booking booking = booking("3");
+        booking.setUserId("3");
+        dal.save(booking);
+
+        // the scooter's version, the user's counter and the booking's key item, all for id 3
+        assertEquals("1", client.getItem(BookingKeys.tableName(tableName), BookingKeys.scooterKey("3"))
+                .getItem().get(BookingKeys.VERSION).getN());
+        assertEquals(1, dal.liveBookingCount("3"));
+        assertNull(dal.get("3"));
+        assertEquals(booking, dal.get(booking.getBookingId()));
+    }
+
+    private static Map<String, AttributeValue> keyItem(String bookingId) {
+        return client.getItem(new GetItemRequest()
+                .withTableName(BookingKeys.tableName(tableName))
+                .withKey(BookingKeys.key(bookingId))
+                .withConsistentRead(true)).getItem();
+    }
+
+    private static Booking booking(String scooterId) {
+        Booking booking = new Booking(client, mapperConfig);
+        booking.setScooterId(scooterId);
+        booking.setUserId("u");
+        booking.setStartTime(Instant.parse("2019-09-03T10:00:00Z"));
+        booking.setEndTime(Instant.parse("2019-09-03T10:30:00Z"));
+        booking.setBookingStatus(BookingStatus.VALID);
+        return booking;
+    }
+}
@@ -8,6 +8,8 @@ import com.amazonaws.services.dynamodbv2.model.AmazonDynamoDBException;
 
 import com.wirelessiths.handler.ListBookingHandler;
 import com.amazonaws.services.dynamodbv2.model.AmazonDynamoDBException;
+import com.wirelessiths.dal.query.BookingQuery;
+import com.wirelessiths.dal.query.Page;
 import com.wirelessiths.handler.ListBookingHandler;
 import org.junit.*;
 
@@ -456,6 +458,58 @@ public class BookingQueryTest {
         assertEquals(1, list.size());
     }
 
+    @Test
+    public void userIdStartTimeRange() throws IOException {
+        Booking booking = new Booking(client, mapperConfig);
+        List<Booking> list = booking.query(BookingQuery.builder()
+                .setUserId("c")
+                .setStartTimeRange(Instant.parse("2019-09-03T13:00:00Z"), Instant.parse("2019-09-03T14:00:00Z"))
+                .build());
+        assertEquals(1, list.size());
+        assertEquals("4", list.get(0).getScooterId());
+    }
+
+    @Test
+    public void rangeOverTwoDaysIsMergedByStartTime() throws IOException {
+        Booking booking = new Booking(client, mapperConfig);
+        Map<String, String> queryparams = new HashMap<>();
+        queryparams.put("from", "2019-09-03T14:00:00Z");
+        queryparams.put("to", "2019-09-04T14:00:00Z");
+        List<Booking> list = new ListBookingHandler().retrieveBookings(queryparams, booking, true);
+        assertEquals(2, list.size());
+        assertEquals("c", list.get(0).getUserId());
+        assertEquals("d", list.get(1).getUserId());
+    }
+
+    @Test
+    public void rangeIsPaginatedWithCursor() throws IOException {
+        Booking booking = new Booking(client, mapperConfig);
+        BookingQuery query = BookingQuery.builder()
+                .setStartTimeRange(Instant.parse("2019-09-03T00:00:00Z"), Instant.parse("2019-09-04T23:59:59Z"))
+                .build();
+        List<Booking> all = new ArrayList<>();
+        int pages = 0;
+        String cursor = null;
+        do {
+            Page<Booking> page = booking.query(query, 2, cursor);
+            all.addAll(page.getItems());
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+        assertEquals(3, pages);
+        assertEquals(5, all.size());
+        for (int i = 1; i < all.size(); i++) {
+            assertFalse(all.get(i).getStartTime().isBefore(all.get(i - 1).getStartTime()));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cursorOfAnotherIndexIsRejected() throws IOException {
+        Booking booking = new Booking(client, mapperConfig);
+        Page<Booking> page = booking.query(BookingQuery.builder().setScooterId("1").build(), 1, null);
+        booking.query(BookingQuery.builder().setUserId("c").build(), 1, page.getNextCursor());
+    }
+
     @Test
     public void testThatUserIdIsRedactedIfNotAdmin() {
         System.out.println("test that userId is redacted if not admin");
@@ -0,0 +1,133 @@
+package com.wirelessiths.dal;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.wirelessiths.dal.timeline.DayOccupancy;
+import com.wirelessiths.dal.timeline.OccupancyBitmap;
+import com.wirelessiths.handler.FindFreeScootersHandler;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class FleetOccupancyTest {
+
+    private static AmazonDynamoDB client;
+    private static DynamoDBMapperConfig mapperConfig;
+    private static String tableName = "fleet-test-table";
+
+    @BeforeClass
+    public static void setUpClientAndTable() {
+        client = LocalDbHandler.createClient();
+        mapperConfig = LocalDbHandler.createMapperConfig(tableName);
+        LocalDbHandler.deleteTable(tableName, client);
+        LocalDbHandler.createTable(tableName, client);
+    }
+
+    @AfterClass
+    public static void deleteTable() {
+        LocalDbHandler.deleteTable(tableName, client);
+    }
+
+    @Test
+    public void setRangeCrossesWords() {
+
+        long[] words = new long[OccupancyBitmap.WORDS];
+        OccupancyBitmap.setRange(words, 60, 130);
+
+        assertEquals(0xFL << 60, words[0]);
+        assertEquals(-1L, words[1]);
+        assertEquals(0x7L, words[2]);
+
+        words = new long[OccupancyBitmap.WORDS];
+        OccupancyBitmap.setRange(words, 1439, 1439);
+        assertEquals(1L << (1439 & 63), words[OccupancyBitmap.WORDS - 1]);
+    }
+
+    @Test
+    public void bookingEndIsBusyAndWindowEndIsNot() {
+
+        DayOccupancy day = new DayOccupancy(LocalDate.parse("2019-09-03"));
+        day.put("a", "1", Instant.parse("2019-09-03T10:00:00Z"), Instant.parse("2019-09-03T10:30:00Z"));
+
+        Set<String> busy = new HashSet<>();
+        day.collectBusy(Instant.parse("2019-09-03T09:00:00Z"), Instant.parse("2019-09-03T10:00:00Z"), busy);
+        assertTrue(busy.isEmpty());
+        day.collectBusy(Instant.parse("2019-09-03T10:30:00Z"), Instant.parse("2019-09-03T11:00:00Z"), busy);
+        assertEquals(1, busy.size());
+    }
+
+    @Test
+    public void removedBookingKeepsMinutesOfBookingSharingThem() {
+
+        DayOccupancy day = new DayOccupancy(LocalDate.parse("2019-09-03"));
+        day.put("a", "1", Instant.parse("2019-09-03T10:00:00Z"), Instant.parse("2019-09-03T10:30:20Z"));
+        day.put("b", "1", Instant.parse("2019-09-03T10:30:40Z"), Instant.parse("2019-09-03T11:00:00Z"));
+        day.remove("a");
+
+        Set<String> busy = new HashSet<>();
+        day.collectBusy(Instant.parse("2019-09-03T10:00:00Z"), Instant.parse("2019-09-03T10:30:00Z"), busy);
+        assertTrue(busy.isEmpty());
+        day.collectBusy(Instant.parse("2019-09-03T10:30:00Z"), Instant.parse("2019-09-03T10:30:10Z"), busy);
+        assertEquals(1, busy.size());
+    }
+
+    @Test
+    public void freeScootersPassTheConflictCheckAndFollowSaves() throws Exception {
+
+        int maxDuration = 7200;
+        int buffer = 300;
+        LocalDbHandler.saveBooking(client, mapperConfig, "a", "2031-05-05T10:00:00Z", "2031-05-05T10:30:00Z", BookingStatus.VALID);
+        LocalDbHandler.saveBooking(client, mapperConfig, "b", "2031-05-05T11:04:00Z", "2031-05-05T11:30:00Z", BookingStatus.VALID);
+        LocalDbHandler.saveBooking(client, mapperConfig, "c", "2031-05-05T11:06:00Z", "2031-05-05T11:30:00Z", BookingStatus.ACTIVE);
+        LocalDbHandler.saveBooking(client, mapperConfig, "d", "2031-05-04T23:30:00Z", "2031-05-05T01:00:00Z", BookingStatus.VALID);
+        LocalDbHandler.saveBooking(client, mapperConfig, "e", "2031-05-05T10:00:00Z", "2031-05-05T11:00:00Z", BookingStatus.CANCELLED);
+        // only known from the week before
+        LocalDbHandler.saveBooking(client, mapperConfig, "f", "2031-04-30T10:00:00Z", "2031-04-30T11:00:00Z", BookingStatus.COMPLETED);
+        LocalDbHandler.saveBooking(client, mapperConfig, "f", "2031-05-01T10:00:00Z", "2031-05-01T11:00:00Z", BookingStatus.VALID);
+
+        Booking dal = new Booking(client, mapperConfig);
+        FindFreeScootersHandler handler = new FindFreeScootersHandler();
+        Map<String, String> window = new HashMap<>();
+        window.put("from", "2031-05-05T10:00:00Z");
+        window.put("to", "2031-05-05T11:00:00Z");
+
+        List<String> free = handler.freeScooters(window, dal, maxDuration, buffer).getScooterIds();
+        assertEquals(Arrays.asList("c", "d", "f"), free);
+        for (String scooterId : Arrays.asList("a", "b", "c", "d", "e", "f")) {
+            Booking booking = LocalDbHandler.booking(client, mapperConfig, scooterId,
+                    Instant.parse("2031-05-05T10:00:00Z"), Instant.parse("2031-05-05T11:00:00Z"));
+            assertEquals(scooterId, free.contains(scooterId) || scooterId.equals("e"),
+                    dal.validateBooking(booking, maxDuration, buffer).isEmpty());
+        }
+
+        window.put("scooterIds", "d,e,x");
+        assertEquals(Arrays.asList("d", "e", "x"), handler.freeScooters(window, dal, maxDuration, buffer).getScooterIds());
+        window.remove("scooterIds");
+
+        // applied to the loaded days without a reload
+        Booking created = LocalDbHandler.saveBooking(client, mapperConfig, "c", "2031-05-05T09:00:00Z", "2031-05-05T09:56:00Z", BookingStatus.VALID);
+        assertEquals(Arrays.asList("d", "f"), handler.freeScooters(window, dal, maxDuration, buffer).getScooterIds());
+        created.delete(created.getBookingId());
+        assertEquals(Arrays.asList("c", "d", "f"), handler.freeScooters(window, dal, maxDuration, buffer).getScooterIds());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void windowLongerThanMaxDurationIsRejected() throws Exception {
+
+        Map<String, String> window = new HashMap<>();
+        window.put("from", "2031-05-05T10:00:00Z");
+        window.put("to", "2031-05-05T13:00:00Z");
+        new FindFreeScootersHandler().freeScooters(window, new Booking(client, mapperConfig), 7200, 300);
+    }
+}
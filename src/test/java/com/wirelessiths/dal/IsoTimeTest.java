@@ -0,0 +1,72 @@
+package com.wirelessiths.dal;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IsoTimeTest {
+
+    private static final long MIN_SECOND = Instant.parse("0000-01-01T00:00:00Z").getEpochSecond();
+    private static final long MAX_SECOND = Instant.parse("9999-12-31T23:59:59Z").getEpochSecond();
+
+    @Test
+    public void formatsAndParsesInstantsLikeJavaTime() {
+
+        Random random = new Random(42);
+        int[] nanos = {0, 456_000_000, 456_789_000, 456_789_123, 1};
+        for (int i = 0; i < 100_000; i++) {
+            long second = MIN_SECOND + (long) (random.nextDouble() * (MAX_SECOND - MIN_SECOND));
+            Instant instant = Instant.ofEpochSecond(second, nanos[i % nanos.length]);
+
+            String text = IsoTime.format(instant);
+            assertEquals(instant.toString(), text);
+            assertEquals(instant, IsoTime.parseInstant(text));
+            assertEquals(LocalDate.parse(text.split("T")[0]), IsoTime.utcDate(instant));
+        }
+    }
+
+    @Test
+    public void formatsAndParsesDatesLikeJavaTime() {
+
+        for (LocalDate date = LocalDate.of(1899, 12, 25); date.getYear() < 2101; date = date.plusDays(1)) {
+            String text = IsoTime.format(date);
+            assertEquals(date.toString(), text);
+            assertEquals(date, IsoTime.parseDate(text));
+        }
+        assertEquals("0000-01-01", IsoTime.format(LocalDate.of(0, 1, 1)));
+        assertEquals("+10000-01-01", IsoTime.format(LocalDate.of(10000, 1, 1)));
+    }
+
+    @Test
+    public void handlesDaysAroundEpochAndOutOfRangeInstants() {
+
+        assertEquals("1969-12-31T23:59:59.999Z", IsoTime.format(Instant.parse("1969-12-31T23:59:59.999Z")));
+        assertEquals(LocalDate.of(1969, 12, 31), IsoTime.utcDate(Instant.parse("1969-12-31T23:59:59.999Z")));
+        assertEquals(LocalDate.of(1970, 1, 1), IsoTime.utcDate(Instant.EPOCH));
+        assertEquals(Instant.MAX.toString(), IsoTime.format(Instant.MAX));
+        assertEquals(Instant.MIN.toString(), IsoTime.format(Instant.MIN));
+    }
+
+    @Test
+    public void fallsBackToJavaTimeForOtherIsoShapes() {
+
+        assertEquals(Instant.parse("2019-09-02T14:10:23.4Z"), IsoTime.parseInstant("2019-09-02T14:10:23.4Z"));
+        assertEquals(Instant.parse("2016-12-31T23:59:60Z"), IsoTime.parseInstant("2016-12-31T23:59:60Z"));
+        assertEquals(Instant.parse("+10000-01-01T00:00:00Z"), IsoTime.parseInstant("+10000-01-01T00:00:00Z"));
+    }
+
+    @Test(expected = DateTimeParseException.class)
+    public void rejectsInvalidDayOfMonth() {
+        IsoTime.parseInstant("2019-02-29T10:00:00Z");
+    }
+
+    @Test(expected = DateTimeParseException.class)
+    public void rejectsNonDigits() {
+        IsoTime.parseDate("2019-0a-01");
+    }
+}
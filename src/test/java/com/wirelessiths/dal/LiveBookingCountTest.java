@@ -0,0 +1,108 @@
+package com.wirelessiths.dal;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class LiveBookingCountTest {
+
+    private static AmazonDynamoDB client;
+    private static DynamoDBMapperConfig mapperConfig;
+    private static String tableName = "live-count-test-table";
+
+    @BeforeClass
+    public static void setUpClientAndTable() {
+        client = LocalDbHandler.createClient();
+        mapperConfig = LocalDbHandler.createMapperConfig(tableName);
+        LocalDbHandler.deleteTable(tableName, client);
+        LocalDbHandler.createTable(tableName, client);
+    }
+
+    @AfterClass
+    public static void deleteTable() {
+        LocalDbHandler.deleteTable(tableName, client);
+    }
+
+    @Test
+    public void followsCreatesStatusChangesAndDeletes() throws Exception {
+
+        Booking dal = new Booking(client, mapperConfig);
+        Booking first = save("a", "1", "2019-09-03T10:00:00Z");
+        Booking second = save("a", "2", "2019-09-03T10:00:00Z");
+        assertEquals(2, dal.liveBookingCount("a"));
+
+        first.setBookingStatus(BookingStatus.CANCELLED);
+        dal.save(first);
+        dal.save(first);
+        assertEquals(1, dal.liveBookingCount("a"));
+
+        Booking handedOver = second.copy();
+        handedOver.setUserId("b");
+        dal.update(handedOver);
+        assertEquals(0, dal.liveBookingCount("a"));
+        assertEquals(1, dal.liveBookingCount("b"));
+
+        dal.delete(handedOver);
+        dal.delete(first);
+        assertEquals(0, dal.liveBookingCount("b"));
+        assertEquals(0, dal.liveBookingCount("a"));
+    }
+
+    @Test
+    public void batchCancelDecrementsOncePerLiveBooking() throws Exception {
+
+        Booking dal = new Booking(client, mapperConfig);
+        Booking first = save("c", "3", "2019-09-03T10:00:00Z");
+        Booking second = save("c", "4", "2019-09-03T10:00:00Z");
+        Booking completed = save("c", "5", "2019-09-03T10:00:00Z");
+        completed.setBookingStatus(BookingStatus.COMPLETED);
+        dal.save(completed);
+        assertEquals(2, dal.liveBookingCount("c"));
+
+        dal.batchCancel(Arrays.asList(first, second, completed, first));
+        assertEquals(0, dal.liveBookingCount("c"));
+    }
+
+    @Test
+    public void backfillCountsBookingsSavedWithoutCounter() throws Exception {
+
+        // saved before the counters existed
+        DynamoDBMapper mapper = new DynamoDBMapper(client, mapperConfig);
+        for (String scooterId : Arrays.asList("6", "7")) {
+            Booking booking = booking("d", scooterId, "2019-09-03T10:00:00Z");
+            booking.setBookingId(UUID.randomUUID().toString());
+            mapper.save(booking);
+        }
+        Booking dal = new Booking(client, mapperConfig);
+        assertEquals(0, dal.liveBookingCount("d"));
+
+        new LiveBookingCountBackfill(client, tableName).run();
+        assertEquals(2, dal.liveBookingCount("d"));
+        assertEquals(0, dal.liveBookingCount("a"));
+    }
+
+    private static Booking save(String userId, String scooterId, String startTime) throws IOException {
+        Booking booking = booking(userId, scooterId, startTime);
+        return booking.save(booking);
+    }
+
+    private static Booking booking(String userId, String scooterId, String startTime) {
+        Booking booking = new Booking(client, mapperConfig);
+        booking.setScooterId(scooterId);
+        booking.setUserId(userId);
+        booking.setStartTime(Instant.parse(startTime));
+        booking.setEndTime(Instant.parse(startTime).plusSeconds(1800));
+        booking.setBookingStatus(BookingStatus.VALID);
+        return booking;
+    }
+}
@@ -9,6 +9,8 @@ import com.amazonaws.services.dynamodbv2.document.DynamoDB;
 import com.amazonaws.services.dynamodbv2.document.Table;
 import com.amazonaws.services.dynamodbv2.model.*;
 
+import java.io.IOException;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -41,10 +43,13 @@ public class LocalDbHandler {
     protected static void deleteTable(String tableName, AmazonDynamoDB client){
 
         Table table = new DynamoDB(client).getTable(tableName);
+        Table keysTable = new DynamoDB(client).getTable(BookingKeys.tableName(tableName));
         try {
             System.out.println("deleting table..");
             table.delete();
             table.waitForDelete();
+            keysTable.delete();
+            keysTable.waitForDelete();
             System.out.print("table deleted.");
 
         }
@@ -58,6 +63,32 @@ public class LocalDbHandler {
 
 
 
+    /**
+     * Saves a booking of user "u", see {@link #booking(AmazonDynamoDB, DynamoDBMapperConfig, String, Instant, Instant)}.
+     */
+    protected static Booking saveBooking(AmazonDynamoDB client, DynamoDBMapperConfig mapperConfig, String scooterId,
+                                         String startTime, String endTime, BookingStatus status) throws IOException {
+        Booking booking = booking(client, mapperConfig, scooterId, Instant.parse(startTime), Instant.parse(endTime));
+        booking.setBookingStatus(status);
+        booking.save(booking);
+        return booking;
+    }
+
+    /**
+     * @return an unsaved booking of user "u", without status
+     */
+    protected static Booking booking(AmazonDynamoDB client, DynamoDBMapperConfig mapperConfig, String scooterId,
+                                     Instant startTime, Instant endTime) {
+        Booking booking = new Booking(client, mapperConfig);
+        booking.setScooterId(scooterId);
+        booking.setUserId("u");
+        booking.setStartTime(startTime);
+        booking.setEndTime(endTime);
+        return booking;
+    }
+
+
+
     protected static void createTable(String tableName, AmazonDynamoDB client){
 
         System.out.println("creating table..");
@@ -146,10 +177,33 @@ public class LocalDbHandler {
                 .withProjection(new Projection().withProjectionType(ProjectionType.ALL));//Todo: change to only include bookingStatus
 
 
+        //statusStartIndex, keyed by status and startDate
+        GlobalSecondaryIndex statusStartIndex = new GlobalSecondaryIndex()
+                .withIndexName(Booking.STATUS_START_INDEX)
+                .withProvisionedThroughput(new ProvisionedThroughput()
+                        .withReadCapacityUnits((long) 1)
+                        .withWriteCapacityUnits((long) 1))
+                .withKeySchema(new KeySchemaElement("statusStartDate", KeyType.HASH),
+                        new KeySchemaElement("startTime", KeyType.RANGE))
+                .withProjection(new Projection().withProjectionType(ProjectionType.ALL));
+
+        //userStatusIndex, keyed by userId and status plus startTime
+        GlobalSecondaryIndex userStatusIndex = new GlobalSecondaryIndex()
+                .withIndexName(Booking.USER_STATUS_INDEX)
+                .withProvisionedThroughput(new ProvisionedThroughput()
+                        .withReadCapacityUnits((long) 1)
+                        .withWriteCapacityUnits((long) 1))
+                .withKeySchema(new KeySchemaElement("userId", KeyType.HASH),
+                        new KeySchemaElement("statusStartTime", KeyType.RANGE))
+                .withProjection(new Projection().withProjectionType(ProjectionType.ALL));
+
+
         globalSecondaryIndexes.add(userIndex);
         globalSecondaryIndexes.add(bookingIndex);
         globalSecondaryIndexes.add(endTimeIndex);
         globalSecondaryIndexes.add(startTimeIndex);
+        globalSecondaryIndexes.add(statusStartIndex);
+        globalSecondaryIndexes.add(userStatusIndex);
 
         //local secondary indexes
 //        ArrayList<LocalSecondaryIndex> localSecondaryIndexes = new
@@ -196,6 +250,12 @@ public class LocalDbHandler {
         attributeDefinitions.add(new AttributeDefinition()
                 .withAttributeName("endDate")
                 .withAttributeType(ScalarAttributeType.S));
+        attributeDefinitions.add(new AttributeDefinition()
+                .withAttributeName("statusStartDate")
+                .withAttributeType(ScalarAttributeType.S));
+        attributeDefinitions.add(new AttributeDefinition()
+                .withAttributeName("statusStartTime")
+                .withAttributeType(ScalarAttributeType.S));
 
 
         try{
@@ -209,6 +269,7 @@ public class LocalDbHandler {
                     //.withLocalSecondaryIndexes(localSecondaryIndexes)
                     .withAttributeDefinitions(attributeDefinitions);
             client.createTable(createTableRequest);
+            client.createTable(BookingKeys.createTableRequest(tableName));
             System.out.println("table created.");
         }catch(Exception e){
             System.out.println("error creating table: " + e.getMessage());
@@ -0,0 +1,83 @@
+package com.wirelessiths.dal;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.wirelessiths.monitor.MonitorStartedBookings;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MonitorStartedBookingsTest {
+
+    private static final int DEADLINE_SECONDS = 600;
+
+    private static AmazonDynamoDB client;
+    private static DynamoDBMapperConfig mapperConfig;
+    private static String tableName = "started-bookings";
+
+    @BeforeClass
+    public static void setUpClientAndTable() {
+        client = LocalDbHandler.createClient();
+        mapperConfig = LocalDbHandler.createMapperConfig(tableName);
+        LocalDbHandler.deleteTable(tableName, client);
+        LocalDbHandler.createTable(tableName, client);
+    }
+
+    @AfterClass
+    public static void deleteTable() {
+        LocalDbHandler.deleteTable(tableName, client);
+    }
+
+    @Test
+    public void bookingActivatedBeforeTheCancelIsNotNotified() throws Exception {
+
+        Instant start = Instant.now().minusSeconds(DEADLINE_SECONDS + 30);
+        Booking notActivated = save("1", start);
+        Booking activated = save("2", start);
+        // activates a booking right after the monitor read it, like a concurrent SetBookingState
+        Booking racing = new Booking(client, mapperConfig) {
+            @Override
+            public List<Booking> bookingsByStartTime(int deadlineSeconds) {
+                List<Booking> started = super.bookingsByStartTime(deadlineSeconds);
+                Booking active = activated.copy();
+                active.setBookingStatus(BookingStatus.ACTIVE);
+                try {
+                    new Booking(client, mapperConfig).update(active);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return started;
+            }
+        };
+
+        List<Booking> notified = new ArrayList<>();
+        List<Booking> cancelled = new MonitorStartedBookings((message, booking) -> notified.add(booking))
+                .cancelNotCheckedOut(racing, DEADLINE_SECONDS);
+
+        assertEquals(1, cancelled.size());
+        assertEquals(notActivated.getBookingId(), cancelled.get(0).getBookingId());
+        assertEquals(1, notified.size());
+        assertEquals(notActivated.getBookingId(), notified.get(0).getBookingId());
+        assertEquals(BookingStatus.CANCELLED, racing.get(notActivated.getBookingId()).getBookingStatus());
+        assertEquals(BookingStatus.ACTIVE, racing.get(activated.getBookingId()).getBookingStatus());
+    }
+
+    private static Booking save(String scooterId, Instant startTime) throws IOException {
+        Booking booking = new Booking(client, mapperConfig);
+        booking.setScooterId(scooterId);
+        booking.setUserId("u");
+        booking.setStartTime(startTime);
+        booking.setEndTime(startTime.plusSeconds(3600));
+        booking.setBookingStatus(BookingStatus.VALID);
+        booking.save(booking);
+        return booking;
+    }
+}
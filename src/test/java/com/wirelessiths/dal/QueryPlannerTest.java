@@ -0,0 +1,194 @@
+package com.wirelessiths.dal;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.wirelessiths.dal.query.BookingQuery;
+import com.wirelessiths.dal.query.QueryPlan;
+import com.wirelessiths.dal.query.QueryPlanner;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class QueryPlannerTest {
+
+    private final QueryPlanner planner = new QueryPlanner();
+
+    @Test
+    public void userIdWinsOverStartDateAndDateBecomesKeyCondition() {
+
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("startDate", "2019-09-03");
+        parameters.put("userId", "c");
+        parameters.put("scooterId", "1");
+
+        QueryPlan plan = planner.plan(BookingQuery.fromParameters(parameters));
+
+        assertEquals(QueryPlan.Operation.QUERY, plan.getOperation());
+        assertEquals("userIndex", plan.getIndex());
+        assertEquals("userId = 'c' AND begins_with(startTime, '2019-09-03')", plan.getKeyCondition());
+        assertEquals("scooterId = '1'", plan.getFilter());
+        assertFalse(plan.isConsistentRead());
+    }
+
+    @Test
+    public void userAndStatusIsOneRangeOfUserStatusIndex() {
+
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("userId", "c");
+        parameters.put("bookingStatus", "cancelled");
+        parameters.put("from", "2019-09-03T10:00:00Z");
+        parameters.put("order", "desc");
+
+        QueryPlan plan = planner.plan(BookingQuery.fromParameters(parameters));
+
+        assertEquals(Booking.USER_STATUS_INDEX, plan.getIndex());
+        assertEquals("userId = 'c' AND statusStartTime BETWEEN 'CANCELLED#2019-09-03T10:00:00' AND 'CANCELLED#~'",
+                plan.getKeyCondition());
+        assertNull(plan.getFilter());
+        assertTrue(plan.isDescending());
+        assertFalse(plan.toQueryExpression().isScanIndexForward());
+        assertEquals(Arrays.asList("scooterId", "endTime", "userId", "statusStartTime"), plan.getKeyAttributes());
+
+        plan = planner.plan(BookingQuery.builder().setUserId("c").setBookingStatus(BookingStatus.VALID).build());
+        assertEquals("userId = 'c' AND begins_with(statusStartTime, 'VALID#')", plan.getKeyCondition());
+        assertTrue(plan.toQueryExpression().isScanIndexForward());
+    }
+
+    @Test
+    public void userAndStatusIsFilteredFromUserIndexWithoutUserStatusIndex() {
+
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("userId", "c");
+        parameters.put("bookingStatus", "cancelled");
+        parameters.put("from", "2019-09-03T10:00:00Z");
+
+        QueryPlan plan = new QueryPlanner(false).plan(BookingQuery.fromParameters(parameters));
+
+        assertEquals("userIndex", plan.getIndex());
+        assertEquals("userId = 'c' AND startTime >= '2019-09-03T10:00:00'", plan.getKeyCondition());
+        assertEquals("bookingStatus = 'CANCELLED'", plan.getFilter());
+    }
+
+    @Test
+    public void scooterQueryUsesStartAsLowerBoundOfEndTime() {
+
+        QueryPlan plan = planner.plan(BookingQuery.builder()
+                .setScooterId("1")
+                .setStartDate(LocalDate.parse("2019-09-03"))
+                .build());
+
+        assertEquals("table", plan.getIndex());
+        assertEquals("scooterId = '1' AND endTime >= '2019-09-03'", plan.getKeyCondition());
+        assertEquals("startDate = '2019-09-03'", plan.getFilter());
+        assertTrue(plan.isConsistentRead());
+    }
+
+    @Test
+    public void startTimeRangeIsRoundedToWholeSeconds() {
+
+        QueryPlan plan = planner.plan(BookingQuery.builder()
+                .setStartDate(LocalDate.parse("2019-09-03"))
+                .setStartTimeRange(Instant.parse("2019-09-03T10:00:00.250Z"), Instant.parse("2019-09-03T12:00:00.750Z"))
+                .build());
+
+        assertEquals("startTimeIndex", plan.getIndex());
+        assertEquals("startDate = '2019-09-03' AND startTime BETWEEN '2019-09-03T10:00:00' AND '2019-09-03T12:00:00Z'",
+                plan.getKeyCondition());
+        assertNull(plan.getFilter());
+    }
+
+    @Test
+    public void statusIsFilteredAndWithoutKeyTheTableIsScanned() {
+
+        QueryPlan plan = planner.plan(BookingQuery.builder().setBookingStatus(BookingStatus.ACTIVE).build());
+
+        assertEquals(QueryPlan.Operation.SCAN, plan.getOperation());
+        assertNull(plan.getKeyCondition());
+        assertEquals("bookingStatus = 'ACTIVE'", plan.getFilter());
+        assertTrue(plan.explain().startsWith("SCAN table filter: bookingStatus = 'ACTIVE'"));
+    }
+
+    @Test
+    public void rangeOutsideOfStartDateReadsNothing() {
+
+        QueryPlan plan = planner.plan(BookingQuery.builder()
+                .setUserId("c")
+                .setStartDate(LocalDate.parse("2019-09-03"))
+                .setStartTimeRange(Instant.parse("2019-09-04T10:00:00Z"), null)
+                .build());
+
+        assertEquals(QueryPlan.Operation.NONE, plan.getOperation());
+    }
+
+    @Test
+    public void rangeOverSeveralDaysIsOneQueryPerDay() {
+
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("from", "2019-09-03T22:00:00Z");
+        parameters.put("to", "2019-09-05T02:00:00Z");
+        parameters.put("bookingStatus", "active");
+
+        QueryPlan plan = planner.plan(BookingQuery.fromParameters(parameters));
+
+        assertEquals("startTimeIndex", plan.getIndex());
+        assertEquals(Arrays.asList("2019-09-03", "2019-09-04", "2019-09-05"), plan.getPartitions());
+        assertEquals("startDate = :startDate AND startTime BETWEEN '2019-09-03T22:00:00' AND '2019-09-05T02:00:00Z'",
+                plan.getKeyCondition());
+        assertEquals("bookingStatus = 'ACTIVE'", plan.getFilter());
+        assertEquals("2019-09-04", plan.toQueryExpressions(null).get(1).getExpressionAttributeValues().get(":startDate").getS());
+    }
+
+    @Test
+    public void cursorSkipsPartitionsThatAreAlreadyRead() {
+
+        QueryPlan plan = planner.plan(BookingQuery.builder()
+                .setStartTimeRange(Instant.parse("2019-09-03T22:00:00Z"), Instant.parse("2019-09-05T02:00:00Z"))
+                .build());
+        Map<String, AttributeValue> cursor = new HashMap<>();
+        cursor.put("startDate", new AttributeValue("2019-09-04"));
+
+        List<DynamoDBQueryExpression<Booking>> expressions = plan.toQueryExpressions(cursor);
+
+        assertEquals(2, expressions.size());
+        assertEquals(cursor, expressions.get(0).getExclusiveStartKey());
+        assertNull(expressions.get(1).getExclusiveStartKey());
+    }
+
+    @Test
+    public void rangeWithinOneDayQueriesThatDay() {
+
+        QueryPlan plan = planner.plan(BookingQuery.builder()
+                .setStartTimeRange(Instant.parse("2019-09-03T10:00:00Z"), Instant.parse("2019-09-03T12:00:00Z"))
+                .build());
+
+        assertTrue(plan.getPartitions().isEmpty());
+        assertEquals("startDate = '2019-09-03' AND startTime BETWEEN '2019-09-03T10:00:00' AND '2019-09-03T12:00:00Z'",
+                plan.getKeyCondition());
+    }
+
+    @Test
+    public void rangeLongerThanMaxPartitionsIsScanned() {
+
+        QueryPlan plan = planner.plan(BookingQuery.builder()
+                .setStartTimeRange(Instant.parse("2019-01-01T00:00:00Z"), Instant.parse("2019-12-31T00:00:00Z"))
+                .build());
+
+        assertEquals(QueryPlan.Operation.SCAN, plan.getOperation());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fromAfterToIsRejected() {
+
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("from", "2019-09-05T00:00:00Z");
+        parameters.put("to", "2019-09-04T00:00:00Z");
+        BookingQuery.fromParameters(parameters);
+    }
+}
@@ -0,0 +1,162 @@
+package com.wirelessiths.dal;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.wirelessiths.exception.UnableToUpdateException;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class RescheduleTest {
+
+    private static final int MAX_DURATION = 7200;
+    private static final int BUFFER = 300;
+
+    private static AmazonDynamoDB client;
+    private static DynamoDBMapperConfig mapperConfig;
+    private static String tableName = "reschedule-test-table";
+
+    @BeforeClass
+    public static void setUpClientAndTable() {
+        client = LocalDbHandler.createClient();
+        mapperConfig = LocalDbHandler.createMapperConfig(tableName);
+        LocalDbHandler.deleteTable(tableName, client);
+        LocalDbHandler.createTable(tableName, client);
+    }
+
+    @AfterClass
+    public static void deleteTable() {
+        LocalDbHandler.deleteTable(tableName, client);
+    }
+
+    @Test
+    public void movesBookingToNewKeyAndKeepsItsId() throws Exception {
+
+        Booking dal = new Booking(client, mapperConfig);
+        Booking current = save("1", "2019-09-03T10:00:00Z", "2019-09-03T10:30:00Z");
+
+        Booking rescheduled = current.copy();
+        rescheduled.setScooterId("2");
+        rescheduled.setEndTime(Instant.parse("2019-09-03T10:45:00Z"));
+        assertTrue(dal.reschedule(current, rescheduled, MAX_DURATION, BUFFER).isEmpty());
+
+        Booking read = dal.get(current.getBookingId());
+        assertEquals("2", read.getScooterId());
+        assertEquals(Instant.parse("2019-09-03T10:45:00Z"), read.getEndTime());
+        assertNull(new DynamoDBMapper(client, mapperConfig).load(Booking.class, "1", current.getEndTime()));
+    }
+
+    @Test
+    public void overlapWithItselfIsNoConflict() throws Exception {
+
+        Booking dal = new Booking(client, mapperConfig);
+        Booking current = save("3", "2019-09-03T10:00:00Z", "2019-09-03T10:30:00Z");
+
+        Booking rescheduled = current.copy();
+        rescheduled.setStartTime(Instant.parse("2019-09-03T09:50:00Z"));
+        assertTrue(dal.reschedule(current, rescheduled, MAX_DURATION, BUFFER).isEmpty());
+        assertEquals(Instant.parse("2019-09-03T09:50:00Z"), dal.get(current.getBookingId()).getStartTime());
+    }
+
+    @Test
+    public void conflictLeavesBookingAsItWas() throws Exception {
+
+        Booking dal = new Booking(client, mapperConfig);
+        Booking other = save("4", "2019-09-03T11:00:00Z", "2019-09-03T11:30:00Z");
+        Booking current = save("4", "2019-09-03T10:00:00Z", "2019-09-03T10:30:00Z");
+
+        Booking rescheduled = current.copy();
+        rescheduled.setEndTime(Instant.parse("2019-09-03T10:56:00Z"));
+        List<Booking> conflicts = dal.reschedule(current, rescheduled, MAX_DURATION, BUFFER);
+
+        assertEquals(1, conflicts.size());
+        assertEquals(other.getBookingId(), conflicts.get(0).getBookingId());
+        assertEquals(current.getEndTime(), dal.get(current.getBookingId()).getEndTime());
+    }
+
+    @Test
+    public void bookingCreatedDuringTheCheckCancelsTheReschedule() throws Exception {
+
+        Booking current = save("5", "2019-09-03T10:00:00Z", "2019-09-03T10:30:00Z");
+        // creates a conflicting booking right after the conflict check read the scooter
+        Booking racing = new Booking(client, mapperConfig) {
+            @Override
+            public List<Booking> validateBooking(Booking booking, int maxDuration, int buffer) throws IOException {
+                List<Booking> conflicts = super.validateBooking(booking, maxDuration, buffer);
+                RescheduleTest.save("5", "2019-09-03T11:00:00Z", "2019-09-03T11:30:00Z");
+                return conflicts;
+            }
+        };
+
+        Booking rescheduled = current.copy();
+        rescheduled.setEndTime(Instant.parse("2019-09-03T11:15:00Z"));
+        try {
+            racing.reschedule(current, rescheduled, MAX_DURATION, BUFFER);
+            fail("rescheduled over a booking created during the check");
+        } catch (UnableToUpdateException e) {
+            assertEquals(current.getEndTime(), racing.get(current.getBookingId()).getEndTime());
+        }
+        Map<String, AttributeValue> version = client.getItem(new GetItemRequest()
+                .withTableName(BookingKeys.tableName(tableName))
+                .withKey(BookingKeys.scooterKey("5"))).getItem();
+        assertEquals("2", version.get(BookingKeys.VERSION).getN());
+    }
+
+    @Test
+    public void stateChangeDuringTheCheckCancelsTheReschedule() throws Exception {
+
+        for (String scooterId : new String[]{"6", "7"}) {
+            Booking current = save(scooterId, "2019-09-03T10:00:00Z", "2019-09-03T10:30:00Z");
+            // cancels the booking right after the conflict check, like a concurrent SetBookingState
+            Booking racing = new Booking(client, mapperConfig) {
+                @Override
+                public List<Booking> validateBooking(Booking booking, int maxDuration, int buffer) throws IOException {
+                    List<Booking> conflicts = super.validateBooking(booking, maxDuration, buffer);
+                    Booking cancelled = current.copy();
+                    cancelled.setBookingStatus(BookingStatus.CANCELLED);
+                    new Booking(client, mapperConfig).update(cancelled);
+                    return conflicts;
+                }
+            };
+            int liveBookings = racing.liveBookingCount("u");
+
+            // on the same key, and moved to another scooter
+            Booking rescheduled = current.copy();
+            rescheduled.setStartTime(Instant.parse("2019-09-03T10:10:00Z"));
+            if (scooterId.equals("7")) {
+                rescheduled.setScooterId("8");
+            }
+            try {
+                racing.reschedule(current, rescheduled, MAX_DURATION, BUFFER);
+                fail("a cancelled booking was rescheduled back to VALID");
+            } catch (UnableToUpdateException e) {
+                Booking read = racing.get(current.getBookingId());
+                assertEquals(BookingStatus.CANCELLED, read.getBookingStatus());
+                assertEquals(scooterId, read.getScooterId());
+                assertEquals(current.getStartTime(), read.getStartTime());
+            }
+            // only the cancel counted, not the reschedule based on the VALID booking read before it
+            assertEquals(liveBookings - 1, racing.liveBookingCount("u"));
+        }
+    }
+
+    private static Booking save(String scooterId, String startTime, String endTime) throws IOException {
+        Booking booking = new Booking(client, mapperConfig);
+        booking.setScooterId(scooterId);
+        booking.setUserId("u");
+        booking.setStartTime(Instant.parse(startTime));
+        booking.setEndTime(Instant.parse(endTime));
+        booking.setBookingStatus(BookingStatus.VALID);
+        return booking.save(booking);
+    }
+}
@@ -0,0 +1,124 @@
+package com.wirelessiths.dal;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.wirelessiths.dal.timeline.Availability;
+import com.wirelessiths.dal.timeline.ScooterTimeline;
+import com.wirelessiths.handler.ScooterAvailabilityHandler;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ScooterTimelineTest {
+
+    private static final Duration BUFFER = Duration.ofMinutes(5);
+
+    private static AmazonDynamoDB client;
+    private static DynamoDBMapperConfig mapperConfig;
+    private static String tableName = "timeline-test-table";
+
+    @BeforeClass
+    public static void setUpClientAndTable() {
+        client = LocalDbHandler.createClient();
+        mapperConfig = LocalDbHandler.createMapperConfig(tableName);
+        LocalDbHandler.deleteTable(tableName, client);
+        LocalDbHandler.createTable(tableName, client);
+    }
+
+    @AfterClass
+    public static void deleteTable() {
+        LocalDbHandler.deleteTable(tableName, client);
+    }
+
+    @Test
+    public void freeSlotsLeaveBufferAroundBookings() {
+
+        ScooterTimeline timeline = new ScooterTimeline("1", Instant.parse("2019-09-03T00:00:00Z"));
+        timeline.put("a", Instant.parse("2019-09-03T10:00:00Z"), Instant.parse("2019-09-03T10:30:00Z"));
+        timeline.put("b", Instant.parse("2019-09-03T11:00:00.500Z"), Instant.parse("2019-09-03T11:30:00.500Z"));
+
+        List<ScooterTimeline.Interval> free = timeline.freeSlots(
+                Instant.parse("2019-09-03T09:00:00Z"), Instant.parse("2019-09-03T12:00:00Z"), BUFFER);
+
+        assertEquals("[[2019-09-03T09:00:00Z, 2019-09-03T09:55:00Z], "
+                + "[2019-09-03T10:35:01Z, 2019-09-03T10:55:00.500Z], "
+                + "[2019-09-03T11:35:01Z, 2019-09-03T12:00:00Z]]", free.toString());
+    }
+
+    @Test
+    public void longBookingStartingBeforeFromBlocksTheRange() {
+
+        ScooterTimeline timeline = new ScooterTimeline("1", Instant.parse("2019-09-03T00:00:00Z"));
+        timeline.put("long", Instant.parse("2019-09-03T06:00:00Z"), Instant.parse("2019-09-03T10:00:00Z"));
+        timeline.put("short", Instant.parse("2019-09-03T09:00:00Z"), Instant.parse("2019-09-03T09:10:00Z"));
+
+        List<ScooterTimeline.Interval> overlapping = timeline.overlapping(
+                Instant.parse("2019-09-03T09:30:00Z"), Instant.parse("2019-09-03T09:40:00Z"));
+        assertEquals(1, overlapping.size());
+        assertEquals(Instant.parse("2019-09-03T06:00:00Z"), overlapping.get(0).getStart());
+        assertEquals("[[2019-09-03T10:05:01Z, 2019-09-03T11:00:00Z]]", timeline.freeSlots(
+                Instant.parse("2019-09-03T08:00:00Z"), Instant.parse("2019-09-03T11:00:00Z"), BUFFER).toString());
+    }
+
+    @Test
+    public void putMovesAndRemoveFreesABooking() {
+
+        ScooterTimeline timeline = new ScooterTimeline("1", Instant.parse("2019-09-03T00:00:00Z"));
+        timeline.put("a", Instant.parse("2019-09-03T10:00:00Z"), Instant.parse("2019-09-03T10:30:00Z"));
+        timeline.put("a", Instant.parse("2019-09-03T11:00:00Z"), Instant.parse("2019-09-03T11:30:00Z"));
+
+        assertEquals(1, timeline.size());
+        assertTrue(timeline.overlapping(Instant.parse("2019-09-03T10:00:00Z"), Instant.parse("2019-09-03T10:30:00Z")).isEmpty());
+
+        timeline.remove("a");
+        assertEquals(0, timeline.size());
+    }
+
+    @Test
+    public void freeSlotsPassTheConflictCheckAndFollowSaves() throws Exception {
+
+        int maxDuration = 7200;
+        int buffer = (int) BUFFER.getSeconds();
+        String scooterId = "timeline-" + System.nanoTime();
+        Instant now = Instant.parse("2030-01-01T09:00:00Z");
+        LocalDbHandler.saveBooking(client, mapperConfig, scooterId, "2030-01-01T10:00:00Z", "2030-01-01T10:30:00Z", BookingStatus.VALID);
+        LocalDbHandler.saveBooking(client, mapperConfig, scooterId, "2030-01-01T11:00:00Z", "2030-01-01T11:30:00Z", BookingStatus.ACTIVE);
+        LocalDbHandler.saveBooking(client, mapperConfig, scooterId, "2030-01-01T12:00:00Z", "2030-01-01T12:30:00Z", BookingStatus.CANCELLED);
+
+        Booking dal = new Booking(client, mapperConfig);
+        ScooterAvailabilityHandler handler = new ScooterAvailabilityHandler();
+        Availability availability = handler.availability(scooterId,
+                Collections.singletonMap("to", "2030-01-01T13:00:00Z"), dal, maxDuration, buffer, now);
+
+        List<ScooterTimeline.Interval> free = availability.getFree();
+        assertEquals(3, free.size());
+        for (ScooterTimeline.Interval slot : free) {
+            Instant end = slot.getEnd().isBefore(slot.getStart().plusSeconds(maxDuration))
+                    ? slot.getEnd() : slot.getStart().plusSeconds(maxDuration);
+            Booking inSlot = LocalDbHandler.booking(client, mapperConfig, scooterId, slot.getStart(), end);
+            assertTrue(slot.toString(), dal.validateBooking(inSlot, maxDuration, buffer).isEmpty());
+        }
+        ScooterTimeline.Interval between = free.get(1);
+        Booking startsEarly = LocalDbHandler.booking(client, mapperConfig, scooterId, between.getStart().minusSeconds(1), between.getEnd());
+        assertFalse(dal.validateBooking(startsEarly, maxDuration, buffer).isEmpty());
+        Booking endsLate = LocalDbHandler.booking(client, mapperConfig, scooterId, between.getStart(), between.getEnd().plusSeconds(1));
+        assertFalse(dal.validateBooking(endsLate, maxDuration, buffer).isEmpty());
+
+        // applied to the cached timeline without a rebuild
+        Booking created = LocalDbHandler.saveBooking(client, mapperConfig, scooterId, "2030-01-01T10:40:00Z", "2030-01-01T10:50:00Z", BookingStatus.VALID);
+        free = handler.availability(scooterId, Collections.singletonMap("to", "2030-01-01T13:00:00Z"), dal, maxDuration, buffer, now).getFree();
+        assertEquals(2, free.size());
+        assertEquals(Instant.parse("2030-01-01T11:35:01Z"), free.get(1).getStart());
+
+        created.delete(created.getBookingId());
+        free = handler.availability(scooterId, Collections.singletonMap("to", "2030-01-01T13:00:00Z"), dal, maxDuration, buffer, now).getFree();
+        assertEquals(between.getStart(), free.get(1).getStart());
+    }
+}
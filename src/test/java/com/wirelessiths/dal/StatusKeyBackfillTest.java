@@ -0,0 +1,82 @@
+package com.wirelessiths.dal;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class StatusKeyBackfillTest {
+
+    private static AmazonDynamoDB client;
+    private static DynamoDBMapperConfig mapperConfig;
+    private static String tableName = "backfill-test-table";
+
+    @BeforeClass
+    public static void setUpClientAndTable() {
+        client = LocalDbHandler.createClient();
+        mapperConfig = LocalDbHandler.createMapperConfig(tableName);
+        LocalDbHandler.deleteTable(tableName, client);
+        LocalDbHandler.createTable(tableName, client);
+    }
+
+    @AfterClass
+    public static void deleteTable() {
+        LocalDbHandler.deleteTable(tableName, client);
+    }
+
+    @Test
+    public void writesMissingKeysOnceAndIndexesBookingsByStatus() {
+
+        // as saved before the status key existed
+        putWithoutStatusKey("1", "2019-09-03T10:00:00Z", "2019-09-03T10:30:00Z", BookingStatus.VALID);
+        putWithoutStatusKey("2", "2019-09-03T11:00:00Z", "2019-09-03T11:30:00Z", BookingStatus.CANCELLED);
+        putWithoutStatusKey("3", "2019-09-03T12:00:00Z", "2019-09-03T12:30:00Z", BookingStatus.VALID);
+
+        // saved by the current code, key already written
+        Booking saved = new Booking(client, mapperConfig);
+        saved.setScooterId("4");
+        saved.setStartTime(Instant.parse("2019-09-03T13:00:00Z"));
+        saved.setEndTime(Instant.parse("2019-09-03T13:30:00Z"));
+        saved.setBookingStatus(BookingStatus.VALID);
+        try {
+            saved.save(saved);
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+
+        StatusKeyBackfill backfill = new StatusKeyBackfill(client, tableName);
+        assertEquals(3, backfill.run());
+        assertEquals(0, backfill.run());
+
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":key", new AttributeValue("VALID#2019-09-03"));
+        QueryResult valid = client.query(new QueryRequest(tableName)
+                .withIndexName(Booking.STATUS_START_INDEX)
+                .withKeyConditionExpression("statusStartDate = :key")
+                .withExpressionAttributeValues(values));
+        assertEquals(3, valid.getCount().intValue());
+        assertEquals(3, valid.getScannedCount().intValue());
+        assertEquals("1", valid.getItems().get(0).get("scooterId").getS());
+    }
+
+    private static void putWithoutStatusKey(String scooterId, String startTime, String endTime, BookingStatus status) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("scooterId", new AttributeValue(scooterId));
+        item.put("startTime", new AttributeValue(startTime));
+        item.put("endTime", new AttributeValue(endTime));
+        item.put("startDate", new AttributeValue(startTime.substring(0, 10)));
+        item.put("endDate", new AttributeValue(endTime.substring(0, 10)));
+        item.put("bookingStatus", new AttributeValue(status.toString()));
+        client.putItem(tableName, item);
+    }
+}
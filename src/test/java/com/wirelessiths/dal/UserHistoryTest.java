@@ -0,0 +1,100 @@
+package com.wirelessiths.dal;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.wirelessiths.dal.query.Page;
+import com.wirelessiths.handler.ListBookingsByUserHandler;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class UserHistoryTest {
+
+    private static final Instant FIRST_START = Instant.parse("2019-09-03T08:00:00Z");
+
+    private static AmazonDynamoDB client;
+    private static DynamoDBMapperConfig mapperConfig;
+    private static String tableName = "user-history-test-table";
+
+    @BeforeClass
+    public static void setUpClientAndTable() throws IOException {
+        client = LocalDbHandler.createClient();
+        mapperConfig = LocalDbHandler.createMapperConfig(tableName);
+        LocalDbHandler.deleteTable(tableName, client);
+        LocalDbHandler.createTable(tableName, client);
+
+        // every third booking of the user is cancelled, one hour apart on different scooters
+        for (int i = 0; i < 9; i++) {
+            Booking booking = new Booking(client, mapperConfig);
+            booking.setScooterId(Integer.toString(i));
+            booking.setUserId("history");
+            booking.setStartTime(FIRST_START.plusSeconds(i * 3600L));
+            booking.setEndTime(FIRST_START.plusSeconds(i * 3600L + 1800));
+            booking.setBookingStatus(i % 3 == 0 ? BookingStatus.CANCELLED : BookingStatus.VALID);
+            booking.save(booking);
+        }
+    }
+
+    @AfterClass
+    public static void deleteTable() {
+        LocalDbHandler.deleteTable(tableName, client);
+    }
+
+    @Test
+    public void pagesThroughHistoryNewestFirst() throws Exception {
+
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("limit", "4");
+        List<Instant> starts = new ArrayList<>();
+        int pages = 0;
+        String cursor = null;
+        do {
+            if (cursor != null) {
+                parameters.put("cursor", cursor);
+            }
+            Page<Booking> page = new ListBookingsByUserHandler()
+                    .retrievePage("history", parameters, new Booking(client, mapperConfig));
+            page.getItems().forEach(booking -> starts.add(booking.getStartTime()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(9, starts.size());
+        assertEquals(FIRST_START.plusSeconds(8 * 3600L), starts.get(0));
+        assertEquals(FIRST_START, starts.get(8));
+    }
+
+    @Test
+    public void statusIsReadFromIndexInEitherOrder() throws Exception {
+
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("bookingStatus", "CANCELLED");
+        Page<Booking> page = new ListBookingsByUserHandler()
+                .retrievePage("history", parameters, new Booking(client, mapperConfig));
+
+        assertEquals(3, page.getItems().size());
+        assertNull(page.getNextCursor());
+        assertEquals("6", page.getItems().get(0).getScooterId());
+        for (Booking booking : page.getItems()) {
+            assertEquals(BookingStatus.CANCELLED, booking.getBookingStatus());
+        }
+
+        parameters.put("bookingStatus", "VALID");
+        parameters.put("order", "asc");
+        parameters.put("from", FIRST_START.plusSeconds(3 * 3600L).toString());
+        parameters.put("limit", "1");
+        page = new ListBookingsByUserHandler().retrievePage("history", parameters, new Booking(client, mapperConfig));
+        assertEquals("4", page.getItems().get(0).getScooterId());
+        assertNotNull(page.getNextCursor());
+    }
+}
@@ -0,0 +1,124 @@
+package com.wirelessiths.dal.cache;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ListCacheTest {
+
+    private final MovingClock clock = new MovingClock();
+
+    @Test
+    public void concurrentMissesShareOneRead() throws Exception {
+        ListCache cache = new ListCache(clock);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ListCache.Loader slowLoader = () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return new ListCache.Listing("[]", null, "\"tag\"");
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<ListCache.Listing> first = executor.submit(() -> cache.get("q", slowLoader));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<ListCache.Listing> second = executor.submit(() -> cache.get("q", slowLoader));
+            Future<ListCache.Listing> third = executor.submit(() -> cache.get("q", slowLoader));
+            release.countDown();
+
+            ListCache.Listing listing = first.get(5, TimeUnit.SECONDS);
+            assertSame(listing, second.get(5, TimeUnit.SECONDS));
+            assertSame(listing, third.get(5, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void listsExpireAndAreClearedByWrites() throws IOException {
+        ListCache cache = new ListCache(clock);
+        AtomicInteger loads = new AtomicInteger();
+        ListCache.Loader loader = () -> new ListCache.Listing("[" + loads.incrementAndGet() + "]", null, null);
+
+        assertEquals("[1]", cache.get("q", loader).getBody());
+        assertEquals("[1]", cache.get("q", loader).getBody());
+        assertEquals("[2]", cache.get("other", loader).getBody());
+
+        clock.advance(ListCache.TTL_MILLIS);
+        assertEquals("[3]", cache.get("q", loader).getBody());
+
+        cache.clear();
+        assertEquals("[4]", cache.get("q", loader).getBody());
+    }
+
+    @Test
+    public void readStartedBeforeAClearIsNotStored() throws IOException {
+        ListCache cache = new ListCache(clock);
+        AtomicInteger loads = new AtomicInteger();
+
+        ListCache.Listing stale = cache.get("q", () -> {
+            cache.clear();
+            return new ListCache.Listing("[" + loads.incrementAndGet() + "]", null, null);
+        });
+        assertEquals("[1]", stale.getBody());
+        assertEquals("[2]", cache.get("q", () -> new ListCache.Listing("[" + loads.incrementAndGet() + "]", null, null)).getBody());
+    }
+
+    @Test
+    public void failedReadIsNotCached() throws IOException {
+        ListCache cache = new ListCache(clock);
+        try {
+            cache.get("q", () -> {
+                throw new IOException("throttled");
+            });
+            fail("expected the loader's exception");
+        } catch (IOException e) {
+            assertEquals("throttled", e.getMessage());
+        }
+        assertEquals("[]", cache.get("q", () -> new ListCache.Listing("[]", null, null)).getBody());
+    }
+
+    private static class MovingClock extends Clock {
+
+        private Instant now = Instant.parse("2019-09-03T10:00:00Z");
+
+        void advance(long millis) {
+            now = now.plusMillis(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
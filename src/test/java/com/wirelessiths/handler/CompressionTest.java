@@ -0,0 +1,92 @@
+package com.wirelessiths.handler;
+
+import com.wirelessiths.ApiGatewayResponse;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class CompressionTest {
+
+    @Test
+    public void acceptsGzipUnlessItIsMissingOrRejected() {
+        assertTrue(Compression.acceptsGzip("gzip, deflate, br"));
+        assertTrue(Compression.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+        assertTrue(Compression.acceptsGzip("*"));
+        assertFalse(Compression.acceptsGzip(null));
+        assertFalse(Compression.acceptsGzip("deflate, br"));
+        assertFalse(Compression.acceptsGzip("gzip;q=0, br"));
+        assertFalse(Compression.acceptsGzip("identity"));
+    }
+
+    @Test
+    public void gzipsLargeBodiesForClientsThatAcceptIt() throws IOException {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 100; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"bookingId\":\"").append(i).append("\",\"bookingStatus\":\"VALID\"}");
+        }
+        String body = json.append(']').toString();
+        ApiGatewayResponse response = ApiGatewayResponse.builder()
+                .setStatusCode(200)
+                .setRawBody(body)
+                .setHeaders(Collections.singletonMap("ETag", "\"tag\""))
+                .build();
+
+        assertSame(response, Compression.negotiate(input(null), response));
+
+        ApiGatewayResponse gzipped = Compression.negotiate(input("gzip"), response);
+        assertEquals(200, gzipped.getStatusCode());
+        assertTrue(gzipped.isIsBase64Encoded());
+        assertEquals("gzip", gzipped.getHeaders().get(Compression.CONTENT_ENCODING));
+        assertEquals("\"tag-gzip\"", gzipped.getHeaders().get("ETag"));
+        assertEquals("\"tag\"", response.getHeaders().get("ETag"));
+        byte[] compressed = Base64.getDecoder().decode(gzipped.getBody());
+        assertTrue(compressed.length < body.length() / 4);
+        assertEquals(body, gunzip(compressed));
+
+        ApiGatewayResponse small = ApiGatewayResponse.builder().setRawBody("[]").build();
+        assertSame(small, Compression.negotiate(input("gzip"), small));
+    }
+
+    @Test
+    public void readsBase64EncodedRequestBodies() {
+        Map<String, Object> input = new HashMap<>();
+        input.put("body", Base64.getEncoder().encodeToString("{\"command\":\"cancel\"}".getBytes(StandardCharsets.UTF_8)));
+        input.put("isBase64Encoded", true);
+        assertEquals("{\"command\":\"cancel\"}", Requests.body(input));
+
+        input.put("body", "{}");
+        input.put("isBase64Encoded", false);
+        assertEquals("{}", Requests.body(input));
+    }
+
+    private static Map<String, Object> input(String acceptEncoding) {
+        Map<String, Object> input = new HashMap<>();
+        if (acceptEncoding != null) {
+            input.put("headers", Collections.singletonMap("accept-encoding", acceptEncoding));
+        }
+        return input;
+    }
+
+    private static String gunzip(byte[] compressed) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
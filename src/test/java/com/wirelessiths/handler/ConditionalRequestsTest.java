@@ -0,0 +1,82 @@
+package com.wirelessiths.handler;
+
+import com.wirelessiths.ApiGatewayResponse;
+import com.wirelessiths.codec.ETags;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ConditionalRequestsTest {
+
+    private static final String ETAG = ETags.of("[]");
+
+    @Test
+    public void answersNotModifiedWhenIfNoneMatchListsTheTag() {
+        assertFalse(ConditionalRequests.isNotModified(input(null, null), ETAG));
+        assertTrue(ConditionalRequests.isNotModified(input("if-none-match", ETAG), ETAG));
+        assertTrue(ConditionalRequests.isNotModified(input("If-None-Match", "\"other\", W/" + ETAG), ETAG));
+        assertTrue(ConditionalRequests.isNotModified(input("If-None-Match", "*"), ETAG));
+        assertFalse(ConditionalRequests.isNotModified(input("If-None-Match", "\"other\""), ETAG));
+
+        ApiGatewayResponse notModified = ConditionalRequests.ok(input("If-None-Match", ETAG), "[]", ETAG,
+                Collections.singletonMap("X-Next-Cursor", "cursor-1"));
+        assertEquals(304, notModified.getStatusCode());
+        assertNull(notModified.getBody());
+        assertEquals(ETAG, notModified.getHeaders().get(ConditionalRequests.ETAG));
+        assertEquals("cursor-1", notModified.getHeaders().get("X-Next-Cursor"));
+
+        ApiGatewayResponse ok = ConditionalRequests.ok(input(null, null), "[]", ETAG, Collections.emptyMap());
+        assertEquals(200, ok.getStatusCode());
+        assertEquals("[]", ok.getBody());
+        assertEquals(ETAG, ok.getHeaders().get(ConditionalRequests.ETAG));
+    }
+
+    @Test
+    public void failsIfMatchUnlessItListsTheTagStrongly() {
+        assertFalse(ConditionalRequests.failsIfMatch(input(null, null), ETAG));
+        assertFalse(ConditionalRequests.failsIfMatch(input("If-Match", ETAG), ETAG));
+        assertFalse(ConditionalRequests.failsIfMatch(input("If-Match", "*"), ETAG));
+        assertTrue(ConditionalRequests.failsIfMatch(input("If-Match", "W/" + ETAG), ETAG));
+        assertTrue(ConditionalRequests.failsIfMatch(input("If-Match", ETags.of("[{}]")), ETAG));
+        assertTrue(ConditionalRequests.failsIfMatch(input("If-Match", "*"), null));
+        assertFalse(ConditionalRequests.failsIfMatch(input("If-Match", Compression.gzipETag(ETAG)), ETAG));
+        assertEquals(412, ConditionalRequests.preconditionFailed().getStatusCode());
+    }
+
+    @Test
+    public void writesMatchTheETagOnlyIfIfMatchNamesTags() {
+        assertFalse(ConditionalRequests.matchesETag(input(null, null)));
+        assertTrue(ConditionalRequests.matchesETag(input("If-Match", ETAG)));
+        assertTrue(ConditionalRequests.matchesETag(input("if-match", "\"other\", " + ETAG)));
+        assertFalse(ConditionalRequests.matchesETag(input("If-Match", "*")));
+        assertFalse(ConditionalRequests.matchesETag(input("If-Match", ETAG + ", *")));
+    }
+
+    @Test
+    public void gzipTagOfTheSameVersionIsNotModifiedToo() {
+        String gzipETag = Compression.gzipETag(ETAG);
+        assertNotEquals(ETAG, gzipETag);
+        assertTrue(gzipETag.startsWith("\"") && gzipETag.endsWith("-gzip\""));
+        assertTrue(ConditionalRequests.isNotModified(input("If-None-Match", gzipETag), ETAG));
+        assertTrue(ConditionalRequests.isNotModified(input("If-None-Match", "W/" + gzipETag), ETAG));
+        assertFalse(ConditionalRequests.isNotModified(input("If-None-Match", Compression.gzipETag(ETags.of("[{}]"))), ETAG));
+
+        ApiGatewayResponse notModified = ConditionalRequests.ok(input("If-None-Match", gzipETag), "[]", ETAG, Collections.emptyMap());
+        assertEquals(304, notModified.getStatusCode());
+        assertEquals(gzipETag, notModified.getHeaders().get(ConditionalRequests.ETAG));
+        assertEquals(ETAG, ConditionalRequests.ok(input("If-None-Match", ETAG), "[]", ETAG, Collections.emptyMap())
+                .getHeaders().get(ConditionalRequests.ETAG));
+    }
+
+    private static Map<String, Object> input(String header, String value) {
+        Map<String, Object> input = new HashMap<>();
+        if (header != null) {
+            input.put("headers", Collections.singletonMap(header, value));
+        }
+        return input;
+    }
+}
@@ -0,0 +1,124 @@
+package com.wirelessiths.handler;
+
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.regions.Regions;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import com.amazonaws.services.dynamodbv2.model.ResourceNotFoundException;
+import com.wirelessiths.ApiGatewayResponse;
+import com.wirelessiths.dal.IdempotencyStore;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class IdempotencyTest {
+
+    private static final String BOOKINGS_TABLE = "idempotency-test-table";
+    private static final Instant NOW = Instant.parse("2019-09-03T10:00:00Z");
+
+    private static AmazonDynamoDB client;
+    private static IdempotencyStore store;
+
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @BeforeClass
+    public static void createTable() {
+        client = AmazonDynamoDBClientBuilder.standard()
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration("http://localhost:8000", Regions.EU_WEST_1.getName()))
+                .build();
+        deleteTable();
+        client.createTable(IdempotencyStore.createTableRequest(BOOKINGS_TABLE));
+        store = new IdempotencyStore(client, IdempotencyStore.tableName(BOOKINGS_TABLE));
+    }
+
+    @AfterClass
+    public static void deleteTable() {
+        try {
+            client.deleteTable(IdempotencyStore.tableName(BOOKINGS_TABLE));
+        } catch (ResourceNotFoundException e) {
+            // not there yet
+        }
+    }
+
+    @Test
+    public void retriesGetTheStoredResponseWithoutRunningTheCommandAgain() {
+        Map<String, Object> input = input("POST", "/bookings", "create-1", "{\"scooterId\":\"1\"}");
+
+        ApiGatewayResponse first = Idempotency.handle(store, input, respond(201), NOW);
+        ApiGatewayResponse retry = Idempotency.handle(store, input, respond(201), NOW.plusSeconds(30));
+
+        assertEquals(1, runs.get());
+        assertEquals(201, retry.getStatusCode());
+        assertEquals(first.getBody(), retry.getBody());
+        assertEquals("Wireless Scooter", retry.getHeaders().get("Booking System"));
+        assertEquals("true", retry.getHeaders().get(Idempotency.REPLAYED_HEADER));
+
+        // another path is another operation, the key does not apply to it
+        Idempotency.handle(store, input("POST", "/bookings/1/state", "create-1", "{}"), respond(200), NOW);
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    public void rejectsAKeyReusedForAnotherBodyOrStillInProgress() {
+        Idempotency.handle(store, input("POST", "/bookings", "create-2", "{\"scooterId\":\"1\"}"), respond(201), NOW);
+        ApiGatewayResponse reused = Idempotency.handle(store,
+                input("POST", "/bookings", "create-2", "{\"scooterId\":\"2\"}"), respond(201), NOW);
+        assertEquals(422, reused.getStatusCode());
+
+        Map<String, Object> input = input("POST", "/bookings", "create-3", "{}");
+        ApiGatewayResponse concurrent = Idempotency.handle(store, input,
+                in -> Idempotency.handle(store, in, respond(201), NOW), NOW);
+        assertEquals(409, concurrent.getStatusCode());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void runsTheCommandAgainAfterAFailureOrOnceTheKeyExpired() {
+        Map<String, Object> input = input("POST", "/bookings/1/state", "state-1", "{\"command\":\"cancel\"}");
+
+        assertEquals(500, Idempotency.handle(store, input, respond(500), NOW).getStatusCode());
+        assertEquals(200, Idempotency.handle(store, input, respond(200), NOW).getStatusCode());
+        assertEquals(2, runs.get());
+
+        Idempotency.handle(store, input, respond(200), NOW.plusSeconds(24 * 60 * 60));
+        assertEquals(3, runs.get());
+    }
+
+    @Test
+    public void runsRequestsWithoutAKeyEveryTime() {
+        Map<String, Object> input = input("POST", "/bookings", null, "{}");
+        Idempotency.handle(store, input, respond(201), NOW);
+        Idempotency.handle(store, input, respond(201), NOW);
+        assertEquals(2, runs.get());
+
+        assertEquals(400, Idempotency.handle(store, input("POST", "/bookings", "", "{}"), respond(201), NOW).getStatusCode());
+    }
+
+    private Function<Map<String, Object>, ApiGatewayResponse> respond(int statusCode) {
+        return input -> ApiGatewayResponse.builder()
+                .setStatusCode(statusCode)
+                .setRawBody("{\"run\":" + runs.incrementAndGet() + "}")
+                .setHeaders(Collections.singletonMap("Booking System", "Wireless Scooter"))
+                .build();
+    }
+
+    private static Map<String, Object> input(String method, String path, String key, String body) {
+        Map<String, Object> input = new HashMap<>();
+        input.put("httpMethod", method);
+        input.put("path", path);
+        input.put("body", body);
+        if (key != null) {
+            input.put("headers", Collections.singletonMap("idempotency-key", key));
+        }
+        return input;
+    }
+}
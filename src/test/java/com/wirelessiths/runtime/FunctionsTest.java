@@ -0,0 +1,33 @@
+package com.wirelessiths.runtime;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+public class FunctionsTest {
+
+    @Test
+    public void hasAFunctionForEveryHandlerOfTheTemplate() throws IOException {
+        Set<String> handlers = new TreeSet<>();
+        for (String line : Files.readAllLines(Paths.get("template.yml"), StandardCharsets.UTF_8)) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith("Handler:")) {
+                handlers.add(trimmed.substring("Handler:".length()).trim());
+            }
+        }
+        assertFalse(handlers.isEmpty());
+        assertEquals(handlers, new TreeSet<>(Functions.handlers()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownHandlers() {
+        Functions.create("com.wirelessiths.handler.NoSuchHandler::handleRequest");
+    }
+}
@@ -0,0 +1,27 @@
+package com.wirelessiths.runtime;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.wirelessiths.dal.DynamoDBAdapter;
+import com.wirelessiths.dal.cache.BookingCache;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class PrimingTest {
+
+    @Test
+    public void replacesTheClientAndEmptiesTheCachesBeforeACheckpoint() throws Exception {
+        AmazonDynamoDB before = DynamoDBAdapter.getInstance().getDbClient();
+        BookingCache.getInstance().put("primed", Collections.singletonMap("bookingId", new AttributeValue("primed")));
+
+        Priming.prime();
+
+        assertNotSame(before, DynamoDBAdapter.getInstance().getDbClient());
+        assertNotNull(DynamoDBAdapter.getInstance().getDynamoDB());
+        assertNull(BookingCache.getInstance().get("primed"));
+        Priming.refresh();
+    }
+}
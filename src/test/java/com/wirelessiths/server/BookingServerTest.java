@@ -0,0 +1,162 @@
+package com.wirelessiths.server;
+
+import com.wirelessiths.ApiGatewayResponse;
+import com.wirelessiths.service.Principal;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class BookingServerTest {
+
+    private final AtomicReference<Map<String, Object>> received = new AtomicReference<>();
+    private BookingServer server;
+
+    @After
+    public void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void passesRequestsToTheMatchingHandlerAsLambdaInput() throws IOException {
+        start(true);
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put(BookingServer.SUB_HEADER, "user-1");
+        headers.put(BookingServer.GROUPS_HEADER, "admin");
+        headers.put("Idempotency-Key", "key-1");
+        HttpURLConnection connection = send("GET", "/users/user%201/bookings?from=2019-09-03T10:00:00+02:00&limit=5", headers, null);
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("cursor-1", connection.getHeaderField("X-Next-Cursor"));
+        assertEquals("history", read(connection));
+
+        Map<String, Object> input = received.get();
+        assertEquals("/users/{id}/bookings", input.get("resource"));
+        assertEquals(Collections.singletonMap("id", "user 1"), input.get("pathParameters"));
+        Map<String, String> query = (Map<String, String>) input.get("queryStringParameters");
+        assertEquals("2019-09-03T10:00:00+02:00", query.get("from"));
+        assertEquals("5", query.get("limit"));
+        Map<String, String> inputHeaders = (Map<String, String>) input.get("headers");
+        assertEquals("key-1", inputHeaders.get("idempotency-key"));
+        assertNull(inputHeaders.get(BookingServer.SUB_HEADER));
+        Principal principal = Principal.from(input);
+        assertEquals("user-1", principal.getUserId());
+        assertTrue(principal.isAdmin());
+
+        // a literal segment wins over a parameter
+        connection = send("POST", "/bookings/batch/cancel", headers, "{\"bookingIds\":[\"1\"]}");
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("batch", read(connection));
+        assertEquals("{\"bookingIds\":[\"1\"]}", received.get().get("body"));
+        assertEquals(Collections.singletonMap("operation", "cancel"), received.get().get("pathParameters"));
+    }
+
+    @Test
+    public void ignoresClaimHeadersUnlessTrusted() throws IOException {
+        start(false);
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put(BookingServer.SUB_HEADER, "user-1");
+        headers.put(BookingServer.GROUPS_HEADER, "admin");
+        assertEquals(200, send("GET", "/users/user-1/bookings", headers, null).getResponseCode());
+
+        Principal principal = Principal.from(received.get());
+        assertEquals("sam-bot", principal.getUserId());
+        assertFalse(principal.isAdmin());
+        assertNull(received.get().get("queryStringParameters"));
+    }
+
+    @Test
+    public void answersUnknownRoutesAndFailedHandlers() throws IOException {
+        start(true);
+        Map<String, String> headers = Collections.emptyMap();
+
+        assertEquals(404, send("GET", "/trips", headers, null).getResponseCode());
+        HttpURLConnection connection = send("DELETE", "/users/user-1/bookings", headers, null);
+        assertEquals(405, connection.getResponseCode());
+        assertEquals("GET", connection.getHeaderField("Allow"));
+        assertEquals(502, send("POST", "/bookings/1/state", headers, "{}").getResponseCode());
+    }
+
+    @Test
+    public void closesItsSocketForACheckpointAndListensAgainAfterTheRestore() throws IOException {
+        start(true);
+        int port = server.getAddress().getPort();
+        Map<String, String> headers = Collections.emptyMap();
+
+        server.beforeCheckpoint(null);
+        try {
+            send("GET", "/users/user-1/bookings", headers, null).getResponseCode();
+            fail("the server still accepts connections");
+        } catch (ConnectException e) {
+            // closed, like the checkpoint needs it
+        }
+
+        server.afterRestore(null);
+        assertEquals(port, server.getAddress().getPort());
+        assertEquals(200, send("GET", "/users/user-1/bookings", headers, null).getResponseCode());
+    }
+
+    private void start(boolean trustClaimHeaders) throws IOException {
+        List<Route> routes = Arrays.asList(
+                new Route("POST", "/bookings/batch/{operation}", (input, context) -> respond(input, "batch", null)),
+                new Route("POST", "/bookings/{id}/state", (input, context) -> {
+                    throw new IllegalStateException("handler failed");
+                }),
+                new Route("GET", "/users/{id}/bookings", (input, context) -> respond(input, "history", "cursor-1")));
+        server = new BookingServer(routes, trustClaimHeaders);
+        server.start(new InetSocketAddress("localhost", 0), 4);
+    }
+
+    private ApiGatewayResponse respond(Map<String, Object> input, String body, String cursor) {
+        received.set(input);
+        return ApiGatewayResponse.builder()
+                .setStatusCode(200)
+                .setRawBody(body)
+                .setHeaders(cursor == null ? Collections.emptyMap() : Collections.singletonMap("X-Next-Cursor", cursor))
+                .build();
+    }
+
+    private HttpURLConnection send(String method, String path, Map<String, String> headers, String body) throws IOException {
+        URL url = new URL("http://localhost:" + server.getAddress().getPort() + path);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod(method);
+        headers.forEach(connection::setRequestProperty);
+        if (body != null) {
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return connection;
+    }
+
+    private static String read(HttpURLConnection connection) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = connection.getInputStream()) {
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}